@@ -4,8 +4,10 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
@@ -37,14 +39,22 @@ public class CacheConfig {
 
     @Bean
     public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        return RedisCacheManager.builder(connectionFactory)
+        // SCAN-based batch strategy so per-tenant pattern evictions don't block Redis with KEYS
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(
+                connectionFactory, BatchStrategies.scan(1000));
+
+        return RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(cacheConfiguration())
+                .enableStatistics()
                 // Productos: 30 minutes TTL (changes more frequently with sales)
                 .withCacheConfiguration("productos",
                         cacheConfiguration().entryTtl(Duration.ofMinutes(30)))
                 // Categorias: 2 hours TTL (rarely changes)
                 .withCacheConfiguration("categorias",
                         cacheConfiguration().entryTtl(Duration.ofHours(2)))
+                // Kiosco/plan/subscription metadata: 10 minutes (evicted on change, see MetadatosKioscoService)
+                .withCacheConfiguration("metadatosKiosco",
+                        cacheConfiguration().entryTtl(Duration.ofMinutes(10)))
                 .build();
     }
 }
@@ -4,11 +4,16 @@ import lombok.RequiredArgsConstructor;
 import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
 import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.sql.DataSource;
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -20,9 +25,20 @@ public class HibernateMultiTenancyConfig {
 
     private final DataSource dataSource;
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "tenant-pools.enabled", havingValue = "true")
+    public TenantConnectionPools tenantConnectionPools(
+            DataSourceProperties dataSourceProperties,
+            @Value("${tenant-pools.max-tenants:20}") int maxTenants,
+            @Value("${tenant-pools.pool-size:2}") int poolSize,
+            @Value("${tenant-pools.idle-timeout:2m}") Duration idleTimeout) {
+        return new TenantConnectionPools(dataSourceProperties, maxTenants, poolSize, idleTimeout);
+    }
+
     @Bean
-    public MultiTenantConnectionProvider<String> multiTenantConnectionProvider() {
-        return new SchemaMultiTenantConnectionProvider(dataSource);
+    public SchemaMultiTenantConnectionProvider multiTenantConnectionProvider(
+            ObjectProvider<TenantConnectionPools> tenantConnectionPools) {
+        return new SchemaMultiTenantConnectionProvider(dataSource, tenantConnectionPools.getIfAvailable());
     }
 
     @Bean
@@ -0,0 +1,35 @@
+package ar.com.kiosco.config;
+
+import ar.com.kiosco.service.MetadatosKioscoService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subscribes every app node to tenant metadata invalidations, so a plan,
+ * subscription or kiosco change on one node drops the local copies on all of them.
+ *
+ * Only enabled when spring.cache.type=redis (disabled in test profile).
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+public class MetadatosKioscoRedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer metadatosKioscoListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            MetadatosKioscoService metadatosKioscoService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> metadatosKioscoService.descartarLocal(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(MetadatosKioscoService.CANAL));
+        return container;
+    }
+}
@@ -7,10 +7,21 @@ import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides database connections with correct search_path for schema isolation.
  * Sets search_path to: [tenant_schema, public]
+ *
+ * With tenant pools enabled (tenant-pools.enabled), tenant connections come from
+ * {@link TenantConnectionPools}, where search_path is already pinned, and the
+ * shared pool is trusted to stay on public, so no SET runs on checkout or release.
+ * A tenant whose pool is unavailable falls back to the shared pool with SET and reset.
  */
 @RequiredArgsConstructor
 @Slf4j
@@ -20,6 +31,20 @@ public class SchemaMultiTenantConnectionProvider implements MultiTenantConnectio
 
     private final DataSource dataSource;
 
+    // Null when tenant pools are disabled
+    private final TenantConnectionPools tenantPools;
+
+    // Shared-pool connections whose search_path was changed and must be reset on release
+    private final Set<Connection> conSearchPathTenant = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final AtomicLong setsEjecutados = new AtomicLong();
+    private final AtomicLong setsEvitados = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public SchemaMultiTenantConnectionProvider(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
     @Override
     public Connection getAnyConnection() throws SQLException {
         return dataSource.getConnection();
@@ -32,6 +57,19 @@ public class SchemaMultiTenantConnectionProvider implements MultiTenantConnectio
 
     @Override
     public Connection getConnection(String tenantIdentifier) throws SQLException {
+        if (tenantPools != null) {
+            if (DEFAULT_SCHEMA.equals(tenantIdentifier)) {
+                setsEvitados.incrementAndGet();
+                return getAnyConnection();
+            }
+            Connection pinned = tenantPools.getConnection(tenantIdentifier);
+            if (pinned != null) {
+                setsEvitados.incrementAndGet();
+                return pinned;
+            }
+            fallbacks.incrementAndGet();
+        }
+
         Connection connection = getAnyConnection();
 
         try {
@@ -46,6 +84,8 @@ public class SchemaMultiTenantConnectionProvider implements MultiTenantConnectio
             try (var stmt = connection.createStatement()) {
                 stmt.execute("SET search_path TO " + searchPath);
             }
+            setsEjecutados.incrementAndGet();
+            conSearchPathTenant.add(connection);
             log.trace("Set search_path to: {} for tenant: {}", searchPath, tenantIdentifier);
         } catch (SQLException e) {
             connection.close();
@@ -57,12 +97,32 @@ public class SchemaMultiTenantConnectionProvider implements MultiTenantConnectio
 
     @Override
     public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+        if (!conSearchPathTenant.remove(connection)) {
+            // Pinned tenant connection or shared connection that never left public
+            setsEvitados.incrementAndGet();
+            connection.close();
+            return;
+        }
         try (var stmt = connection.createStatement()) {
             stmt.execute("SET search_path TO public");
         }
+        setsEjecutados.incrementAndGet();
         connection.close();
     }
 
+    /**
+     * SET search_path statements run and avoided, for the admin stats endpoint.
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tenantPoolsEnabled", tenantPools != null);
+        stats.put("tenantPools", tenantPools != null ? tenantPools.size() : 0);
+        stats.put("setsEjecutados", setsEjecutados.get());
+        stats.put("setsEvitados", setsEvitados.get());
+        stats.put("fallbacks", fallbacks.get());
+        return stats;
+    }
+
     @Override
     public boolean supportsAggressiveRelease() {
         return false;
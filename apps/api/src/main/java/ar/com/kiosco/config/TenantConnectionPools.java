@@ -0,0 +1,107 @@
+package ar.com.kiosco.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small per-tenant connection pools whose connections have the tenant's
+ * search_path set once, when the connection is opened (connectionInitSql).
+ *
+ * Checkouts then need no SET statement at all. At most maxTenants pools are kept;
+ * when a new tenant needs one, the least recently used pool without connections in
+ * use is closed. If every pool is busy, or the tenant's pool is closed this way
+ * before the checkout, {@link #getConnection(String)} returns null and the caller
+ * falls back to the shared pool.
+ */
+@Slf4j
+public class TenantConnectionPools implements AutoCloseable {
+
+    private final DataSourceProperties properties;
+    private final int maxTenants;
+    private final int poolSize;
+    private final Duration idleTimeout;
+
+    // Access-ordered: iteration starts at the least recently used tenant
+    private final LinkedHashMap<String, HikariDataSource> pools = new LinkedHashMap<>(16, 0.75f, true);
+
+    public TenantConnectionPools(DataSourceProperties properties, int maxTenants, int poolSize, Duration idleTimeout) {
+        this.properties = properties;
+        this.maxTenants = maxTenants;
+        this.poolSize = poolSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * A connection with search_path already set to the tenant schema and public,
+     * or null if no pool could be made available for the tenant.
+     */
+    public Connection getConnection(String schema) throws SQLException {
+        HikariDataSource pool = pool(schema);
+        if (pool == null) {
+            return null;
+        }
+        try {
+            return pool.getConnection();
+        } catch (SQLException e) {
+            // Evicted for another tenant between pool() and the checkout: use the shared pool
+            if (pool.isClosed()) {
+                log.debug("Connection pool for tenant {} was closed before checkout", schema);
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    public synchronized int size() {
+        return pools.size();
+    }
+
+    private synchronized HikariDataSource pool(String schema) {
+        HikariDataSource pool = pools.get(schema);
+        if (pool != null) {
+            return pool;
+        }
+        if (pools.size() >= maxTenants && !cerrarMenosUsado()) {
+            return null;
+        }
+
+        pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("tenant-" + schema);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setMinimumIdle(0);
+        pool.setIdleTimeout(idleTimeout.toMillis());
+        pool.setConnectionInitSql("SET search_path TO " + schema + ", public");
+        pools.put(schema, pool);
+        log.debug("Opened connection pool for tenant {}", schema);
+        return pool;
+    }
+
+    private boolean cerrarMenosUsado() {
+        Iterator<Map.Entry<String, HikariDataSource>> it = pools.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, HikariDataSource> entry = it.next();
+            var mxBean = entry.getValue().getHikariPoolMXBean();
+            if (mxBean == null || mxBean.getActiveConnections() == 0) {
+                it.remove();
+                entry.getValue().close();
+                log.debug("Closed connection pool for tenant {}", entry.getKey());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void close() {
+        pools.values().forEach(HikariDataSource::close);
+        pools.clear();
+    }
+}
@@ -0,0 +1,127 @@
+package ar.com.kiosco.config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The tenant migrations (db/tenant/V*.sql), read from the classpath and split into
+ * statements once. They ship in the jar, so they cannot change while the app runs.
+ * Shared by schema provisioning and the tenant migration runner.
+ */
+public final class TenantMigrationScripts {
+
+    private static final String TENANT_MIGRATIONS_PATH = "db/tenant/";
+
+    private static volatile List<Script> scripts;
+
+    /**
+     * One migration file: its version, file name and statements without the trailing ';'.
+     */
+    public record Script(int version, String filename, List<String> statements) {
+    }
+
+    private TenantMigrationScripts() {
+    }
+
+    /**
+     * All tenant migrations, sorted by version.
+     */
+    public static List<Script> all() throws IOException {
+        List<Script> loaded = scripts;
+        if (loaded == null) {
+            synchronized (TenantMigrationScripts.class) {
+                if (scripts == null) {
+                    scripts = load();
+                }
+                loaded = scripts;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Version of the last tenant migration, or 0 if there is none.
+     */
+    public static int latestVersion() throws IOException {
+        List<Script> available = all();
+        return available.isEmpty() ? 0 : available.get(available.size() - 1).version();
+    }
+
+    private static List<Script> load() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Resource[] resources = resolver.getResources("classpath:" + TENANT_MIGRATIONS_PATH + "V*.sql");
+
+        List<Script> loaded = new ArrayList<>();
+        for (Resource resource : resources) {
+            String sql = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            loaded.add(new Script(extractVersion(resource.getFilename()), resource.getFilename(), split(sql)));
+        }
+
+        // Sort by version number (V1, V2, etc.)
+        loaded.sort(Comparator.comparingInt(Script::version));
+        return List.copyOf(loaded);
+    }
+
+    static int extractVersion(String filename) {
+        if (filename != null && filename.startsWith("V")) {
+            try {
+                return Integer.parseInt(filename.split("__")[0].substring(1));
+            } catch (NumberFormatException e) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Splits a script into statements: a statement ends at a line ending with ';'.
+     * Comment-only lines and inline comments are dropped, so a plpgsql body must
+     * be written on one line.
+     */
+    static List<String> split(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder currentStatement = new StringBuilder();
+        boolean inStatement = false;
+
+        for (String line : sql.split("\n")) {
+            String trimmedLine = line.trim();
+
+            // Skip empty lines and comment-only lines when not in a statement
+            if (!inStatement && (trimmedLine.isEmpty() || trimmedLine.startsWith("--"))) {
+                continue;
+            }
+
+            // Start a new statement if we see non-empty, non-comment content
+            if (!inStatement) {
+                inStatement = true;
+                currentStatement = new StringBuilder();
+            }
+
+            // Remove inline comments but keep the line
+            int commentIdx = line.indexOf("--");
+            String cleanLine = (commentIdx >= 0) ? line.substring(0, commentIdx) : line;
+            currentStatement.append(cleanLine).append("\n");
+
+            // Check if statement is complete: line ends with ; (possibly with whitespace)
+            if (cleanLine.trim().endsWith(";")) {
+                String finalStatement = currentStatement.toString().trim();
+                // Remove trailing semicolon
+                if (finalStatement.endsWith(";")) {
+                    finalStatement = finalStatement.substring(0, finalStatement.length() - 1).trim();
+                }
+                if (!finalStatement.isEmpty()) {
+                    statements.add(finalStatement);
+                }
+                inStatement = false;
+            }
+        }
+        return statements;
+    }
+}
@@ -1,70 +1,103 @@
 package ar.com.kiosco.config;
 
+import ar.com.kiosco.config.TenantMigrationScripts.Script;
 import ar.com.kiosco.domain.Kiosco;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Manages tenant schemas for multi-tenancy.
  * Creates schema: kiosco_{first8charsOfUUID}
+ *
+ * With tenant-schemas.spares, a few fully migrated spare schemas (tenant_spare_*)
+ * are kept ready and a signup claims one with ALTER SCHEMA ... RENAME, a catalog-only
+ * change, so onboarding does not grow with the number of migrations. Without a
+ * usable spare the schema is built from the migration scripts as before. Spares are
+ * built in one transaction, so a half-built spare is never visible, and spares left
+ * behind by a newer migration are dropped and rebuilt by {@link #replenishSpareSchemas()}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TenantSchemaManager {
 
-    private static final String TENANT_MIGRATIONS_PATH = "db/tenant/";
     private static final String SCHEMA_PREFIX = "kiosco_";
+    private static final String SPARE_PREFIX = "tenant_spare_";
 
     private final JdbcTemplate jdbcTemplate;
 
+    @Value("${tenant-schemas.spares:0}")
+    private int spares = 0;
+
     /**
-     * Creates a tenant schema for a new kiosco.
+     * Creates a tenant schema for a new kiosco, claiming a spare schema when one is ready.
      * @param kiosco The kiosco entity
      * @return The schema name created
      */
     public String createTenantSchema(Kiosco kiosco) {
         String schemaName = getSchemaName(kiosco.getId());
 
+        if (claimSpareSchema(schemaName)) {
+            log.info("Successfully created tenant schema: {} (from spare)", schemaName);
+            return schemaName;
+        }
+
         log.info("Creating tenant schema: {}", schemaName);
+        buildSchema(schemaName);
+        log.info("Successfully created tenant schema: {}", schemaName);
+        return schemaName;
+    }
 
-        // Use a single connection for both schema creation and table creation
-        try {
-            Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
-            try (Statement stmt = connection.createStatement()) {
-                // Create schema
-                stmt.execute("CREATE SCHEMA IF NOT EXISTS " + schemaName);
-                log.debug("Schema {} created", schemaName);
+    /**
+     * Drops spare schemas older than the latest migration and builds new ones
+     * until tenant-schemas.spares are ready. Nodes running an older release leave
+     * newer spares alone.
+     * @return number of spares built
+     */
+    public int replenishSpareSchemas() {
+        if (spares <= 0) {
+            return 0;
+        }
 
-                // Execute tenant template in the new schema
-                executeTenantTemplateWithConnection(connection, schemaName);
-            } finally {
-                connection.close();
+        int latestVersion = latestVersion();
+        int ready = 0;
+        try (Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (String spare : listSpareSchemas(stmt)) {
+                int version = getSchemaVersion(stmt, spare);
+                if (version < latestVersion) {
+                    log.info("Dropping outdated spare schema {} (version {}, latest {})", spare, version, latestVersion);
+                    stmt.execute("DROP SCHEMA IF EXISTS " + spare + " CASCADE");
+                } else {
+                    ready++;
+                }
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to create tenant schema: " + schemaName, e);
+            throw new RuntimeException("Failed to list spare schemas", e);
         }
 
-        log.info("Successfully created tenant schema: {}", schemaName);
-        return schemaName;
+        int built = 0;
+        for (; ready + built < spares; built++) {
+            String spare = SPARE_PREFIX + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+            buildSchema(spare);
+            log.debug("Spare schema {} ready", spare);
+        }
+        return built;
     }
 
     /**
@@ -109,86 +142,117 @@ public class TenantSchemaManager {
         jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + schemaName + " CASCADE");
     }
 
-    private void executeTenantTemplateWithConnection(Connection connection, String schemaName) throws SQLException {
-        try {
-            // Find all tenant migration files and sort them by version
-            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-            Resource[] resources = resolver.getResources("classpath:" + TENANT_MIGRATIONS_PATH + "V*.sql");
-
-            // Sort by version number (V1, V2, etc.)
-            Arrays.sort(resources, Comparator.comparing(r -> {
-                String filename = r.getFilename();
-                if (filename != null && filename.startsWith("V")) {
-                    try {
-                        return Integer.parseInt(filename.split("__")[0].substring(1));
-                    } catch (NumberFormatException e) {
-                        return Integer.MAX_VALUE;
-                    }
+    /**
+     * Renames a spare at the latest migration version to the tenant schema.
+     * Runs on its own autocommit connection, outside the signup transaction, so a
+     * spare claimed by a concurrent signup only fails that rename and the next one is tried.
+     */
+    private boolean claimSpareSchema(String schemaName) {
+        if (spares <= 0 || schemaExists(schemaName)) {
+            return false;
+        }
+
+        int latestVersion = latestVersion();
+        try (Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (String spare : listSpareSchemas(stmt)) {
+                if (getSchemaVersion(stmt, spare) != latestVersion) {
+                    continue;
                 }
-                return Integer.MAX_VALUE;
-            }));
+                try {
+                    stmt.execute("ALTER SCHEMA " + spare + " RENAME TO " + schemaName);
+                    log.debug("Claimed spare schema {} as {}", spare, schemaName);
+                    return true;
+                } catch (SQLException e) {
+                    log.debug("Spare schema {} not claimed: {}", spare, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Could not claim a spare schema for {}: {}", schemaName, e.getMessage());
+            return false;
+        }
+
+        log.warn("No spare schema ready, building {} from migrations", schemaName);
+        return false;
+    }
+
+    private List<String> listSpareSchemas(Statement stmt) throws SQLException {
+        List<String> schemas = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT schema_name FROM information_schema.schemata WHERE schema_name LIKE '"
+                    + SPARE_PREFIX.replace("_", "\\_") + "%' ORDER BY schema_name")) {
+            while (rs.next()) {
+                schemas.add(rs.getString(1));
+            }
+        }
+        return schemas;
+    }
+
+    private int getSchemaVersion(Statement stmt, String schemaName) {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT COALESCE(MAX(version), 0) FROM " + schemaName + ".schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            // Dropped or claimed meanwhile
+            return -1;
+        }
+    }
+
+    private int latestVersion() {
+        try {
+            return TenantMigrationScripts.latestVersion();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read tenant migrations", e);
+        }
+    }
 
-            // Execute SQL with search_path set to tenant schema (use the provided connection)
-            try (Statement stmt = connection.createStatement()) {
-                // FIRST: Set search_path to ONLY the tenant schema (no public fallback)
+    /**
+     * Creates the schema and runs every migration in it in one transaction, recording
+     * each version in schema_version so the migration runner sees it up to date.
+     */
+    private void buildSchema(String schemaName) {
+        try (Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+             Statement stmt = connection.createStatement()) {
+            List<Script> scripts = TenantMigrationScripts.all();
+
+            connection.setAutoCommit(false);
+            try {
+                stmt.execute("CREATE SCHEMA IF NOT EXISTS " + schemaName);
+                log.debug("Schema {} created", schemaName);
+
+                // Set search_path to ONLY the tenant schema (no public fallback)
                 stmt.execute("SET search_path TO " + schemaName);
                 log.debug("Set search_path to {}", schemaName);
 
-                // Execute each migration file
-                for (Resource resource : resources) {
-                    log.info("Executing tenant migration: {} in schema: {}", resource.getFilename(), schemaName);
-                    String sql = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
-
-                    // Parse SQL statements - accumulate until we find a semicolon at end of line
-                    StringBuilder currentStatement = new StringBuilder();
-                    boolean inStatement = false;
-
-                    for (String line : sql.split("\n")) {
-                        String trimmedLine = line.trim();
-
-                        // Skip empty lines and comment-only lines when not in a statement
-                        if (!inStatement && (trimmedLine.isEmpty() || trimmedLine.startsWith("--"))) {
-                            continue;
-                        }
-
-                        // Start a new statement if we see a SQL keyword
-                        if (!inStatement && !trimmedLine.isEmpty() && !trimmedLine.startsWith("--")) {
-                            inStatement = true;
-                            currentStatement = new StringBuilder();
-                        }
-
-                        if (inStatement) {
-                            // Remove inline comments but keep the line
-                            int commentIdx = line.indexOf("--");
-                            String cleanLine = (commentIdx >= 0) ? line.substring(0, commentIdx) : line;
-                            currentStatement.append(cleanLine).append("\n");
-
-                            // Check if statement is complete: line ends with ; (possibly with whitespace)
-                            String lineForCheck = cleanLine.trim();
-                            if (lineForCheck.endsWith(";")) {
-                                String finalStatement = currentStatement.toString().trim();
-                                // Remove trailing semicolon
-                                if (finalStatement.endsWith(";")) {
-                                    finalStatement = finalStatement.substring(0, finalStatement.length() - 1).trim();
-                                }
-                                if (!finalStatement.isEmpty()) {
-                                    log.debug("Executing: {}...", finalStatement.length() > 50 ? finalStatement.substring(0, 50) : finalStatement);
-                                    stmt.execute(finalStatement);
-                                }
-                                inStatement = false;
-                                currentStatement = new StringBuilder();
-                            }
-                        }
+                for (Script script : scripts) {
+                    log.debug("Executing tenant migration: {} in schema: {}", script.filename(), schemaName);
+                    for (String statement : script.statements()) {
+                        stmt.execute(statement);
                     }
                 }
 
+                // Not every script records itself in schema_version
+                stmt.executeUpdate("INSERT INTO schema_version (version, description) VALUES "
+                    + scripts.stream()
+                        .map(script -> String.format("(%d, '%s')", script.version(), script.filename().replace("'", "''")))
+                        .collect(Collectors.joining(", "))
+                    + " ON CONFLICT (version) DO NOTHING");
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
                 // Reset search_path
                 stmt.execute("SET search_path TO public");
             }
 
-            log.info("Executed all tenant migrations in schema: {}", schemaName);
+            log.info("Executed {} tenant migrations in schema: {}", scripts.size(), schemaName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create tenant schema: " + schemaName, e);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to read tenant migrations from: " + TENANT_MIGRATIONS_PATH, e);
+            throw new RuntimeException("Failed to read tenant migrations", e);
         }
     }
 }
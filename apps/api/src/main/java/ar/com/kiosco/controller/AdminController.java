@@ -1,6 +1,8 @@
 package ar.com.kiosco.controller;
 
+import ar.com.kiosco.config.SchemaMultiTenantConnectionProvider;
 import ar.com.kiosco.dto.*;
+import ar.com.kiosco.security.JwtService;
 import ar.com.kiosco.security.KioscoContext;
 import ar.com.kiosco.service.*;
 import jakarta.validation.Valid;
@@ -28,6 +30,11 @@ public class AdminController {
     private final FeatureFlagService featureFlagService;
     private final TenantMigrationService tenantMigrationService;
     private final BackupService backupService;
+    private final ProductoCacheService productoCacheService;
+    private final SchemaMultiTenantConnectionProvider connectionProvider;
+    private final JwtService jwtService;
+    private final AuditLogWriter auditLogWriter;
+    private final CadenaAgregadosService cadenaAgregadosService;
 
     /**
      * Check if current user has superadmin access.
@@ -261,6 +268,53 @@ public class AdminController {
         return ResponseEntity.ok(tenantMigrationService.migrateTenant(schema));
     }
 
+    // ========== Cache ==========
+
+    /**
+     * Get hit/miss/eviction counters for the product cache.
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        requireSuperadmin();
+        return ResponseEntity.ok(productoCacheService.getEstadisticas());
+    }
+
+    /**
+     * Get SET search_path counters for tenant connections.
+     */
+    @GetMapping("/conexiones/stats")
+    public ResponseEntity<Map<String, Object>> getConexionesStats() {
+        requireSuperadmin();
+        return ResponseEntity.ok(connectionProvider.getEstadisticas());
+    }
+
+    /**
+     * Get hit/miss counters for the verified-token cache.
+     */
+    @GetMapping("/jwt/stats")
+    public ResponseEntity<Map<String, Object>> getJwtStats() {
+        requireSuperadmin();
+        return ResponseEntity.ok(jwtService.getEstadisticas());
+    }
+
+    /**
+     * Get queued/written/dropped counters for the audit log writer.
+     */
+    @GetMapping("/audit/stats")
+    public ResponseEntity<Map<String, Object>> getAuditStats() {
+        requireSuperadmin();
+        return ResponseEntity.ok(auditLogWriter.getEstadisticas());
+    }
+
+    /**
+     * Get pending count and lag (age of the oldest pending change) of the chain aggregates.
+     */
+    @GetMapping("/cadenas/agregados/stats")
+    public ResponseEntity<Map<String, Object>> getCadenaAgregadosStats() {
+        requireSuperadmin();
+        return ResponseEntity.ok(cadenaAgregadosService.getEstadisticas());
+    }
+
     // ========== Backups ==========
 
     /**
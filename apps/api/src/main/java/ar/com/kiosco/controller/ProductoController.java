@@ -1,10 +1,14 @@
 package ar.com.kiosco.controller;
 
+import ar.com.kiosco.dto.CatalogoCambiosDTO;
 import ar.com.kiosco.dto.ProductoCreateDTO;
 import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.security.KioscoContext;
+import ar.com.kiosco.service.CatalogoCambiosService;
 import ar.com.kiosco.service.ProductoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +22,7 @@ import java.util.UUID;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final CatalogoCambiosService catalogoCambiosService;
 
     @GetMapping
     public ResponseEntity<List<ProductoDTO>> listar(
@@ -28,6 +33,21 @@ public class ProductoController {
         return ResponseEntity.ok(productoService.listarActivos());
     }
 
+    /**
+     * Catalog changes since the revision the terminal got last time (full catalog without one).
+     * An unchanged catalog keeps its ETag, so a conditional request gets an empty 304.
+     */
+    @GetMapping("/cambios")
+    public ResponseEntity<CatalogoCambiosDTO> cambios(@RequestParam(required = false) Long desde) {
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(desde);
+        String etag = "\"%s-%d-%d%s\"".formatted(KioscoContext.getCurrentKioscoId(),
+                desde != null ? desde : 0, cambios.getRevision(), cambios.isCompleto() ? "-c" : "");
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .body(cambios);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductoDTO> obtener(@PathVariable UUID id) {
         return ResponseEntity.ok(productoService.obtenerPorId(id));
@@ -1,15 +1,23 @@
 package ar.com.kiosco.controller;
 
 import ar.com.kiosco.dto.reporte.*;
+import ar.com.kiosco.security.KioscoContext;
 import ar.com.kiosco.service.ReportesService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -76,30 +84,34 @@ public class ReportesController {
     // CSV Export endpoints
 
     @GetMapping("/ventas/exportar")
-    public ResponseEntity<String> exportarVentas(
+    public ResponseEntity<StreamingResponseBody> exportarVentas(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
-        String csv = reportesService.exportarVentasCSV(desde, hasta);
-        String filename = String.format("ventas_%s_%s.csv", desde, hasta);
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
-                .body(csv);
+        return csv(String.format("ventas_%s_%s.csv", desde, hasta),
+                writer -> reportesService.exportarVentasCSV(desde, hasta, writer));
     }
 
     @GetMapping("/productos/mas-vendidos/exportar")
-    public ResponseEntity<String> exportarProductosMasVendidos(
+    public ResponseEntity<StreamingResponseBody> exportarProductosMasVendidos(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
             @RequestParam(defaultValue = "100") int limit) {
-        String csv = reportesService.exportarProductosMasVendidosCSV(desde, hasta, limit);
-        String filename = String.format("productos_mas_vendidos_%s_%s.csv", desde, hasta);
+        return csv(String.format("productos_mas_vendidos_%s_%s.csv", desde, hasta),
+                writer -> reportesService.exportarProductosMasVendidosCSV(desde, hasta, limit, writer));
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
-                .body(csv);
+    /**
+     * Rebuilds the daily/hourly/product sales rollups of a date range from the sales table.
+     * Owner or admin only: it rewrites the rollups every report reads.
+     */
+    @PostMapping("/resumenes/reconstruir")
+    public ResponseEntity<Map<String, Integer>> reconstruirResumenes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        if (!KioscoContext.isKioscoAdminOrOwner()) {
+            throw new AccessDeniedException("Acceso denegado: se requiere ser dueño o administrador del kiosco");
+        }
+        return ResponseEntity.ok(Map.of("filas", reportesService.reconstruirResumenes(desde, hasta)));
     }
 
     // =====================
@@ -164,4 +176,33 @@ public class ReportesController {
     public ResponseEntity<List<InsightDTO>> getInsights() {
         return ResponseEntity.ok(reportesService.getInsights());
     }
+
+    /**
+     * Streams a CSV download. The body is written on an async thread after this method
+     * returns, so the kiosco context (tenant schema) is carried over to it. Gzip is left
+     * to server.compression.
+     */
+    private ResponseEntity<StreamingResponseBody> csv(String filename, EscritorCsv escritor) {
+        KioscoContext.KioscoContextData contexto = KioscoContext.getContext();
+        StreamingResponseBody body = salida -> {
+            KioscoContext.setContext(contexto);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+                escritor.escribir(writer);
+                writer.flush();
+            } finally {
+                KioscoContext.clear();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface EscritorCsv {
+        void escribir(Writer writer) throws IOException;
+    }
 }
@@ -2,6 +2,8 @@ package ar.com.kiosco.controller;
 
 import ar.com.kiosco.dto.VentaCreateDTO;
 import ar.com.kiosco.dto.VentaDTO;
+import ar.com.kiosco.dto.VentaOfflineResultadoDTO;
+import ar.com.kiosco.dto.VentasOfflineDTO;
 import ar.com.kiosco.service.VentaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +28,14 @@ public class VentaController {
         return ResponseEntity.status(HttpStatus.CREATED).body(venta);
     }
 
+    /**
+     * Sales queued by an offline terminal, with one result per sale (in request order).
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<List<VentaOfflineResultadoDTO>> crearLote(@Valid @RequestBody VentasOfflineDTO dto) {
+        return ResponseEntity.ok(ventaService.crearLote(dto.getVentas()));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<VentaDTO> obtener(@PathVariable UUID id) {
         return ResponseEntity.ok(ventaService.obtenerPorId(id));
@@ -36,6 +36,10 @@ public class Categoria {
     @Builder.Default
     private Boolean activo = true;
 
+    /** Catalog revision; set by the catalogo_revision trigger. */
+    @Column(insertable = false, updatable = false)
+    private Long revision;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
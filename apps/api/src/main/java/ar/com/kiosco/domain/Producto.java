@@ -2,6 +2,7 @@ package ar.com.kiosco.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -10,8 +11,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Updates only write changed columns, so an edit that does not touch stock_actual
+ * cannot overwrite the atomic stock changes of concurrent sales.
+ */
 @Entity
 @Table(name = "productos")
+@DynamicUpdate
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Builder
@@ -68,6 +74,14 @@ public class Producto {
     @Builder.Default
     private Integer diasAlertaVencimiento = 7;
 
+    /** Date of the last completed sale; written only by ProductoStockRepository. */
+    @Column(name = "ultima_venta", insertable = false, updatable = false)
+    private LocalDateTime ultimaVenta;
+
+    /** Catalog revision (tenant counter value of the last change); set by the catalogo_revision trigger. */
+    @Column(insertable = false, updatable = false)
+    private Long revision;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
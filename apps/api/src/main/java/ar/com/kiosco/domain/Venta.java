@@ -24,7 +24,7 @@ public class Venta {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private Integer numero;
 
     @Column
@@ -64,6 +64,10 @@ public class Venta {
     @Builder.Default
     private EstadoVenta estado = EstadoVenta.COMPLETADA;
 
+    /** Client-generated key; a retried or replayed sale with the same key is not booked twice. */
+    @Column(name = "clave_idempotencia", unique = true)
+    private UUID claveIdempotencia;
+
     @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<VentaItem> items = new ArrayList<>();
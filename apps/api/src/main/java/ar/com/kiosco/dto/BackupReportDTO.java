@@ -19,7 +19,11 @@ public class BackupReportDTO {
     private int totalTenants;
     private int successful;
     private int failed;
+    private int skipped;                  // unchanged since their last dump (counted as successful)
     private List<BackupResultDTO> results;
     private String duration;
+    private int parallelism;
+    private long rawBytes;               // uncompressed, successful backups only
+    private double throughputMbPerSecond; // uncompressed MB per second of wall-clock time
     private LocalDateTime timestamp;
 }
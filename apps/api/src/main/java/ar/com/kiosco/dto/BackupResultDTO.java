@@ -18,8 +18,12 @@ public class BackupResultDTO {
     private String schema;
     private String filename;
     private long sizeBytes;
+    private long rawBytes;               // uncompressed pg_dump output
+    private long durationMs;
+    private double throughputMbPerSecond; // uncompressed MB per second
     private LocalDateTime timestamp;
     private boolean success;
+    private boolean unchanged;            // hard link to the previous dump, nothing was dumped
     private String error;
 
     public static BackupResultDTO success(String schema, String filename, long sizeBytes) {
@@ -32,6 +36,21 @@ public class BackupResultDTO {
                 .build();
     }
 
+    public static BackupResultDTO success(String schema, String filename, long sizeBytes,
+                                          long rawBytes, long durationMs) {
+        BackupResultDTO result = success(schema, filename, sizeBytes);
+        result.setRawBytes(rawBytes);
+        result.setDurationMs(durationMs);
+        result.setThroughputMbPerSecond(throughput(rawBytes, durationMs));
+        return result;
+    }
+
+    public static BackupResultDTO unchanged(String schema, String filename, long sizeBytes) {
+        BackupResultDTO result = success(schema, filename, sizeBytes);
+        result.setUnchanged(true);
+        return result;
+    }
+
     public static BackupResultDTO failure(String schema, String error) {
         return BackupResultDTO.builder()
                 .schema(schema)
@@ -40,4 +59,15 @@ public class BackupResultDTO {
                 .error(error)
                 .build();
     }
+
+    /**
+     * MB (2^20 bytes) per second, rounded to two decimals; 0 when no time elapsed.
+     */
+    public static double throughput(long bytes, long durationMs) {
+        if (durationMs <= 0) {
+            return 0;
+        }
+        double mbPorSegundo = bytes / (1024.0 * 1024) / (durationMs / 1000.0);
+        return Math.round(mbPorSegundo * 100) / 100.0;
+    }
 }
@@ -0,0 +1,27 @@
+package ar.com.kiosco.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Catalog changes since a client's revision. When {@code completo} is true the
+ * lists hold the whole active catalog and the client must drop what it had.
+ * Deactivated products and categories are sent only as ids.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogoCambiosDTO {
+    private long revision;
+    private boolean completo;
+    private List<ProductoDTO> productos;
+    private List<CategoriaDTO> categorias;
+    private List<UUID> productosEliminados;
+    private List<UUID> categoriasEliminadas;
+}
@@ -0,0 +1,38 @@
+package ar.com.kiosco.dto;
+
+import ar.com.kiosco.domain.Suscripcion;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Global-schema data about a kiosco needed on every request: the kiosco itself,
+ * its chain, plan limits, subscription state and resolved feature flags.
+ * Plan fields are null when the kiosco's plan does not exist.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetadatosKioscoDTO {
+    private UUID kioscoId;
+    private Boolean activo;
+    private UUID cadenaId;
+    private String plan;
+    private Integer maxProductos;
+    private Integer maxUsuarios;
+    private Integer maxVentasMes;
+    private Boolean tieneFacturacion;
+    private Boolean tieneReportesAvanzados;
+    private Boolean tieneMultiKiosco;
+    private Suscripcion.Estado estadoSuscripcion;
+    private Map<String, Boolean> featureFlags;
+
+    public boolean isFeatureEnabled(String key) {
+        return Boolean.TRUE.equals(featureFlags != null ? featureFlags.get(key) : null);
+    }
+}
@@ -29,5 +29,11 @@ public record MigrationReportDTO(
         public static TenantMigrationResult skipped(String schema, int currentVersion) {
             return new TenantMigrationResult(schema, true, currentVersion, currentVersion, 0, null);
         }
+
+        /** Schema being migrated by another node; counted as skipped. */
+        public static TenantMigrationResult locked(String schema, int currentVersion) {
+            return new TenantMigrationResult(schema, true, currentVersion, currentVersion, 0,
+                "Locked by another migration run");
+        }
     }
 }
@@ -11,7 +11,7 @@ import java.math.RoundingMode;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductoDTO {
@@ -10,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,4 +33,10 @@ public class VentaCreateDTO {
     private BigDecimal montoRecibido;
 
     private UUID clienteId;
+
+    /** Generated by the terminal; retrying with the same key returns the sale already booked. */
+    private UUID claveIdempotencia;
+
+    /** When the sale was made offline; only the batch endpoint honours it (never in the future). */
+    private Instant fecha;
 }
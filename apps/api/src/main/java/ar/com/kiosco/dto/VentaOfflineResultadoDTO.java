@@ -0,0 +1,51 @@
+package ar.com.kiosco.dto;
+
+import ar.com.kiosco.domain.Venta;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Outcome of one sale of an offline batch, in the order the terminal sent them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaOfflineResultadoDTO {
+
+    public enum Estado {
+        CREADA,     // booked now
+        DUPLICADA,  // the key was already booked; ventaId is the existing sale
+        RECHAZADA   // not booked (see error); the terminal may fix and resend it
+    }
+
+    private UUID claveIdempotencia;
+    private Estado estado;
+    private UUID ventaId;
+    private Integer numero;
+    private BigDecimal total;
+    private String error;
+
+    public static VentaOfflineResultadoDTO de(UUID claveIdempotencia, Estado estado, Venta venta) {
+        return VentaOfflineResultadoDTO.builder()
+                .claveIdempotencia(claveIdempotencia)
+                .estado(estado)
+                .ventaId(venta.getId())
+                .numero(venta.getNumero())
+                .total(venta.getTotal())
+                .build();
+    }
+
+    public static VentaOfflineResultadoDTO rechazada(UUID claveIdempotencia, String error) {
+        return VentaOfflineResultadoDTO.builder()
+                .claveIdempotencia(claveIdempotencia)
+                .estado(Estado.RECHAZADA)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package ar.com.kiosco.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Sales queued by a terminal while offline, oldest first. Each needs a claveIdempotencia.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentasOfflineDTO {
+
+    @NotEmpty(message = "Debe incluir al menos una venta")
+    @Size(max = 500, message = "Un lote admite hasta 500 ventas")
+    @Valid
+    private List<VentaCreateDTO> ventas;
+}
@@ -0,0 +1,79 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.AuditLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-row inserts into a tenant's audit_log, used by the audit writer.
+ *
+ * Statements are schema-qualified and run outside any JPA transaction (autocommit),
+ * so they do not depend on the connection's search_path.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditLogBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO %s.audit_log (entity_type, entity_id, action, usuario_id, usuario_email,
+                                      changes, ip_address, user_agent, created_at)
+            VALUES
+            """;
+
+    private static final String FILA = "(?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Inserts the rows with one statement.
+     */
+    public int insertar(String schema, List<AuditLog> registros) {
+        if (registros.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_SQL.formatted(schema));
+        List<Object> params = new ArrayList<>(registros.size() * 9);
+        for (int i = 0; i < registros.size(); i++) {
+            AuditLog registro = registros.get(i);
+            sql.append(i == 0 ? "" : ",\n").append(FILA);
+            params.add(registro.getEntityType());
+            params.add(registro.getEntityId());
+            params.add(registro.getAction());
+            params.add(registro.getUsuarioId());
+            params.add(registro.getUsuarioEmail());
+            params.add(json(registro));
+            params.add(registro.getIpAddress());
+            params.add(registro.getUserAgent());
+            params.add(Timestamp.valueOf(registro.getCreatedAt()));
+        }
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+    private String json(AuditLog registro) {
+        if (registro.getChanges() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(registro.getChanges());
+        } catch (JsonProcessingException e) {
+            return "{\"_raw\": " + quote(registro.getChanges().toString()) + "}";
+        }
+    }
+
+    private String quote(String valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            return "null";
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ar.com.kiosco.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Monthly partitions of a tenant's audit_log (audit_log_pYYYYMM, see V15).
+ *
+ * Statements are schema-qualified. {@link #crear} must run inside a transaction:
+ * it moves the month's rows out of audit_log_default before attaching the new
+ * partition, which PostgreSQL requires.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditLogParticionRepository {
+
+    private static final String PREFIJO = "audit_log_p";
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String PARTICIONES_SQL = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            JOIN pg_namespace n ON n.oid = p.relnamespace
+            WHERE n.nspname = ? AND p.relname = 'audit_log' AND c.relname LIKE 'audit\\_log\\_p%'
+            """;
+
+    private static final String MESES_EN_DEFAULT_SQL = """
+            SELECT DISTINCT to_char(created_at, 'YYYYMM') FROM %s.audit_log_default
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Months that already have their own partition.
+     */
+    public List<YearMonth> particiones(String schema) {
+        return jdbcTemplate.queryForList(PARTICIONES_SQL, String.class, schema).stream()
+                .map(nombre -> YearMonth.parse(nombre.substring(PREFIJO.length()), SUFIJO))
+                .toList();
+    }
+
+    /**
+     * Months with rows still in the default partition.
+     */
+    public List<YearMonth> mesesEnDefault(String schema) {
+        return jdbcTemplate.queryForList(MESES_EN_DEFAULT_SQL.formatted(schema), String.class).stream()
+                .map(mes -> YearMonth.parse(mes, SUFIJO))
+                .toList();
+    }
+
+    /**
+     * Creates the month's partition, moving any of its rows out of audit_log_default.
+     */
+    public void crear(String schema, YearMonth mes) {
+        String tabla = schema + "." + nombre(mes);
+        Timestamp desde = Timestamp.valueOf(mes.atDay(1).atStartOfDay());
+        Timestamp hasta = Timestamp.valueOf(mes.plusMonths(1).atDay(1).atStartOfDay());
+
+        jdbcTemplate.execute("CREATE TABLE " + tabla
+                + " (LIKE " + schema + ".audit_log INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.update("INSERT INTO " + tabla + " SELECT * FROM " + schema + ".audit_log_default"
+                + " WHERE created_at >= ? AND created_at < ?", desde, hasta);
+        jdbcTemplate.update("DELETE FROM " + schema + ".audit_log_default"
+                + " WHERE created_at >= ? AND created_at < ?", desde, hasta);
+        jdbcTemplate.execute("ALTER TABLE " + schema + ".audit_log ATTACH PARTITION " + tabla
+                + " FOR VALUES FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+    }
+
+    /**
+     * Drops the month's partition with all its rows.
+     */
+    public void eliminar(String schema, YearMonth mes) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + schema + "." + nombre(mes));
+    }
+
+    /**
+     * Deletes rows older than the given month from audit_log_default.
+     */
+    public int borrarDeDefaultAntesDe(String schema, YearMonth mes) {
+        return jdbcTemplate.update("DELETE FROM " + schema + ".audit_log_default WHERE created_at < ?",
+                Timestamp.valueOf(mes.atDay(1).atStartOfDay()));
+    }
+
+    private static String nombre(YearMonth mes) {
+        return PREFIJO + mes.format(SUFIJO);
+    }
+}
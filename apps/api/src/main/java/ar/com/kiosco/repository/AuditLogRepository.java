@@ -30,12 +30,15 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
             @Param("desde") LocalDateTime desde
     );
 
+    /**
+     * Date bounds are required: audit_log is partitioned by month on created_at,
+     * so a plain range lets PostgreSQL scan only the partitions it covers.
+     */
     @Query("SELECT a FROM AuditLog a WHERE " +
+           "a.createdAt >= :desde AND a.createdAt <= :hasta AND " +
            "(:entityType IS NULL OR a.entityType = :entityType) AND " +
            "(:entityId IS NULL OR a.entityId = :entityId) AND " +
-           "(:usuarioId IS NULL OR a.usuarioId = :usuarioId) AND " +
-           "(:desde IS NULL OR a.createdAt >= :desde) AND " +
-           "(:hasta IS NULL OR a.createdAt <= :hasta) " +
+           "(:usuarioId IS NULL OR a.usuarioId = :usuarioId) " +
            "ORDER BY a.createdAt DESC")
     Page<AuditLog> search(
             @Param("entityType") String entityType,
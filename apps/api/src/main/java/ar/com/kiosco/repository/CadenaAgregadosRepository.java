@@ -0,0 +1,258 @@
+package ar.com.kiosco.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Chain-level aggregates in the global schema: sales per kiosco and day
+ * (cadena_ventas_diarias) and stock per kiosco and product (cadena_stock).
+ *
+ * Tenants record what changed in cadena_agregados_pendientes inside the sale or
+ * stock transaction. Applying a pending row recomputes the affected days and
+ * products from the tenant schema (ventas_resumen_diario, productos), so it is
+ * idempotent and rows can be applied late, twice or out of order. Reads are one
+ * statement over the (kiosco_id, ...) primary keys; statements are cut off after
+ * cadena.reporte-timeout-seconds.
+ */
+@Repository
+public class CadenaAgregadosRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CadenaAgregadosRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${cadena.reporte-timeout-seconds:5}") int timeoutSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setQueryTimeout(timeoutSeconds);
+    }
+
+    public record TotalesVentas(BigDecimal total, int cantidad) {
+        public static final TotalesVentas CERO = new TotalesVentas(BigDecimal.ZERO, 0);
+    }
+
+    public record StockProducto(UUID kioscoId, UUID productoId, String codigo, String nombre, BigDecimal stock) {}
+
+    /** Inclusive date range. */
+    public record Periodo(LocalDate desde, LocalDate hasta) {}
+
+    /** Days and products taken from the pending rows of a kiosco. */
+    public record Pendientes(int filas, Set<LocalDate> dias, Set<UUID> productoIds) {}
+
+    /** Size and age of the oldest pending change. */
+    public record Atraso(long pendientes, long segundos) {}
+
+    // ========== Outbox ==========
+
+    public void registrarPendiente(UUID kioscoId, Collection<LocalDate> dias, Collection<UUID> productoIds) {
+        jdbcTemplate.update("""
+                INSERT INTO cadena_agregados_pendientes (kiosco_id, dias, producto_ids)
+                VALUES (?, CAST(? AS date[]), CAST(? AS uuid[]))
+                """, kioscoId, arreglo(dias), arreglo(productoIds));
+    }
+
+    /**
+     * Kioscos with pending changes, oldest first.
+     */
+    public List<UUID> kioscosConPendientes(int limite) {
+        return jdbcTemplate.queryForList("""
+                SELECT kiosco_id FROM cadena_agregados_pendientes
+                GROUP BY kiosco_id ORDER BY MIN(id) LIMIT ?
+                """, UUID.class, limite);
+    }
+
+    /**
+     * Deletes up to {@code limite} pending rows of the kiosco and returns what they touched.
+     * Rows locked by another node are skipped; the caller's transaction must also apply them.
+     */
+    public Pendientes tomarPendientes(UUID kioscoId, int limite) {
+        Set<LocalDate> dias = new HashSet<>();
+        Set<UUID> productoIds = new HashSet<>();
+        int[] filas = {0};
+        jdbcTemplate.query("""
+                DELETE FROM cadena_agregados_pendientes
+                WHERE id IN (SELECT id FROM cadena_agregados_pendientes WHERE kiosco_id = ?
+                             ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+                RETURNING dias, producto_ids
+                """, rs -> {
+            filas[0]++;
+            Array diasFila = rs.getArray(1);
+            if (diasFila != null) {
+                for (Object dia : (Object[]) diasFila.getArray()) {
+                    dias.add(((Date) dia).toLocalDate());
+                }
+            }
+            Array productosFila = rs.getArray(2);
+            if (productosFila != null) {
+                for (Object id : (Object[]) productosFila.getArray()) {
+                    productoIds.add((UUID) id);
+                }
+            }
+        }, kioscoId, limite);
+        return new Pendientes(filas[0], dias, productoIds);
+    }
+
+    public Atraso atraso() {
+        return jdbcTemplate.queryForObject("""
+                SELECT COUNT(*), COALESCE(EXTRACT(EPOCH FROM NOW() - MIN(created_at)), 0)
+                FROM cadena_agregados_pendientes
+                """, (rs, rowNum) -> new Atraso(rs.getLong(1), rs.getLong(2)));
+    }
+
+    // ========== Refresh from the tenant schema ==========
+
+    /**
+     * Recomputes the given days of the kiosco from its ventas_resumen_diario.
+     * Days without sales are stored as zero.
+     */
+    public void actualizarVentas(UUID kioscoId, String schema, Collection<LocalDate> dias) {
+        jdbcTemplate.update("""
+                INSERT INTO cadena_ventas_diarias (kiosco_id, dia, cantidad, total, actualizado_at)
+                SELECT ?, d.dia, COALESCE(SUM(r.cantidad), 0), COALESCE(SUM(r.total), 0), NOW()
+                FROM unnest(CAST(? AS date[])) d(dia)
+                LEFT JOIN %s.ventas_resumen_diario r ON r.dia = d.dia
+                GROUP BY d.dia
+                ON CONFLICT (kiosco_id, dia) DO UPDATE
+                SET cantidad = EXCLUDED.cantidad, total = EXCLUDED.total, actualizado_at = NOW()
+                """.formatted(schema), kioscoId, arreglo(dias));
+    }
+
+    /**
+     * Recomputes the given products of the kiosco from its productos. Products that
+     * are inactive, deleted or without a codigo are removed.
+     */
+    public void actualizarStock(UUID kioscoId, String schema, Collection<UUID> productoIds) {
+        String ids = arreglo(productoIds);
+        jdbcTemplate.update("""
+                INSERT INTO cadena_stock (kiosco_id, producto_id, codigo, nombre, stock, actualizado_at)
+                SELECT ?, id, COALESCE(codigo, codigo_barras), nombre, COALESCE(stock_actual, 0), NOW()
+                FROM %s.productos
+                WHERE id = ANY(CAST(? AS uuid[])) AND activo = true
+                  AND COALESCE(codigo, codigo_barras) IS NOT NULL
+                ON CONFLICT (kiosco_id, producto_id) DO UPDATE
+                SET codigo = EXCLUDED.codigo, nombre = EXCLUDED.nombre, stock = EXCLUDED.stock,
+                    actualizado_at = NOW()
+                """.formatted(schema), kioscoId, ids);
+        jdbcTemplate.update("""
+                DELETE FROM cadena_stock s
+                WHERE s.kiosco_id = ? AND s.producto_id = ANY(CAST(? AS uuid[]))
+                  AND NOT EXISTS (SELECT 1 FROM %s.productos p
+                                  WHERE p.id = s.producto_id AND p.activo = true
+                                    AND COALESCE(p.codigo, p.codigo_barras) IS NOT NULL)
+                """.formatted(schema), kioscoId, ids);
+    }
+
+    /**
+     * Replaces every aggregate row of the kiosco with a fresh copy of its schema.
+     */
+    public void reconstruir(UUID kioscoId, String schema) {
+        eliminar(kioscoId);
+        jdbcTemplate.update("""
+                INSERT INTO cadena_ventas_diarias (kiosco_id, dia, cantidad, total)
+                SELECT ?, dia, SUM(cantidad), SUM(total)
+                FROM %s.ventas_resumen_diario GROUP BY dia
+                """.formatted(schema), kioscoId);
+        jdbcTemplate.update("""
+                INSERT INTO cadena_stock (kiosco_id, producto_id, codigo, nombre, stock)
+                SELECT ?, id, COALESCE(codigo, codigo_barras), nombre, COALESCE(stock_actual, 0)
+                FROM %s.productos
+                WHERE activo = true AND COALESCE(codigo, codigo_barras) IS NOT NULL
+                """.formatted(schema), kioscoId);
+    }
+
+    public void eliminar(UUID kioscoId) {
+        jdbcTemplate.update("DELETE FROM cadena_ventas_diarias WHERE kiosco_id = ?", kioscoId);
+        jdbcTemplate.update("DELETE FROM cadena_stock WHERE kiosco_id = ?", kioscoId);
+    }
+
+    // ========== Chain reads ==========
+
+    /**
+     * Completed sales per kiosco for each period, in one statement.
+     * The i-th map holds the totals of the i-th period; kioscos without rows are absent.
+     */
+    public List<Map<UUID, TotalesVentas>> ventas(Collection<UUID> kioscoIds, Periodo... periodos) {
+        List<Map<UUID, TotalesVentas>> resultado = new ArrayList<>();
+        for (int i = 0; i < periodos.length; i++) {
+            resultado.add(new HashMap<>());
+        }
+        if (kioscoIds.isEmpty() || periodos.length == 0) {
+            return resultado;
+        }
+
+        StringJoiner columnas = new StringJoiner(", ");
+        List<Object> params = new ArrayList<>();
+        LocalDate desde = periodos[0].desde();
+        LocalDate hasta = periodos[0].hasta();
+        for (Periodo periodo : periodos) {
+            columnas.add("COALESCE(SUM(total) FILTER (WHERE dia BETWEEN ? AND ?), 0)");
+            columnas.add("COALESCE(SUM(cantidad) FILTER (WHERE dia BETWEEN ? AND ?), 0)");
+            for (int i = 0; i < 2; i++) {
+                params.add(Date.valueOf(periodo.desde()));
+                params.add(Date.valueOf(periodo.hasta()));
+            }
+            desde = periodo.desde().isBefore(desde) ? periodo.desde() : desde;
+            hasta = periodo.hasta().isAfter(hasta) ? periodo.hasta() : hasta;
+        }
+        params.add(arreglo(kioscoIds));
+        params.add(Date.valueOf(desde));
+        params.add(Date.valueOf(hasta));
+
+        jdbcTemplate.query("""
+                SELECT kiosco_id, %s FROM cadena_ventas_diarias
+                WHERE kiosco_id = ANY(CAST(? AS uuid[])) AND dia BETWEEN ? AND ?
+                GROUP BY kiosco_id
+                """.formatted(columnas), rs -> {
+            UUID kioscoId = rs.getObject(1, UUID.class);
+            for (int i = 0; i < periodos.length; i++) {
+                resultado.get(i).put(kioscoId,
+                        new TotalesVentas(rs.getBigDecimal(2 + i * 2), rs.getInt(3 + i * 2)));
+            }
+        }, params.toArray());
+        return resultado;
+    }
+
+    /**
+     * Stock of the kioscos' products, ordered by codigo.
+     */
+    public List<StockProducto> stock(Collection<UUID> kioscoIds) {
+        if (kioscoIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("""
+                SELECT kiosco_id, producto_id, codigo, nombre, stock FROM cadena_stock
+                WHERE kiosco_id = ANY(CAST(? AS uuid[]))
+                ORDER BY codigo, kiosco_id
+                """, (rs, rowNum) -> new StockProducto(
+                rs.getObject(1, UUID.class),
+                rs.getObject(2, UUID.class),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getBigDecimal(5)), arreglo(kioscoIds));
+    }
+
+    /**
+     * PostgreSQL array literal of UUIDs or ISO dates (neither needs quoting), or null when empty.
+     */
+    private static String arreglo(Collection<?> valores) {
+        if (valores == null || valores.isEmpty()) {
+            return null;
+        }
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        valores.forEach(valor -> literal.add(valor.toString()));
+        return literal.toString();
+    }
+}
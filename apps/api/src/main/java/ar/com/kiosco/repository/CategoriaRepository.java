@@ -2,6 +2,8 @@ package ar.com.kiosco.repository;
 
 import ar.com.kiosco.domain.Categoria;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,10 @@ import java.util.UUID;
 public interface CategoriaRepository extends JpaRepository<Categoria, UUID> {
 
     List<Categoria> findByActivoTrueOrderByOrdenAsc();
+
+    /**
+     * Categories (active or not) whose catalog revision is in (desde, hasta].
+     */
+    @Query("SELECT c FROM Categoria c WHERE c.revision > :desde AND c.revision <= :hasta")
+    List<Categoria> findCambiadas(@Param("desde") long desde, @Param("hasta") long hasta);
 }
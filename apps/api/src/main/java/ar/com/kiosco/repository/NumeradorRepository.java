@@ -0,0 +1,80 @@
+package ar.com.kiosco.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Document numbering backed by the tenant sequences (ventas_numero_seq, orden_compra_seq).
+ *
+ * nextval is O(1) regardless of table size and never hands the same number to two
+ * transactions. Sequences are not transactional: a rolled-back sale leaves a gap,
+ * which is acceptable for internal ticket numbers.
+ *
+ * Runs on the connection of the current JPA transaction (tenant search_path included).
+ */
+@Repository
+public class NumeradorRepository {
+
+    public enum Secuencia {
+        VENTA("ventas_numero_seq"),
+        ORDEN_COMPRA("orden_compra_seq");
+
+        private final String nombre;
+
+        Secuencia(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceSupport sequenceSupport;
+
+    public NumeradorRepository(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceSupport = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport();
+    }
+
+    /**
+     * Takes the next number from the sequence.
+     */
+    public Integer siguiente(Secuencia secuencia) {
+        Long numero = jdbcTemplate.queryForObject(
+                sequenceSupport.getSequenceNextValString(secuencia.nombre), Long.class);
+        return Math.toIntExact(numero);
+    }
+
+    /**
+     * Takes {@code cantidad} numbers from the sequence in one statement, in ascending order.
+     */
+    public List<Integer> siguientes(Secuencia secuencia, int cantidad) {
+        if (cantidad <= 1) {
+            return cantidad == 1 ? List.of(siguiente(secuencia)) : List.of();
+        }
+        return jdbcTemplate.queryForList("""
+                        WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < %d)
+                        SELECT %s FROM n
+                        """.formatted(cantidad, sequenceSupport.getSelectSequenceNextValString(secuencia.nombre)),
+                        Long.class)
+                .stream()
+                .map(Math::toIntExact)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Number the next call to {@link #siguiente} would return, without consuming it.
+     * Only a preview: a concurrent sale may take it first.
+     */
+    public Integer proximo(Secuencia secuencia) {
+        Long numero = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM " + secuencia.nombre,
+                Long.class);
+        return Math.toIntExact(numero);
+    }
+}
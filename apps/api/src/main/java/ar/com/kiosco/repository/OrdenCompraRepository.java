@@ -21,9 +21,6 @@ public interface OrdenCompraRepository extends JpaRepository<OrdenCompra, UUID>
 
     List<OrdenCompra> findByProveedorIdAndEstado(UUID proveedorId, EstadoOrdenCompra estado);
 
-    @Query("SELECT MAX(o.numero) FROM OrdenCompra o")
-    Optional<Integer> findMaxNumero();
-
     List<OrdenCompra> findByFechaEmisionBetween(LocalDate desde, LocalDate hasta);
 
     @Query("SELECT o FROM OrdenCompra o WHERE o.estado != 'CANCELADA' ORDER BY o.fechaEmision DESC")
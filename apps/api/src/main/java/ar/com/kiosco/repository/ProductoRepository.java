@@ -1,10 +1,16 @@
 package ar.com.kiosco.repository;
 
 import ar.com.kiosco.domain.Producto;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +20,43 @@ public interface ProductoRepository extends JpaRepository<Producto, UUID> {
 
     List<Producto> findByActivoTrue();
 
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria WHERE p.activo = true")
+    List<Producto> findActivosConCategoria();
+
+    /**
+     * Active products not sold since {@code limite} (or never sold), with their category.
+     * Served by idx_productos_ultima_venta, so it never touches ventas.
+     */
+    @Query("""
+            SELECT p FROM Producto p LEFT JOIN FETCH p.categoria
+            WHERE p.activo = true AND (p.ultimaVenta IS NULL OR p.ultimaVenta < :limite)
+            """)
+    List<Producto> findSinVentasDesde(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Products (active or not) whose catalog revision is in (desde, hasta], with their category.
+     */
+    @Query("""
+            SELECT p FROM Producto p LEFT JOIN FETCH p.categoria
+            WHERE p.revision > :desde AND p.revision <= :hasta
+            """)
+    List<Producto> findCambiados(@Param("desde") long desde, @Param("hasta") long hasta);
+
+    /**
+     * Committed value of the tenant's catalog revision counter: every row stamped
+     * at or below it is already visible.
+     */
+    @Query(value = "SELECT revision FROM catalogo_revision WHERE id = 1", nativeQuery = true)
+    long findRevisionCatalogo();
+
+    /**
+     * Loads and row-locks the given products, ordered by id so every transaction
+     * acquires locks in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Producto p WHERE p.id IN :ids ORDER BY p.id")
+    List<Producto> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
     Optional<Producto> findByCodigo(String codigo);
 
     Optional<Producto> findByCodigoBarras(String codigoBarras);
@@ -26,4 +69,13 @@ public interface ProductoRepository extends JpaRepository<Producto, UUID> {
 
     @Query("SELECT p FROM Producto p WHERE p.stockActual < p.stockMinimo AND p.activo = true")
     List<Producto> findByStockBajo();
+
+    @Query("SELECT p.id AS id, p.stockActual AS stockActual, p.stockMinimo AS stockMinimo FROM Producto p WHERE p.activo = true")
+    List<NivelStock> findNivelesStock();
+
+    interface NivelStock {
+        UUID getId();
+        BigDecimal getStockActual();
+        BigDecimal getStockMinimo();
+    }
 }
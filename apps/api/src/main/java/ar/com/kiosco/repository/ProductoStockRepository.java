@@ -0,0 +1,145 @@
+package ar.com.kiosco.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Atomic sale-driven updates on productos: stock and fecha de ultima venta.
+ *
+ * Each change is a single conditional UPDATE that checks and decrements in one
+ * step, so concurrent sales of the same product can neither oversell nor lose an
+ * update. Multi-line tickets are sent as one JDBC batch, ordered by product id so
+ * every transaction acquires row locks in the same order.
+ *
+ * Runs on the connection of the current JPA transaction (tenant search_path included).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductoStockRepository {
+
+    private static final String DESCONTAR_SQL =
+            "UPDATE productos SET stock_actual = stock_actual - ?, updated_at = NOW() " +
+            "WHERE id = ? AND stock_actual >= ?";
+
+    private static final String INCREMENTAR_SQL =
+            "UPDATE productos SET stock_actual = stock_actual + ?, updated_at = NOW() " +
+            "WHERE id = ?";
+
+    private static final String REGISTRAR_VENTA_SQL =
+            "UPDATE productos SET ultima_venta = ? " +
+            "WHERE id = ? AND (ultima_venta IS NULL OR ultima_venta < ?)";
+
+    private static final String RECALCULAR_ULTIMA_VENTA_SQL = """
+            UPDATE productos SET ultima_venta = (
+                SELECT MAX(v.fecha) FROM venta_items i JOIN ventas v ON v.id = i.venta_id
+                WHERE i.producto_id = productos.id AND v.estado = 'COMPLETADA')
+            WHERE id = ? AND ultima_venta <= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Decrements stock for every product only if enough stock is available.
+     * @param cantidades quantity to subtract per product id
+     * @return ids whose stock was insufficient (not decremented); empty if all succeeded
+     */
+    public List<UUID> descontar(Map<UUID, BigDecimal> cantidades) {
+        if (cantidades.isEmpty()) {
+            return List.of();
+        }
+
+        SortedMap<UUID, BigDecimal> ordenadas = new TreeMap<>(cantidades);
+        List<UUID> ids = new ArrayList<>(ordenadas.keySet());
+        List<Object[]> args = new ArrayList<>(ordenadas.size());
+        ordenadas.forEach((id, cantidad) -> args.add(new Object[]{cantidad, id, cantidad}));
+
+        int[] filas = jdbcTemplate.batchUpdate(DESCONTAR_SQL, args);
+
+        List<UUID> sinStock = new ArrayList<>();
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == 0) {
+                sinStock.add(ids.get(i));
+            }
+        }
+        return sinStock;
+    }
+
+    /**
+     * Increments stock for every product (e.g. when a sale is anulada).
+     * @param cantidades quantity to add per product id
+     */
+    public void incrementar(Map<UUID, BigDecimal> cantidades) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(cantidades.size());
+        new TreeMap<>(cantidades).forEach((id, cantidad) -> args.add(new Object[]{cantidad, id}));
+
+        jdbcTemplate.batchUpdate(INCREMENTAR_SQL, args);
+    }
+
+    /**
+     * Moves ultima_venta forward to the sale date; never backwards, so a late
+     * (e.g. offline) sale can't hide a newer one.
+     */
+    public void registrarVenta(Collection<UUID> productoIds, LocalDateTime fecha) {
+        if (productoIds.isEmpty()) {
+            return;
+        }
+
+        Timestamp ts = Timestamp.valueOf(fecha);
+        List<Object[]> args = new ArrayList<>(productoIds.size());
+        new TreeSet<>(productoIds).forEach(id -> args.add(new Object[]{ts, id, ts}));
+
+        jdbcTemplate.batchUpdate(REGISTRAR_VENTA_SQL, args);
+    }
+
+    /**
+     * Same as {@link #registrarVenta} for a batch of sales, with the latest sale date per product.
+     */
+    public void registrarVentas(Map<UUID, LocalDateTime> fechas) {
+        if (fechas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(fechas.size());
+        new TreeMap<>(fechas).forEach((id, fecha) -> {
+            Timestamp ts = Timestamp.valueOf(fecha);
+            args.add(new Object[]{ts, id, ts});
+        });
+
+        jdbcTemplate.batchUpdate(REGISTRAR_VENTA_SQL, args);
+    }
+
+    /**
+     * Recomputes ultima_venta from the remaining completed sales after a sale dated
+     * {@code fecha} was anulada. Products sold again later are left untouched; the rest
+     * use idx_venta_items_producto_venta, so the cost is the product's own sales.
+     * The anulada state must already be flushed.
+     */
+    public void descartarVenta(Collection<UUID> productoIds, LocalDateTime fecha) {
+        if (productoIds.isEmpty()) {
+            return;
+        }
+
+        Timestamp ts = Timestamp.valueOf(fecha);
+        List<Object[]> args = new ArrayList<>(productoIds.size());
+        new TreeSet<>(productoIds).forEach(id -> args.add(new Object[]{id, ts}));
+
+        jdbcTemplate.batchUpdate(RECALCULAR_ULTIMA_VENTA_SQL, args);
+    }
+}
@@ -0,0 +1,79 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.Venta;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Grouped projections over ventas/venta_items for ReportesService.
+ *
+ * Every query aggregates in the database and returns one small row per group
+ * (producto, venta), so reports never load Venta entity graphs. Day and hour totals
+ * come from the rollups in VentasResumenRepository.
+ * Ranges are half-open: fecha >= inicio AND fecha < fin.
+ */
+@Repository
+public interface ReporteVentasRepository extends org.springframework.data.repository.Repository<Venta, UUID> {
+
+    @Query("""
+            SELECT p.id AS productoId, p.nombre AS nombre, c.id AS categoriaId, c.nombre AS categoria,
+                   p.precioCosto AS precioCosto, SUM(i.cantidad) AS cantidad, SUM(i.subtotal) AS monto
+            FROM VentaItem i JOIN i.venta v JOIN i.producto p LEFT JOIN p.categoria c
+            WHERE v.estado = :estado AND v.fecha >= :inicio AND v.fecha < :fin
+            GROUP BY p.id, p.nombre, c.id, c.nombre, p.precioCosto
+            """)
+    List<VentasPorProducto> sumarPorProducto(@Param("estado") Venta.EstadoVenta estado,
+                                             @Param("inicio") LocalDateTime inicio,
+                                             @Param("fin") LocalDateTime fin);
+
+    /**
+     * One row per sale (newest first) with its units, read through a forward-only cursor
+     * for exports. Units come from a correlated subquery, so rows stream in fecha order
+     * without grouping the whole range first. Must be consumed inside a read-only
+     * transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT v.numero AS numero, v.fecha AS fecha, v.total AS total, v.medioPago AS medioPago,
+                   c.nombre AS cliente,
+                   (SELECT COALESCE(SUM(i.cantidad), 0) FROM VentaItem i WHERE i.venta = v) AS unidades
+            FROM Venta v LEFT JOIN v.cliente c
+            WHERE v.estado = :estado AND v.fecha >= :inicio AND v.fecha < :fin
+            ORDER BY v.fecha DESC
+            """)
+    Stream<VentaResumida> streamResumidas(@Param("estado") Venta.EstadoVenta estado,
+                                          @Param("inicio") LocalDateTime inicio,
+                                          @Param("fin") LocalDateTime fin);
+
+    interface VentasPorProducto {
+        UUID getProductoId();
+        String getNombre();
+        UUID getCategoriaId();
+        String getCategoria();
+        BigDecimal getPrecioCosto();
+        BigDecimal getCantidad();
+        BigDecimal getMonto();
+    }
+
+    interface VentaResumida {
+        Integer getNumero();
+        LocalDateTime getFecha();
+        BigDecimal getTotal();
+        Venta.MedioPago getMedioPago();
+        String getCliente();
+        BigDecimal getUnidades();
+    }
+}
@@ -0,0 +1,89 @@
+package ar.com.kiosco.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Usage counters on uso_mensual (global schema): sales and amount of the month,
+ * and active products at the end of the month.
+ *
+ * Increments are a single UPDATE on the kiosco's monthly row, so they are atomic
+ * and commit or roll back with the sale or product that caused them. A missing
+ * row is seeded from the tenant's own tables (ventas_resumen_diario, productos);
+ * callers apply their increment after seeding, so the seed must run before the
+ * change is written to the tenant schema.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UsoMensualContadorRepository {
+
+    private static final String SUMAR_SQL = """
+            UPDATE uso_mensual SET
+                cantidad_ventas = COALESCE(cantidad_ventas, 0) + ?,
+                monto_total_ventas = COALESCE(monto_total_ventas, 0) + ?,
+                cantidad_productos = COALESCE(cantidad_productos, 0) + ?,
+                updated_at = NOW()
+            WHERE kiosco_id = ? AND mes = ?
+            """;
+
+    private static final String CONTAR_SQL = """
+            INSERT INTO uso_mensual (kiosco_id, mes, cantidad_ventas, monto_total_ventas, cantidad_productos)
+            SELECT ?, ?, COALESCE(SUM(r.cantidad), 0), COALESCE(SUM(r.total), 0),
+                   (SELECT COUNT(*) FROM %1$s.productos WHERE activo = true)
+            FROM %1$s.ventas_resumen_diario r
+            WHERE r.dia >= ? AND r.dia < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Contadores(int ventas, int productos) {}
+
+    /**
+     * Adds the deltas to the kiosco's row for the month.
+     * @return false if the row does not exist yet (nothing was updated)
+     */
+    public boolean sumar(UUID kioscoId, YearMonth mes, int ventas, BigDecimal monto, int productos) {
+        return jdbcTemplate.update(SUMAR_SQL, ventas, monto, productos, kioscoId, inicio(mes)) > 0;
+    }
+
+    /**
+     * Creates the month's row from the tenant tables; no-op if it already exists.
+     */
+    public void sembrar(UUID kioscoId, YearMonth mes, String schema) {
+        jdbcTemplate.update(CONTAR_SQL.formatted(schema) + " ON CONFLICT (kiosco_id, mes) DO NOTHING",
+                kioscoId, inicio(mes), inicio(mes), inicio(mes.plusMonths(1)));
+    }
+
+    /**
+     * Overwrites the month's counters with a fresh count from the tenant tables.
+     */
+    public void reconciliar(UUID kioscoId, YearMonth mes, String schema) {
+        jdbcTemplate.update(CONTAR_SQL.formatted(schema) + """
+                 ON CONFLICT (kiosco_id, mes) DO UPDATE SET
+                    cantidad_ventas = EXCLUDED.cantidad_ventas,
+                    monto_total_ventas = EXCLUDED.monto_total_ventas,
+                    cantidad_productos = EXCLUDED.cantidad_productos,
+                    updated_at = NOW()
+                """, kioscoId, inicio(mes), inicio(mes), inicio(mes.plusMonths(1)));
+    }
+
+    public Optional<Contadores> find(UUID kioscoId, YearMonth mes) {
+        return jdbcTemplate.query("""
+                SELECT COALESCE(cantidad_ventas, 0) AS ventas, COALESCE(cantidad_productos, 0) AS productos
+                FROM uso_mensual WHERE kiosco_id = ? AND mes = ?
+                """,
+                (rs, rowNum) -> new Contadores(rs.getInt("ventas"), rs.getInt("productos")),
+                kioscoId, inicio(mes)).stream().findFirst();
+    }
+
+    private static Date inicio(YearMonth mes) {
+        return Date.valueOf(mes.atDay(1));
+    }
+}
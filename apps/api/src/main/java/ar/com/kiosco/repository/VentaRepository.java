@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,10 +18,9 @@ public interface VentaRepository extends JpaRepository<Venta, UUID> {
     @Query("SELECT v FROM Venta v WHERE v.fecha >= :inicio AND v.fecha < :fin ORDER BY v.fecha DESC")
     List<Venta> findByFechaBetween(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
-    @Query("SELECT COALESCE(MAX(v.numero), 0) + 1 FROM Venta v")
-    Integer getProximoNumero();
+    Optional<Venta> findByNumero(Integer numero);
 
-    List<Venta> findByEstado(Venta.EstadoVenta estado);
+    Optional<Venta> findByClaveIdempotencia(UUID claveIdempotencia);
 
-    Optional<Venta> findByNumero(Integer numero);
+    List<Venta> findByClaveIdempotenciaIn(Collection<UUID> clavesIdempotencia);
 }
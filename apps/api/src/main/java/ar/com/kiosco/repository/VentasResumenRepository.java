@@ -0,0 +1,274 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.domain.VentaItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Sales rollups: ventas_resumen_diario, ventas_resumen_horario and ventas_resumen_producto.
+ *
+ * Each completed sale adds its count, total and units to the rows of its day, hour and
+ * products (keyed by medio de pago); an anulacion subtracts them again. Updates are
+ * INSERT ... ON CONFLICT DO UPDATE, so concurrent sales on the same day never lose an
+ * increment. Reports read these rows, so their cost depends on the number of days
+ * in the range, not on the number of sales.
+ *
+ * Runs on the connection of the current JPA transaction (tenant search_path included).
+ */
+@Repository
+@RequiredArgsConstructor
+public class VentasResumenRepository {
+
+    private static final String ACUMULAR_DIARIO_SQL = """
+            INSERT INTO ventas_resumen_diario (dia, medio_pago, cantidad, total, unidades)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (dia, medio_pago) DO UPDATE SET
+                cantidad = ventas_resumen_diario.cantidad + EXCLUDED.cantidad,
+                total = ventas_resumen_diario.total + EXCLUDED.total,
+                unidades = ventas_resumen_diario.unidades + EXCLUDED.unidades
+            """;
+
+    private static final String ACUMULAR_HORARIO_SQL = """
+            INSERT INTO ventas_resumen_horario (dia, hora, medio_pago, cantidad, total, unidades)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (dia, hora, medio_pago) DO UPDATE SET
+                cantidad = ventas_resumen_horario.cantidad + EXCLUDED.cantidad,
+                total = ventas_resumen_horario.total + EXCLUDED.total,
+                unidades = ventas_resumen_horario.unidades + EXCLUDED.unidades
+            """;
+
+    private static final String ACUMULAR_PRODUCTO_SQL = """
+            INSERT INTO ventas_resumen_producto (dia, producto_id, medio_pago, cantidad, total, unidades)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (dia, producto_id, medio_pago) DO UPDATE SET
+                cantidad = ventas_resumen_producto.cantidad + EXCLUDED.cantidad,
+                total = ventas_resumen_producto.total + EXCLUDED.total,
+                unidades = ventas_resumen_producto.unidades + EXCLUDED.unidades
+            """;
+
+    private static final String VENTAS_CON_UNIDADES = """
+            (SELECT v.fecha, v.medio_pago, v.total,
+                    (SELECT COALESCE(SUM(i.cantidad), 0) FROM venta_items i WHERE i.venta_id = v.id) AS unidades
+             FROM ventas v
+             WHERE v.estado = 'COMPLETADA' AND v.fecha >= ? AND v.fecha < ?) v
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ResumenDia(LocalDate dia, Venta.MedioPago medioPago, long cantidad,
+                             BigDecimal total, BigDecimal unidades) {}
+
+    public record ResumenHora(int hora, long cantidad, BigDecimal total) {}
+
+    public record ResumenProductoDia(LocalDate dia, BigDecimal unidades, BigDecimal total) {}
+
+    /**
+     * Adds a completed sale to the rollups.
+     */
+    public void sumar(Venta venta) {
+        acumular(List.of(venta), BigDecimal.ONE);
+    }
+
+    /**
+     * Adds several completed sales to the rollups; sales sharing a day, hour or product
+     * are merged first, so a batch costs one statement per rollup table.
+     */
+    public void sumar(Collection<Venta> ventas) {
+        if (!ventas.isEmpty()) {
+            acumular(ventas, BigDecimal.ONE);
+        }
+    }
+
+    /**
+     * Removes an anulada sale from the rollups.
+     */
+    public void restar(Venta venta) {
+        acumular(List.of(venta), BigDecimal.ONE.negate());
+    }
+
+    private void acumular(Collection<Venta> ventas, BigDecimal signo) {
+        // Ordered keys give every transaction the same lock order
+        Map<ClaveDia, Totales> porDia = new TreeMap<>(Comparator.comparing(ClaveDia::dia)
+                .thenComparing(ClaveDia::medioPago));
+        Map<ClaveHora, Totales> porHora = new TreeMap<>(Comparator.comparing(ClaveHora::dia)
+                .thenComparingInt(ClaveHora::hora)
+                .thenComparing(ClaveHora::medioPago));
+        Map<ClaveProducto, Totales> porProducto = new TreeMap<>(Comparator.comparing(ClaveProducto::dia)
+                .thenComparing(ClaveProducto::productoId)
+                .thenComparing(ClaveProducto::medioPago));
+
+        for (Venta venta : ventas) {
+            LocalDate dia = venta.getFecha().toLocalDate();
+            String medioPago = venta.getMedioPago().name();
+
+            // Lines of the same product are merged: the product row counts the sale once
+            Map<UUID, BigDecimal[]> lineas = new HashMap<>();
+            BigDecimal unidades = BigDecimal.ZERO;
+            for (VentaItem item : venta.getItems()) {
+                unidades = unidades.add(item.getCantidad());
+                if (item.getProducto() != null) {
+                    lineas.merge(item.getProducto().getId(),
+                            new BigDecimal[]{item.getCantidad(), item.getSubtotal()},
+                            (a, b) -> new BigDecimal[]{a[0].add(b[0]), a[1].add(b[1])});
+                }
+            }
+
+            porDia.computeIfAbsent(new ClaveDia(dia, medioPago), k -> new Totales())
+                    .sumar(venta.getTotal(), unidades);
+            porHora.computeIfAbsent(new ClaveHora(dia, venta.getFecha().getHour(), medioPago), k -> new Totales())
+                    .sumar(venta.getTotal(), unidades);
+            lineas.forEach((productoId, valores) ->
+                    porProducto.computeIfAbsent(new ClaveProducto(dia, productoId, medioPago), k -> new Totales())
+                            .sumar(valores[1], valores[0]));
+        }
+
+        int cantidadSigno = signo.intValue();
+        List<Object[]> diario = new ArrayList<>(porDia.size());
+        porDia.forEach((clave, t) -> diario.add(new Object[]{
+                Date.valueOf(clave.dia()), clave.medioPago(),
+                t.cantidad * cantidadSigno, t.total.multiply(signo), t.unidades.multiply(signo)}));
+        List<Object[]> horario = new ArrayList<>(porHora.size());
+        porHora.forEach((clave, t) -> horario.add(new Object[]{
+                Date.valueOf(clave.dia()), clave.hora(), clave.medioPago(),
+                t.cantidad * cantidadSigno, t.total.multiply(signo), t.unidades.multiply(signo)}));
+        List<Object[]> productos = new ArrayList<>(porProducto.size());
+        porProducto.forEach((clave, t) -> productos.add(new Object[]{
+                Date.valueOf(clave.dia()), clave.productoId(), clave.medioPago(),
+                t.cantidad * cantidadSigno, t.total.multiply(signo), t.unidades.multiply(signo)}));
+
+        jdbcTemplate.batchUpdate(ACUMULAR_DIARIO_SQL, diario);
+        jdbcTemplate.batchUpdate(ACUMULAR_HORARIO_SQL, horario);
+        if (!productos.isEmpty()) {
+            jdbcTemplate.batchUpdate(ACUMULAR_PRODUCTO_SQL, productos);
+        }
+    }
+
+    private record ClaveDia(LocalDate dia, String medioPago) {}
+
+    private record ClaveHora(LocalDate dia, int hora, String medioPago) {}
+
+    private record ClaveProducto(LocalDate dia, UUID productoId, String medioPago) {}
+
+    /** Sales count, total and units added to one rollup row. */
+    private static final class Totales {
+        private int cantidad;
+        private BigDecimal total = BigDecimal.ZERO;
+        private BigDecimal unidades = BigDecimal.ZERO;
+
+        void sumar(BigDecimal total, BigDecimal unidades) {
+            this.cantidad++;
+            this.total = this.total.add(total);
+            this.unidades = this.unidades.add(unidades);
+        }
+    }
+
+    /**
+     * Recomputes the rollups of the given days (inclusive) from ventas/venta_items.
+     * Used to backfill history or repair a range after manual data fixes.
+     * @return number of daily rows written
+     */
+    public int reconstruir(LocalDate desde, LocalDate hasta) {
+        Date diaDesde = Date.valueOf(desde);
+        Date diaHasta = Date.valueOf(hasta);
+        Timestamp inicio = Timestamp.valueOf(desde.atStartOfDay());
+        Timestamp fin = Timestamp.valueOf(hasta.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM ventas_resumen_diario WHERE dia BETWEEN ? AND ?", diaDesde, diaHasta);
+        jdbcTemplate.update("DELETE FROM ventas_resumen_horario WHERE dia BETWEEN ? AND ?", diaDesde, diaHasta);
+        jdbcTemplate.update("DELETE FROM ventas_resumen_producto WHERE dia BETWEEN ? AND ?", diaDesde, diaHasta);
+
+        int filas = jdbcTemplate.update("""
+                INSERT INTO ventas_resumen_diario (dia, medio_pago, cantidad, total, unidades)
+                SELECT CAST(v.fecha AS DATE), v.medio_pago, COUNT(*), SUM(v.total), SUM(v.unidades)
+                FROM %s
+                GROUP BY CAST(v.fecha AS DATE), v.medio_pago
+                """.formatted(VENTAS_CON_UNIDADES), inicio, fin);
+
+        jdbcTemplate.update("""
+                INSERT INTO ventas_resumen_horario (dia, hora, medio_pago, cantidad, total, unidades)
+                SELECT CAST(v.fecha AS DATE), EXTRACT(HOUR FROM v.fecha), v.medio_pago,
+                       COUNT(*), SUM(v.total), SUM(v.unidades)
+                FROM %s
+                GROUP BY CAST(v.fecha AS DATE), EXTRACT(HOUR FROM v.fecha), v.medio_pago
+                """.formatted(VENTAS_CON_UNIDADES), inicio, fin);
+
+        jdbcTemplate.update("""
+                INSERT INTO ventas_resumen_producto (dia, producto_id, medio_pago, cantidad, total, unidades)
+                SELECT CAST(v.fecha AS DATE), i.producto_id, v.medio_pago,
+                       COUNT(DISTINCT v.id), SUM(i.subtotal), SUM(i.cantidad)
+                FROM venta_items i
+                JOIN ventas v ON v.id = i.venta_id
+                WHERE v.estado = 'COMPLETADA' AND i.producto_id IS NOT NULL
+                  AND v.fecha >= ? AND v.fecha < ?
+                GROUP BY CAST(v.fecha AS DATE), i.producto_id, v.medio_pago
+                """, inicio, fin);
+
+        return filas;
+    }
+
+    /**
+     * Daily rows between both dates (inclusive), one per day and medio de pago.
+     */
+    public List<ResumenDia> findPorDia(LocalDate desde, LocalDate hasta) {
+        return jdbcTemplate.query("""
+                SELECT dia, medio_pago, cantidad, total, unidades
+                FROM ventas_resumen_diario
+                WHERE dia BETWEEN ? AND ? AND cantidad > 0
+                """,
+                (rs, rowNum) -> new ResumenDia(
+                        rs.getDate("dia").toLocalDate(),
+                        Venta.MedioPago.valueOf(rs.getString("medio_pago")),
+                        rs.getLong("cantidad"),
+                        rs.getBigDecimal("total"),
+                        rs.getBigDecimal("unidades")),
+                Date.valueOf(desde), Date.valueOf(hasta));
+    }
+
+    /**
+     * Hourly rows of one day, medios de pago merged.
+     */
+    public List<ResumenHora> findPorHora(LocalDate dia) {
+        return jdbcTemplate.query("""
+                SELECT hora, SUM(cantidad) AS cantidad, SUM(total) AS total
+                FROM ventas_resumen_horario
+                WHERE dia = ?
+                GROUP BY hora
+                HAVING SUM(cantidad) > 0
+                """,
+                (rs, rowNum) -> new ResumenHora(rs.getInt("hora"), rs.getLong("cantidad"), rs.getBigDecimal("total")),
+                Date.valueOf(dia));
+    }
+
+    /**
+     * Daily rows of one product between both dates (inclusive), medios de pago merged.
+     */
+    public List<ResumenProductoDia> findPorProductoYDia(UUID productoId, LocalDate desde, LocalDate hasta) {
+        return jdbcTemplate.query("""
+                SELECT dia, SUM(unidades) AS unidades, SUM(total) AS total
+                FROM ventas_resumen_producto
+                WHERE producto_id = ? AND dia BETWEEN ? AND ?
+                GROUP BY dia
+                HAVING SUM(cantidad) > 0
+                """,
+                (rs, rowNum) -> new ResumenProductoDia(
+                        rs.getDate("dia").toLocalDate(),
+                        rs.getBigDecimal("unidades"),
+                        rs.getBigDecimal("total")),
+                productoId, Date.valueOf(desde), Date.valueOf(hasta));
+    }
+}
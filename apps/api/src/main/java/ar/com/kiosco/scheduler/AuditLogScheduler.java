@@ -0,0 +1,33 @@
+package ar.com.kiosco.scheduler;
+
+import ar.com.kiosco.service.AuditLogParticionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled audit_log partition maintenance and retention.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogScheduler {
+
+    private final AuditLogParticionService auditLogParticionService;
+
+    /**
+     * Create upcoming monthly partitions and drop expired ones at 1:30 AM daily.
+     */
+    @Scheduled(cron = "${audit.partition-cron:0 30 1 * * *}")
+    public void mantenerParticiones() {
+        log.info("Starting audit_log partition maintenance");
+
+        try {
+            int mantenidos = auditLogParticionService.mantenerTodos();
+            log.info("audit_log partitions maintained for {} kioscos", mantenidos);
+        } catch (Exception e) {
+            log.error("audit_log partition maintenance failed", e);
+        }
+    }
+}
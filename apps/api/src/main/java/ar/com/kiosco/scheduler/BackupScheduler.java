@@ -37,10 +37,13 @@ public class BackupScheduler {
         try {
             BackupReportDTO report = backupService.backupAllTenants();
 
-            log.info("Scheduled backup completed: {} successful, {} failed in {}",
+            log.info("Scheduled backup completed: {} successful ({} unchanged), {} failed in {} ({} at a time, {} MB/s)",
                     report.getSuccessful(),
+                    report.getSkipped(),
                     report.getFailed(),
-                    report.getDuration());
+                    report.getDuration(),
+                    report.getParallelism(),
+                    report.getThroughputMbPerSecond());
 
             // Log any failures
             for (BackupResultDTO result : report.getResults()) {
@@ -0,0 +1,48 @@
+package ar.com.kiosco.scheduler;
+
+import ar.com.kiosco.service.CadenaAgregadosService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the chain-level sales and stock aggregates up to date.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CadenaAgregadosScheduler {
+
+    private final CadenaAgregadosService cadenaAgregadosService;
+
+    /**
+     * Apply pending sale and stock changes every few seconds.
+     */
+    @Scheduled(fixedDelayString = "${cadena.agregados.intervalo-ms:2000}")
+    public void aplicarPendientes() {
+        try {
+            int aplicados = cadenaAgregadosService.aplicarPendientes();
+            if (aplicados > 0) {
+                log.debug("Applied {} pending chain aggregate changes", aplicados);
+            }
+        } catch (Exception e) {
+            log.error("Applying chain aggregate changes failed", e);
+        }
+    }
+
+    /**
+     * Rebuild every chain kiosco's aggregates at 4:30 AM daily, to repair any drift.
+     */
+    @Scheduled(cron = "${cadena.agregados.reconstruir-cron:0 30 4 * * *}")
+    public void reconstruir() {
+        log.info("Starting chain aggregates rebuild");
+
+        try {
+            int reconstruidos = cadenaAgregadosService.reconstruirTodos();
+            log.info("Chain aggregates rebuilt for {} kioscos", reconstruidos);
+        } catch (Exception e) {
+            log.error("Chain aggregates rebuild failed", e);
+        }
+    }
+}
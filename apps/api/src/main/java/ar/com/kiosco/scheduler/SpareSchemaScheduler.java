@@ -0,0 +1,34 @@
+package ar.com.kiosco.scheduler;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the pool of pre-migrated spare tenant schemas full.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpareSchemaScheduler {
+
+    private final TenantSchemaManager tenantSchemaManager;
+
+    /**
+     * Rebuild claimed and outdated spares, once a minute by default.
+     */
+    @Scheduled(fixedDelayString = "${tenant-schemas.refill-interval-ms:60000}",
+            initialDelayString = "${tenant-schemas.refill-interval-ms:60000}")
+    public void replenishSpareSchemas() {
+        try {
+            int built = tenantSchemaManager.replenishSpareSchemas();
+            if (built > 0) {
+                log.info("Built {} spare tenant schemas", built);
+            }
+        } catch (Exception e) {
+            log.error("Spare tenant schema replenishment failed", e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Checks for pending tenant migrations at application startup.
@@ -26,11 +27,13 @@ public class TenantMigrationChecker {
     @EventListener(ApplicationReadyEvent.class)
     public void checkPendingMigrations() {
         try {
-            List<String> outdatedTenants = tenantMigrationService.getOutdatedTenants();
+            // One catalog query for every tenant version
+            Map<String, Integer> versions = tenantMigrationService.getCurrentVersions();
+            int latestVersion = tenantMigrationService.getLatestAvailableVersion();
+            List<String> outdatedTenants = tenantMigrationService.outdated(versions, latestVersion);
 
             if (outdatedTenants.isEmpty()) {
-                log.info("All tenant schemas are up to date (version {})",
-                    tenantMigrationService.getLatestAvailableVersion());
+                log.info("All tenant schemas are up to date (version {})", latestVersion);
             } else {
                 log.warn("=================================================");
                 log.warn("PENDING TENANT MIGRATIONS DETECTED");
@@ -41,8 +44,7 @@ public class TenantMigrationChecker {
                 int shown = Math.min(outdatedTenants.size(), 10);
                 for (int i = 0; i < shown; i++) {
                     String schema = outdatedTenants.get(i);
-                    int currentVersion = tenantMigrationService.getCurrentVersion(schema);
-                    log.warn("  - {} (current version: {})", schema, currentVersion);
+                    log.warn("  - {} (current version: {})", schema, versions.get(schema));
                 }
 
                 if (outdatedTenants.size() > 10) {
@@ -50,8 +52,7 @@ public class TenantMigrationChecker {
                 }
 
                 log.warn("");
-                log.warn("Latest available version: {}",
-                    tenantMigrationService.getLatestAvailableVersion());
+                log.warn("Latest available version: {}", latestVersion);
                 log.warn("Run migrations via: POST /api/admin/migrations/run");
                 log.warn("=================================================");
             }
@@ -0,0 +1,33 @@
+package ar.com.kiosco.scheduler;
+
+import ar.com.kiosco.service.UsoMensualService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled reconciliation of the monthly usage counters.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UsoMensualScheduler {
+
+    private final UsoMensualService usoMensualService;
+
+    /**
+     * Recount every kiosco's current month at 2 AM daily.
+     */
+    @Scheduled(cron = "${uso-mensual.reconcile-cron:0 0 2 * * *}")
+    public void reconciliarContadores() {
+        log.info("Starting usage counter reconciliation");
+
+        try {
+            int reconciliados = usoMensualService.reconciliarTodos();
+            log.info("Usage counters reconciled for {} kioscos", reconciliados);
+        } catch (Exception e) {
+            log.error("Usage counter reconciliation failed", e);
+        }
+    }
+}
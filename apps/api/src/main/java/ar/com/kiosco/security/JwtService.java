@@ -3,20 +3,34 @@ package ar.com.kiosco.security;
 import ar.com.kiosco.domain.Usuario;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for JWT token generation and validation with multi-tenant support.
+ *
+ * A token is parsed and its signature checked once into {@link TokenClaims}.
+ * Verified tokens are kept by SHA-256 hash until they expire (at most
+ * jwt.cache.max-size of them), so repeat requests from the same terminal skip
+ * the signature check and JSON parsing. Set jwt.cache.max-size to 0 to disable.
+ * A full cache drops expired tokens at most once per PURGA_INTERVALO_MS; between
+ * purges a new token takes the place of an arbitrary one, so a miss stays O(1).
  */
 @Service
 public class JwtService {
@@ -26,6 +40,7 @@ public class JwtService {
     private static final String CLAIM_KIOSCO_ROLE = "kiosco_role";
     private static final String CLAIM_USER_ID = "user_id";
     private static final String CLAIM_USER_NAME = "user_name";
+    private static final long PURGA_INTERVALO_MS = 5_000;
 
     @Value("${jwt.secret:kiosco-secret-key-that-should-be-changed-in-production-environment-for-security}")
     private String secretKey;
@@ -33,6 +48,16 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}")
     private long jwtExpiration; // 24 hours default
 
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize = 10000;
+
+    private volatile SecretKey signingKey;
+
+    private final Map<String, TokenClaims> verificados = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong proximaPurga = new AtomicLong();
+
     /**
      * Generates a JWT token with multi-tenant context.
      */
@@ -72,67 +97,138 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Claims of a valid, unexpired token, or empty if the token is malformed,
+     * badly signed or expired.
+     */
+    public Optional<TokenClaims> verify(String token) {
+        try {
+            return Optional.of(claims(token));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
     public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return claims(token).email();
     }
 
     public UUID extractUserId(String token) {
-        String userId = extractClaim(token, claims -> claims.get(CLAIM_USER_ID, String.class));
-        return userId != null ? UUID.fromString(userId) : null;
+        return claims(token).userId();
     }
 
     public UUID extractKioscoId(String token) {
-        String kioscoId = extractClaim(token, claims -> claims.get(CLAIM_KIOSCO_ID, String.class));
-        return kioscoId != null ? UUID.fromString(kioscoId) : null;
+        return claims(token).kioscoId();
     }
 
     public String extractKioscoRole(String token) {
-        return extractClaim(token, claims -> claims.get(CLAIM_KIOSCO_ROLE, String.class));
+        return claims(token).kioscoRole();
     }
 
     public String extractUserName(String token) {
-        return extractClaim(token, claims -> claims.get(CLAIM_USER_NAME, String.class));
+        return claims(token).userName();
     }
 
     public boolean isTokenValid(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 
     public boolean isTokenValid(String token, String email) {
-        try {
-            final String tokenEmail = extractEmail(token);
-            return tokenEmail.equals(email) && !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verify(token).map(claims -> claims.email().equals(email)).orElse(false);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Hit/miss counters and size of the verified-token cache.
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokens", verificados.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+    /**
+     * Verified claims of the token; throws JwtException if it is invalid or expired.
+     */
+    private TokenClaims claims(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Token vacio");
+        }
+        String hash = cacheMaxSize > 0 ? hash(token) : null;
+        if (hash != null) {
+            TokenClaims cached = verificados.get(hash);
+            if (cached != null) {
+                if (!cached.isExpired()) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+                verificados.remove(hash);
+            }
+        }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        misses.incrementAndGet();
+        TokenClaims claims = parse(token);
+        if (hash != null) {
+            guardar(hash, claims);
+        }
+        return claims;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
+    private TokenClaims parse(String token) {
+        Claims claims = Jwts.parser()
                 .verifyWith(getSigningKey())
                 .build()
                 .parseSignedClaims(token)
                 .getPayload();
+
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        String kioscoId = claims.get(CLAIM_KIOSCO_ID, String.class);
+        return new TokenClaims(
+                claims.getSubject(),
+                userId != null ? UUID.fromString(userId) : null,
+                claims.get(CLAIM_USER_NAME, String.class),
+                kioscoId != null ? UUID.fromString(kioscoId) : null,
+                claims.get(CLAIM_KIOSCO_ROLE, String.class),
+                claims.getExpiration().toInstant());
+    }
+
+    private void guardar(String hash, TokenClaims claims) {
+        if (verificados.size() >= cacheMaxSize) {
+            long ahora = System.currentTimeMillis();
+            long proxima = proximaPurga.get();
+            if (ahora >= proxima && proximaPurga.compareAndSet(proxima, ahora + PURGA_INTERVALO_MS)) {
+                verificados.values().removeIf(TokenClaims::isExpired);
+            }
+            // Still full of live tokens: make room by dropping any one of them
+            Iterator<String> claves = verificados.keySet().iterator();
+            while (verificados.size() >= cacheMaxSize && claves.hasNext()) {
+                claves.next();
+                claves.remove();
+            }
+        }
+        verificados.put(hash, claims);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     private SecretKey getSigningKey() {
+        SecretKey key = signingKey;
+        if (key == null) {
+            key = buildSigningKey();
+            signingKey = key;
+        }
+        return key;
+    }
+
+    private SecretKey buildSigningKey() {
         // Ensure key is at least 512 bits (64 bytes) for HS512, or at least 256 bits for HS256
         String key = secretKey;
         while (key.length() < 64) {
@@ -40,11 +40,12 @@ public class KioscoContextFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String jwt = authHeader.substring(7);
 
-                if (jwtService.isTokenValid(jwt)) {
-                    UUID kioscoId = jwtService.extractKioscoId(jwt);
-                    String kioscoRole = jwtService.extractKioscoRole(jwt);
-                    UUID usuarioId = jwtService.extractUserId(jwt);
-                    String usuarioEmail = jwtService.extractEmail(jwt);
+                TokenClaims claims = jwtService.verify(jwt).orElse(null);
+                if (claims != null) {
+                    UUID kioscoId = claims.kioscoId();
+                    String kioscoRole = claims.kioscoRole();
+                    UUID usuarioId = claims.userId();
+                    String usuarioEmail = claims.email();
 
                     // Set KioscoContext for multi-tenancy
                     KioscoContext.setContext(kioscoId, kioscoRole, usuarioId, usuarioEmail);
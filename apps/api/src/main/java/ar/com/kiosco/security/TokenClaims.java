@@ -0,0 +1,20 @@
+package ar.com.kiosco.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Claims of a verified JWT. kioscoId and kioscoRole are null for account tokens.
+ */
+public record TokenClaims(
+        String email,
+        UUID userId,
+        String userName,
+        UUID kioscoId,
+        String kioscoRole,
+        Instant expiration) {
+
+    public boolean isExpired() {
+        return !expiration.isAfter(Instant.now());
+    }
+}
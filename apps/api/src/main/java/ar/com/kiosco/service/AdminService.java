@@ -27,6 +27,7 @@ public class AdminService {
     private final UsuarioRepository usuarioRepository;
     private final SuscripcionRepository suscripcionRepository;
     private final UsoMensualRepository usoMensualRepository;
+    private final MetadatosKioscoService metadatosKioscoService;
     private final SuperadminRepository superadminRepository;
     private final SuscripcionService suscripcionService;
 
@@ -182,6 +183,7 @@ public class AdminService {
 
         kiosco.setActivo(true);
         kiosco = kioscoRepository.save(kiosco);
+        metadatosKioscoService.invalidar(kioscoId);
         return KioscoAdminDTO.fromEntity(kiosco);
     }
 
@@ -195,6 +197,7 @@ public class AdminService {
 
         kiosco.setActivo(false);
         kiosco = kioscoRepository.save(kiosco);
+        metadatosKioscoService.invalidar(kioscoId);
         return KioscoAdminDTO.fromEntity(kiosco);
     }
 
@@ -0,0 +1,91 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.repository.AuditLogParticionRepository;
+import ar.com.kiosco.repository.KioscoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Keeps each tenant's audit_log partitions in shape: one partition per month,
+ * created ahead of time (audit.partitions-ahead months) and for any month whose
+ * rows are still in audit_log_default, and whole partitions dropped once they are
+ * older than audit.retention-months.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogParticionService {
+
+    private final AuditLogParticionRepository particionRepository;
+    private final KioscoRepository kioscoRepository;
+    private final TenantSchemaManager tenantSchemaManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${audit.retention-months:24}")
+    private int retentionMonths = 24;
+
+    @Value("${audit.partitions-ahead:2}")
+    private int partitionsAhead = 2;
+
+    /**
+     * Maintains the partitions of every active kiosco.
+     * @return number of schemas maintained
+     */
+    public int mantenerTodos() {
+        int mantenidos = 0;
+        for (Kiosco kiosco : kioscoRepository.findAll()) {
+            if (!Boolean.TRUE.equals(kiosco.getActivo())) {
+                continue;
+            }
+            String schema = tenantSchemaManager.getSchemaName(kiosco.getId());
+            try {
+                if (tenantSchemaManager.schemaExists(schema)) {
+                    mantener(schema);
+                    mantenidos++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to maintain audit_log partitions for {}: {}", schema, e.getMessage());
+            }
+        }
+        return mantenidos;
+    }
+
+    public void mantener(String schema) {
+        YearMonth actual = YearMonth.now();
+        YearMonth limite = actual.minusMonths(retentionMonths);
+        List<YearMonth> existentes = particionRepository.particiones(schema);
+
+        for (YearMonth mes : existentes) {
+            if (mes.isBefore(limite)) {
+                particionRepository.eliminar(schema, mes);
+                log.info("Dropped audit_log partition {} of {}", mes, schema);
+            }
+        }
+        int borrados = particionRepository.borrarDeDefaultAntesDe(schema, limite);
+        if (borrados > 0) {
+            log.info("Deleted {} expired audit_log rows from the default partition of {}", borrados, schema);
+        }
+
+        TreeSet<YearMonth> faltantes = new TreeSet<>(particionRepository.mesesEnDefault(schema));
+        for (int i = 0; i <= partitionsAhead; i++) {
+            faltantes.add(actual.plusMonths(i));
+        }
+        faltantes.removeAll(existentes);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (YearMonth mes : faltantes) {
+            tx.executeWithoutResult(status -> particionRepository.crear(schema, mes));
+            log.debug("Created audit_log partition {} of {}", mes, schema);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.AuditLog;
+import ar.com.kiosco.repository.AuditLogBatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue between audited operations and the audit_log tables.
+ *
+ * {@link AuditService} enqueues events with the tenant, user and request data
+ * already captured; every audit.flush-interval-ms the queue is drained, events are
+ * grouped by tenant schema and written with one multi-row INSERT per
+ * audit.batch-size rows. The payload (entity to JSON map, change diff) is
+ * computed here, off the request thread.
+ *
+ * When the queue (audit.queue-capacity) is full the caller waits up to
+ * audit.offer-timeout (0 by default) and the event is then dropped and counted:
+ * auditing never blocks or fails a sale.
+ */
+@Component
+@Slf4j
+public class AuditLogWriter {
+
+    private final AuditLogBatchRepository auditLogBatchRepository;
+    private final BlockingQueue<Evento> cola;
+    private final int batchSize;
+    private final Duration offerTimeout;
+
+    private final AtomicLong encolados = new AtomicLong();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+
+    public AuditLogWriter(AuditLogBatchRepository auditLogBatchRepository,
+                          @Value("${audit.queue-capacity:10000}") int capacidad,
+                          @Value("${audit.batch-size:200}") int batchSize,
+                          @Value("${audit.offer-timeout:0ms}") Duration offerTimeout) {
+        this.auditLogBatchRepository = auditLogBatchRepository;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.batchSize = batchSize;
+        this.offerTimeout = offerTimeout;
+    }
+
+    /**
+     * An audit event with everything taken from ThreadLocals resolved at enqueue time.
+     * changes is evaluated by the writer; an empty map with omitirSinCambios skips the event.
+     */
+    public record Evento(
+            String schema,
+            String entityType,
+            UUID entityId,
+            String action,
+            UUID usuarioId,
+            String usuarioEmail,
+            String ipAddress,
+            String userAgent,
+            LocalDateTime createdAt,
+            Supplier<Map<String, Object>> changes,
+            boolean omitirSinCambios) {
+    }
+
+    /**
+     * Queues the event; false if it was dropped because the queue stayed full.
+     */
+    public boolean encolar(Evento evento) {
+        boolean aceptado;
+        try {
+            aceptado = offerTimeout.isZero()
+                    ? cola.offer(evento)
+                    : cola.offer(evento, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aceptado = false;
+        }
+
+        if (aceptado) {
+            encolados.incrementAndGet();
+        } else if (descartados.incrementAndGet() % 1000 == 1) {
+            log.warn("Audit queue full, dropping events ({} dropped so far)", descartados.get());
+        }
+        return aceptado;
+    }
+
+    /**
+     * Drains the queue and writes its events, one INSERT per schema and batch.
+     */
+    @Scheduled(fixedDelayString = "${audit.flush-interval-ms:500}")
+    public synchronized void flush() {
+        List<Evento> pendientes = new ArrayList<>();
+        while (cola.drainTo(pendientes, batchSize * 10) > 0) {
+            escribir(pendientes);
+            pendientes.clear();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        flush();
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendientes", cola.size());
+        stats.put("encolados", encolados.get());
+        stats.put("escritos", escritos.get());
+        stats.put("descartados", descartados.get());
+        stats.put("fallidos", fallidos.get());
+        return stats;
+    }
+
+    private void escribir(List<Evento> eventos) {
+        Map<String, List<AuditLog>> porSchema = new LinkedHashMap<>();
+        for (Evento evento : eventos) {
+            AuditLog registro = toAuditLog(evento);
+            if (registro != null) {
+                porSchema.computeIfAbsent(evento.schema(), s -> new ArrayList<>()).add(registro);
+            }
+        }
+
+        porSchema.forEach((schema, registros) -> {
+            for (int desde = 0; desde < registros.size(); desde += batchSize) {
+                List<AuditLog> lote = registros.subList(desde, Math.min(desde + batchSize, registros.size()));
+                try {
+                    escritos.addAndGet(auditLogBatchRepository.insertar(schema, lote));
+                } catch (Exception e) {
+                    fallidos.addAndGet(lote.size());
+                    log.error("Failed to write {} audit log(s) to {}: {}", lote.size(), schema, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private AuditLog toAuditLog(Evento evento) {
+        Map<String, Object> changes;
+        try {
+            changes = evento.changes().get();
+        } catch (Exception e) {
+            log.error("Failed to build audit log for {} {}: {}", evento.entityType(), evento.entityId(), e.getMessage());
+            fallidos.incrementAndGet();
+            return null;
+        }
+
+        if (evento.omitirSinCambios() && changes.isEmpty()) {
+            log.trace("No changes detected for {} {}, skipping audit", evento.entityType(), evento.entityId());
+            return null;
+        }
+
+        return AuditLog.builder()
+                .entityType(evento.entityType())
+                .entityId(evento.entityId())
+                .action(evento.action())
+                .usuarioId(evento.usuarioId())
+                .usuarioEmail(evento.usuarioEmail())
+                .changes(changes)
+                .ipAddress(evento.ipAddress())
+                .userAgent(evento.userAgent())
+                .createdAt(evento.createdAt())
+                .build();
+    }
+}
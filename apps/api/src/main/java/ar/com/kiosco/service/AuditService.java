@@ -1,5 +1,6 @@
 package ar.com.kiosco.service;
 
+import ar.com.kiosco.config.TenantSchemaManager;
 import ar.com.kiosco.domain.AuditLog;
 import ar.com.kiosco.repository.AuditLogRepository;
 import ar.com.kiosco.security.KioscoContext;
@@ -9,126 +10,82 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuditService {
 
+    static final int RANGO_BUSQUEDA_DIAS = 30;
+
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final TenantSchemaManager tenantSchemaManager;
     private final ObjectMapper objectMapper;
 
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logCreate(String entityType, UUID entityId, Object entity) {
-        try {
-            Map<String, Object> entityData = convertToMap(entity);
-
-            AuditLog auditLog = AuditLog.builder()
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .action(AuditLog.Action.CREATE.name())
-                    .usuarioId(KioscoContext.getCurrentUsuarioId())
-                    .usuarioEmail(KioscoContext.getCurrentUsuarioEmail())
-                    .changes(entityData)
-                    .ipAddress(getClientIp())
-                    .userAgent(getUserAgent())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.trace("Audit: {} {} created by {}", entityType, entityId, auditLog.getUsuarioEmail());
-        } catch (Exception e) {
-            log.error("Failed to create audit log for {} {}: {}", entityType, entityId, e.getMessage());
-        }
+        encolar(entityType, entityId, AuditLog.Action.CREATE.name(), () -> convertToMap(entity), false);
     }
 
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logUpdate(String entityType, UUID entityId, Object before, Object after) {
-        try {
-            Map<String, Object> changes = computeChanges(before, after);
-
-            if (changes.isEmpty()) {
-                log.trace("No changes detected for {} {}, skipping audit", entityType, entityId);
-                return;
-            }
-
-            AuditLog auditLog = AuditLog.builder()
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .action(AuditLog.Action.UPDATE.name())
-                    .usuarioId(KioscoContext.getCurrentUsuarioId())
-                    .usuarioEmail(KioscoContext.getCurrentUsuarioEmail())
-                    .changes(changes)
-                    .ipAddress(getClientIp())
-                    .userAgent(getUserAgent())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.trace("Audit: {} {} updated by {} - {} field(s) changed",
-                    entityType, entityId, auditLog.getUsuarioEmail(), changes.size());
-        } catch (Exception e) {
-            log.error("Failed to create update audit log for {} {}: {}", entityType, entityId, e.getMessage());
-        }
+        encolar(entityType, entityId, AuditLog.Action.UPDATE.name(), () -> computeChanges(before, after), true);
     }
 
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logDelete(String entityType, UUID entityId, Object entity) {
-        try {
-            Map<String, Object> entityData = convertToMap(entity);
-
-            AuditLog auditLog = AuditLog.builder()
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .action(AuditLog.Action.DELETE.name())
-                    .usuarioId(KioscoContext.getCurrentUsuarioId())
-                    .usuarioEmail(KioscoContext.getCurrentUsuarioEmail())
-                    .changes(entityData)
-                    .ipAddress(getClientIp())
-                    .userAgent(getUserAgent())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.trace("Audit: {} {} deleted by {}", entityType, entityId, auditLog.getUsuarioEmail());
-        } catch (Exception e) {
-            log.error("Failed to create delete audit log for {} {}: {}", entityType, entityId, e.getMessage());
-        }
+        encolar(entityType, entityId, AuditLog.Action.DELETE.name(), () -> convertToMap(entity), false);
     }
 
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAction(String entityType, UUID entityId, String action, Map<String, Object> data) {
-        try {
-            AuditLog auditLog = AuditLog.builder()
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .action(action)
-                    .usuarioId(KioscoContext.getCurrentUsuarioId())
-                    .usuarioEmail(KioscoContext.getCurrentUsuarioEmail())
-                    .changes(data)
-                    .ipAddress(getClientIp())
-                    .userAgent(getUserAgent())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.trace("Audit: {} {} {} by {}", entityType, entityId, action, auditLog.getUsuarioEmail());
-        } catch (Exception e) {
-            log.error("Failed to create audit log for {} {} {}: {}", entityType, entityId, action, e.getMessage());
+        encolar(entityType, entityId, action, () -> data, false);
+    }
+
+    /**
+     * Captures tenant, user and request data on the calling thread (they live in
+     * ThreadLocals) and hands the event to the writer once the caller's transaction
+     * commits, so rolled-back operations are not audited.
+     */
+    private void encolar(String entityType, UUID entityId, String action,
+                         Supplier<Map<String, Object>> changes, boolean omitirSinCambios) {
+        UUID kioscoId = KioscoContext.getCurrentKioscoId();
+        UUID usuarioId = KioscoContext.getCurrentUsuarioId();
+        if (kioscoId == null || usuarioId == null) {
+            log.debug("No kiosco or user in context, skipping audit of {} {} {}", entityType, entityId, action);
+            return;
+        }
+
+        AuditLogWriter.Evento evento = new AuditLogWriter.Evento(
+                tenantSchemaManager.getSchemaName(kioscoId),
+                entityType,
+                entityId,
+                action,
+                usuarioId,
+                KioscoContext.getCurrentUsuarioEmail(),
+                getClientIp(),
+                getUserAgent(),
+                LocalDateTime.now(),
+                changes,
+                omitirSinCambios);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            auditLogWriter.encolar(evento);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                auditLogWriter.encolar(evento);
+            }
+        });
     }
 
     @Transactional(readOnly = true)
@@ -136,6 +93,10 @@ public class AuditService {
         return auditLogRepository.findByEntityTypeAndEntityIdOrderByCreatedAtDesc(entityType, entityId);
     }
 
+    /**
+     * Searches a date range; without bounds, the last {@value #RANGO_BUSQUEDA_DIAS} days
+     * up to now (or up to hasta).
+     */
     @Transactional(readOnly = true)
     public Page<AuditLog> search(
             String entityType,
@@ -146,6 +107,12 @@ public class AuditService {
             int page,
             int size
     ) {
+        if (hasta == null) {
+            hasta = LocalDateTime.now();
+        }
+        if (desde == null) {
+            desde = hasta.minusDays(RANGO_BUSQUEDA_DIAS);
+        }
         return auditLogRepository.search(
                 entityType,
                 entityId,
@@ -6,6 +6,7 @@ import ar.com.kiosco.dto.BackupResultDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
@@ -16,6 +17,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -25,6 +31,19 @@ import java.util.zip.GZIPOutputStream;
 /**
  * Service for managing tenant schema backups.
  * Uses pg_dump for PostgreSQL backups with gzip compression.
+ *
+ * Batch backups run up to backup.parallelism dumps at a time. Each dump is
+ * streamed through gzip at backup.compression-level with large buffers, and
+ * pg_dump's stderr is drained on its own thread so a chatty dump cannot block
+ * on a full pipe.
+ *
+ * With backup.incremental, a schema whose write counters in pg_stat_user_tables
+ * (inserted, updated and deleted rows per table) have not moved since its last
+ * dump is not dumped again: the new backup is a hard link to the previous file,
+ * so it costs no I/O or space and retention keeps working per file. The counters
+ * and the last dump are kept in a {@code <schema>.firma} file next to the backups.
+ * A real dump is forced after backup.max-skip-days, and whenever the counters were
+ * reset or the previous file is gone.
  */
 @Service
 @RequiredArgsConstructor
@@ -33,8 +52,11 @@ public class BackupService {
 
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
     private static final Pattern BACKUP_FILENAME_PATTERN = Pattern.compile("^(.+)_(\\d{8}_\\d{6})\\.sql\\.gz$");
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String FIRMA_SUFFIX = ".firma";
 
     private final TenantMigrationService tenantMigrationService;
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${backup.path:/var/backups/kiosco}")
     private String backupPath;
@@ -42,6 +64,18 @@ public class BackupService {
     @Value("${backup.retention-days:30}")
     private int retentionDays;
 
+    @Value("${backup.parallelism:4}")
+    private int parallelism = 4;
+
+    @Value("${backup.compression-level:3}")
+    private int compressionLevel = 3;
+
+    @Value("${backup.incremental:true}")
+    private boolean incremental = true;
+
+    @Value("${backup.max-skip-days:7}")
+    private int maxSkipDays = 7;
+
     @Value("${spring.datasource.url}")
     private String dbUrl;
 
@@ -52,12 +86,42 @@ public class BackupService {
     private String dbPassword;
 
     /**
-     * Backup a single tenant schema.
+     * Backup a single tenant schema. Always a full dump.
      * @param schemaName The schema to backup (e.g., "kiosco_abc12345")
      * @return BackupResultDTO with success/failure info
      */
     public BackupResultDTO backupTenant(String schemaName) {
+        String firma = null;
+        if (incremental) {
+            try {
+                firma = firmasActuales().get(schemaName);
+            } catch (Exception e) {
+                log.warn("Could not read write counters of {}: {}", schemaName, e.getMessage());
+            }
+        }
+        return dump(schemaName, firma);
+    }
+
+    /**
+     * Links the previous dump if the schema did not change since, otherwise dumps it.
+     */
+    private BackupResultDTO backupTenantSiCambio(String schemaName, String firma) {
+        if (firma != null) {
+            try {
+                BackupResultDTO enlazado = enlazarSinCambios(schemaName, firma);
+                if (enlazado != null) {
+                    return enlazado;
+                }
+            } catch (Exception e) {
+                log.warn("Could not reuse previous backup of {}, dumping: {}", schemaName, e.getMessage());
+            }
+        }
+        return dump(schemaName, firma);
+    }
+
+    private BackupResultDTO dump(String schemaName, String firma) {
         log.info("Starting backup for schema: {}", schemaName);
+        long start = System.nanoTime();
 
         try {
             ensureBackupDirectory();
@@ -66,43 +130,34 @@ public class BackupService {
             String filename = String.format("%s_%s.sql.gz", schemaName, timestamp);
             Path fullPath = Paths.get(backupPath, filename);
 
-            // Parse database connection info
-            DbConnectionInfo connInfo = parseDbUrl(dbUrl);
-
-            // Build pg_dump command
-            ProcessBuilder pb = new ProcessBuilder(
-                    "pg_dump",
-                    "-h", connInfo.host,
-                    "-p", String.valueOf(connInfo.port),
-                    "-U", dbUser,
-                    "-d", connInfo.database,
-                    "-n", schemaName,
-                    "--no-owner",
-                    "--no-acl"
-            );
-            pb.environment().put("PGPASSWORD", dbPassword);
-            pb.redirectErrorStream(false);
-
-            Process process = pb.start();
+            Process process = pgDump(schemaName).start();
+
+            // Drain stderr concurrently: reading it only after stdout can deadlock
+            CompletableFuture<String> errors = new CompletableFuture<>();
+            Thread.ofVirtual().name("pg_dump-stderr-" + schemaName).start(() -> {
+                try (InputStream stderr = process.getErrorStream()) {
+                    errors.complete(new String(stderr.readAllBytes()).trim());
+                } catch (IOException e) {
+                    errors.complete(e.getMessage());
+                }
+            });
 
             // Pipe stdout to gzipped file
+            long rawBytes = 0;
             try (InputStream pgDumpOutput = process.getInputStream();
-                 GZIPOutputStream gzipOutput = new GZIPOutputStream(new FileOutputStream(fullPath.toFile()))) {
+                 OutputStream gzipOutput = new LevelGzipOutputStream(
+                         new BufferedOutputStream(Files.newOutputStream(fullPath), BUFFER_SIZE), compressionLevel)) {
 
-                byte[] buffer = new byte[8192];
+                byte[] buffer = new byte[BUFFER_SIZE];
                 int bytesRead;
                 while ((bytesRead = pgDumpOutput.read(buffer)) != -1) {
                     gzipOutput.write(buffer, 0, bytesRead);
+                    rawBytes += bytesRead;
                 }
             }
 
-            // Read any errors
-            String errorOutput;
-            try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                errorOutput = errorReader.lines().reduce("", (a, b) -> a + "\n" + b).trim();
-            }
-
             int exitCode = process.waitFor();
+            String errorOutput = errors.get();
 
             if (exitCode != 0) {
                 // Clean up partial file
@@ -112,10 +167,21 @@ public class BackupService {
                 return BackupResultDTO.failure(schemaName, error);
             }
 
+            if (firma != null) {
+                try {
+                    escribirMarcador(schemaName, new Marcador(firma, filename, LocalDateTime.now()));
+                } catch (IOException e) {
+                    log.warn("Could not write backup marker of {}: {}", schemaName, e.getMessage());
+                }
+            }
+
             long fileSize = Files.size(fullPath);
-            log.info("Backup completed for {}: {} ({} bytes)", schemaName, filename, fileSize);
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            BackupResultDTO result = BackupResultDTO.success(schemaName, filename, fileSize, rawBytes, durationMs);
+            log.info("Backup completed for {}: {} ({} bytes, {} ms, {} MB/s)",
+                    schemaName, filename, fileSize, durationMs, result.getThroughputMbPerSecond());
 
-            return BackupResultDTO.success(schemaName, filename, fileSize);
+            return result;
 
         } catch (Exception e) {
             log.error("Backup failed for {}: {}", schemaName, e.getMessage(), e);
@@ -124,41 +190,87 @@ public class BackupService {
     }
 
     /**
-     * Backup all tenant schemas.
-     * @return BackupReportDTO with overall results
+     * Backup all tenant schemas, up to backup.parallelism at a time.
+     * @return BackupReportDTO with overall results (in schema order)
      */
     public BackupReportDTO backupAllTenants() {
         Instant start = Instant.now();
         List<String> schemas = tenantMigrationService.listTenantSchemas();
         List<BackupResultDTO> results = new ArrayList<>();
+        int threads = Math.max(1, Math.min(parallelism, schemas.size()));
 
         int successful = 0;
         int failed = 0;
+        int skipped = 0;
+        long rawBytes = 0;
 
-        log.info("Starting backup of {} tenant schemas", schemas.size());
+        log.info("Starting backup of {} tenant schemas ({} at a time)", schemas.size(), threads);
 
-        for (String schema : schemas) {
-            BackupResultDTO result = backupTenant(schema);
-            results.add(result);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "backup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, String> firmas = Collections.emptyMap();
+            if (incremental) {
+                try {
+                    firmas = firmasActuales();
+                } catch (Exception e) {
+                    log.warn("Could not read write counters, dumping every schema: {}", e.getMessage());
+                }
+            }
 
-            if (result.isSuccess()) {
-                successful++;
-            } else {
-                failed++;
+            List<Future<BackupResultDTO>> futures = new ArrayList<>();
+            for (String schema : schemas) {
+                String firma = firmas.get(schema);
+                futures.add(executor.submit(() -> backupTenantSiCambio(schema, firma)));
             }
+
+            for (int i = 0; i < schemas.size(); i++) {
+                BackupResultDTO result;
+                try {
+                    result = futures.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result = BackupResultDTO.failure(schemas.get(i), "Interrupted");
+                } catch (Exception e) {
+                    result = BackupResultDTO.failure(schemas.get(i), e.getMessage());
+                }
+                results.add(result);
+
+                if (result.isSuccess()) {
+                    successful++;
+                    rawBytes += result.getRawBytes();
+                    if (result.isUnchanged()) {
+                        skipped++;
+                    }
+                } else {
+                    failed++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
 
         Duration duration = Duration.between(start, Instant.now());
         String durationStr = formatDuration(duration);
+        double throughput = BackupResultDTO.throughput(rawBytes, duration.toMillis());
 
-        log.info("Backup completed: {} successful, {} failed in {}", successful, failed, durationStr);
+        log.info("Backup completed: {} successful ({} unchanged), {} failed in {} ({} MB/s)",
+                successful, skipped, failed, durationStr, throughput);
 
         return BackupReportDTO.builder()
                 .totalTenants(schemas.size())
                 .successful(successful)
                 .failed(failed)
+                .skipped(skipped)
                 .results(results)
                 .duration(durationStr)
+                .parallelism(threads)
+                .rawBytes(rawBytes)
+                .throughputMbPerSecond(throughput)
                 .timestamp(LocalDateTime.now())
                 .build();
     }
@@ -357,6 +469,106 @@ public class BackupService {
 
     // ============ Private Methods ============
 
+    /**
+     * Write counters per tenant schema: tables, inserted, updated and deleted rows.
+     * They only grow, until the statistics are reset.
+     */
+    Map<String, String> firmasActuales() {
+        Map<String, String> firmas = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT schemaname, COUNT(*), SUM(n_tup_ins), SUM(n_tup_upd), SUM(n_tup_del)
+                FROM pg_stat_user_tables
+                WHERE schemaname LIKE 'kiosco\\_%'
+                GROUP BY schemaname
+                """, rs -> {
+            firmas.put(rs.getString(1), "%d:%d:%d:%d".formatted(
+                    rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+        });
+        return firmas;
+    }
+
+    /**
+     * Hard-links the previous dump under a new name if the schema's counters did not
+     * change and it is recent enough; null if a real dump is needed.
+     */
+    private BackupResultDTO enlazarSinCambios(String schemaName, String firma) throws IOException {
+        Marcador previo = leerMarcador(schemaName);
+        if (previo == null || !previo.firma().equals(firma)
+                || previo.volcadoEn().isBefore(LocalDateTime.now().minusDays(maxSkipDays))) {
+            return null;
+        }
+        Path anterior = Paths.get(backupPath, previo.archivo());
+        if (!Files.isRegularFile(anterior)) {
+            return null;
+        }
+
+        String filename = String.format("%s_%s.sql.gz", schemaName, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        Path destino = Paths.get(backupPath, filename);
+        if (!destino.equals(anterior)) {
+            try {
+                Files.createLink(destino, anterior);
+            } catch (UnsupportedOperationException e) {
+                log.warn("Hard links not supported in {}, dumping {}", backupPath, schemaName);
+                return null;
+            }
+            escribirMarcador(schemaName, new Marcador(firma, filename, previo.volcadoEn()));
+        }
+
+        log.info("Backup of {} unchanged since {}: linked {}", schemaName, previo.volcadoEn(), filename);
+        return BackupResultDTO.unchanged(schemaName, filename, Files.size(destino));
+    }
+
+    private Marcador leerMarcador(String schemaName) {
+        Path path = Paths.get(backupPath, schemaName + FIRMA_SUFFIX);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            props.load(reader);
+            return new Marcador(props.getProperty("firma"), props.getProperty("archivo"),
+                    LocalDateTime.parse(props.getProperty("volcadoEn")));
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable backup marker {}: {}", path.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void escribirMarcador(String schemaName, Marcador marcador) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("firma", marcador.firma());
+        props.setProperty("archivo", marcador.archivo());
+        props.setProperty("volcadoEn", marcador.volcadoEn().toString());
+
+        // Write-then-move so a crash never leaves a half-written marker
+        Path path = Paths.get(backupPath, schemaName + FIRMA_SUFFIX);
+        Path tmp = Paths.get(backupPath, schemaName + FIRMA_SUFFIX + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp)) {
+            props.store(writer, null);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * pg_dump of one schema, writing plain SQL to stdout.
+     */
+    ProcessBuilder pgDump(String schemaName) {
+        DbConnectionInfo connInfo = parseDbUrl(dbUrl);
+        ProcessBuilder pb = new ProcessBuilder(
+                "pg_dump",
+                "-h", connInfo.host,
+                "-p", String.valueOf(connInfo.port),
+                "-U", dbUser,
+                "-d", connInfo.database,
+                "-n", schemaName,
+                "--no-owner",
+                "--no-acl"
+        );
+        pb.environment().put("PGPASSWORD", dbPassword);
+        pb.redirectErrorStream(false);
+        return pb;
+    }
+
     private void ensureBackupDirectory() throws IOException {
         Path backupDir = Paths.get(backupPath);
         if (!Files.exists(backupDir)) {
@@ -435,4 +647,19 @@ public class BackupService {
     }
 
     private record DbConnectionInfo(String host, int port, String database) {}
+
+    /**
+     * Write counters at the last real dump of a schema, and the newest file holding it.
+     */
+    private record Marcador(String firma, String archivo, LocalDateTime volcadoEn) {}
+
+    /**
+     * gzip output at a given deflate level (1 = fastest, 9 = smallest).
+     */
+    private static class LevelGzipOutputStream extends GZIPOutputStream {
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
 }
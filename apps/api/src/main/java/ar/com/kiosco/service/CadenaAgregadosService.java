@@ -0,0 +1,251 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
+import ar.com.kiosco.repository.CadenaAgregadosRepository;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Atraso;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Pendientes;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.security.KioscoContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds the chain-level aggregates (see {@link CadenaAgregadosRepository}).
+ *
+ * Sales and stock changes of a kiosco that belongs to a chain are collected per
+ * transaction and written as one pending row just before it commits, so the
+ * aggregates never miss a committed change. {@link #aplicarPendientes()} applies
+ * pending rows every few seconds; {@link #reconstruirTodos()} rebuilds every chain
+ * kiosco nightly. The age of the oldest pending row is the aggregates' lag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CadenaAgregadosService {
+
+    private final CadenaAgregadosRepository agregadosRepository;
+    private final KioscoRepository kioscoRepository;
+    private final TenantSchemaManager tenantSchemaManager;
+    private final MetadatosKioscoService metadatosKioscoService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${cadena.agregados.lote:500}")
+    private int lote = 500;
+
+    @Value("${cadena.agregados.max-kioscos:100}")
+    private int maxKioscos = 100;
+
+    private final AtomicLong aplicados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private volatile Instant ultimaAplicacion;
+
+    /**
+     * Registers that the current kiosco's sales total for the day changed.
+     */
+    public void registrarVenta(LocalDate dia) {
+        Cambios cambios = cambiosDeLaTransaccion();
+        if (cambios != null) {
+            cambios.dias().add(dia);
+            escribirSiNoHayTransaccion(cambios);
+        }
+    }
+
+    /**
+     * Registers that the stock, name, codigo or state of a product of the current kiosco changed.
+     */
+    public void registrarStock(UUID productoId) {
+        Cambios cambios = cambiosDeLaTransaccion();
+        if (cambios != null) {
+            cambios.productoIds().add(productoId);
+            escribirSiNoHayTransaccion(cambios);
+        }
+    }
+
+    /**
+     * Applies pending changes of up to cadena.agregados.max-kioscos kioscos,
+     * each in its own transaction.
+     * @return number of pending rows applied
+     */
+    public int aplicarPendientes() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int total = 0;
+        for (UUID kioscoId : agregadosRepository.kioscosConPendientes(maxKioscos)) {
+            String schema = tenantSchemaManager.getSchemaName(kioscoId);
+            try {
+                Integer filas = tx.execute(status -> aplicar(kioscoId, schema));
+                total += filas != null ? filas : 0;
+            } catch (Exception e) {
+                fallidos.incrementAndGet();
+                log.error("Failed to apply chain aggregates of {}: {}", schema, e.getMessage());
+            }
+        }
+        aplicados.addAndGet(total);
+        ultimaAplicacion = Instant.now();
+        return total;
+    }
+
+    /**
+     * Rebuilds the aggregates of every active kiosco in a chain.
+     * @return number of kioscos rebuilt
+     */
+    public int reconstruirTodos() {
+        int reconstruidos = 0;
+        for (Kiosco kiosco : kioscoRepository.findAll()) {
+            if (kiosco.getCadena() == null || !Boolean.TRUE.equals(kiosco.getActivo())) {
+                continue;
+            }
+            try {
+                if (reconstruir(kiosco.getId())) {
+                    reconstruidos++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to rebuild chain aggregates of kiosco {}: {}", kiosco.getId(), e.getMessage());
+            }
+        }
+        return reconstruidos;
+    }
+
+    /**
+     * Rebuilds the aggregates of one kiosco from its schema.
+     * @return false if the kiosco has no schema yet
+     */
+    public boolean reconstruir(UUID kioscoId) {
+        String schema = tenantSchemaManager.getSchemaName(kioscoId);
+        if (!tenantSchemaManager.schemaExists(schema)) {
+            return false;
+        }
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> agregadosRepository.reconstruir(kioscoId, schema));
+        return true;
+    }
+
+    /**
+     * Called when a kiosco joins a chain: its aggregates are built once the transaction commits.
+     */
+    public void incorporar(UUID kioscoId) {
+        metadatosKioscoService.invalidar(kioscoId);
+        despuesDelCommit(() -> {
+            try {
+                reconstruir(kioscoId);
+            } catch (Exception e) {
+                log.error("Failed to build chain aggregates of kiosco {}: {}", kioscoId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Called when a kiosco leaves a chain: its aggregates are dropped in the same transaction.
+     */
+    public void retirar(UUID kioscoId) {
+        metadatosKioscoService.invalidar(kioscoId);
+        agregadosRepository.eliminar(kioscoId);
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Atraso atraso = agregadosRepository.atraso();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendientes", atraso.pendientes());
+        stats.put("atrasoSegundos", atraso.segundos());
+        stats.put("aplicados", aplicados.get());
+        stats.put("fallidos", fallidos.get());
+        stats.put("ultimaAplicacion", ultimaAplicacion);
+        return stats;
+    }
+
+    private Integer aplicar(UUID kioscoId, String schema) {
+        Pendientes pendientes = agregadosRepository.tomarPendientes(kioscoId, lote);
+        if (!pendientes.dias().isEmpty()) {
+            agregadosRepository.actualizarVentas(kioscoId, schema, pendientes.dias());
+        }
+        if (!pendientes.productoIds().isEmpty()) {
+            agregadosRepository.actualizarStock(kioscoId, schema, pendientes.productoIds());
+        }
+        return pendientes.filas();
+    }
+
+    /**
+     * Changes collected so far in the current transaction, or null if the
+     * current kiosco is not part of a chain.
+     */
+    private Cambios cambiosDeLaTransaccion() {
+        UUID kioscoId = KioscoContext.getCurrentKioscoId();
+        if (kioscoId == null) {
+            return null;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return enCadena(kioscoId) ? new Cambios(kioscoId, new HashSet<>(), new HashSet<>()) : null;
+        }
+
+        Cambios cambios = (Cambios) TransactionSynchronizationManager.getResource(this);
+        if (cambios != null) {
+            return cambios;
+        }
+        if (!enCadena(kioscoId)) {
+            return null;
+        }
+        Cambios nuevos = new Cambios(kioscoId, new HashSet<>(), new HashSet<>());
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                escribir(nuevos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CadenaAgregadosService.this);
+            }
+        });
+        return nuevos;
+    }
+
+    private void escribirSiNoHayTransaccion(Cambios cambios) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escribir(cambios);
+        }
+    }
+
+    private void escribir(Cambios cambios) {
+        if (!cambios.dias().isEmpty() || !cambios.productoIds().isEmpty()) {
+            agregadosRepository.registrarPendiente(cambios.kioscoId(), cambios.dias(), cambios.productoIds());
+        }
+    }
+
+    private boolean enCadena(UUID kioscoId) {
+        return metadatosKioscoService.obtener(kioscoId)
+                .map(MetadatosKioscoDTO::getCadenaId)
+                .isPresent();
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    private record Cambios(UUID kioscoId, Set<LocalDate> dias, Set<UUID> productoIds) {}
+}
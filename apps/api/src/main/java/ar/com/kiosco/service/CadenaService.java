@@ -3,6 +3,9 @@ package ar.com.kiosco.service;
 import ar.com.kiosco.domain.*;
 import ar.com.kiosco.dto.*;
 import ar.com.kiosco.repository.*;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Periodo;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.StockProducto;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.TotalesVentas;
 import ar.com.kiosco.security.KioscoContext;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +29,8 @@ public class CadenaService {
     private final KioscoRepository kioscoRepository;
     private final UsuarioRepository usuarioRepository;
     private final VentaRepository ventaRepository;
+    private final CadenaAgregadosRepository cadenaAgregadosRepository;
+    private final CadenaAgregadosService cadenaAgregadosService;
 
     @Transactional(readOnly = true)
     public List<CadenaDTO> obtenerMisCadenas() {
@@ -119,6 +124,7 @@ public class CadenaService {
         kiosco.setCadena(cadena);
         kiosco.setEsCasaCentral(Boolean.TRUE.equals(dto.esCasaCentral()));
         kioscoRepository.save(kiosco);
+        cadenaAgregadosService.incorporar(kiosco.getId());
     }
 
     @Transactional
@@ -138,6 +144,7 @@ public class CadenaService {
         kiosco.setCadena(null);
         kiosco.setEsCasaCentral(false);
         kioscoRepository.save(kiosco);
+        cadenaAgregadosService.retirar(kioscoId);
     }
 
     @Transactional(readOnly = true)
@@ -157,25 +164,20 @@ public class CadenaService {
 
         verificarAccesoCadena(cadena);
 
-        List<Kiosco> kioscos = kioscoRepository.findByCadenaIdAndActivoTrue(cadenaId);
-        List<UUID> kioscosPermitidos = obtenerKioscosPermitidosParaUsuario(cadenaId);
+        List<Kiosco> kioscos = obtenerKioscosVisibles(cadenaId);
+        Map<UUID, TotalesVentas> ventas =
+            cadenaAgregadosRepository.ventas(ids(kioscos), new Periodo(desde, hasta)).get(0);
 
         List<VentaPorKioscoDTO> ventasPorKiosco = new ArrayList<>();
 
         for (Kiosco kiosco : kioscos) {
-            if (kioscosPermitidos != null && !kioscosPermitidos.isEmpty()
-                && !kioscosPermitidos.contains(kiosco.getId())) {
-                continue;
-            }
-
-            BigDecimal ventas = calcularVentasKiosco(kiosco.getId(), desde, hasta);
-            int cantidad = contarVentasKiosco(kiosco.getId(), desde, hasta);
+            TotalesVentas totales = ventas.getOrDefault(kiosco.getId(), TotalesVentas.CERO);
 
             ventasPorKiosco.add(VentaPorKioscoDTO.of(
                 kiosco.getId(),
                 kiosco.getNombre(),
-                ventas,
-                cantidad
+                totales.total(),
+                totales.cantidad()
             ));
         }
 
@@ -189,8 +191,7 @@ public class CadenaService {
 
         verificarAccesoCadena(cadena);
 
-        List<Kiosco> kioscos = kioscoRepository.findByCadenaIdAndActivoTrue(cadenaId);
-        List<UUID> kioscosPermitidos = obtenerKioscosPermitidosParaUsuario(cadenaId);
+        List<Kiosco> kioscos = obtenerKioscosVisibles(cadenaId);
 
         YearMonth mesActual = YearMonth.now();
         LocalDate inicioMes = mesActual.atDay(1);
@@ -200,16 +201,16 @@ public class CadenaService {
         LocalDate inicioMesAnterior = mesAnterior.atDay(1);
         LocalDate finMesAnterior = mesAnterior.atEndOfMonth();
 
+        List<Map<UUID, TotalesVentas>> ventas = cadenaAgregadosRepository.ventas(ids(kioscos),
+            new Periodo(inicioMes, finMes), new Periodo(inicioMesAnterior, finMesAnterior));
+        Map<UUID, TotalesVentas> ventasMesActual = ventas.get(0);
+        Map<UUID, TotalesVentas> ventasMesAnterior = ventas.get(1);
+
         List<RankingData> rankings = new ArrayList<>();
 
         for (Kiosco kiosco : kioscos) {
-            if (kioscosPermitidos != null && !kioscosPermitidos.isEmpty()
-                && !kioscosPermitidos.contains(kiosco.getId())) {
-                continue;
-            }
-
-            BigDecimal ventasActual = calcularVentasKiosco(kiosco.getId(), inicioMes, finMes);
-            BigDecimal ventasAnterior = calcularVentasKiosco(kiosco.getId(), inicioMesAnterior, finMesAnterior);
+            BigDecimal ventasActual = ventasMesActual.getOrDefault(kiosco.getId(), TotalesVentas.CERO).total();
+            BigDecimal ventasAnterior = ventasMesAnterior.getOrDefault(kiosco.getId(), TotalesVentas.CERO).total();
 
             BigDecimal variacion = BigDecimal.ZERO;
             if (ventasAnterior.compareTo(BigDecimal.ZERO) > 0) {
@@ -246,9 +247,29 @@ public class CadenaService {
 
         verificarAccesoCadena(cadena);
 
-        // This would require querying each kiosco's schema for products
-        // For now, return empty list - this is a placeholder for cross-schema queries
-        return Collections.emptyList();
+        List<Kiosco> kioscos = obtenerKioscosVisibles(cadenaId);
+        Map<UUID, String> nombres = kioscos.stream()
+            .collect(Collectors.toMap(Kiosco::getId, Kiosco::getNombre));
+
+        // Products are matched across kioscos by codigo (each schema has its own ids)
+        Map<String, List<StockProducto>> porCodigo = new LinkedHashMap<>();
+        for (StockProducto producto : cadenaAgregadosRepository.stock(ids(kioscos))) {
+            porCodigo.computeIfAbsent(producto.codigo(), c -> new ArrayList<>()).add(producto);
+        }
+
+        List<StockConsolidadoDTO> result = new ArrayList<>();
+        porCodigo.forEach((codigo, productos) -> {
+            List<StockConsolidadoDTO.StockPorKioscoDTO> porKiosco = productos.stream()
+                .map(p -> new StockConsolidadoDTO.StockPorKioscoDTO(p.kioscoId(), nombres.get(p.kioscoId()), p.stock()))
+                .toList();
+            BigDecimal total = productos.stream()
+                .map(StockProducto::stock)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            StockProducto primero = productos.get(0);
+            result.add(new StockConsolidadoDTO(primero.productoId(), primero.nombre(), codigo, total, porKiosco));
+        });
+
+        return result;
     }
 
     // Members management
@@ -327,41 +348,47 @@ public class CadenaService {
 
     // Helper methods
     private List<KioscoResumenDTO> obtenerKioscosConVentas(UUID cadenaId) {
-        List<Kiosco> kioscos = kioscoRepository.findByCadenaIdAndActivoTrue(cadenaId);
-        List<UUID> kioscosPermitidos = obtenerKioscosPermitidosParaUsuario(cadenaId);
+        List<Kiosco> kioscos = obtenerKioscosVisibles(cadenaId);
 
         LocalDate hoy = LocalDate.now();
         YearMonth mesActual = YearMonth.now();
         LocalDate inicioMes = mesActual.atDay(1);
         LocalDate finMes = mesActual.atEndOfMonth();
 
+        List<Map<UUID, TotalesVentas>> ventas = cadenaAgregadosRepository.ventas(ids(kioscos),
+            new Periodo(hoy, hoy), new Periodo(inicioMes, finMes));
+        Map<UUID, TotalesVentas> ventasHoy = ventas.get(0);
+        Map<UUID, TotalesVentas> ventasMes = ventas.get(1);
+
         List<KioscoResumenDTO> result = new ArrayList<>();
 
         for (Kiosco kiosco : kioscos) {
-            if (kioscosPermitidos != null && !kioscosPermitidos.isEmpty()
-                && !kioscosPermitidos.contains(kiosco.getId())) {
-                continue;
-            }
-
-            BigDecimal ventasHoy = calcularVentasKiosco(kiosco.getId(), hoy, hoy);
-            BigDecimal ventasMes = calcularVentasKiosco(kiosco.getId(), inicioMes, finMes);
-
-            result.add(KioscoResumenDTO.fromEntityWithVentas(kiosco, ventasHoy, ventasMes));
+            result.add(KioscoResumenDTO.fromEntityWithVentas(
+                kiosco,
+                ventasHoy.getOrDefault(kiosco.getId(), TotalesVentas.CERO).total(),
+                ventasMes.getOrDefault(kiosco.getId(), TotalesVentas.CERO).total()
+            ));
         }
 
         return result;
     }
 
-    private BigDecimal calcularVentasKiosco(UUID kioscoId, LocalDate desde, LocalDate hasta) {
-        // This would need to query the kiosco's schema
-        // For now, we'll return zero as this requires setting tenant context
-        // In a full implementation, this would switch schemas and query
-        return BigDecimal.ZERO;
+    /**
+     * Active kioscos of the chain that the current user may see.
+     */
+    private List<Kiosco> obtenerKioscosVisibles(UUID cadenaId) {
+        List<Kiosco> kioscos = kioscoRepository.findByCadenaIdAndActivoTrue(cadenaId);
+        List<UUID> kioscosPermitidos = obtenerKioscosPermitidosParaUsuario(cadenaId);
+        if (kioscosPermitidos == null || kioscosPermitidos.isEmpty()) {
+            return kioscos;
+        }
+        return kioscos.stream()
+            .filter(kiosco -> kioscosPermitidos.contains(kiosco.getId()))
+            .toList();
     }
 
-    private int contarVentasKiosco(UUID kioscoId, LocalDate desde, LocalDate hasta) {
-        // Same as above - requires schema switching
-        return 0;
+    private List<UUID> ids(List<Kiosco> kioscos) {
+        return kioscos.stream().map(Kiosco::getId).toList();
     }
 
     private List<UUID> obtenerKioscosPermitidosParaUsuario(UUID cadenaId) {
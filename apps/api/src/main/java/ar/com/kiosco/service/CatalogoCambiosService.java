@@ -0,0 +1,111 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Categoria;
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.CatalogoCambiosDTO;
+import ar.com.kiosco.dto.CategoriaDTO;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.CategoriaRepository;
+import ar.com.kiosco.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Delta sync of the catalog for offline terminals.
+ *
+ * Each producto and categoria row carries the value of the tenant's revision counter
+ * when it last changed (tenant migration V16). A client sends the revision it got
+ * last time and receives the rows changed since, with deactivated rows as tombstones.
+ * The counter is bumped under its row lock, so revisions commit in order: the
+ * returned revision is the committed counter and a later change is always above it.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogoCambiosService {
+
+    private final ProductoRepository productoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final StockProductosService stockProductosService;
+
+    /**
+     * @param desde revision returned by the previous call, or null for a full catalog
+     */
+    @Transactional(readOnly = true)
+    public CatalogoCambiosDTO cambiosDesde(Long desde) {
+        // Read the counter before the rows: everything up to it is already committed
+        long hasta = productoRepository.findRevisionCatalogo();
+
+        // A cursor ahead of the server (restored database) cannot be trusted
+        if (desde == null || desde <= 0 || desde > hasta) {
+            return completo(hasta);
+        }
+        if (desde >= hasta) {
+            return vacio(desde);
+        }
+
+        List<ProductoDTO> productos = new ArrayList<>();
+        List<UUID> productosEliminados = new ArrayList<>();
+        for (Producto producto : productoRepository.findCambiados(desde, hasta)) {
+            if (Boolean.TRUE.equals(producto.getActivo())) {
+                productos.add(ProductoDTO.fromEntity(producto));
+            } else {
+                productosEliminados.add(producto.getId());
+            }
+        }
+        List<CategoriaDTO> categorias = new ArrayList<>();
+        List<UUID> categoriasEliminadas = new ArrayList<>();
+        for (Categoria categoria : categoriaRepository.findCambiadas(desde, hasta)) {
+            if (Boolean.TRUE.equals(categoria.getActivo())) {
+                categorias.add(CategoriaDTO.fromEntity(categoria));
+            } else {
+                categoriasEliminadas.add(categoria.getId());
+            }
+        }
+        if (productos.isEmpty() && productosEliminados.isEmpty()
+                && categorias.isEmpty() && categoriasEliminadas.isEmpty()) {
+            // Keep the cursor so an unchanged catalog keeps the same ETag
+            return vacio(desde);
+        }
+
+        return CatalogoCambiosDTO.builder()
+                .revision(hasta)
+                .completo(false)
+                .productos(stockProductosService.conStock(productos))
+                .categorias(categorias)
+                .productosEliminados(productosEliminados)
+                .categoriasEliminadas(categoriasEliminadas)
+                .build();
+    }
+
+    private CatalogoCambiosDTO completo(long hasta) {
+        List<ProductoDTO> productos = productoRepository.findActivosConCategoria().stream()
+                .map(ProductoDTO::fromEntity)
+                .toList();
+        return CatalogoCambiosDTO.builder()
+                .revision(hasta)
+                .completo(true)
+                .productos(stockProductosService.conStock(productos))
+                .categorias(categoriaRepository.findByActivoTrueOrderByOrdenAsc().stream()
+                        .map(CategoriaDTO::fromEntity)
+                        .toList())
+                .productosEliminados(List.of())
+                .categoriasEliminadas(List.of())
+                .build();
+    }
+
+    private CatalogoCambiosDTO vacio(long desde) {
+        return CatalogoCambiosDTO.builder()
+                .revision(desde)
+                .completo(false)
+                .productos(List.of())
+                .categorias(List.of())
+                .productosEliminados(List.of())
+                .categoriasEliminadas(List.of())
+                .build();
+    }
+}
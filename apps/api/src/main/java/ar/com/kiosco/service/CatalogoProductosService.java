@@ -0,0 +1,205 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory, per-tenant catalog of active products.
+ *
+ * Each kiosco gets an immutable snapshot indexed by id, codigo and codigo de barras,
+ * built once from the database and then replaced copy-on-write whenever a product
+ * is written. Barcode scans at the till are served from the snapshot without
+ * touching Postgres or Redis.
+ *
+ * Changes are applied after the surrounding transaction commits, so uncommitted
+ * data never becomes visible. Snapshots older than catalogo.max-age are rebuilt
+ * to bound staleness when several app nodes write to the same tenant.
+ *
+ * This is also the single entry point for product write notifications: the
+ * matching Redis "productos" entries are evicted and the stock counters updated
+ * at the same time. Stock-only changes (sales, lotes) go straight to
+ * StockProductosService and leave the snapshot alone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoProductosService {
+
+    private final ProductoRepository productoRepository;
+    private final ProductoCacheService productoCacheService;
+    private final StockProductosService stockProductosService;
+
+    @Value("${catalogo.max-age:5m}")
+    private Duration maxAge = Duration.ofMinutes(5);
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    // Bumped on every change so a rebuild that raced with a write is discarded
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+
+    public Optional<ProductoDTO> buscarPorCodigoBarras(String codigoBarras) {
+        return Optional.ofNullable(obtenerSnapshot().porCodigoBarras().get(codigoBarras));
+    }
+
+    public Optional<ProductoDTO> buscarPorCodigo(String codigo) {
+        return Optional.ofNullable(obtenerSnapshot().porCodigo().get(codigo));
+    }
+
+    public Optional<ProductoDTO> buscarPorId(UUID id) {
+        return Optional.ofNullable(obtenerSnapshot().porId().get(id));
+    }
+
+    /**
+     * Registers a product write for the current tenant.
+     * Must be called inside the transaction that modified the product; the
+     * snapshot is updated once that transaction commits.
+     */
+    public void registrarCambio(Producto producto) {
+        registrarCambio(producto, null);
+    }
+
+    /**
+     * Same as {@link #registrarCambio(Producto)} for writes that may have moved
+     * the product out of another categoria.
+     */
+    public void registrarCambio(Producto producto, UUID categoriaAnteriorId) {
+        String tenant = ProductoCacheService.tenantKey();
+        ProductoDTO dto = ProductoDTO.fromEntity(producto);
+        stockProductosService.registrarNivel(producto);
+        despuesDelCommit(() -> {
+            aplicar(tenant, snapshot -> snapshot.con(dto));
+            productoCacheService.evictProducto(tenant, dto, categoriaAnteriorId);
+        });
+    }
+
+    /**
+     * Drops the current tenant's snapshot so it is rebuilt on the next lookup.
+     * Used when a change affects many products at once (e.g. a categoria rename).
+     */
+    public void invalidar() {
+        String tenant = ProductoCacheService.tenantKey();
+        despuesDelCommit(() -> {
+            generacion(tenant).incrementAndGet();
+            snapshots.remove(tenant);
+            productoCacheService.evictTenant(tenant);
+        });
+    }
+
+    private Snapshot obtenerSnapshot() {
+        String tenant = ProductoCacheService.tenantKey();
+        Snapshot actual = snapshots.get(tenant);
+        if (actual != null && !actual.expirado(maxAge)) {
+            return actual;
+        }
+
+        long generacionInicial = generacion(tenant).get();
+        Snapshot nuevo = Snapshot.de(productoRepository.findActivosConCategoria());
+        log.debug("Built product catalog snapshot for tenant {} with {} products", tenant, nuevo.porId().size());
+
+        // Only publish if no write happened while we were reading
+        snapshots.compute(tenant, (k, existente) ->
+                generacion(tenant).get() == generacionInicial ? nuevo : existente);
+        return nuevo;
+    }
+
+    private void aplicar(String tenant, UnaryOperator<Snapshot> cambio) {
+        generacion(tenant).incrementAndGet();
+        snapshots.computeIfPresent(tenant, (k, snapshot) -> cambio.apply(snapshot));
+    }
+
+    private AtomicLong generacion(String tenant) {
+        return generaciones.computeIfAbsent(tenant, k -> new AtomicLong());
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    /**
+     * Immutable view of a tenant's active products. Never mutated after construction.
+     */
+    record Snapshot(
+            Map<UUID, ProductoDTO> porId,
+            Map<String, ProductoDTO> porCodigoBarras,
+            Map<String, ProductoDTO> porCodigo,
+            Instant construidoEn
+    ) {
+
+        static Snapshot de(List<Producto> productos) {
+            Map<UUID, ProductoDTO> porId = new HashMap<>();
+            Map<String, ProductoDTO> porCodigoBarras = new HashMap<>();
+            Map<String, ProductoDTO> porCodigo = new HashMap<>();
+            for (Producto producto : productos) {
+                indexar(ProductoDTO.fromEntity(producto), porId, porCodigoBarras, porCodigo);
+            }
+            return new Snapshot(Map.copyOf(porId), Map.copyOf(porCodigoBarras), Map.copyOf(porCodigo), Instant.now());
+        }
+
+        /**
+         * Returns a copy with the product replaced (or removed if it is no longer active).
+         */
+        Snapshot con(ProductoDTO producto) {
+            Map<UUID, ProductoDTO> porId = new HashMap<>(this.porId);
+            Map<String, ProductoDTO> porCodigoBarras = new HashMap<>(this.porCodigoBarras);
+            Map<String, ProductoDTO> porCodigo = new HashMap<>(this.porCodigo);
+
+            ProductoDTO anterior = porId.remove(producto.getId());
+            if (anterior != null) {
+                if (anterior.getCodigoBarras() != null) {
+                    porCodigoBarras.remove(anterior.getCodigoBarras(), anterior);
+                }
+                if (anterior.getCodigo() != null) {
+                    porCodigo.remove(anterior.getCodigo(), anterior);
+                }
+            }
+            if (Boolean.TRUE.equals(producto.getActivo())) {
+                indexar(producto, porId, porCodigoBarras, porCodigo);
+            }
+            return new Snapshot(Map.copyOf(porId), Map.copyOf(porCodigoBarras), Map.copyOf(porCodigo), construidoEn);
+        }
+
+        boolean expirado(Duration maxAge) {
+            return construidoEn.plus(maxAge).isBefore(Instant.now());
+        }
+
+        private static void indexar(ProductoDTO producto,
+                                    Map<UUID, ProductoDTO> porId,
+                                    Map<String, ProductoDTO> porCodigoBarras,
+                                    Map<String, ProductoDTO> porCodigo) {
+            porId.put(producto.getId(), producto);
+            if (producto.getCodigoBarras() != null && !producto.getCodigoBarras().isBlank()) {
+                porCodigoBarras.putIfAbsent(producto.getCodigoBarras(), producto);
+            }
+            if (producto.getCodigo() != null && !producto.getCodigo().isBlank()) {
+                porCodigo.putIfAbsent(producto.getCodigo(), producto);
+            }
+        }
+    }
+}
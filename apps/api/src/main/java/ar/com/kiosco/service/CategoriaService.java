@@ -23,9 +23,10 @@ import java.util.stream.Collectors;
 public class CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final CatalogoProductosService catalogoProductosService;
 
     @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':all'")
+    @Cacheable(key = "(T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global') + ':all'")
     public List<CategoriaDTO> listarActivas() {
         return categoriaRepository.findByActivoTrueOrderByOrdenAsc()
                 .stream()
@@ -34,7 +35,7 @@ public class CategoriaService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':' + #id")
+    @Cacheable(key = "(T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global') + ':' + #id")
     public CategoriaDTO obtenerPorId(UUID id) {
         Categoria categoria = categoriaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Categoría no encontrada: " + id));
@@ -70,6 +71,10 @@ public class CategoriaService {
         }
 
         categoria = categoriaRepository.save(categoria);
+
+        // Products embed their categoria, so the catalog snapshot must be rebuilt
+        catalogoProductosService.invalidar();
+
         return CategoriaDTO.fromEntity(categoria);
     }
 
@@ -81,6 +86,7 @@ public class CategoriaService {
 
         categoria.setActivo(false);
         categoriaRepository.save(categoria);
+        catalogoProductosService.invalidar();
     }
 
     /**
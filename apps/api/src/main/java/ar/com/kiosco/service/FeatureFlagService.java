@@ -26,6 +26,7 @@ public class FeatureFlagService {
     private final FeatureFlagRepository featureFlagRepository;
     private final FeatureFlagKioscoRepository featureFlagKioscoRepository;
     private final KioscoRepository kioscoRepository;
+    private final MetadatosKioscoService metadatosKioscoService;
 
     /**
      * Check if a feature is enabled globally.
@@ -40,19 +41,12 @@ public class FeatureFlagService {
     /**
      * Check if a feature is enabled for a specific kiosco.
      * Kiosco-specific override takes precedence over global setting.
+     * Served from the tenant metadata cache.
      */
-    @Transactional(readOnly = true)
     public boolean isEnabled(String key, UUID kioscoId) {
-        // First check kiosco-specific override
-        Optional<FeatureFlagKiosco> kioscoOverride = featureFlagKioscoRepository
-                .findByKeyAndKioscoId(key, kioscoId);
-
-        if (kioscoOverride.isPresent()) {
-            return kioscoOverride.get().getHabilitado();
-        }
-
-        // Fall back to global setting
-        return isEnabled(key);
+        return metadatosKioscoService.obtener(kioscoId)
+                .map(metadatos -> metadatos.isFeatureEnabled(key))
+                .orElseGet(() -> isEnabled(key));
     }
 
     /**
@@ -65,6 +59,7 @@ public class FeatureFlagService {
 
         flag.setHabilitadoGlobal(enabled);
         flag = featureFlagRepository.save(flag);
+        metadatosKioscoService.invalidarTodos();
         return FeatureFlagDTO.fromEntity(flag);
     }
 
@@ -88,6 +83,7 @@ public class FeatureFlagService {
 
         ffk.setHabilitado(enabled);
         ffk = featureFlagKioscoRepository.save(ffk);
+        metadatosKioscoService.invalidar(kioscoId);
         return FeatureFlagKioscoDTO.fromEntity(ffk);
     }
 
@@ -100,6 +96,7 @@ public class FeatureFlagService {
                 .orElseThrow(() -> new EntityNotFoundException("Feature flag no encontrado: " + key));
 
         featureFlagKioscoRepository.deleteByFeatureFlagIdAndKioscoId(flag.getId(), kioscoId);
+        metadatosKioscoService.invalidar(kioscoId);
     }
 
     /**
@@ -149,6 +146,7 @@ public class FeatureFlagService {
                 .build();
 
         flag = featureFlagRepository.save(flag);
+        metadatosKioscoService.invalidarTodos();
         return FeatureFlagDTO.fromEntity(flag);
     }
 
@@ -173,6 +171,7 @@ public class FeatureFlagService {
         }
 
         flag = featureFlagRepository.save(flag);
+        metadatosKioscoService.invalidarTodos();
         return FeatureFlagDTO.fromEntity(flag);
     }
 
@@ -185,6 +184,7 @@ public class FeatureFlagService {
             throw new EntityNotFoundException("Feature flag no encontrado: " + id);
         }
         featureFlagRepository.deleteById(id);
+        metadatosKioscoService.invalidarTodos();
     }
 
     /**
@@ -9,7 +9,6 @@ import ar.com.kiosco.repository.LoteRepository;
 import ar.com.kiosco.repository.ProductoRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +24,7 @@ public class LoteService {
 
     private final LoteRepository loteRepository;
     private final ProductoRepository productoRepository;
+    private final StockProductosService stockProductosService;
 
     @Transactional(readOnly = true)
     public List<LoteDTO> getLotesByProducto(UUID productoId) {
@@ -42,7 +42,6 @@ public class LoteService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public LoteDTO ingresarLote(UUID productoId, LoteCreateDTO dto) {
         Producto producto = productoRepository.findById(productoId)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + productoId));
@@ -71,7 +70,6 @@ public class LoteService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public LoteDTO actualizarLote(UUID id, LoteCreateDTO dto) {
         Lote lote = loteRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Lote no encontrado: " + id));
@@ -99,7 +97,6 @@ public class LoteService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public void eliminarLote(UUID id) {
         Lote lote = loteRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Lote no encontrado: " + id));
@@ -115,7 +112,6 @@ public class LoteService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public void descontarStock(UUID productoId, BigDecimal cantidad) {
         Producto producto = productoRepository.findById(productoId)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + productoId));
@@ -124,6 +120,7 @@ public class LoteService {
             // For products without expiration control, just deduct from regular stock
             producto.setStockActual(producto.getStockActual().subtract(cantidad));
             productoRepository.save(producto);
+            stockProductosService.registrarAjuste(productoId, cantidad.negate());
             return;
         }
 
@@ -156,7 +153,6 @@ public class LoteService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public void restaurarStock(UUID productoId, BigDecimal cantidad) {
         Producto producto = productoRepository.findById(productoId)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + productoId));
@@ -164,6 +160,7 @@ public class LoteService {
         if (!Boolean.TRUE.equals(producto.getControlaVencimiento())) {
             producto.setStockActual(producto.getStockActual().add(cantidad));
             productoRepository.save(producto);
+            stockProductosService.registrarAjuste(productoId, cantidad);
             return;
         }
 
@@ -230,5 +227,6 @@ public class LoteService {
         BigDecimal stockLotes = loteRepository.sumCantidadDisponibleByProductoId(producto.getId());
         producto.setStockActual(stockLotes != null ? stockLotes : BigDecimal.ZERO);
         productoRepository.save(producto);
+        stockProductosService.registrarNivel(producto);
     }
 }
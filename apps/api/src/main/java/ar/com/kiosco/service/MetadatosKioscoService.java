@@ -0,0 +1,295 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.FeatureFlag;
+import ar.com.kiosco.domain.FeatureFlagKiosco;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.domain.Plan;
+import ar.com.kiosco.domain.Suscripcion;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
+import ar.com.kiosco.repository.FeatureFlagKioscoRepository;
+import ar.com.kiosco.repository.FeatureFlagRepository;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.repository.PlanRepository;
+import ar.com.kiosco.repository.SuscripcionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level cache of kiosco, plan, subscription state and feature flags
+ * (global schema), read by SubscriptionFilter and PlanLimitService on every call.
+ *
+ * Lookups hit a local map first (tenant-metadata.ttl, 30s by default), then the
+ * Redis "metadatosKiosco" cache, and only then the database. Writers call
+ * {@link #invalidar(UUID)} or {@link #invalidarTodos()} inside their transaction;
+ * after commit the Redis entry is evicted and a message on {@value #CANAL} tells
+ * every app node to drop its local copy. The TTL bounds staleness if a message
+ * is lost. Without Redis (tests, local runs) only the local level is used.
+ *
+ * A load that read the database before a write committed must not re-populate
+ * Redis after the writer's evict: it is only written while no invalidation arrived
+ * since the load started, and a node evicts the Redis keys it wrote again when an
+ * invalidation message for them arrives.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MetadatosKioscoService {
+
+    public static final String CACHE = "metadatosKiosco";
+    public static final String CANAL = "kiosco:metadatos:invalidar";
+    public static final String TODOS = "*";
+
+    private final KioscoRepository kioscoRepository;
+    private final PlanRepository planRepository;
+    private final SuscripcionRepository suscripcionRepository;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagKioscoRepository featureFlagKioscoRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectProvider<CacheManager> cacheManager;
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Value("${tenant-metadata.ttl:30s}")
+    private Duration ttl = Duration.ofSeconds(30);
+
+    private final Map<UUID, Entrada> locales = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a load that raced with a write is not kept
+    private final AtomicLong generacion = new AtomicLong();
+
+    // Redis keys written by this node, evicted again when an invalidation arrives
+    private final Set<UUID> escritasEnRedis = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Metadata of the kiosco, or empty if it does not exist.
+     */
+    public Optional<MetadatosKioscoDTO> obtener(UUID kioscoId) {
+        Entrada entrada = locales.get(kioscoId);
+        if (entrada != null && !entrada.expirada(ttl)) {
+            return Optional.ofNullable(entrada.metadatos());
+        }
+
+        long generacionInicial = generacion.get();
+        MetadatosKioscoDTO metadatos = desdeRedis(kioscoId);
+        if (metadatos == null) {
+            metadatos = cargar(kioscoId);
+            if (metadatos != null && generacion.get() == generacionInicial) {
+                guardarEnRedis(kioscoId, metadatos, generacionInicial);
+            }
+        }
+
+        if (generacion.get() == generacionInicial) {
+            locales.put(kioscoId, new Entrada(metadatos, Instant.now()));
+        }
+        return Optional.ofNullable(metadatos);
+    }
+
+    /**
+     * Subscription state used to gate API access; CANCELADA when there is no subscription.
+     */
+    public Suscripcion.Estado getEstadoSuscripcion(UUID kioscoId) {
+        return obtener(kioscoId)
+                .map(MetadatosKioscoDTO::getEstadoSuscripcion)
+                .orElse(Suscripcion.Estado.CANCELADA);
+    }
+
+    /**
+     * Drops the kiosco's cached metadata on every node once the current transaction commits.
+     */
+    public void invalidar(UUID kioscoId) {
+        despuesDelCommit(() -> {
+            descartarLocal(kioscoId.toString());
+            Cache cache = cacheRedis();
+            if (cache != null) {
+                cache.evict(kioscoId.toString());
+            }
+            publicar(kioscoId.toString());
+        });
+    }
+
+    /**
+     * Drops every kiosco's cached metadata (plan or global feature flag changes).
+     */
+    public void invalidarTodos() {
+        despuesDelCommit(() -> {
+            descartarLocal(TODOS);
+            Cache cache = cacheRedis();
+            if (cache != null) {
+                cache.clear();
+            }
+            publicar(TODOS);
+        });
+    }
+
+    /**
+     * Handles an invalidation message: a kiosco id or {@value #TODOS}.
+     */
+    public void descartarLocal(String mensaje) {
+        generacion.incrementAndGet();
+        if (TODOS.equals(mensaje)) {
+            locales.clear();
+            for (UUID kioscoId : escritasEnRedis) {
+                escritasEnRedis.remove(kioscoId);
+                evictarRedis(kioscoId);
+            }
+        } else {
+            UUID kioscoId = UUID.fromString(mensaje);
+            locales.remove(kioscoId);
+            if (escritasEnRedis.remove(kioscoId)) {
+                evictarRedis(kioscoId);
+            }
+        }
+    }
+
+    private void guardarEnRedis(UUID kioscoId, MetadatosKioscoDTO metadatos, long generacionInicial) {
+        Cache cache = cacheRedis();
+        if (cache == null) {
+            return;
+        }
+        escritasEnRedis.add(kioscoId);
+        cache.put(kioscoId.toString(), metadatos);
+        // An invalidation that arrived during the put may have missed this value
+        if (generacion.get() != generacionInicial) {
+            evictarRedis(kioscoId);
+        }
+    }
+
+    private void evictarRedis(UUID kioscoId) {
+        Cache cache = cacheRedis();
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.evict(kioscoId.toString());
+        } catch (RuntimeException e) {
+            log.warn("Could not evict tenant metadata for {} from Redis: {}", kioscoId, e.getMessage());
+        }
+    }
+
+    private MetadatosKioscoDTO cargar(UUID kioscoId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            Kiosco kiosco = kioscoRepository.findById(kioscoId).orElse(null);
+            if (kiosco == null) {
+                log.warn("Kiosco not found: {}", kioscoId);
+                return null;
+            }
+
+            String planName = kiosco.getPlan() != null ? kiosco.getPlan() : "free";
+            Plan plan = planRepository.findByNombre(planName).orElse(null);
+            if (plan == null) {
+                log.warn("Plan not found: {}", planName);
+            }
+
+            Map<String, Boolean> flags = new HashMap<>();
+            for (FeatureFlag flag : featureFlagRepository.findAll()) {
+                flags.put(flag.getKey(), Boolean.TRUE.equals(flag.getHabilitadoGlobal()));
+            }
+            for (FeatureFlagKiosco override : featureFlagKioscoRepository.findByKioscoId(kioscoId)) {
+                flags.put(override.getFeatureFlag().getKey(), Boolean.TRUE.equals(override.getHabilitado()));
+            }
+
+            return MetadatosKioscoDTO.builder()
+                    .kioscoId(kioscoId)
+                    .activo(kiosco.getActivo())
+                    .cadenaId(kiosco.getCadena() != null ? kiosco.getCadena().getId() : null)
+                    .plan(plan != null ? plan.getNombre() : null)
+                    .maxProductos(plan != null ? plan.getMaxProductos() : null)
+                    .maxUsuarios(plan != null ? plan.getMaxUsuarios() : null)
+                    .maxVentasMes(plan != null ? plan.getMaxVentasMes() : null)
+                    .tieneFacturacion(plan != null ? plan.getTieneFacturacion() : null)
+                    .tieneReportesAvanzados(plan != null ? plan.getTieneReportesAvanzados() : null)
+                    .tieneMultiKiosco(plan != null ? plan.getTieneMultiKiosco() : null)
+                    .estadoSuscripcion(estadoSuscripcion(kioscoId))
+                    .featureFlags(flags)
+                    .build();
+        });
+    }
+
+    private Suscripcion.Estado estadoSuscripcion(UUID kioscoId) {
+        Optional<Suscripcion> activa = suscripcionRepository.findActivaByKioscoId(kioscoId);
+        if (activa.isPresent()) {
+            return activa.get().getEstado();
+        }
+
+        // Check for trial or vencida status
+        List<Suscripcion> todas = suscripcionRepository.findByKioscoId(kioscoId);
+        if (todas.isEmpty()) {
+            // No subscription at all - return CANCELADA as default "no subscription"
+            return Suscripcion.Estado.CANCELADA;
+        }
+        // Return the most recent subscription status
+        return todas.get(0).getEstado();
+    }
+
+    private MetadatosKioscoDTO desdeRedis(UUID kioscoId) {
+        Cache cache = cacheRedis();
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(kioscoId.toString(), MetadatosKioscoDTO.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not read tenant metadata for {} from Redis: {}", kioscoId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Cache cacheRedis() {
+        CacheManager manager = cacheManager.getIfAvailable();
+        return manager != null ? manager.getCache(CACHE) : null;
+    }
+
+    private void publicar(String mensaje) {
+        StringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (template == null) {
+            return;
+        }
+        try {
+            template.convertAndSend(CANAL, mensaje);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the local TTL
+            log.warn("Could not publish tenant metadata invalidation {}: {}", mensaje, e.getMessage());
+        }
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    private record Entrada(MetadatosKioscoDTO metadatos, Instant cargada) {
+        boolean expirada(Duration ttl) {
+            return cargada.plus(ttl).isBefore(Instant.now());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ar.com.kiosco.domain.*;
 import ar.com.kiosco.domain.OrdenCompra.EstadoOrdenCompra;
 import ar.com.kiosco.dto.*;
 import ar.com.kiosco.repository.*;
+import ar.com.kiosco.repository.NumeradorRepository.Secuencia;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -11,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -21,10 +23,13 @@ import java.util.stream.Collectors;
 public class OrdenCompraService {
 
     private final OrdenCompraRepository ordenCompraRepository;
+    private final NumeradorRepository numeradorRepository;
     private final OrdenCompraItemRepository ordenCompraItemRepository;
     private final ProveedorRepository proveedorRepository;
     private final ProductoRepository productoRepository;
+    private final ProductoStockRepository productoStockRepository;
     private final ProductoProveedorRepository productoProveedorRepository;
+    private final StockProductosService stockProductosService;
 
     @Transactional(readOnly = true)
     public List<OrdenCompraDTO> listar() {
@@ -63,7 +68,7 @@ public class OrdenCompraService {
                 .orElseThrow(() -> new EntityNotFoundException("Proveedor no encontrado: " + dto.getProveedorId()));
 
         // Get next order number
-        Integer nextNumero = ordenCompraRepository.findMaxNumero().orElse(0) + 1;
+        Integer nextNumero = numeradorRepository.siguiente(Secuencia.ORDEN_COMPRA);
 
         OrdenCompra orden = OrdenCompra.builder()
                 .numero(nextNumero)
@@ -167,23 +172,23 @@ public class OrdenCompraService {
         Map<UUID, RecepcionItemDTO> recepcionMap = dto.getItems().stream()
                 .collect(Collectors.toMap(RecepcionItemDTO::getItemId, r -> r));
 
-        // Update received quantities and stock
+        // Update received quantities; stock is added in one atomic UPDATE per product,
+        // so sales committing meanwhile are not overwritten
+        Map<UUID, BigDecimal> ingresos = new HashMap<>();
         for (OrdenCompraItem item : orden.getItems()) {
             RecepcionItemDTO recepcion = recepcionMap.get(item.getId());
             if (recepcion != null) {
                 item.setCantidadRecibida(recepcion.getCantidadRecibida());
 
-                // Update product stock
                 Producto producto = item.getProducto();
-                BigDecimal stockActual = producto.getStockActual() != null ?
-                        producto.getStockActual() : BigDecimal.ZERO;
-                producto.setStockActual(stockActual.add(recepcion.getCantidadRecibida()));
-                productoRepository.save(producto);
+                ingresos.merge(producto.getId(), recepcion.getCantidadRecibida(), BigDecimal::add);
 
                 // Update product-provider price if applicable
                 actualizarPrecioProveedor(producto.getId(), orden.getProveedor().getId(), item.getPrecioUnitario());
             }
         }
+        productoStockRepository.incrementar(ingresos);
+        ingresos.forEach(stockProductosService::registrarAjuste);
 
         orden.setEstado(EstadoOrdenCompra.RECIBIDA);
         orden.setFechaRecepcion(LocalDate.now());
@@ -1,14 +1,10 @@
 package ar.com.kiosco.service;
 
-import ar.com.kiosco.domain.Kiosco;
-import ar.com.kiosco.domain.Plan;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
 import ar.com.kiosco.dto.PlanUsageDTO;
 import ar.com.kiosco.exception.PlanLimitExceededException;
 import ar.com.kiosco.repository.KioscoMemberRepository;
-import ar.com.kiosco.repository.KioscoRepository;
-import ar.com.kiosco.repository.PlanRepository;
-import ar.com.kiosco.repository.ProductoRepository;
-import ar.com.kiosco.repository.VentaRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository.Contadores;
 import ar.com.kiosco.security.KioscoContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,45 +12,42 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.UUID;
 
 /**
  * Service for validating and tracking plan limits.
+ * Sales and product usage come from the monthly counters in UsoMensualService,
+ * so a check reads one row regardless of how much the kiosco has sold.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PlanLimitService {
 
-    private final KioscoRepository kioscoRepository;
-    private final PlanRepository planRepository;
-    private final ProductoRepository productoRepository;
-    private final VentaRepository ventaRepository;
+    private final MetadatosKioscoService metadatosKioscoService;
     private final KioscoMemberRepository kioscoMemberRepository;
+    private final UsoMensualService usoMensualService;
 
     /**
      * Validates if the kiosco can create more products.
      * Throws PlanLimitExceededException if limit is exceeded.
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public void validateCanCreateProducto(UUID kioscoId) {
-        PlanInfo planInfo = getPlanInfo(kioscoId);
-        if (planInfo == null || planInfo.plan.getMaxProductos() == null) {
+        MetadatosKioscoDTO plan = getPlan(kioscoId);
+        if (plan == null || plan.getMaxProductos() == null) {
             return; // No limit
         }
 
-        int currentProducts = (int) productoRepository.findByActivoTrue().size();
-        int limit = planInfo.plan.getMaxProductos();
+        int currentProducts = usoMensualService.getContadores(kioscoId).productos();
+        int limit = plan.getMaxProductos();
 
         if (currentProducts >= limit) {
             throw new PlanLimitExceededException(
                 PlanLimitExceededException.LimitType.PRODUCTOS,
                 currentProducts,
                 limit,
-                planInfo.plan.getNombre()
+                plan.getPlan()
             );
         }
     }
@@ -65,20 +58,20 @@ public class PlanLimitService {
      */
     @Transactional(readOnly = true)
     public void validateCanCreateUsuario(UUID kioscoId) {
-        PlanInfo planInfo = getPlanInfo(kioscoId);
-        if (planInfo == null || planInfo.plan.getMaxUsuarios() == null) {
+        MetadatosKioscoDTO plan = getPlan(kioscoId);
+        if (plan == null || plan.getMaxUsuarios() == null) {
             return; // No limit
         }
 
         int currentUsers = kioscoMemberRepository.findByKioscoId(kioscoId).size();
-        int limit = planInfo.plan.getMaxUsuarios();
+        int limit = plan.getMaxUsuarios();
 
         if (currentUsers >= limit) {
             throw new PlanLimitExceededException(
                 PlanLimitExceededException.LimitType.USUARIOS,
                 currentUsers,
                 limit,
-                planInfo.plan.getNombre()
+                plan.getPlan()
             );
         }
     }
@@ -87,22 +80,32 @@ public class PlanLimitService {
      * Validates if the kiosco can create more sales this month.
      * Throws PlanLimitExceededException if limit is exceeded.
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public void validateCanCreateVenta(UUID kioscoId) {
-        PlanInfo planInfo = getPlanInfo(kioscoId);
-        if (planInfo == null || planInfo.plan.getMaxVentasMes() == null) {
+        validateCanCreateVentas(kioscoId, 1);
+    }
+
+    /**
+     * Validates if the kiosco can create {@code cantidad} more sales this month
+     * (an offline batch books them together).
+     * Throws PlanLimitExceededException if they would exceed the limit.
+     */
+    @Transactional
+    public void validateCanCreateVentas(UUID kioscoId, int cantidad) {
+        MetadatosKioscoDTO plan = getPlan(kioscoId);
+        if (plan == null || plan.getMaxVentasMes() == null) {
             return; // No limit
         }
 
-        int currentSales = countSalesThisMonth();
-        int limit = planInfo.plan.getMaxVentasMes();
+        int currentSales = usoMensualService.getContadores(kioscoId).ventas();
+        int limit = plan.getMaxVentasMes();
 
-        if (currentSales >= limit) {
+        if (currentSales + cantidad > limit) {
             throw new PlanLimitExceededException(
                 PlanLimitExceededException.LimitType.VENTAS,
                 currentSales,
                 limit,
-                planInfo.plan.getNombre()
+                plan.getPlan()
             );
         }
     }
@@ -110,10 +113,10 @@ public class PlanLimitService {
     /**
      * Returns the current usage vs limits for the kiosco.
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public PlanUsageDTO getUsage(UUID kioscoId) {
-        PlanInfo planInfo = getPlanInfo(kioscoId);
-        if (planInfo == null) {
+        MetadatosKioscoDTO plan = getPlan(kioscoId);
+        if (plan == null) {
             return PlanUsageDTO.builder()
                     .plan("free")
                     .productos(PlanUsageDTO.LimitUsage.of(0, null))
@@ -122,11 +125,10 @@ public class PlanLimitService {
                     .build();
         }
 
-        Plan plan = planInfo.plan;
-
-        int productCount = (int) productoRepository.findByActivoTrue().size();
+        Contadores contadores = usoMensualService.getContadores(kioscoId);
+        int productCount = contadores.productos();
         int userCount = kioscoMemberRepository.findByKioscoId(kioscoId).size();
-        int salesCount = countSalesThisMonth();
+        int salesCount = contadores.ventas();
 
         PlanUsageDTO.LimitUsage productos = PlanUsageDTO.LimitUsage.of(productCount, plan.getMaxProductos());
         PlanUsageDTO.LimitUsage usuarios = PlanUsageDTO.LimitUsage.of(userCount, plan.getMaxUsuarios());
@@ -136,7 +138,7 @@ public class PlanLimitService {
         String proximoLimite = determineProximoLimite(productos, usuarios, ventasMes);
 
         return PlanUsageDTO.builder()
-                .plan(plan.getNombre())
+                .plan(plan.getPlan())
                 .productos(productos)
                 .usuarios(usuarios)
                 .ventasMes(ventasMes)
@@ -147,7 +149,7 @@ public class PlanLimitService {
     /**
      * Gets plan usage for the current kiosco context.
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public PlanUsageDTO getUsage() {
         UUID kioscoId = KioscoContext.getCurrentKioscoId();
         if (kioscoId == null) {
@@ -156,36 +158,14 @@ public class PlanLimitService {
         return getUsage(kioscoId);
     }
 
-    private PlanInfo getPlanInfo(UUID kioscoId) {
-        Kiosco kiosco = kioscoRepository.findById(kioscoId).orElse(null);
-        if (kiosco == null) {
-            log.warn("Kiosco not found: {}", kioscoId);
-            return null;
-        }
-
-        String planName = kiosco.getPlan();
-        if (planName == null) {
-            planName = "free";
-        }
-
-        Plan plan = planRepository.findByNombre(planName).orElse(null);
-        if (plan == null) {
-            log.warn("Plan not found: {}", planName);
-            return null;
-        }
-
-        return new PlanInfo(kiosco, plan);
-    }
-
-    private int countSalesThisMonth() {
-        LocalDate today = LocalDate.now();
-        LocalDateTime startOfMonth = today.withDayOfMonth(1).atStartOfDay();
-        LocalDateTime endOfMonth = today.withDayOfMonth(today.lengthOfMonth()).atTime(LocalTime.MAX);
-
-        return (int) ventaRepository.findByFechaBetween(startOfMonth, endOfMonth)
-                .stream()
-                .filter(v -> v.getEstado() != ar.com.kiosco.domain.Venta.EstadoVenta.ANULADA)
-                .count();
+    /**
+     * Kiosco plan limits from the tenant metadata cache, or null if the kiosco
+     * or its plan does not exist (no limits apply).
+     */
+    private MetadatosKioscoDTO getPlan(UUID kioscoId) {
+        return metadatosKioscoService.obtener(kioscoId)
+                .filter(metadatos -> metadatos.getPlan() != null)
+                .orElse(null);
     }
 
     private String determineProximoLimite(
@@ -210,6 +190,4 @@ public class PlanLimitService {
 
         return proximoLimite;
     }
-
-    private record PlanInfo(Kiosco kiosco, Plan plan) {}
 }
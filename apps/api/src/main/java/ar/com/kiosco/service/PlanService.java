@@ -20,6 +20,7 @@ public class PlanService {
 
     private final PlanRepository planRepository;
     private final SuscripcionRepository suscripcionRepository;
+    private final MetadatosKioscoService metadatosKioscoService;
 
     @Transactional(readOnly = true)
     public List<PlanDTO> listarTodos() {
@@ -70,6 +71,7 @@ public class PlanService {
                 .build();
 
         plan = planRepository.save(plan);
+        metadatosKioscoService.invalidarTodos();
         return PlanDTO.fromEntity(plan);
     }
 
@@ -101,6 +103,7 @@ public class PlanService {
         }
 
         plan = planRepository.save(plan);
+        metadatosKioscoService.invalidarTodos();
         return PlanDTO.fromEntity(plan);
     }
 
@@ -117,6 +120,7 @@ public class PlanService {
 
         plan.setActivo(false);
         planRepository.save(plan);
+        metadatosKioscoService.invalidarTodos();
     }
 
     @Transactional
@@ -0,0 +1,176 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.security.KioscoContext;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Redis "productos" cache: cached product views and their tenant-scoped invalidation.
+ *
+ * Keys are always prefixed with the tenant key (first 8 chars of the kiosco id),
+ * so a write in one kiosco only evicts that kiosco's entries: the by-id entry
+ * and the list views the product appears in (all, favoritos, categoria).
+ *
+ * Cached views carry the stock level from when they were loaded; callers merge
+ * the live level from StockProductosService, so sales don't evict these entries.
+ */
+@Service("productoCacheService")
+@RequiredArgsConstructor
+@Slf4j
+@CacheConfig(cacheNames = ProductoCacheService.CACHE_NAME)
+public class ProductoCacheService {
+
+    public static final String CACHE_NAME = "productos";
+
+    private final ProductoRepository productoRepository;
+
+    // Disabled in the test profile (spring.cache.type=none), so it may be absent
+    private final ObjectProvider<CacheManager> cacheManagerProvider;
+
+    private final AtomicLong evicciones = new AtomicLong();
+    private final AtomicLong purgasTenant = new AtomicLong();
+
+    /**
+     * Tenant key for the current request.
+     * Returns "global" if no tenant context.
+     */
+    public static String tenantKey() {
+        UUID kioscoId = KioscoContext.getCurrentKioscoId();
+        return kioscoId != null ? kioscoId.toString().substring(0, 8) : "global";
+    }
+
+    /**
+     * Builds a cache key for the current tenant. Used from @Cacheable SpEL:
+     * {@code key = "@productoCacheService.key('all')"}.
+     */
+    public String key(Object suffix) {
+        return tenantKey() + ":" + suffix;
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(key = "@productoCacheService.key('all')")
+    public List<ProductoDTO> listarActivos() {
+        return productoRepository.findActivosConCategoria()
+                .stream()
+                .map(ProductoDTO::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(key = "@productoCacheService.key(#id)")
+    public ProductoDTO obtenerPorId(UUID id) {
+        Producto producto = productoRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
+        return ProductoDTO.fromEntity(producto);
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(key = "@productoCacheService.key('favoritos')")
+    public List<ProductoDTO> listarFavoritos() {
+        return productoRepository.findByEsFavoritoTrue()
+                .stream()
+                .filter(Producto::getActivo)
+                .map(ProductoDTO::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(key = "@productoCacheService.key('categoria:' + #categoriaId)")
+    public List<ProductoDTO> listarPorCategoria(UUID categoriaId) {
+        return productoRepository.findByCategoriaId(categoriaId)
+                .stream()
+                .filter(Producto::getActivo)
+                .map(ProductoDTO::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Evicts the entries affected by a change to one product.
+     * @param categoriaAnteriorId categoria before the change, if it may have moved
+     */
+    public void evictProducto(String tenant, ProductoDTO producto, UUID categoriaAnteriorId) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+
+        evict(cache, tenant + ":" + producto.getId());
+        evict(cache, tenant + ":all");
+        evict(cache, tenant + ":favoritos");
+        if (producto.getCategoria() != null) {
+            evict(cache, tenant + ":categoria:" + producto.getCategoria().getId());
+        }
+        if (categoriaAnteriorId != null) {
+            evict(cache, tenant + ":categoria:" + categoriaAnteriorId);
+        }
+    }
+
+    /**
+     * Evicts every product entry of one tenant (other tenants are untouched).
+     */
+    public void evictTenant(String tenant) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+
+        if (cache instanceof RedisCache redisCache) {
+            byte[] pattern = (redisCache.getCacheConfiguration().getKeyPrefixFor(CACHE_NAME) + tenant + ":*")
+                    .getBytes(StandardCharsets.UTF_8);
+            redisCache.getNativeCache().clean(CACHE_NAME, pattern);
+        } else {
+            cache.clear();
+        }
+        purgasTenant.incrementAndGet();
+        log.debug("Evicted all product cache entries for tenant {}", tenant);
+    }
+
+    /**
+     * Hit/miss/eviction counters for the product cache.
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Cache cache = getCache();
+        if (cache instanceof RedisCache redisCache) {
+            CacheStatistics redisStats = redisCache.getStatistics();
+            stats.put("hits", redisStats.getHits());
+            stats.put("misses", redisStats.getMisses());
+            stats.put("puts", redisStats.getPuts());
+            stats.put("deletes", redisStats.getDeletes());
+        }
+        stats.put("evictions", evicciones.get());
+        stats.put("tenantPurges", purgasTenant.get());
+        return stats;
+    }
+
+    private void evict(Cache cache, String key) {
+        cache.evict(key);
+        evicciones.incrementAndGet();
+    }
+
+    private Cache getCache() {
+        CacheManager cacheManager = cacheManagerProvider.getIfAvailable();
+        return cacheManager != null ? cacheManager.getCache(CACHE_NAME) : null;
+    }
+}
@@ -11,51 +11,34 @@ import ar.com.kiosco.security.KioscoContext;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-@CacheConfig(cacheNames = "productos")
 public class ProductoService {
 
     private final ProductoRepository productoRepository;
     private final CategoriaRepository categoriaRepository;
     private final PlanLimitService planLimitService;
+    private final UsoMensualService usoMensualService;
     private final AuditService auditService;
+    private final CatalogoProductosService catalogoProductosService;
+    private final ProductoCacheService productoCacheService;
+    private final StockProductosService stockProductosService;
 
-    /**
-     * Get current kiosco ID for cache key prefix.
-     * Returns "global" if no tenant context.
-     */
-    private String getTenantKey() {
-        UUID kioscoId = KioscoContext.getCurrentKioscoId();
-        return kioscoId != null ? kioscoId.toString().substring(0, 8) : "global";
-    }
-
-    @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':all'")
     public List<ProductoDTO> listarActivos() {
-        return productoRepository.findByActivoTrue()
-                .stream()
-                .map(ProductoDTO::fromEntity)
-                .collect(Collectors.toList());
+        return stockProductosService.conStock(productoCacheService.listarActivos());
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':' + #id")
     public ProductoDTO obtenerPorId(UUID id) {
-        Producto producto = productoRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
-        return ProductoDTO.fromEntity(producto);
+        return stockProductosService.conStock(productoCacheService.obtenerPorId(id));
     }
 
     @Transactional(readOnly = true)
@@ -68,46 +51,38 @@ public class ProductoService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':barcode:' + #codigoBarras")
+    /**
+     * Barcode scan at the till. Served from the in-memory catalog snapshot,
+     * so no transaction or database connection is needed.
+     */
     public ProductoDTO buscarPorCodigoBarras(String codigoBarras) {
-        Producto producto = productoRepository.findByCodigoBarras(codigoBarras)
-                .filter(Producto::getActivo)
+        return catalogoProductosService.buscarPorCodigoBarras(codigoBarras)
+                .map(stockProductosService::conStock)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado con código de barras: " + codigoBarras));
-        return ProductoDTO.fromEntity(producto);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':favoritos'")
     public List<ProductoDTO> listarFavoritos() {
-        return productoRepository.findByEsFavoritoTrue()
-                .stream()
-                .filter(Producto::getActivo)
-                .map(ProductoDTO::fromEntity)
-                .collect(Collectors.toList());
+        return stockProductosService.conStock(productoCacheService.listarFavoritos());
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Low-stock view built from the stock counters and the catalog snapshot,
+     * without scanning the productos table.
+     */
     public List<ProductoDTO> listarStockBajo() {
-        // No cache - stock changes frequently with sales
-        return productoRepository.findByStockBajo()
+        return stockProductosService.idsStockBajo()
                 .stream()
-                .map(ProductoDTO::fromEntity)
+                .map(catalogoProductosService::buscarPorId)
+                .flatMap(Optional::stream)
+                .map(stockProductosService::conStock)
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(key = "T(ar.com.kiosco.security.KioscoContext).getCurrentKioscoId()?.toString()?.substring(0,8) ?: 'global' + ':categoria:' + #categoriaId")
     public List<ProductoDTO> listarPorCategoria(UUID categoriaId) {
-        return productoRepository.findByCategoriaId(categoriaId)
-                .stream()
-                .filter(Producto::getActivo)
-                .map(ProductoDTO::fromEntity)
-                .collect(Collectors.toList());
+        return stockProductosService.conStock(productoCacheService.listarPorCategoria(categoriaId));
     }
 
     @Transactional
-    @CacheEvict(allEntries = true)
     public ProductoDTO crear(ProductoCreateDTO dto) {
         // Validate plan limit before creating product
         planLimitService.validateCanCreateProducto(KioscoContext.getCurrentKioscoId());
@@ -134,7 +109,9 @@ public class ProductoService {
                 .activo(true)
                 .build();
 
+        usoMensualService.registrarAltaProducto(KioscoContext.getCurrentKioscoId());
         producto = productoRepository.save(producto);
+        catalogoProductosService.registrarCambio(producto);
 
         // Audit log
         auditService.logCreate(AuditLog.EntityType.PRODUCTO.name(), producto.getId(), ProductoDTO.fromEntity(producto));
@@ -143,9 +120,12 @@ public class ProductoService {
     }
 
     @Transactional
-    @CacheEvict(allEntries = true)
     public ProductoDTO actualizar(UUID id, ProductoCreateDTO dto) {
-        Producto producto = productoRepository.findById(id)
+        // Setting stock overwrites it: lock the row so sales wait instead of being lost.
+        // Other edits leave stock_actual out of the UPDATE (@DynamicUpdate on Producto).
+        Producto producto = (dto.getStockActual() != null
+                ? productoRepository.findAllByIdForUpdate(List.of(id)).stream().findFirst()
+                : productoRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
 
         // Capture before state for audit
@@ -183,6 +163,8 @@ public class ProductoService {
         }
 
         producto = productoRepository.save(producto);
+        catalogoProductosService.registrarCambio(producto,
+                beforeState.getCategoria() != null ? beforeState.getCategoria().getId() : null);
 
         // Audit log
         ProductoDTO afterState = ProductoDTO.fromEntity(producto);
@@ -192,7 +174,6 @@ public class ProductoService {
     }
 
     @Transactional
-    @CacheEvict(allEntries = true)
     public void eliminar(UUID id) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
@@ -200,27 +181,30 @@ public class ProductoService {
         // Audit log before soft-delete
         auditService.logDelete(AuditLog.EntityType.PRODUCTO.name(), producto.getId(), ProductoDTO.fromEntity(producto));
 
+        if (Boolean.TRUE.equals(producto.getActivo())) {
+            usoMensualService.registrarBajaProducto(KioscoContext.getCurrentKioscoId());
+        }
         producto.setActivo(false);
         productoRepository.save(producto);
+        catalogoProductosService.registrarCambio(producto);
     }
 
     @Transactional
-    @CacheEvict(allEntries = true)
     public ProductoDTO marcarFavorito(UUID id, boolean esFavorito) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
 
         producto.setEsFavorito(esFavorito);
         producto = productoRepository.save(producto);
+        catalogoProductosService.registrarCambio(producto);
         return ProductoDTO.fromEntity(producto);
     }
 
     /**
      * Evict all product caches for current tenant.
-     * Called after sales to ensure stock is refreshed.
+     * Other tenants' entries are left untouched.
      */
-    @CacheEvict(allEntries = true)
     public void evictAllCache() {
-        // Cache eviction handled by annotation
+        productoCacheService.evictTenant(ProductoCacheService.tenantKey());
     }
 }
@@ -2,63 +2,72 @@ package ar.com.kiosco.service;
 
 import ar.com.kiosco.domain.Producto;
 import ar.com.kiosco.domain.Venta;
-import ar.com.kiosco.domain.VentaItem;
 import ar.com.kiosco.dto.reporte.*;
 import ar.com.kiosco.repository.LoteRepository;
 import ar.com.kiosco.repository.ProductoRepository;
-import ar.com.kiosco.repository.VentaRepository;
+import ar.com.kiosco.repository.ReporteVentasRepository;
+import ar.com.kiosco.repository.ReporteVentasRepository.VentaResumida;
+import ar.com.kiosco.repository.ReporteVentasRepository.VentasPorProducto;
+import ar.com.kiosco.repository.VentasResumenRepository;
+import ar.com.kiosco.repository.VentasResumenRepository.ResumenDia;
+import ar.com.kiosco.repository.VentasResumenRepository.ResumenHora;
+import ar.com.kiosco.repository.VentasResumenRepository.ResumenProductoDia;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ReportesService {
 
-    private final VentaRepository ventaRepository;
+    private static final Venta.EstadoVenta COMPLETADA = Venta.EstadoVenta.COMPLETADA;
+
+    private static final int MAX_DIAS_RECONSTRUCCION = 366;
+
+    private final ReporteVentasRepository reporteVentasRepository;
+    private final VentasResumenRepository ventasResumenRepository;
     private final ProductoRepository productoRepository;
     private final LoteRepository loteRepository;
+    private final StockProductosService stockProductosService;
 
     @Transactional(readOnly = true)
     public ResumenDashboardDTO getResumenDashboard() {
         LocalDate hoy = LocalDate.now();
         LocalDate inicioMes = hoy.withDayOfMonth(1);
 
-        List<Venta> ventasHoy = getVentasCompletadas(hoy, hoy);
-        List<Venta> ventasMes = getVentasCompletadas(inicioMes, hoy);
+        List<ResumenDia> ventasMes = sumarPorDia(inicioMes, hoy);
+        List<ResumenDia> ventasHoy = ventasMes.stream()
+                .filter(v -> v.dia().equals(hoy))
+                .toList();
 
-        BigDecimal totalHoy = ventasHoy.stream()
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalMes = ventasMes.stream()
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalHoy = sumarTotal(ventasHoy, m -> true);
+        BigDecimal totalMes = sumarTotal(ventasMes, m -> true);
 
-        int cantidadHoy = ventasHoy.size();
-        int cantidadMes = ventasMes.size();
+        int cantidadHoy = contar(ventasHoy);
+        int cantidadMes = contar(ventasMes);
 
-        BigDecimal ticketPromedio = cantidadMes > 0
-                ? totalMes.divide(BigDecimal.valueOf(cantidadMes), 2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+        BigDecimal ticketPromedio = ticketPromedio(totalMes, cantidadMes);
 
         int productosVendidosHoy = ventasHoy.stream()
-                .flatMap(v -> v.getItems().stream())
-                .mapToInt(item -> item.getCantidad().intValue())
-                .sum();
+                .map(ResumenDia::unidades)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .intValue();
 
-        List<Producto> productosStockBajo = productoRepository.findByStockBajo();
+        int productosStockBajo = stockProductosService.idsStockBajo().size();
 
         int productosProximosVencer = loteRepository.countProximosAVencer(LocalDate.now().plusDays(7));
 
@@ -69,45 +78,34 @@ public class ReportesService {
                 cantidadMes,
                 ticketPromedio,
                 productosVendidosHoy,
-                productosStockBajo.size(),
+                productosStockBajo,
                 productosProximosVencer
         );
     }
 
     @Transactional(readOnly = true)
     public VentaDiariaDTO getVentaDiaria(LocalDate fecha) {
-        List<Venta> ventas = getVentasCompletadas(fecha, fecha);
-        return buildVentaDiaria(fecha, ventas);
+        return buildVentaDiaria(fecha, sumarPorDia(fecha, fecha));
     }
 
     @Transactional(readOnly = true)
     public VentaRangoDTO getVentasRango(LocalDate desde, LocalDate hasta) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        BigDecimal montoTotal = ventas.stream()
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int totalVentas = ventas.size();
+        List<ResumenDia> ventas = sumarPorDia(desde, hasta);
 
-        BigDecimal ticketPromedio = totalVentas > 0
-                ? montoTotal.divide(BigDecimal.valueOf(totalVentas), 2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+        BigDecimal montoTotal = sumarTotal(ventas, m -> true);
+        int totalVentas = contar(ventas);
+        BigDecimal ticketPromedio = ticketPromedio(montoTotal, totalVentas);
 
-        Map<String, BigDecimal> porMedioPago = ventas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getMedioPago().name(),
-                        Collectors.reducing(BigDecimal.ZERO, Venta::getTotal, BigDecimal::add)
-                ));
+        Map<String, BigDecimal> porMedioPago = totalPorMedioPago(ventas);
 
         // Group by day
-        Map<LocalDate, List<Venta>> ventasPorDia = ventas.stream()
-                .collect(Collectors.groupingBy(v -> v.getFecha().toLocalDate()));
+        Map<LocalDate, List<ResumenDia>> ventasPorDia = ventas.stream()
+                .collect(Collectors.groupingBy(ResumenDia::dia));
 
         List<VentaDiariaDTO> porDia = new ArrayList<>();
         LocalDate current = desde;
         while (!current.isAfter(hasta)) {
-            List<Venta> ventasDia = ventasPorDia.getOrDefault(current, Collections.emptyList());
+            List<ResumenDia> ventasDia = ventasPorDia.getOrDefault(current, Collections.emptyList());
             porDia.add(buildVentaDiaria(current, ventasDia));
             current = current.plusDays(1);
         }
@@ -125,18 +123,15 @@ public class ReportesService {
 
     @Transactional(readOnly = true)
     public List<VentaPorHoraDTO> getVentasPorHora(LocalDate fecha) {
-        List<Venta> ventas = getVentasCompletadas(fecha, fecha);
-
-        Map<Integer, List<Venta>> ventasPorHora = ventas.stream()
-                .collect(Collectors.groupingBy(v -> v.getFecha().getHour()));
+        Map<Integer, ResumenHora> ventasPorHora = ventasResumenRepository.findPorHora(fecha).stream()
+                .collect(Collectors.toMap(ResumenHora::hora, v -> v));
 
         List<VentaPorHoraDTO> resultado = new ArrayList<>();
         for (int hora = 0; hora < 24; hora++) {
-            List<Venta> ventasHora = ventasPorHora.getOrDefault(hora, Collections.emptyList());
-            BigDecimal total = ventasHora.stream()
-                    .map(Venta::getTotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            resultado.add(new VentaPorHoraDTO(hora, ventasHora.size(), total));
+            ResumenHora ventasHora = ventasPorHora.get(hora);
+            resultado.add(ventasHora != null
+                    ? new VentaPorHoraDTO(hora, (int) ventasHora.cantidad(), ventasHora.total())
+                    : new VentaPorHoraDTO(hora, 0, BigDecimal.ZERO));
         }
 
         return resultado;
@@ -144,127 +139,52 @@ public class ReportesService {
 
     @Transactional(readOnly = true)
     public Map<String, BigDecimal> getVentasPorMedioPago(LocalDate desde, LocalDate hasta) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        return ventas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getMedioPago().name(),
-                        Collectors.reducing(BigDecimal.ZERO, Venta::getTotal, BigDecimal::add)
-                ));
+        return totalPorMedioPago(sumarPorDia(desde, hasta));
     }
 
     @Transactional(readOnly = true)
     public List<ProductoMasVendidoDTO> getProductosMasVendidos(LocalDate desde, LocalDate hasta, int limit) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        // Group sales by product
-        Map<UUID, List<VentaItem>> itemsPorProducto = ventas.stream()
-                .flatMap(v -> v.getItems().stream())
-                .filter(item -> item.getProducto() != null)
-                .collect(Collectors.groupingBy(item -> item.getProducto().getId()));
-
-        List<ProductoMasVendidoDTO> resultado = new ArrayList<>();
-
-        for (Map.Entry<UUID, List<VentaItem>> entry : itemsPorProducto.entrySet()) {
-            UUID productoId = entry.getKey();
-            List<VentaItem> items = entry.getValue();
-
-            if (items.isEmpty()) continue;
-
-            VentaItem firstItem = items.get(0);
-            Producto producto = firstItem.getProducto();
-
-            BigDecimal cantidadVendida = items.stream()
-                    .map(VentaItem::getCantidad)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal montoTotal = items.stream()
-                    .map(VentaItem::getSubtotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Calculate margin
-            BigDecimal costoTotal = cantidadVendida.multiply(
-                    producto.getPrecioCosto() != null ? producto.getPrecioCosto() : BigDecimal.ZERO
-            );
-            BigDecimal margenTotal = montoTotal.subtract(costoTotal);
-
-            String categoriaNombre = producto.getCategoria() != null
-                    ? producto.getCategoria().getNombre()
-                    : "Sin categoría";
-
-            resultado.add(new ProductoMasVendidoDTO(
-                    productoId,
-                    producto.getNombre(),
-                    categoriaNombre,
-                    cantidadVendida,
-                    montoTotal,
-                    margenTotal
-            ));
-        }
-
-        // Sort by amount and limit
-        return resultado.stream()
-                .sorted((a, b) -> b.montoTotal().compareTo(a.montoTotal()))
+        return sumarPorProducto(desde, hasta).stream()
+                .sorted((a, b) -> b.getMonto().compareTo(a.getMonto()))
                 .limit(limit)
+                .map(p -> new ProductoMasVendidoDTO(
+                        p.getProductoId(),
+                        p.getNombre(),
+                        nombreCategoria(p),
+                        p.getCantidad(),
+                        p.getMonto(),
+                        p.getMonto().subtract(costo(p))
+                ))
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<ProductoSinMovimientoDTO> getProductosSinMovimiento(int dias) {
-        LocalDate fechaLimite = LocalDate.now().minusDays(dias);
-        List<Producto> productos = productoRepository.findByActivoTrue();
-
-        // Get last sale date for each product
-        LocalDateTime desde = fechaLimite.atStartOfDay();
-        LocalDateTime hasta = LocalDateTime.now();
-
-        List<Venta> ventasRecientes = ventaRepository.findByFechaBetween(desde, hasta);
-
-        Set<UUID> productosConVentas = ventasRecientes.stream()
-                .flatMap(v -> v.getItems().stream())
-                .filter(item -> item.getProducto() != null)
-                .map(item -> item.getProducto().getId())
-                .collect(Collectors.toSet());
-
-        // Get all historical sales to find last sale date
-        List<Venta> todasLasVentas = ventaRepository.findByEstado(Venta.EstadoVenta.COMPLETADA);
-
-        Map<UUID, LocalDate> ultimaVentaPorProducto = todasLasVentas.stream()
-                .flatMap(v -> v.getItems().stream()
-                        .filter(item -> item.getProducto() != null)
-                        .map(item -> Map.entry(item.getProducto().getId(), v.getFecha().toLocalDate())))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (d1, d2) -> d1.isAfter(d2) ? d1 : d2
-                ));
+        LocalDate hoy = LocalDate.now();
+        List<Producto> productos = productoRepository.findSinVentasDesde(hoy.minusDays(dias).atStartOfDay());
 
         List<ProductoSinMovimientoDTO> resultado = new ArrayList<>();
 
         for (Producto producto : productos) {
-            if (productosConVentas.contains(producto.getId())) {
-                continue; // Product has recent sales
-            }
-
-            LocalDate ultimaVenta = ultimaVentaPorProducto.get(producto.getId());
+            LocalDate ultimaVenta = producto.getUltimaVenta() != null
+                    ? producto.getUltimaVenta().toLocalDate()
+                    : null;
             int diasSinMovimiento = ultimaVenta != null
-                    ? (int) ChronoUnit.DAYS.between(ultimaVenta, LocalDate.now())
-                    : -1; // Never sold
-
-            if (diasSinMovimiento < 0 || diasSinMovimiento >= dias) {
-                String categoriaNombre = producto.getCategoria() != null
-                        ? producto.getCategoria().getNombre()
-                        : "Sin categoría";
-
-                resultado.add(new ProductoSinMovimientoDTO(
-                        producto.getId(),
-                        producto.getNombre(),
-                        categoriaNombre,
-                        producto.getStockActual(),
-                        ultimaVenta,
-                        diasSinMovimiento < 0 ? dias + 1 : diasSinMovimiento
-                ));
-            }
+                    ? (int) ChronoUnit.DAYS.between(ultimaVenta, hoy)
+                    : dias + 1; // Never sold
+
+            String categoriaNombre = producto.getCategoria() != null
+                    ? producto.getCategoria().getNombre()
+                    : "Sin categoría";
+
+            resultado.add(new ProductoSinMovimientoDTO(
+                    producto.getId(),
+                    producto.getNombre(),
+                    categoriaNombre,
+                    producto.getStockActual(),
+                    ultimaVenta,
+                    diasSinMovimiento
+            ));
         }
 
         // Sort by days without movement (descending)
@@ -275,23 +195,10 @@ public class ReportesService {
 
     @Transactional(readOnly = true)
     public ResumenCajaDTO getResumenCaja(LocalDate fecha) {
-        List<Venta> ventas = getVentasCompletadas(fecha, fecha);
-
-        BigDecimal ventasEfectivo = ventas.stream()
-                .filter(v -> v.getMedioPago() == Venta.MedioPago.EFECTIVO)
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal ventasDigital = ventas.stream()
-                .filter(v -> v.getMedioPago() != Venta.MedioPago.EFECTIVO
-                        && v.getMedioPago() != Venta.MedioPago.FIADO)
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<ResumenDia> ventas = sumarPorDia(fecha, fecha);
 
-        BigDecimal ventasFiado = ventas.stream()
-                .filter(v -> v.getMedioPago() == Venta.MedioPago.FIADO)
-                .map(Venta::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal ventasEfectivo = sumarTotal(ventas, m -> m == Venta.MedioPago.EFECTIVO);
+        BigDecimal ventasDigital = sumarTotal(ventas, ReportesService::esDigital);
 
         BigDecimal ingresos = ventasEfectivo.add(ventasDigital);
         BigDecimal saldoTeorico = ventasEfectivo; // Only cash affects physical cash box
@@ -309,85 +216,147 @@ public class ReportesService {
         );
     }
 
+    /**
+     * Writes the completed sales of the range as CSV. Rows come from a forward-only
+     * cursor and go straight to {@code out}, so memory does not grow with the range.
+     */
     @Transactional(readOnly = true)
-    public String exportarVentasCSV(LocalDate desde, LocalDate hasta) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        StringBuilder csv = new StringBuilder();
-        csv.append("Numero,Fecha,Hora,Total,Medio de Pago,Cliente,Items\n");
-
-        for (Venta venta : ventas) {
-            String clienteNombre = venta.getCliente() != null
-                    ? venta.getCliente().getNombre()
-                    : "Consumidor Final";
-
-            int cantidadItems = venta.getItems().stream()
-                    .mapToInt(i -> i.getCantidad().intValue())
-                    .sum();
-
-            csv.append(String.format("%d,%s,%s,%.2f,%s,\"%s\",%d\n",
-                    venta.getNumero(),
-                    venta.getFecha().toLocalDate(),
-                    venta.getFecha().toLocalTime().toString().substring(0, 5),
-                    venta.getTotal(),
-                    venta.getMedioPago().name(),
-                    clienteNombre.replace("\"", "\"\""),
-                    cantidadItems
-            ));
+    public void exportarVentasCSV(LocalDate desde, LocalDate hasta, Writer out) throws IOException {
+        out.write("Numero,Fecha,Hora,Total,Medio de Pago,Cliente,Items\n");
+
+        try (Stream<VentaResumida> ventas = reporteVentasRepository.streamResumidas(COMPLETADA, inicio(desde), fin(hasta))) {
+            Iterator<VentaResumida> it = ventas.iterator();
+            while (it.hasNext()) {
+                VentaResumida venta = it.next();
+                LocalDateTime fecha = venta.getFecha();
+
+                out.write(String.valueOf(venta.getNumero()));
+                out.write(',');
+                out.write(fecha.toLocalDate().toString());
+                out.write(',');
+                dosDigitos(out, fecha.getHour());
+                out.write(':');
+                dosDigitos(out, fecha.getMinute());
+                out.write(',');
+                decimal(out, venta.getTotal());
+                out.write(',');
+                out.write(venta.getMedioPago().name());
+                out.write(',');
+                texto(out, venta.getCliente() != null ? venta.getCliente() : "Consumidor Final");
+                out.write(',');
+                out.write(String.valueOf(venta.getUnidades().intValue()));
+                out.write('\n');
+            }
         }
-
-        return csv.toString();
     }
 
     @Transactional(readOnly = true)
-    public String exportarProductosMasVendidosCSV(LocalDate desde, LocalDate hasta, int limit) {
-        List<ProductoMasVendidoDTO> productos = getProductosMasVendidos(desde, hasta, limit);
-
-        StringBuilder csv = new StringBuilder();
-        csv.append("Producto,Categoria,Cantidad Vendida,Monto Total,Margen Total\n");
-
-        for (ProductoMasVendidoDTO p : productos) {
-            csv.append(String.format("\"%s\",\"%s\",%.2f,%.2f,%.2f\n",
-                    p.nombre().replace("\"", "\"\""),
-                    p.categoria().replace("\"", "\"\""),
-                    p.cantidadVendida(),
-                    p.montoTotal(),
-                    p.margenTotal()
-            ));
+    public void exportarProductosMasVendidosCSV(LocalDate desde, LocalDate hasta, int limit, Writer out)
+            throws IOException {
+        out.write("Producto,Categoria,Cantidad Vendida,Monto Total,Margen Total\n");
+
+        for (ProductoMasVendidoDTO p : getProductosMasVendidos(desde, hasta, limit)) {
+            texto(out, p.nombre());
+            out.write(',');
+            texto(out, p.categoria());
+            out.write(',');
+            decimal(out, p.cantidadVendida());
+            out.write(',');
+            decimal(out, p.montoTotal());
+            out.write(',');
+            decimal(out, p.margenTotal());
+            out.write('\n');
         }
+    }
+
+    // CSV helpers (locale-independent: always '.' as decimal separator)
+
+    private static void texto(Writer out, String valor) throws IOException {
+        out.write('"');
+        out.write(valor.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void decimal(Writer out, BigDecimal valor) throws IOException {
+        out.write(valor.setScale(2, RoundingMode.HALF_UP).toPlainString());
+    }
 
-        return csv.toString();
+    private static void dosDigitos(Writer out, int valor) throws IOException {
+        if (valor < 10) {
+            out.write('0');
+        }
+        out.write(String.valueOf(valor));
     }
 
     // Helper methods
 
-    private List<Venta> getVentasCompletadas(LocalDate desde, LocalDate hasta) {
-        LocalDateTime inicio = desde.atStartOfDay();
-        LocalDateTime fin = hasta.atTime(LocalTime.MAX);
+    private static LocalDateTime inicio(LocalDate desde) {
+        return desde.atStartOfDay();
+    }
 
-        return ventaRepository.findByFechaBetween(inicio, fin).stream()
-                .filter(v -> v.getEstado() == Venta.EstadoVenta.COMPLETADA)
-                .collect(Collectors.toList());
+    private static LocalDateTime fin(LocalDate hasta) {
+        return hasta.plusDays(1).atStartOfDay();
+    }
+
+    /**
+     * Completed sales between both dates (inclusive), one rollup row per day and medio de pago.
+     */
+    private List<ResumenDia> sumarPorDia(LocalDate desde, LocalDate hasta) {
+        return ventasResumenRepository.findPorDia(desde, hasta);
+    }
+
+    /**
+     * Units and revenue per product for completed sales between both dates (inclusive).
+     */
+    private List<VentasPorProducto> sumarPorProducto(LocalDate desde, LocalDate hasta) {
+        return reporteVentasRepository.sumarPorProducto(COMPLETADA, inicio(desde), fin(hasta));
     }
 
-    private VentaDiariaDTO buildVentaDiaria(LocalDate fecha, List<Venta> ventas) {
-        int cantidad = ventas.size();
+    private static int contar(Collection<ResumenDia> ventas) {
+        return ventas.stream()
+                .mapToInt(v -> (int) v.cantidad())
+                .sum();
+    }
 
-        BigDecimal total = ventas.stream()
-                .map(Venta::getTotal)
+    private static BigDecimal sumarTotal(Collection<ResumenDia> ventas, Predicate<Venta.MedioPago> medioPago) {
+        return ventas.stream()
+                .filter(v -> medioPago.test(v.medioPago()))
+                .map(ResumenDia::total)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Map<String, BigDecimal> totalPorMedioPago(Collection<ResumenDia> ventas) {
+        return ventas.stream()
+                .collect(Collectors.groupingBy(
+                        v -> v.medioPago().name(),
+                        Collectors.reducing(BigDecimal.ZERO, ResumenDia::total, BigDecimal::add)
+                ));
+    }
+
+    private static boolean esDigital(Venta.MedioPago medioPago) {
+        return medioPago != Venta.MedioPago.EFECTIVO && medioPago != Venta.MedioPago.FIADO;
+    }
 
-        BigDecimal ticketPromedio = cantidad > 0
+    private static BigDecimal ticketPromedio(BigDecimal total, int cantidad) {
+        return cantidad > 0
                 ? total.divide(BigDecimal.valueOf(cantidad), 2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
+    }
 
-        Map<String, BigDecimal> porMedioPago = ventas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getMedioPago().name(),
-                        Collectors.reducing(BigDecimal.ZERO, Venta::getTotal, BigDecimal::add)
-                ));
+    private static BigDecimal costo(VentasPorProducto producto) {
+        BigDecimal precioCosto = producto.getPrecioCosto() != null ? producto.getPrecioCosto() : BigDecimal.ZERO;
+        return producto.getCantidad().multiply(precioCosto);
+    }
+
+    private static String nombreCategoria(VentasPorProducto producto) {
+        return producto.getCategoria() != null ? producto.getCategoria() : "Sin categoría";
+    }
+
+    private VentaDiariaDTO buildVentaDiaria(LocalDate fecha, List<ResumenDia> ventas) {
+        int cantidad = contar(ventas);
+        BigDecimal total = sumarTotal(ventas, m -> true);
 
-        return new VentaDiariaDTO(fecha, cantidad, total, ticketPromedio, porMedioPago);
+        return new VentaDiariaDTO(fecha, cantidad, total, ticketPromedio(total, cantidad), totalPorMedioPago(ventas));
     }
 
     // =====================
@@ -396,86 +365,60 @@ public class ReportesService {
 
     @Transactional(readOnly = true)
     public List<RentabilidadProductoDTO> getRentabilidadProductos(LocalDate desde, LocalDate hasta) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        Map<UUID, List<VentaItem>> itemsPorProducto = ventas.stream()
-                .flatMap(v -> v.getItems().stream())
-                .filter(item -> item.getProducto() != null)
-                .collect(Collectors.groupingBy(item -> item.getProducto().getId()));
-
-        List<RentabilidadProductoDTO> resultado = new ArrayList<>();
-
-        for (Map.Entry<UUID, List<VentaItem>> entry : itemsPorProducto.entrySet()) {
-            List<VentaItem> items = entry.getValue();
-            if (items.isEmpty()) continue;
-
-            Producto producto = items.get(0).getProducto();
-
-            BigDecimal cantidadVendida = items.stream()
-                    .map(VentaItem::getCantidad)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal ingresos = items.stream()
-                    .map(VentaItem::getSubtotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal precioCosto = producto.getPrecioCosto() != null ? producto.getPrecioCosto() : BigDecimal.ZERO;
-            BigDecimal costos = cantidadVendida.multiply(precioCosto);
-            BigDecimal margenBruto = ingresos.subtract(costos);
-
-            BigDecimal margenPorcentaje = ingresos.compareTo(BigDecimal.ZERO) > 0
-                    ? margenBruto.multiply(BigDecimal.valueOf(100)).divide(ingresos, 2, RoundingMode.HALF_UP)
-                    : BigDecimal.ZERO;
+        return sumarPorProducto(desde, hasta).stream()
+                .map(this::buildRentabilidadProducto)
+                .sorted((a, b) -> b.margenBruto().compareTo(a.margenBruto()))
+                .collect(Collectors.toList());
+    }
 
-            BigDecimal rentabilidadPorUnidad = cantidadVendida.compareTo(BigDecimal.ZERO) > 0
-                    ? margenBruto.divide(cantidadVendida, 2, RoundingMode.HALF_UP)
-                    : BigDecimal.ZERO;
+    private RentabilidadProductoDTO buildRentabilidadProducto(VentasPorProducto producto) {
+        BigDecimal cantidadVendida = producto.getCantidad();
+        BigDecimal ingresos = producto.getMonto();
+        BigDecimal costos = costo(producto);
+        BigDecimal margenBruto = ingresos.subtract(costos);
 
-            String categoriaNombre = producto.getCategoria() != null
-                    ? producto.getCategoria().getNombre()
-                    : "Sin categoría";
+        BigDecimal margenPorcentaje = ingresos.compareTo(BigDecimal.ZERO) > 0
+                ? margenBruto.multiply(BigDecimal.valueOf(100)).divide(ingresos, 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
 
-            resultado.add(new RentabilidadProductoDTO(
-                    producto.getId(),
-                    producto.getNombre(),
-                    categoriaNombre,
-                    cantidadVendida,
-                    ingresos,
-                    costos,
-                    margenBruto,
-                    margenPorcentaje,
-                    rentabilidadPorUnidad
-            ));
-        }
+        BigDecimal rentabilidadPorUnidad = cantidadVendida.compareTo(BigDecimal.ZERO) > 0
+                ? margenBruto.divide(cantidadVendida, 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
 
-        return resultado.stream()
-                .sorted((a, b) -> b.margenBruto().compareTo(a.margenBruto()))
-                .collect(Collectors.toList());
+        return new RentabilidadProductoDTO(
+                producto.getProductoId(),
+                producto.getNombre(),
+                nombreCategoria(producto),
+                cantidadVendida,
+                ingresos,
+                costos,
+                margenBruto,
+                margenPorcentaje,
+                rentabilidadPorUnidad
+        );
     }
 
     @Transactional(readOnly = true)
     public List<RentabilidadCategoriaDTO> getRentabilidadCategorias(LocalDate desde, LocalDate hasta) {
-        List<RentabilidadProductoDTO> productos = getRentabilidadProductos(desde, hasta);
-
-        Map<String, List<RentabilidadProductoDTO>> porCategoria = productos.stream()
-                .collect(Collectors.groupingBy(RentabilidadProductoDTO::categoria));
+        Map<String, List<VentasPorProducto>> porCategoria = sumarPorProducto(desde, hasta).stream()
+                .collect(Collectors.groupingBy(ReportesService::nombreCategoria));
 
         List<RentabilidadCategoriaDTO> resultado = new ArrayList<>();
 
-        for (Map.Entry<String, List<RentabilidadProductoDTO>> entry : porCategoria.entrySet()) {
+        for (Map.Entry<String, List<VentasPorProducto>> entry : porCategoria.entrySet()) {
             String categoria = entry.getKey();
-            List<RentabilidadProductoDTO> prods = entry.getValue();
+            List<VentasPorProducto> prods = entry.getValue();
 
             BigDecimal cantidadVendida = prods.stream()
-                    .map(RentabilidadProductoDTO::cantidadVendida)
+                    .map(VentasPorProducto::getCantidad)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             BigDecimal ingresos = prods.stream()
-                    .map(RentabilidadProductoDTO::ingresos)
+                    .map(VentasPorProducto::getMonto)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             BigDecimal costos = prods.stream()
-                    .map(RentabilidadProductoDTO::costos)
+                    .map(ReportesService::costo)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             BigDecimal margenBruto = ingresos.subtract(costos);
@@ -485,7 +428,7 @@ public class ReportesService {
                     : BigDecimal.ZERO;
 
             resultado.add(new RentabilidadCategoriaDTO(
-                    null, // categoriaId - could be fetched if needed
+                    prods.get(0).getCategoriaId(),
                     categoria,
                     prods.size(),
                     cantidadVendida,
@@ -501,23 +444,41 @@ public class ReportesService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Recomputes the sales rollups of the given days from ventas (historical backfill or repair).
+     * At most MAX_DIAS_RECONSTRUCCION days per call, so one request can't rewrite years at once.
+     * @return number of daily rows written
+     */
+    @Transactional
+    public int reconstruirResumenes(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a desde");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= MAX_DIAS_RECONSTRUCCION) {
+            throw new IllegalArgumentException(
+                    "Se pueden reconstruir hasta " + MAX_DIAS_RECONSTRUCCION + " dias por vez");
+        }
+        return ventasResumenRepository.reconstruir(desde, hasta);
+    }
+
     @Transactional(readOnly = true)
     public List<TendenciaDTO> getTendenciasVentas(int meses) {
         LocalDate hoy = LocalDate.now();
-        List<TendenciaDTO> tendencias = new ArrayList<>();
+        YearMonth primerMes = YearMonth.from(hoy.minusMonths(meses - 1));
+
+        // Daily rollup rows for the whole window, bucketed by month here
+        Map<YearMonth, List<ResumenDia>> ventasPorMes = sumarPorDia(primerMes.atDay(1), YearMonth.from(hoy).atEndOfMonth())
+                .stream()
+                .collect(Collectors.groupingBy(v -> YearMonth.from(v.dia())));
 
+        List<TendenciaDTO> tendencias = new ArrayList<>();
         BigDecimal ventasAnterior = null;
 
         for (int i = meses - 1; i >= 0; i--) {
             YearMonth mes = YearMonth.from(hoy.minusMonths(i));
-            LocalDate inicioMes = mes.atDay(1);
-            LocalDate finMes = mes.atEndOfMonth();
+            List<ResumenDia> ventasMes = ventasPorMes.getOrDefault(mes, Collections.emptyList());
 
-            List<Venta> ventasMes = getVentasCompletadas(inicioMes, finMes);
-
-            BigDecimal totalVentas = ventasMes.stream()
-                    .map(Venta::getTotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totalVentas = sumarTotal(ventasMes, m -> true);
 
             BigDecimal variacion = BigDecimal.ZERO;
             BigDecimal variacionPorcentaje = BigDecimal.ZERO;
@@ -533,7 +494,7 @@ public class ReportesService {
             tendencias.add(new TendenciaDTO(
                     mes.format(DateTimeFormatter.ofPattern("yyyy-MM")),
                     totalVentas,
-                    ventasMes.size(),
+                    contar(ventasMes),
                     variacion,
                     variacionPorcentaje
             ));
@@ -553,27 +514,26 @@ public class ReportesService {
             return null;
         }
 
+        YearMonth primerMes = YearMonth.from(hoy.minusMonths(meses - 1));
+        Map<YearMonth, List<ResumenProductoDia>> ventasPorMes = ventasResumenRepository
+                .findPorProductoYDia(productoId, primerMes.atDay(1), YearMonth.from(hoy).atEndOfMonth())
+                .stream()
+                .collect(Collectors.groupingBy(v -> YearMonth.from(v.dia())));
+
         List<TendenciaProductoDTO.TendenciaPeriodoDTO> periodos = new ArrayList<>();
         BigDecimal totalInicial = null;
         BigDecimal totalFinal = null;
 
         for (int i = meses - 1; i >= 0; i--) {
             YearMonth mes = YearMonth.from(hoy.minusMonths(i));
-            LocalDate inicioMes = mes.atDay(1);
-            LocalDate finMes = mes.atEndOfMonth();
-
-            List<Venta> ventasMes = getVentasCompletadas(inicioMes, finMes);
+            List<ResumenProductoDia> ventasMes = ventasPorMes.getOrDefault(mes, Collections.emptyList());
 
             BigDecimal cantidadVendida = ventasMes.stream()
-                    .flatMap(v -> v.getItems().stream())
-                    .filter(item -> item.getProducto() != null && item.getProducto().getId().equals(productoId))
-                    .map(VentaItem::getCantidad)
+                    .map(ResumenProductoDia::unidades)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             BigDecimal ingresos = ventasMes.stream()
-                    .flatMap(v -> v.getItems().stream())
-                    .filter(item -> item.getProducto() != null && item.getProducto().getId().equals(productoId))
-                    .map(VentaItem::getSubtotal)
+                    .map(ResumenProductoDia::total)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             periodos.add(new TendenciaProductoDTO.TendenciaPeriodoDTO(
@@ -613,47 +573,38 @@ public class ReportesService {
     @Transactional(readOnly = true)
     public ComparativoDTO getComparativoPeriodos(LocalDate periodo1Desde, LocalDate periodo1Hasta,
                                                    LocalDate periodo2Desde, LocalDate periodo2Hasta) {
-        List<Venta> ventas1 = getVentasCompletadas(periodo1Desde, periodo1Hasta);
-        List<Venta> ventas2 = getVentasCompletadas(periodo2Desde, periodo2Hasta);
+        List<ResumenDia> ventas1 = sumarPorDia(periodo1Desde, periodo1Hasta);
+        List<ResumenDia> ventas2 = sumarPorDia(periodo2Desde, periodo2Hasta);
 
         List<ComparativoDTO.ComparativoItemDTO> items = new ArrayList<>();
 
         // Total ventas
-        BigDecimal totalVentas1 = ventas1.stream().map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalVentas2 = ventas2.stream().map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalVentas1 = sumarTotal(ventas1, m -> true);
+        BigDecimal totalVentas2 = sumarTotal(ventas2, m -> true);
         items.add(buildComparativoItem("Total Ventas", totalVentas1, totalVentas2));
 
         // Cantidad de ventas
-        BigDecimal cantVentas1 = BigDecimal.valueOf(ventas1.size());
-        BigDecimal cantVentas2 = BigDecimal.valueOf(ventas2.size());
-        items.add(buildComparativoItem("Cantidad de Ventas", cantVentas1, cantVentas2));
+        int cantVentas1 = contar(ventas1);
+        int cantVentas2 = contar(ventas2);
+        items.add(buildComparativoItem("Cantidad de Ventas", BigDecimal.valueOf(cantVentas1), BigDecimal.valueOf(cantVentas2)));
 
         // Ticket promedio
-        BigDecimal ticket1 = ventas1.isEmpty() ? BigDecimal.ZERO : totalVentas1.divide(cantVentas1, 2, RoundingMode.HALF_UP);
-        BigDecimal ticket2 = ventas2.isEmpty() ? BigDecimal.ZERO : totalVentas2.divide(cantVentas2, 2, RoundingMode.HALF_UP);
-        items.add(buildComparativoItem("Ticket Promedio", ticket1, ticket2));
+        items.add(buildComparativoItem("Ticket Promedio",
+                ticketPromedio(totalVentas1, cantVentas1), ticketPromedio(totalVentas2, cantVentas2)));
 
         // Margen total
-        BigDecimal margen1 = calculateTotalMargen(ventas1);
-        BigDecimal margen2 = calculateTotalMargen(ventas2);
+        BigDecimal margen1 = calculateTotalMargen(periodo1Desde, periodo1Hasta);
+        BigDecimal margen2 = calculateTotalMargen(periodo2Desde, periodo2Hasta);
         items.add(buildComparativoItem("Margen Total", margen1, margen2));
 
         // Ventas efectivo
-        BigDecimal efectivo1 = ventas1.stream()
-                .filter(v -> v.getMedioPago() == Venta.MedioPago.EFECTIVO)
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal efectivo2 = ventas2.stream()
-                .filter(v -> v.getMedioPago() == Venta.MedioPago.EFECTIVO)
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal efectivo1 = sumarTotal(ventas1, m -> m == Venta.MedioPago.EFECTIVO);
+        BigDecimal efectivo2 = sumarTotal(ventas2, m -> m == Venta.MedioPago.EFECTIVO);
         items.add(buildComparativoItem("Ventas Efectivo", efectivo1, efectivo2));
 
         // Ventas digitales
-        BigDecimal digital1 = ventas1.stream()
-                .filter(v -> v.getMedioPago() != Venta.MedioPago.EFECTIVO && v.getMedioPago() != Venta.MedioPago.FIADO)
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal digital2 = ventas2.stream()
-                .filter(v -> v.getMedioPago() != Venta.MedioPago.EFECTIVO && v.getMedioPago() != Venta.MedioPago.FIADO)
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal digital1 = sumarTotal(ventas1, ReportesService::esDigital);
+        BigDecimal digital2 = sumarTotal(ventas2, ReportesService::esDigital);
         items.add(buildComparativoItem("Ventas Digitales", digital1, digital2));
 
         return new ComparativoDTO(periodo1Desde, periodo1Hasta, periodo2Desde, periodo2Hasta, items);
@@ -667,56 +618,34 @@ public class ReportesService {
         return new ComparativoDTO.ComparativoItemDTO(concepto, p1, p2, diferencia, variacionPorcentaje);
     }
 
-    private BigDecimal calculateTotalMargen(List<Venta> ventas) {
-        return ventas.stream()
-                .flatMap(v -> v.getItems().stream())
-                .filter(item -> item.getProducto() != null)
-                .map(item -> {
-                    BigDecimal precioCosto = item.getProducto().getPrecioCosto() != null
-                            ? item.getProducto().getPrecioCosto() : BigDecimal.ZERO;
-                    BigDecimal costo = item.getCantidad().multiply(precioCosto);
-                    return item.getSubtotal().subtract(costo);
-                })
+    private BigDecimal calculateTotalMargen(LocalDate desde, LocalDate hasta) {
+        return sumarPorProducto(desde, hasta).stream()
+                .map(p -> p.getMonto().subtract(costo(p)))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
     @Transactional(readOnly = true)
     public List<ProductoAbcDTO> getAnalisisABC(LocalDate desde, LocalDate hasta) {
-        List<Venta> ventas = getVentasCompletadas(desde, hasta);
-
-        Map<UUID, BigDecimal> ventasPorProducto = ventas.stream()
-                .flatMap(v -> v.getItems().stream())
-                .filter(item -> item.getProducto() != null)
-                .collect(Collectors.groupingBy(
-                        item -> item.getProducto().getId(),
-                        Collectors.reducing(BigDecimal.ZERO, VentaItem::getSubtotal, BigDecimal::add)
-                ));
+        List<VentasPorProducto> ventasPorProducto = sumarPorProducto(desde, hasta);
 
-        BigDecimal totalVentas = ventasPorProducto.values().stream()
+        BigDecimal totalVentas = ventasPorProducto.stream()
+                .map(VentasPorProducto::getMonto)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         if (totalVentas.compareTo(BigDecimal.ZERO) == 0) {
             return Collections.emptyList();
         }
 
-        // Get product details
-        Map<UUID, Producto> productos = productoRepository.findAllById(ventasPorProducto.keySet()).stream()
-                .collect(Collectors.toMap(Producto::getId, p -> p));
-
         // Sort by sales descending
-        List<Map.Entry<UUID, BigDecimal>> sorted = ventasPorProducto.entrySet().stream()
-                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+        List<VentasPorProducto> sorted = ventasPorProducto.stream()
+                .sorted((a, b) -> b.getMonto().compareTo(a.getMonto()))
                 .collect(Collectors.toList());
 
         List<ProductoAbcDTO> resultado = new ArrayList<>();
         BigDecimal acumulado = BigDecimal.ZERO;
 
-        for (Map.Entry<UUID, BigDecimal> entry : sorted) {
-            UUID productoId = entry.getKey();
-            BigDecimal ventasProducto = entry.getValue();
-            Producto producto = productos.get(productoId);
-
-            if (producto == null) continue;
+        for (VentasPorProducto producto : sorted) {
+            BigDecimal ventasProducto = producto.getMonto();
 
             BigDecimal porcentajeVentas = ventasProducto.multiply(BigDecimal.valueOf(100))
                     .divide(totalVentas, 2, RoundingMode.HALF_UP);
@@ -732,14 +661,10 @@ public class ReportesService {
                 clasificacion = "C";
             }
 
-            String categoriaNombre = producto.getCategoria() != null
-                    ? producto.getCategoria().getNombre()
-                    : "Sin categoría";
-
             resultado.add(new ProductoAbcDTO(
-                    productoId,
+                    producto.getProductoId(),
                     producto.getNombre(),
-                    categoriaNombre,
+                    nombreCategoria(producto),
                     ventasProducto,
                     porcentajeVentas,
                     acumulado,
@@ -755,13 +680,11 @@ public class ReportesService {
         LocalDate hoy = LocalDate.now();
         LocalDate inicioHistorico = hoy.minusDays(30); // Use last 30 days as baseline
 
-        List<Venta> ventasHistoricas = getVentasCompletadas(inicioHistorico, hoy.minusDays(1));
-
         // Calculate average daily sales
-        Map<LocalDate, BigDecimal> ventasPorDia = ventasHistoricas.stream()
+        Map<LocalDate, BigDecimal> ventasPorDia = sumarPorDia(inicioHistorico, hoy.minusDays(1)).stream()
                 .collect(Collectors.groupingBy(
-                        v -> v.getFecha().toLocalDate(),
-                        Collectors.reducing(BigDecimal.ZERO, Venta::getTotal, BigDecimal::add)
+                        ResumenDia::dia,
+                        Collectors.reducing(BigDecimal.ZERO, ResumenDia::total, BigDecimal::add)
                 ));
 
         int diasConDatos = ventasPorDia.size();
@@ -813,13 +736,11 @@ public class ReportesService {
         LocalDate inicioMesAnterior = inicioMesActual.minusMonths(1);
         LocalDate finMesAnterior = inicioMesActual.minusDays(1);
 
-        List<Venta> ventasMesActual = getVentasCompletadas(inicioMesActual, hoy);
-        List<Venta> ventasMesAnterior = getVentasCompletadas(inicioMesAnterior, finMesAnterior);
-
-        BigDecimal totalMesActual = ventasMesActual.stream()
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalMesAnterior = ventasMesAnterior.stream()
-                .map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<ResumenDia> ventasDosMeses = sumarPorDia(inicioMesAnterior, hoy);
+        BigDecimal totalMesActual = sumarTotal(ventasDosMeses.stream()
+                .filter(v -> !v.dia().isBefore(inicioMesActual)).toList(), m -> true);
+        BigDecimal totalMesAnterior = sumarTotal(ventasDosMeses.stream()
+                .filter(v -> v.dia().isBefore(inicioMesActual)).toList(), m -> true);
 
         // Adjust for days elapsed in current month
         int diasMesActual = hoy.getDayOfMonth();
@@ -888,7 +809,7 @@ public class ReportesService {
         }
 
         // Check low stock alerts
-        List<Producto> stockBajo = productoRepository.findByStockBajo();
+        List<UUID> stockBajo = stockProductosService.idsStockBajo();
         if (!stockBajo.isEmpty()) {
             insights.add(new InsightDTO(
                     "INFO",
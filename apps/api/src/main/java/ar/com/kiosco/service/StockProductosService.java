@@ -0,0 +1,194 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory, per-tenant stock counters for active products.
+ *
+ * Stock is kept apart from the cached product views (Redis "productos" and the
+ * catalog snapshot), so sales only touch these counters and the cached price,
+ * name and categoria data survive. Counters are merged into the product DTO
+ * when it is read.
+ *
+ * Sales and anulaciones apply deltas; product edits and lote recalculations set
+ * absolute levels. Both are applied after commit. Counters older than
+ * stock.max-age are reloaded from the database to bound drift between nodes.
+ * Every change is also forwarded to the chain-level aggregates.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockProductosService {
+
+    private final ProductoRepository productoRepository;
+    private final CadenaAgregadosService cadenaAgregadosService;
+
+    @Value("${stock.max-age:30s}")
+    private Duration maxAge = Duration.ofSeconds(30);
+
+    private final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    // Bumped on every change so a reload that raced with a write is discarded
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+
+    public record Nivel(BigDecimal actual, BigDecimal minimo) {
+
+        public boolean bajo() {
+            return actual != null && minimo != null && actual.compareTo(minimo) < 0;
+        }
+    }
+
+    public Optional<Nivel> obtener(UUID productoId) {
+        return Optional.ofNullable(obtenerContadores().niveles().get(productoId));
+    }
+
+    /**
+     * Returns a copy of the DTO with the current stock level.
+     * The given DTO is never modified (it may be shared by the catalog snapshot).
+     */
+    public ProductoDTO conStock(ProductoDTO producto) {
+        if (producto == null) {
+            return null;
+        }
+        Nivel nivel = obtenerContadores().niveles().get(producto.getId());
+        if (nivel == null) {
+            return producto;
+        }
+        return producto.toBuilder()
+                .stockActual(nivel.actual())
+                .stockMinimo(nivel.minimo())
+                .stockBajo(nivel.bajo())
+                .build();
+    }
+
+    public List<ProductoDTO> conStock(List<ProductoDTO> productos) {
+        Map<UUID, Nivel> niveles = obtenerContadores().niveles();
+        return productos.stream()
+                .map(p -> {
+                    Nivel nivel = niveles.get(p.getId());
+                    return nivel == null ? p : p.toBuilder()
+                            .stockActual(nivel.actual())
+                            .stockMinimo(nivel.minimo())
+                            .stockBajo(nivel.bajo())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ids of active products whose stock is below their minimum.
+     */
+    public List<UUID> idsStockBajo() {
+        return obtenerContadores().niveles().entrySet().stream()
+                .filter(e -> e.getValue().bajo())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Registers a relative stock change (sale, anulacion, recepcion).
+     * Applied once the surrounding transaction commits.
+     */
+    public void registrarAjuste(UUID productoId, BigDecimal delta) {
+        String tenant = ProductoCacheService.tenantKey();
+        cadenaAgregadosService.registrarStock(productoId);
+        despuesDelCommit(() -> aplicar(tenant, niveles ->
+                niveles.computeIfPresent(productoId, (id, nivel) ->
+                        new Nivel(nivel.actual().add(delta), nivel.minimo()))));
+    }
+
+    /**
+     * Registers the absolute stock level of a product after it was written.
+     * Inactive products are dropped from the counters.
+     */
+    public void registrarNivel(Producto producto) {
+        String tenant = ProductoCacheService.tenantKey();
+        UUID id = producto.getId();
+        Nivel nivel = nivelDe(producto.getStockActual(), producto.getStockMinimo());
+        boolean activo = Boolean.TRUE.equals(producto.getActivo());
+        cadenaAgregadosService.registrarStock(id);
+        despuesDelCommit(() -> aplicar(tenant, niveles -> {
+            if (activo) {
+                niveles.put(id, nivel);
+            } else {
+                niveles.remove(id);
+            }
+        }));
+    }
+
+    private Contadores obtenerContadores() {
+        String tenant = ProductoCacheService.tenantKey();
+        Contadores actual = contadores.get(tenant);
+        if (actual != null && actual.construidoEn().plus(maxAge).isAfter(Instant.now())) {
+            return actual;
+        }
+
+        long generacionInicial = generacion(tenant).get();
+        ConcurrentHashMap<UUID, Nivel> niveles = new ConcurrentHashMap<>();
+        for (ProductoRepository.NivelStock fila : productoRepository.findNivelesStock()) {
+            niveles.put(fila.getId(), nivelDe(fila.getStockActual(), fila.getStockMinimo()));
+        }
+        Contadores nuevos = new Contadores(niveles, Instant.now());
+        log.debug("Loaded stock counters for tenant {} ({} products)", tenant, niveles.size());
+
+        // Only publish if no write happened while we were reading
+        contadores.compute(tenant, (k, existentes) ->
+                generacion(tenant).get() == generacionInicial ? nuevos : existentes);
+        return nuevos;
+    }
+
+    private void aplicar(String tenant, Consumer<ConcurrentHashMap<UUID, Nivel>> cambio) {
+        generacion(tenant).incrementAndGet();
+        Contadores actuales = contadores.get(tenant);
+        if (actuales != null) {
+            cambio.accept(actuales.niveles());
+        }
+    }
+
+    private AtomicLong generacion(String tenant) {
+        return generaciones.computeIfAbsent(tenant, k -> new AtomicLong());
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    private static Nivel nivelDe(BigDecimal actual, BigDecimal minimo) {
+        return new Nivel(
+                actual != null ? actual : BigDecimal.ZERO,
+                minimo != null ? minimo : BigDecimal.ZERO
+        );
+    }
+
+    private record Contadores(ConcurrentHashMap<UUID, Nivel> niveles, Instant construidoEn) {
+    }
+}
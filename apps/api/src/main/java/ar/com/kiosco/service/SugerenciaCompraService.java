@@ -4,6 +4,7 @@ import ar.com.kiosco.domain.*;
 import ar.com.kiosco.domain.OrdenCompra.EstadoOrdenCompra;
 import ar.com.kiosco.dto.*;
 import ar.com.kiosco.repository.*;
+import ar.com.kiosco.repository.NumeradorRepository.Secuencia;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.jpa.repository.Query;
@@ -25,11 +26,13 @@ public class SugerenciaCompraService {
     private final ProductoProveedorRepository productoProveedorRepository;
     private final VentaRepository ventaRepository;
     private final OrdenCompraRepository ordenCompraRepository;
+    private final NumeradorRepository numeradorRepository;
     private final ProveedorRepository proveedorRepository;
+    private final StockProductosService stockProductosService;
 
     @Transactional(readOnly = true)
     public List<SugerenciaCompraDTO> getSugerenciasPorStockBajo() {
-        List<Producto> productosStockBajo = productoRepository.findByStockBajo();
+        List<Producto> productosStockBajo = productoRepository.findAllById(stockProductosService.idsStockBajo());
 
         return productosStockBajo.stream()
                 .map(this::crearSugerenciaPorStockBajo)
@@ -111,7 +114,7 @@ public class SugerenciaCompraService {
                 .orElseThrow(() -> new EntityNotFoundException("Proveedor no encontrado: " + dto.getProveedorId()));
 
         // Get next order number
-        Integer nextNumero = ordenCompraRepository.findMaxNumero().orElse(0) + 1;
+        Integer nextNumero = numeradorRepository.siguiente(Secuencia.ORDEN_COMPRA);
 
         OrdenCompra orden = OrdenCompra.builder()
                 .numero(nextNumero)
@@ -13,13 +13,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -30,6 +26,7 @@ public class SuscripcionService {
     private final SuscripcionRepository suscripcionRepository;
     private final KioscoRepository kioscoRepository;
     private final PlanRepository planRepository;
+    private final MetadatosKioscoService metadatosKioscoService;
 
     @Transactional(readOnly = true)
     public List<SuscripcionDTO> listarTodas() {
@@ -66,7 +63,6 @@ public class SuscripcionService {
                 .collect(Collectors.toList());
     }
 
-    @CacheEvict(value = "subscriptionStatus", key = "#dto.kioscoId()")
     @Transactional
     public SuscripcionDTO crear(SuscripcionCreateDTO dto) {
         Kiosco kiosco = kioscoRepository.findById(dto.kioscoId())
@@ -101,10 +97,10 @@ public class SuscripcionService {
         kioscoRepository.save(kiosco);
 
         suscripcion = suscripcionRepository.save(suscripcion);
+        invalidateSubscriptionCache(kiosco.getId());
         return SuscripcionDTO.fromEntity(suscripcion);
     }
 
-    @CacheEvict(value = "subscriptionStatus", key = "#kioscoId")
     @Transactional
     public SuscripcionDTO cambiarPlan(UUID kioscoId, UUID nuevoPlanId) {
         Kiosco kiosco = kioscoRepository.findById(kioscoId)
@@ -134,6 +130,7 @@ public class SuscripcionService {
         kioscoRepository.save(kiosco);
 
         nueva = suscripcionRepository.save(nueva);
+        invalidateSubscriptionCache(kioscoId);
         return SuscripcionDTO.fromEntity(nueva);
     }
 
@@ -193,32 +190,17 @@ public class SuscripcionService {
     /**
      * Get subscription status for a kiosco.
      * Used by SubscriptionFilter to validate access.
-     * Cached for performance - invalidated when subscription changes.
+     * Served from the tenant metadata cache - invalidated when subscription changes.
      */
-    @Cacheable(value = "subscriptionStatus", key = "#kioscoId")
-    @Transactional(readOnly = true)
     public Suscripcion.Estado getSubscriptionStatus(UUID kioscoId) {
-        Optional<Suscripcion> suscripcion = suscripcionRepository.findActivaByKioscoId(kioscoId);
-
-        if (suscripcion.isEmpty()) {
-            // Check for trial or vencida status
-            List<Suscripcion> todas = suscripcionRepository.findByKioscoId(kioscoId);
-            if (todas.isEmpty()) {
-                // No subscription at all - return CANCELADA as default "no subscription"
-                return Suscripcion.Estado.CANCELADA;
-            }
-            // Return the most recent subscription status
-            return todas.get(0).getEstado();
-        }
-
-        return suscripcion.get().getEstado();
+        return metadatosKioscoService.getEstadoSuscripcion(kioscoId);
     }
 
     /**
-     * Invalidate subscription status cache for a kiosco.
+     * Invalidate cached subscription status (and the rest of the kiosco metadata)
+     * once the current transaction commits.
      */
-    @CacheEvict(value = "subscriptionStatus", key = "#kioscoId")
     public void invalidateSubscriptionCache(UUID kioscoId) {
-        // Cache eviction only
+        metadatosKioscoService.invalidar(kioscoId);
     }
 }
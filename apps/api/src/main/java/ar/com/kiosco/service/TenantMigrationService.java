@@ -1,38 +1,70 @@
 package ar.com.kiosco.service;
 
+import ar.com.kiosco.config.TenantMigrationScripts;
+import ar.com.kiosco.config.TenantMigrationScripts.Script;
 import ar.com.kiosco.dto.MigrationReportDTO;
 import ar.com.kiosco.dto.MigrationReportDTO.TenantMigrationResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 /**
  * Service for managing tenant schema migrations.
  * Applies migrations from db/tenant/*.sql to all existing tenant schemas.
+ *
+ * The versions of all tenants are read in one catalog query, and the scripts come
+ * parsed from {@link TenantMigrationScripts}. Outdated tenants are
+ * migrated up to tenant-migrations.parallelism at a time, each on its own connection
+ * holding a session advisory lock on the schema, so two app nodes never migrate the
+ * same schema. Each script runs in its own transaction together with its
+ * schema_version row.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TenantMigrationService {
 
-    private static final String TENANT_MIGRATIONS_PATH = "db/tenant/";
     private static final String SCHEMA_PREFIX = "kiosco_";
+    private static final Pattern SCHEMA_NAME = Pattern.compile("^kiosco_[a-z0-9_]+$");
+    private static final String LOCK_NAMESPACE = "tenant_migration";
+
+    /**
+     * Version of every tenant schema in one round trip. Schemas without a
+     * schema_version table (pre-tracking tenants) report 0.
+     */
+    private static final String CURRENT_VERSIONS_SQL = """
+        SELECT s.schema_name,
+               CASE WHEN to_regclass(quote_ident(s.schema_name) || '.schema_version') IS NULL THEN 0
+                    ELSE COALESCE(CAST(CAST((xpath('/row/v/text()', query_to_xml(
+                        format('SELECT MAX(version) AS v FROM %I.schema_version', s.schema_name),
+                        false, true, '')))[1] AS text) AS int), 0)
+               END AS version
+        FROM information_schema.schemata s
+        WHERE s.schema_name LIKE ?
+        ORDER BY s.schema_name
+        """;
 
     private final JdbcTemplate jdbcTemplate;
 
+    @Value("${tenant-migrations.parallelism:4}")
+    private int parallelism = 4;
+
     /**
      * Lists all tenant schemas (kiosco_*).
      */
@@ -44,6 +76,17 @@ public class TenantMigrationService {
         );
     }
 
+    /**
+     * Gets the current schema version of every tenant, in schema name order.
+     */
+    public Map<String, Integer> getCurrentVersions() {
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CURRENT_VERSIONS_SQL, SCHEMA_PREFIX + "%")) {
+            versions.put((String) row.get("schema_name"), ((Number) row.get("version")).intValue());
+        }
+        return versions;
+    }
+
     /**
      * Gets the current schema version for a tenant.
      * Returns 0 if schema_version table doesn't exist.
@@ -66,11 +109,7 @@ public class TenantMigrationService {
      */
     public int getLatestAvailableVersion() {
         try {
-            Resource[] resources = loadMigrationResources();
-            return Arrays.stream(resources)
-                .map(r -> extractVersion(r.getFilename()))
-                .max(Integer::compareTo)
-                .orElse(0);
+            return TenantMigrationScripts.latestVersion();
         } catch (IOException e) {
             log.error("Failed to load migration resources", e);
             return 0;
@@ -81,45 +120,58 @@ public class TenantMigrationService {
      * Lists tenants that have pending migrations.
      */
     public List<String> getOutdatedTenants() {
-        int latestVersion = getLatestAvailableVersion();
-        List<String> schemas = listTenantSchemas();
-
-        return schemas.stream()
-            .filter(schema -> getCurrentVersion(schema) < latestVersion)
-            .toList();
+        return outdated(getCurrentVersions(), getLatestAvailableVersion());
     }
 
     /**
      * Applies pending migrations to a single tenant.
+     * The version is re-read under the schema lock, so a tenant migrated meanwhile
+     * by another node is skipped.
      * @return TenantMigrationResult with details
      */
     public TenantMigrationResult migrateTenant(String schemaName) {
-        int previousVersion = getCurrentVersion(schemaName);
+        if (schemaName == null || !SCHEMA_NAME.matcher(schemaName).matches()) {
+            return TenantMigrationResult.failure(schemaName, 0, "Invalid tenant schema name");
+        }
 
-        try {
-            Resource[] resources = loadMigrationResources();
-            List<Resource> pendingMigrations = getPendingMigrations(resources, previousVersion);
+        int previousVersion = 0;
+        try (Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+             Statement stmt = connection.createStatement()) {
 
-            if (pendingMigrations.isEmpty()) {
-                log.info("Schema {} is up to date (version {})", schemaName, previousVersion);
-                return TenantMigrationResult.skipped(schemaName, previousVersion);
+            if (!tryLock(stmt, schemaName)) {
+                log.info("Schema {} is being migrated by another node, skipping", schemaName);
+                return TenantMigrationResult.locked(schemaName, getCurrentVersion(schemaName));
             }
+            try {
+                // Set search_path to tenant schema (session level, survives the commits below)
+                stmt.execute("SET search_path TO " + schemaName);
+                log.debug("Set search_path to {}", schemaName);
+
+                // Ensure schema_version table exists (for tenants predating version tracking)
+                ensureSchemaVersionTable(stmt, schemaName);
+                previousVersion = readVersion(stmt);
+
+                List<Script> pendingMigrations = getPendingMigrations(TenantMigrationScripts.all(), previousVersion);
+                if (pendingMigrations.isEmpty()) {
+                    log.info("Schema {} is up to date (version {})", schemaName, previousVersion);
+                    return TenantMigrationResult.skipped(schemaName, previousVersion);
+                }
 
-            log.info("Applying {} migrations to schema {} (from version {})",
-                pendingMigrations.size(), schemaName, previousVersion);
+                log.info("Applying {} migrations to schema {} (from version {})",
+                    pendingMigrations.size(), schemaName, previousVersion);
 
-            Connection connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
-            try {
-                applyMigrations(connection, schemaName, pendingMigrations);
-            } finally {
-                connection.close();
-            }
+                applyMigrations(connection, stmt, schemaName, pendingMigrations);
 
-            int newVersion = getCurrentVersion(schemaName);
-            log.info("Successfully migrated schema {} from version {} to {}",
-                schemaName, previousVersion, newVersion);
+                int newVersion = readVersion(stmt);
+                log.info("Successfully migrated schema {} from version {} to {}",
+                    schemaName, previousVersion, newVersion);
 
-            return TenantMigrationResult.success(schemaName, previousVersion, newVersion, pendingMigrations.size());
+                return TenantMigrationResult.success(schemaName, previousVersion, newVersion, pendingMigrations.size());
+            } finally {
+                // Reset search_path and release the lock before the connection goes back to the pool
+                stmt.execute("SET search_path TO public");
+                unlock(stmt, schemaName);
+            }
 
         } catch (Exception e) {
             log.error("Failed to migrate schema {}: {}", schemaName, e.getMessage(), e);
@@ -128,33 +180,67 @@ public class TenantMigrationService {
     }
 
     /**
-     * Applies pending migrations to ALL tenant schemas.
-     * @return MigrationReportDTO with full results
+     * Applies pending migrations to ALL tenant schemas, up to
+     * tenant-migrations.parallelism at a time. Up-to-date tenants are reported as
+     * skipped without opening a connection.
+     * @return MigrationReportDTO with full results (in schema order)
      */
     public MigrationReportDTO migrateAllTenants() {
         Instant start = Instant.now();
-        List<String> schemas = listTenantSchemas();
+        Map<String, Integer> versions = getCurrentVersions();
+        List<String> outdated = outdated(versions, getLatestAvailableVersion());
+        int threads = Math.max(1, Math.min(parallelism, outdated.size()));
         List<TenantMigrationResult> results = new ArrayList<>();
 
         int successful = 0;
         int failed = 0;
         int skipped = 0;
 
-        log.info("Starting migration of {} tenant schemas", schemas.size());
+        log.info("Starting migration of {} tenant schemas ({} outdated, {} at a time)",
+            versions.size(), outdated.size(), threads);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tenant-migration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<TenantMigrationResult>> futures = new HashMap<>();
+            for (String schema : outdated) {
+                futures.put(schema, executor.submit(() -> migrateTenant(schema)));
+            }
 
-        for (String schema : schemas) {
-            TenantMigrationResult result = migrateTenant(schema);
-            results.add(result);
+            for (Map.Entry<String, Integer> entry : versions.entrySet()) {
+                String schema = entry.getKey();
+                Future<TenantMigrationResult> future = futures.get(schema);
+                TenantMigrationResult result;
+                if (future == null) {
+                    result = TenantMigrationResult.skipped(schema, entry.getValue());
+                } else {
+                    try {
+                        result = future.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        result = TenantMigrationResult.failure(schema, entry.getValue(), "Interrupted");
+                    } catch (Exception e) {
+                        result = TenantMigrationResult.failure(schema, entry.getValue(), e.getMessage());
+                    }
+                }
+                results.add(result);
 
-            if (result.success()) {
-                if (result.migrationsApplied() > 0) {
-                    successful++;
+                if (result.success()) {
+                    if (result.migrationsApplied() > 0) {
+                        successful++;
+                    } else {
+                        skipped++;
+                    }
                 } else {
-                    skipped++;
+                    failed++;
                 }
-            } else {
-                failed++;
             }
+        } finally {
+            executor.shutdownNow();
         }
 
         Duration duration = Duration.between(start, Instant.now());
@@ -164,7 +250,7 @@ public class TenantMigrationService {
             successful, skipped, failed, durationStr);
 
         return new MigrationReportDTO(
-            schemas.size(),
+            versions.size(),
             successful,
             failed,
             skipped,
@@ -184,79 +270,87 @@ public class TenantMigrationService {
      * Gets a summary of pending migrations.
      */
     public Map<String, Object> getPendingMigrationsSummary() {
-        List<String> outdated = getOutdatedTenants();
+        Map<String, Integer> versions = getCurrentVersions();
         int latestVersion = getLatestAvailableVersion();
+        List<String> outdated = outdated(versions, latestVersion);
 
         return Map.of(
-            "totalTenants", listTenantSchemas().size(),
+            "totalTenants", versions.size(),
             "outdatedTenants", outdated.size(),
             "latestVersion", latestVersion,
             "outdatedSchemas", outdated.size() > 10 ? outdated.subList(0, 10) : outdated
         );
     }
 
-    // ============ Private Methods ============
-
-    private Resource[] loadMigrationResources() throws IOException {
-        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-        Resource[] resources = resolver.getResources("classpath:" + TENANT_MIGRATIONS_PATH + "V*.sql");
+    /**
+     * Tenants of the given version map that are behind latestVersion, in map order.
+     */
+    public List<String> outdated(Map<String, Integer> versions, int latestVersion) {
+        return versions.entrySet().stream()
+            .filter(e -> e.getValue() < latestVersion)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
 
-        // Sort by version number
-        Arrays.sort(resources, Comparator.comparing(r -> extractVersion(r.getFilename())));
+    // ============ Private Methods ============
 
-        return resources;
+    private List<Script> getPendingMigrations(List<Script> available, int currentVersion) {
+        return available.stream()
+            .filter(m -> m.version() > currentVersion)
+            .toList();
     }
 
-    private int extractVersion(String filename) {
-        if (filename != null && filename.startsWith("V")) {
-            try {
-                return Integer.parseInt(filename.split("__")[0].substring(1));
-            } catch (NumberFormatException e) {
-                return Integer.MAX_VALUE;
-            }
+    private boolean tryLock(Statement stmt, String schemaName) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(String.format(
+                "SELECT pg_try_advisory_lock(hashtext('%s'), hashtext('%s'))", LOCK_NAMESPACE, schemaName))) {
+            return rs.next() && rs.getBoolean(1);
         }
-        return Integer.MAX_VALUE;
     }
 
-    private List<Resource> getPendingMigrations(Resource[] resources, int currentVersion) {
-        return Arrays.stream(resources)
-            .filter(r -> extractVersion(r.getFilename()) > currentVersion)
-            .toList();
+    private void unlock(Statement stmt, String schemaName) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(String.format(
+                "SELECT pg_advisory_unlock(hashtext('%s'), hashtext('%s'))", LOCK_NAMESPACE, schemaName))) {
+            rs.next();
+        }
     }
 
-    private void applyMigrations(Connection connection, String schemaName, List<Resource> migrations)
-            throws SQLException, IOException {
-
-        try (Statement stmt = connection.createStatement()) {
-            // Set search_path to tenant schema
-            stmt.execute("SET search_path TO " + schemaName);
-            log.debug("Set search_path to {}", schemaName);
-
-            // Ensure schema_version table exists (for tenants predating version tracking)
-            ensureSchemaVersionTable(stmt, schemaName);
+    private int readVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
 
-            // Apply each migration
-            for (Resource migration : migrations) {
-                int version = extractVersion(migration.getFilename());
-                String description = migration.getFilename();
+    private void applyMigrations(Connection connection, Statement stmt, String schemaName, List<Script> migrations)
+            throws SQLException {
 
-                log.info("Applying migration {} to schema {}", description, schemaName);
+        connection.setAutoCommit(false);
+        try {
+            // Apply each migration in its own transaction, so a failing script leaves no half-applied DDL
+            for (Script migration : migrations) {
+                log.info("Applying migration {} to schema {}", migration.filename(), schemaName);
 
-                String sql = StreamUtils.copyToString(migration.getInputStream(), StandardCharsets.UTF_8);
-                executeSqlStatements(stmt, sql);
+                try {
+                    for (String statement : migration.statements()) {
+                        stmt.execute(statement);
+                    }
 
-                // Record the migration
-                stmt.executeUpdate(String.format(
-                    "INSERT INTO schema_version (version, description) VALUES (%d, '%s') " +
-                    "ON CONFLICT (version) DO NOTHING",
-                    version, description.replace("'", "''")
-                ));
+                    // Record the migration
+                    stmt.executeUpdate(String.format(
+                        "INSERT INTO schema_version (version, description) VALUES (%d, '%s') " +
+                        "ON CONFLICT (version) DO NOTHING",
+                        migration.version(), migration.filename().replace("'", "''")
+                    ));
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
 
-                log.debug("Recorded migration version {} in schema_version", version);
+                log.debug("Recorded migration version {} in schema_version", migration.version());
             }
-
-            // Reset search_path
-            stmt.execute("SET search_path TO public");
+        } finally {
+            connection.setAutoCommit(true);
         }
     }
 
@@ -297,49 +391,6 @@ public class TenantMigrationService {
         }
     }
 
-    private void executeSqlStatements(Statement stmt, String sql) throws SQLException {
-        // Parse and execute SQL statements (same logic as TenantSchemaManager)
-        StringBuilder currentStatement = new StringBuilder();
-        boolean inStatement = false;
-
-        for (String line : sql.split("\n")) {
-            String trimmedLine = line.trim();
-
-            // Skip empty lines and comment-only lines when not in a statement
-            if (!inStatement && (trimmedLine.isEmpty() || trimmedLine.startsWith("--"))) {
-                continue;
-            }
-
-            // Start a new statement if we see non-empty, non-comment content
-            if (!inStatement && !trimmedLine.isEmpty() && !trimmedLine.startsWith("--")) {
-                inStatement = true;
-                currentStatement = new StringBuilder();
-            }
-
-            if (inStatement) {
-                // Remove inline comments but keep the line
-                int commentIdx = line.indexOf("--");
-                String cleanLine = (commentIdx >= 0) ? line.substring(0, commentIdx) : line;
-                currentStatement.append(cleanLine).append("\n");
-
-                // Check if statement is complete
-                String lineForCheck = cleanLine.trim();
-                if (lineForCheck.endsWith(";")) {
-                    String finalStatement = currentStatement.toString().trim();
-                    // Remove trailing semicolon
-                    if (finalStatement.endsWith(";")) {
-                        finalStatement = finalStatement.substring(0, finalStatement.length() - 1).trim();
-                    }
-                    if (!finalStatement.isEmpty()) {
-                        stmt.execute(finalStatement);
-                    }
-                    inStatement = false;
-                    currentStatement = new StringBuilder();
-                }
-            }
-        }
-    }
-
     private String formatDuration(Duration duration) {
         long seconds = duration.getSeconds();
         if (seconds < 60) {
@@ -0,0 +1,115 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository.Contadores;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Per-kiosco monthly usage counters (sales, amount, active products) used by plan limits
+ * and the admin panel.
+ *
+ * Sales and products update the counters in the same transaction that writes them, so
+ * plan checks read one row instead of counting the tenant's data. Call the registrar*
+ * methods before the change is written to the tenant schema: a month without a row is
+ * seeded from the tenant tables first, and the change is then applied on top.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UsoMensualService {
+
+    private final UsoMensualContadorRepository contadorRepository;
+    private final KioscoRepository kioscoRepository;
+    private final TenantSchemaManager tenantSchemaManager;
+
+    public void registrarVenta(UUID kioscoId, Venta venta) {
+        aplicar(kioscoId, YearMonth.from(venta.getFecha()), 1, venta.getTotal(), 0);
+    }
+
+    /**
+     * Adds a batch of sales with one update per month they were made in.
+     */
+    public void registrarVentas(UUID kioscoId, Collection<Venta> ventas) {
+        Map<YearMonth, List<Venta>> porMes = ventas.stream()
+                .collect(Collectors.groupingBy(venta -> YearMonth.from(venta.getFecha())));
+        porMes.forEach((mes, delMes) -> aplicar(kioscoId, mes, delMes.size(),
+                delMes.stream().map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add), 0));
+    }
+
+    /**
+     * Subtracts an anulada sale from the month it was made in.
+     */
+    public void registrarAnulacion(UUID kioscoId, Venta venta) {
+        aplicar(kioscoId, YearMonth.from(venta.getFecha()), -1, venta.getTotal().negate(), 0);
+    }
+
+    public void registrarAltaProducto(UUID kioscoId) {
+        aplicar(kioscoId, YearMonth.now(), 0, BigDecimal.ZERO, 1);
+    }
+
+    public void registrarBajaProducto(UUID kioscoId) {
+        aplicar(kioscoId, YearMonth.now(), 0, BigDecimal.ZERO, -1);
+    }
+
+    /**
+     * Counters of the current month, seeding them on first use.
+     */
+    @Transactional
+    public Contadores getContadores(UUID kioscoId) {
+        YearMonth mes = YearMonth.now();
+        return contadorRepository.find(kioscoId, mes).orElseGet(() -> {
+            contadorRepository.sembrar(kioscoId, mes, tenantSchemaManager.getSchemaName(kioscoId));
+            return contadorRepository.find(kioscoId, mes).orElseThrow();
+        });
+    }
+
+    /**
+     * Recounts the current month of every active kiosco from its tenant schema,
+     * correcting any drift (manual fixes, restores, failed deploys).
+     * @return number of kioscos reconciled
+     */
+    public int reconciliarTodos() {
+        YearMonth mes = YearMonth.now();
+        int reconciliados = 0;
+        for (Kiosco kiosco : kioscoRepository.findAll()) {
+            if (!Boolean.TRUE.equals(kiosco.getActivo())) {
+                continue;
+            }
+            String schema = tenantSchemaManager.getSchemaName(kiosco.getId());
+            try {
+                if (tenantSchemaManager.schemaExists(schema)) {
+                    contadorRepository.reconciliar(kiosco.getId(), mes, schema);
+                    reconciliados++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to reconcile usage counters for {}: {}", schema, e.getMessage());
+            }
+        }
+        return reconciliados;
+    }
+
+    private void aplicar(UUID kioscoId, YearMonth mes, int ventas, BigDecimal monto, int productos) {
+        if (kioscoId == null) {
+            return;
+        }
+        if (!contadorRepository.sumar(kioscoId, mes, ventas, monto, productos)) {
+            contadorRepository.sembrar(kioscoId, mes, tenantSchemaManager.getSchemaName(kioscoId));
+            contadorRepository.sumar(kioscoId, mes, ventas, monto, productos);
+        }
+    }
+}
@@ -8,36 +8,66 @@ import ar.com.kiosco.domain.VentaItem;
 import ar.com.kiosco.dto.VentaCreateDTO;
 import ar.com.kiosco.dto.VentaDTO;
 import ar.com.kiosco.dto.VentaItemCreateDTO;
+import ar.com.kiosco.dto.VentaOfflineResultadoDTO;
 import ar.com.kiosco.repository.ClienteRepository;
+import ar.com.kiosco.repository.NumeradorRepository;
+import ar.com.kiosco.repository.NumeradorRepository.Secuencia;
 import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.repository.ProductoStockRepository;
 import ar.com.kiosco.repository.VentaRepository;
+import ar.com.kiosco.repository.VentasResumenRepository;
 import ar.com.kiosco.security.KioscoContext;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class VentaService {
 
     private final VentaRepository ventaRepository;
+    private final VentasResumenRepository ventasResumenRepository;
     private final ProductoRepository productoRepository;
+    private final ProductoStockRepository productoStockRepository;
     private final ClienteRepository clienteRepository;
+    private final NumeradorRepository numeradorRepository;
     private final CuentaCorrienteService cuentaCorrienteService;
     private final LoteService loteService;
     private final PlanLimitService planLimitService;
+    private final UsoMensualService usoMensualService;
     private final AuditService auditService;
+    private final StockProductosService stockProductosService;
+    private final CadenaAgregadosService cadenaAgregadosService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${ventas.lote.chunk:100}")
+    private int loteChunk = 100;
 
     @Transactional(readOnly = true)
     public VentaDTO obtenerPorId(UUID id) {
@@ -59,15 +89,209 @@ public class VentaService {
 
     @Transactional(readOnly = true)
     public Integer obtenerProximoNumero() {
-        return ventaRepository.getProximoNumero();
+        return numeradorRepository.proximo(Secuencia.VENTA);
     }
 
-    @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
+    /**
+     * Books a sale. A retry with the claveIdempotencia of a sale already booked returns
+     * that sale; if a concurrent retry books it first, the unique index on the key
+     * (idx_ventas_clave_idempotencia) rejects this insert and the winner is returned.
+     */
     public VentaDTO crear(VentaCreateDTO dto) {
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> registrar(dto));
+        } catch (DataIntegrityViolationException e) {
+            if (dto.getClaveIdempotencia() == null) {
+                throw e;
+            }
+            // The failed transaction is gone: read the sale that won the key in a new one
+            TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+            lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            lectura.setReadOnly(true);
+            return lectura.execute(status -> ventaRepository.findByClaveIdempotencia(dto.getClaveIdempotencia())
+                            .map(VentaDTO::fromEntity))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private VentaDTO registrar(VentaCreateDTO dto) {
+        // A retry of a sale already booked returns it instead of booking it again
+        if (dto.getClaveIdempotencia() != null) {
+            Optional<Venta> existente = ventaRepository.findByClaveIdempotencia(dto.getClaveIdempotencia());
+            if (existente.isPresent()) {
+                return VentaDTO.fromEntity(existente.get());
+            }
+        }
+
         // Validate plan limit before creating sale
         planLimitService.validateCanCreateVenta(KioscoContext.getCurrentKioscoId());
 
+        // Load every referenced product in one query
+        Map<UUID, Producto> productos = cargarProductosParaVenta(dto.getItems());
+
+        VentaArmada armada = armarVenta(dto, LocalDateTime.now(), productos, Map.of());
+        Venta venta = armada.venta();
+        venta.setNumero(numeradorRepository.siguiente(Secuencia.VENTA));
+
+        descontarStock(armada.cantidades(), productos);
+        validarFiado(venta, BigDecimal.ZERO);
+
+        venta = ventaRepository.save(venta);
+
+        // Plan usage counter (before the rollups: a new month is seeded from them)
+        usoMensualService.registrarVenta(KioscoContext.getCurrentKioscoId(), venta);
+
+        // Daily/hourly/product rollups and last-sale dates read by the reports
+        ventasResumenRepository.sumar(venta);
+        productoStockRepository.registrarVenta(productos.keySet(), venta.getFecha());
+        cadenaAgregadosService.registrarVenta(venta.getFecha().toLocalDate());
+
+        registrarCargoFiado(venta);
+
+        // Audit log
+        auditService.logCreate(AuditLog.EntityType.VENTA.name(), venta.getId(), VentaDTO.fromEntity(venta));
+
+        return VentaDTO.fromEntity(venta);
+    }
+
+    /**
+     * Books the sales an offline terminal queued, in transactions of ventas.lote.chunk sales.
+     *
+     * A chunk shares the idempotency lookup, product loading, numbering, stock decrements
+     * and rollup updates, so its cost grows with the distinct products and days rather
+     * than with the number of sales. Sales already booked (same claveIdempotencia) come
+     * back as DUPLICADA; sales that fail validation (stock, medio de pago, credit, the
+     * plan's monthly sales limit) as RECHAZADA without stopping the rest. If a chunk conflicts with a concurrent write
+     * it is rolled back and retried one sale per transaction.
+     * @return one result per sale, in request order
+     */
+    public List<VentaOfflineResultadoDTO> crearLote(List<VentaCreateDTO> ventas) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<VentaOfflineResultadoDTO> resultados = new ArrayList<>(ventas.size());
+        for (int desde = 0; desde < ventas.size(); desde += loteChunk) {
+            List<VentaCreateDTO> chunk = ventas.subList(desde, Math.min(desde + loteChunk, ventas.size()));
+            try {
+                resultados.addAll(tx.execute(status -> registrarLote(chunk)));
+            } catch (RuntimeException e) {
+                if (chunk.size() == 1) {
+                    resultados.add(VentaOfflineResultadoDTO.rechazada(chunk.get(0).getClaveIdempotencia(), e.getMessage()));
+                    continue;
+                }
+                log.warn("Offline batch chunk of {} sales rolled back, retrying one by one: {}",
+                        chunk.size(), e.getMessage());
+                for (VentaCreateDTO dto : chunk) {
+                    try {
+                        resultados.addAll(tx.execute(status -> registrarLote(List.of(dto))));
+                    } catch (RuntimeException ex) {
+                        resultados.add(VentaOfflineResultadoDTO.rechazada(dto.getClaveIdempotencia(), ex.getMessage()));
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    private List<VentaOfflineResultadoDTO> registrarLote(List<VentaCreateDTO> dtos) {
+        UUID kioscoId = KioscoContext.getCurrentKioscoId();
+
+        // Sales already booked, by key (sales of this chunk are added as they are built)
+        Set<UUID> claves = dtos.stream()
+                .map(VentaCreateDTO::getClaveIdempotencia)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, Venta> porClave = claves.isEmpty() ? new HashMap<>() : ventaRepository.findByClaveIdempotenciaIn(claves)
+                .stream()
+                .collect(Collectors.toMap(Venta::getClaveIdempotencia, Function.identity()));
+
+        Map<UUID, Producto> productos = cargarProductos(dtos.stream()
+                .filter(dto -> !porClave.containsKey(dto.getClaveIdempotencia()))
+                .flatMap(dto -> dto.getItems().stream())
+                .map(VentaItemCreateDTO::getProductoId)
+                .collect(Collectors.toSet()));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        Map<UUID, BigDecimal> solicitado = new HashMap<>();
+        Map<UUID, BigDecimal> fiadoPorCliente = new HashMap<>();
+        List<Venta> nuevas = new ArrayList<>();
+        List<FilaLote> filas = new ArrayList<>(dtos.size());
+
+        for (VentaCreateDTO dto : dtos) {
+            UUID clave = dto.getClaveIdempotencia();
+            if (clave == null) {
+                filas.add(new FilaLote(null, null, null, "Falta la clave de idempotencia"));
+                continue;
+            }
+            Venta existente = porClave.get(clave);
+            if (existente != null) {
+                filas.add(new FilaLote(clave, VentaOfflineResultadoDTO.Estado.DUPLICADA, existente, null));
+                continue;
+            }
+            try {
+                VentaArmada armada = armarVenta(dto, fechaOffline(dto, ahora), productos, solicitado);
+                Venta venta = armada.venta();
+                if (venta.getEsFiado()) {
+                    UUID clienteId = venta.getCliente().getId();
+                    BigDecimal yaFiado = fiadoPorCliente.getOrDefault(clienteId, BigDecimal.ZERO);
+                    validarFiado(venta, yaFiado);
+                    fiadoPorCliente.put(clienteId, yaFiado.add(venta.getTotal()));
+                }
+                armada.cantidades().forEach((id, cantidad) -> solicitado.merge(id, cantidad, BigDecimal::add));
+                porClave.put(clave, venta);
+                nuevas.add(venta);
+                filas.add(new FilaLote(clave, VentaOfflineResultadoDTO.Estado.CREADA, venta, null));
+            } catch (EntityNotFoundException | IllegalArgumentException | IllegalStateException e) {
+                filas.add(new FilaLote(clave, null, null, e.getMessage()));
+            }
+        }
+
+        if (!nuevas.isEmpty()) {
+            // The whole chunk counts against the monthly limit; on overflow the one-by-one
+            // retry books sales up to the limit and rejects the rest
+            planLimitService.validateCanCreateVentas(kioscoId, nuevas.size());
+
+            List<Integer> numeros = numeradorRepository.siguientes(Secuencia.VENTA, nuevas.size());
+            for (int i = 0; i < nuevas.size(); i++) {
+                nuevas.get(i).setNumero(numeros.get(i));
+            }
+
+            descontarStock(solicitado, productos);
+            ventaRepository.saveAll(nuevas);
+            usoMensualService.registrarVentas(kioscoId, nuevas);
+            ventasResumenRepository.sumar(nuevas);
+
+            Map<UUID, LocalDateTime> ultimaVenta = new HashMap<>();
+            for (Venta venta : nuevas) {
+                for (VentaItem item : venta.getItems()) {
+                    ultimaVenta.merge(item.getProducto().getId(), venta.getFecha(),
+                            (a, b) -> a.isAfter(b) ? a : b);
+                }
+            }
+            productoStockRepository.registrarVentas(ultimaVenta);
+            nuevas.stream()
+                    .map(venta -> venta.getFecha().toLocalDate())
+                    .distinct()
+                    .forEach(cadenaAgregadosService::registrarVenta);
+
+            for (Venta venta : nuevas) {
+                registrarCargoFiado(venta);
+                auditService.logCreate(AuditLog.EntityType.VENTA.name(), venta.getId(), VentaDTO.fromEntity(venta));
+            }
+        }
+
+        return filas.stream()
+                .map(fila -> fila.error() != null
+                        ? VentaOfflineResultadoDTO.rechazada(fila.clave(), fila.error())
+                        : VentaOfflineResultadoDTO.de(fila.clave(), fila.estado(), fila.venta()))
+                .toList();
+    }
+
+    /**
+     * Builds the sale and its items without writing anything. Stock is checked against
+     * the loaded level minus {@code yaSolicitado} (earlier sales of the same batch); the
+     * conditional UPDATE in {@link #descontarStock} stays authoritative.
+     */
+    private VentaArmada armarVenta(VentaCreateDTO dto, LocalDateTime fecha, Map<UUID, Producto> productos,
+                                   Map<UUID, BigDecimal> yaSolicitado) {
         // Validate medio de pago
         Venta.MedioPago medioPago;
         try {
@@ -89,31 +313,35 @@ public class VentaService {
             throw new IllegalArgumentException("Para fiar es necesario seleccionar un cliente");
         }
 
-        // Create venta
         Venta venta = Venta.builder()
-                .numero(ventaRepository.getProximoNumero())
-                .fecha(LocalDateTime.now())
+                .fecha(fecha)
                 .cliente(cliente)
                 .esFiado(esFiado)
                 .medioPago(medioPago)
                 .descuento(dto.getDescuento() != null ? dto.getDescuento() : BigDecimal.ZERO)
                 .estado(Venta.EstadoVenta.COMPLETADA)
+                .claveIdempotencia(dto.getClaveIdempotencia())
                 .build();
 
         BigDecimal subtotal = BigDecimal.ZERO;
 
-        // Process items
+        // Quantity per product requested by this sale
+        Map<UUID, BigDecimal> cantidades = new HashMap<>();
+
         for (VentaItemCreateDTO itemDto : dto.getItems()) {
-            Producto producto = productoRepository.findById(itemDto.getProductoId())
-                    .orElseThrow(() -> new EntityNotFoundException(
-                            "Producto no encontrado: " + itemDto.getProductoId()));
+            Producto producto = productos.get(itemDto.getProductoId());
+            if (producto == null) {
+                throw new EntityNotFoundException("Producto no encontrado: " + itemDto.getProductoId());
+            }
 
-            // Validate stock
-            if (producto.getStockActual().compareTo(itemDto.getCantidad()) < 0) {
+            // Validate stock (early, readable error; the conditional UPDATE is authoritative)
+            BigDecimal totalSolicitado = cantidades.merge(producto.getId(), itemDto.getCantidad(), BigDecimal::add)
+                    .add(yaSolicitado.getOrDefault(producto.getId(), BigDecimal.ZERO));
+            if (producto.getStockActual().compareTo(totalSolicitado) < 0) {
                 throw new IllegalStateException(
                         "Stock insuficiente para " + producto.getNombre() +
                         ". Disponible: " + producto.getStockActual() +
-                        ", Solicitado: " + itemDto.getCantidad());
+                        ", Solicitado: " + totalSolicitado);
             }
 
             // Calculate item subtotal
@@ -121,67 +349,116 @@ public class VentaService {
                     .multiply(itemDto.getCantidad());
             subtotal = subtotal.add(itemSubtotal);
 
-            // Create venta item
-            VentaItem item = VentaItem.builder()
+            venta.addItem(VentaItem.builder()
                     .producto(producto)
                     .cantidad(itemDto.getCantidad())
                     .precioUnitario(producto.getPrecioVenta())
                     .subtotal(itemSubtotal)
                     .productoNombre(producto.getNombre())
                     .productoCodigo(producto.getCodigo())
-                    .build();
-
-            venta.addItem(item);
-
-            // Deduct stock (FEFO for products with expiration control)
-            if (Boolean.TRUE.equals(producto.getControlaVencimiento())) {
-                loteService.descontarStock(producto.getId(), itemDto.getCantidad());
-            } else {
-                producto.setStockActual(producto.getStockActual().subtract(itemDto.getCantidad()));
-                productoRepository.save(producto);
-            }
+                    .build());
         }
 
         // Set totals
         venta.setSubtotal(subtotal);
-        BigDecimal descuento = venta.getDescuento();
-        BigDecimal total = subtotal.subtract(descuento);
+        BigDecimal total = subtotal.subtract(venta.getDescuento());
         venta.setTotal(total);
 
-        // Validate credit limit for fiado
-        if (esFiado) {
-            if (!cuentaCorrienteService.puedeTomarFiado(cliente.getId(), total)) {
-                throw new IllegalStateException(
-                        "El cliente no tiene credito disponible para fiar este monto");
-            }
-        }
-
         // Set payment info
         if (medioPago == Venta.MedioPago.EFECTIVO && dto.getMontoRecibido() != null) {
             venta.setMontoRecibido(dto.getMontoRecibido());
             venta.setVuelto(dto.getMontoRecibido().subtract(total));
         }
 
-        venta = ventaRepository.save(venta);
+        return new VentaArmada(venta, cantidades);
+    }
+
+    /**
+     * Deducts stock: FEFO over lotes for products with expiration control, and one
+     * check-and-decrement statement per plain product, so concurrent sales can't oversell.
+     */
+    private void descontarStock(Map<UUID, BigDecimal> cantidades, Map<UUID, Producto> productos) {
+        Map<UUID, BigDecimal> descuentos = new HashMap<>();
+        new TreeMap<>(cantidades).forEach((productoId, cantidad) -> {
+            if (Boolean.TRUE.equals(productos.get(productoId).getControlaVencimiento())) {
+                loteService.descontarStock(productoId, cantidad);
+            } else {
+                descuentos.put(productoId, cantidad);
+            }
+        });
+
+        List<UUID> sinStock = productoStockRepository.descontar(descuentos);
+        if (!sinStock.isEmpty()) {
+            Producto producto = productos.get(sinStock.get(0));
+            throw new IllegalStateException(
+                    "Stock insuficiente para " + producto.getNombre() +
+                    ". Solicitado: " + descuentos.get(producto.getId()));
+        }
+        descuentos.forEach((productoId, cantidad) ->
+                stockProductosService.registrarAjuste(productoId, cantidad.negate()));
+    }
+
+    /**
+     * Validates the credit limit of a fiado sale, on top of {@code yaFiado} from the same batch.
+     */
+    private void validarFiado(Venta venta, BigDecimal yaFiado) {
+        if (venta.getEsFiado()
+                && !cuentaCorrienteService.puedeTomarFiado(venta.getCliente().getId(), yaFiado.add(venta.getTotal()))) {
+            throw new IllegalStateException(
+                    "El cliente no tiene credito disponible para fiar este monto");
+        }
+    }
 
-        // Register charge to cuenta corriente for fiado
-        if (esFiado) {
+    private void registrarCargoFiado(Venta venta) {
+        if (venta.getEsFiado()) {
             cuentaCorrienteService.registrarCargo(
-                    cliente.getId(),
-                    total,
+                    venta.getCliente().getId(),
+                    venta.getTotal(),
                     venta.getId(),
                     "Venta #" + venta.getNumero()
             );
         }
+    }
 
-        // Audit log
-        auditService.logCreate(AuditLog.EntityType.VENTA.name(), venta.getId(), VentaDTO.fromEntity(venta));
+    /**
+     * Time the terminal recorded the sale, never later than now.
+     */
+    private static LocalDateTime fechaOffline(VentaCreateDTO dto, LocalDateTime ahora) {
+        if (dto.getFecha() == null) {
+            return ahora;
+        }
+        LocalDateTime fecha = LocalDateTime.ofInstant(dto.getFecha(), ZoneId.systemDefault());
+        return fecha.isAfter(ahora) ? ahora : fecha;
+    }
 
-        return VentaDTO.fromEntity(venta);
+    /**
+     * Loads all products of a sale in one query. Plain products are not locked: their
+     * stock is changed with conditional UPDATEs. Products with lote control are
+     * row-locked (in id order), since FEFO deduction reads and rewrites their lotes.
+     */
+    private Map<UUID, Producto> cargarProductosParaVenta(List<VentaItemCreateDTO> items) {
+        Set<UUID> ids = items.stream()
+                .map(VentaItemCreateDTO::getProductoId)
+                .collect(Collectors.toSet());
+        return cargarProductos(ids);
+    }
+
+    private Map<UUID, Producto> cargarProductos(Set<UUID> ids) {
+        Map<UUID, Producto> productos = productoRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        Set<UUID> conLotes = productos.values().stream()
+                .filter(p -> Boolean.TRUE.equals(p.getControlaVencimiento()))
+                .map(Producto::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!conLotes.isEmpty()) {
+            productoRepository.findAllByIdForUpdate(conLotes);
+        }
+        return productos;
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "productos", allEntries = true)
     public VentaDTO anular(UUID id) {
         Venta venta = ventaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Venta no encontrada: " + id));
@@ -190,18 +467,26 @@ public class VentaService {
             throw new IllegalStateException("La venta ya esta anulada");
         }
 
-        // Restore stock
+        // Restore stock (products loaded in one query, same locking as crear)
+        Set<UUID> productoIds = venta.getItems().stream()
+                .filter(item -> item.getProducto() != null)
+                .map(item -> item.getProducto().getId())
+                .collect(Collectors.toSet());
+        Map<UUID, Producto> productos = cargarProductos(productoIds);
+
+        Map<UUID, BigDecimal> devoluciones = new HashMap<>();
         for (VentaItem item : venta.getItems()) {
             if (item.getProducto() != null) {
-                Producto producto = item.getProducto();
+                Producto producto = productos.get(item.getProducto().getId());
                 if (Boolean.TRUE.equals(producto.getControlaVencimiento())) {
                     loteService.restaurarStock(producto.getId(), item.getCantidad());
                 } else {
-                    producto.setStockActual(producto.getStockActual().add(item.getCantidad()));
-                    productoRepository.save(producto);
+                    devoluciones.merge(producto.getId(), item.getCantidad(), BigDecimal::add);
                 }
             }
         }
+        productoStockRepository.incrementar(devoluciones);
+        devoluciones.forEach(stockProductosService::registrarAjuste);
 
         // Reverse charge for fiado sales
         if (venta.getEsFiado() && venta.getCliente() != null) {
@@ -213,7 +498,11 @@ public class VentaService {
         }
 
         venta.setEstado(Venta.EstadoVenta.ANULADA);
-        venta = ventaRepository.save(venta);
+        venta = ventaRepository.saveAndFlush(venta);
+        usoMensualService.registrarAnulacion(KioscoContext.getCurrentKioscoId(), venta);
+        ventasResumenRepository.restar(venta);
+        productoStockRepository.descartarVenta(productoIds, venta.getFecha());
+        cadenaAgregadosService.registrarVenta(venta.getFecha().toLocalDate());
 
         // Audit log for anulacion
         auditService.logAction(
@@ -229,4 +518,8 @@ public class VentaService {
 
         return VentaDTO.fromEntity(venta);
     }
+
+    private record VentaArmada(Venta venta, Map<UUID, BigDecimal> cantidades) {}
+
+    private record FilaLote(UUID clave, VentaOfflineResultadoDTO.Estado estado, Venta venta, String error) {}
 }
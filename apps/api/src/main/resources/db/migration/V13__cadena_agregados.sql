@@ -0,0 +1,37 @@
+-- V13: Chain-level aggregates
+-- Per-kiosco daily sales and current stock per product, fed from the tenant
+-- schemas through an outbox, so chain endpoints read one indexed table
+
+-- Changes pending to be applied to the aggregates (written in the sale/stock transaction)
+CREATE TABLE cadena_agregados_pendientes (
+    id BIGSERIAL PRIMARY KEY,
+    kiosco_id UUID NOT NULL,
+    dias DATE[],         -- days whose sales totals changed
+    producto_ids UUID[], -- products whose stock changed
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_cadena_agregados_pendientes_kiosco ON cadena_agregados_pendientes(kiosco_id, id);
+
+-- Completed sales per kiosco and day (copy of the tenant's ventas_resumen_diario totals)
+CREATE TABLE cadena_ventas_diarias (
+    kiosco_id UUID NOT NULL REFERENCES kioscos(id) ON DELETE CASCADE,
+    dia DATE NOT NULL,
+    cantidad INT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    actualizado_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (kiosco_id, dia)
+);
+
+-- Stock of active products with a codigo, per kiosco
+CREATE TABLE cadena_stock (
+    kiosco_id UUID NOT NULL REFERENCES kioscos(id) ON DELETE CASCADE,
+    producto_id UUID NOT NULL,
+    codigo VARCHAR(50) NOT NULL,
+    nombre VARCHAR(200) NOT NULL,
+    stock DECIMAL(10,2) NOT NULL DEFAULT 0,
+    actualizado_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (kiosco_id, producto_id)
+);
+
+CREATE INDEX idx_cadena_stock_kiosco_codigo ON cadena_stock(kiosco_id, codigo);
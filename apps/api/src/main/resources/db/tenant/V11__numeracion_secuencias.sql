@@ -0,0 +1,9 @@
+-- V11: Ticket and purchase-order numbers come from the tenant sequences
+-- Both sequences existed but the app numbered with MAX(numero)+1; move them past existing numbers
+
+SELECT setval('ventas_numero_seq', COALESCE((SELECT MAX(numero) FROM ventas), 0) + 1, false);
+SELECT setval('orden_compra_seq', COALESCE((SELECT MAX(numero) FROM ordenes_compra), 0) + 1, false);
+
+-- Update schema version
+INSERT INTO schema_version (version, description) VALUES (11, 'V11__numeracion_secuencias.sql')
+ON CONFLICT (version) DO NOTHING;
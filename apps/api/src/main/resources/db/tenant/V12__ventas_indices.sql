@@ -0,0 +1,25 @@
+-- V12: Indexes for the sale, report and cuenta corriente hot paths
+-- Composite indexes replace the single-column ones they start with
+
+-- ventas: completed sales by date range (reports, ventas del dia)
+CREATE INDEX IF NOT EXISTS idx_ventas_estado_fecha ON ventas(estado, fecha);
+DROP INDEX IF EXISTS idx_ventas_estado;
+
+-- ventas: ticket numbers are unique. Sales that got a duplicate number from the old
+-- MAX(numero)+1 race keep the oldest one; the rest are renumbered from the sequence
+UPDATE ventas v SET numero = nextval('ventas_numero_seq') FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY numero ORDER BY created_at, id) AS rn FROM ventas) d WHERE d.id = v.id AND d.rn > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_ventas_numero ON ventas(numero);
+DROP INDEX IF EXISTS idx_ventas_numero;
+
+-- venta_items: lines of a sale, and per-product joins in reports
+CREATE INDEX IF NOT EXISTS idx_venta_items_venta ON venta_items(venta_id);
+CREATE INDEX IF NOT EXISTS idx_venta_items_producto_venta ON venta_items(producto_id, venta_id);
+DROP INDEX IF EXISTS idx_venta_items_producto;
+
+-- cuenta_movimientos: a client's movements ordered or filtered by date
+CREATE INDEX IF NOT EXISTS idx_cuenta_movimientos_cliente_fecha ON cuenta_movimientos(cliente_id, created_at);
+DROP INDEX IF EXISTS idx_cuenta_movimientos_cliente;
+
+-- Update schema version
+INSERT INTO schema_version (version, description) VALUES (12, 'V12__ventas_indices.sql')
+ON CONFLICT (version) DO NOTHING;
@@ -0,0 +1,66 @@
+-- V13: Incremental sales rollups (per day, per hour, per product and day)
+-- Maintained by VentaService in the same transaction as each sale/anulacion.
+-- Only COMPLETADA sales are counted; cantidad = number of sales, unidades = sum of item quantities
+
+CREATE TABLE IF NOT EXISTS ventas_resumen_diario (
+    dia DATE NOT NULL,
+    medio_pago VARCHAR(20) NOT NULL,
+    cantidad INT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    unidades DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (dia, medio_pago)
+);
+
+CREATE TABLE IF NOT EXISTS ventas_resumen_horario (
+    dia DATE NOT NULL,
+    hora SMALLINT NOT NULL,
+    medio_pago VARCHAR(20) NOT NULL,
+    cantidad INT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    unidades DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (dia, hora, medio_pago)
+);
+
+-- total = sum of item subtotals for the product (before ticket-level discounts)
+CREATE TABLE IF NOT EXISTS ventas_resumen_producto (
+    dia DATE NOT NULL,
+    producto_id UUID NOT NULL,
+    medio_pago VARCHAR(20) NOT NULL,
+    cantidad INT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    unidades DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (dia, producto_id, medio_pago)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ventas_resumen_producto_producto ON ventas_resumen_producto(producto_id, dia);
+
+-- Backfill from existing sales
+INSERT INTO ventas_resumen_diario (dia, medio_pago, cantidad, total, unidades)
+SELECT CAST(v.fecha AS DATE), v.medio_pago, COUNT(*), SUM(v.total), SUM(v.unidades)
+FROM (SELECT v.fecha, v.medio_pago, v.total,
+             (SELECT COALESCE(SUM(i.cantidad), 0) FROM venta_items i WHERE i.venta_id = v.id) AS unidades
+      FROM ventas v
+      WHERE v.estado = 'COMPLETADA') v
+GROUP BY CAST(v.fecha AS DATE), v.medio_pago
+ON CONFLICT DO NOTHING;
+
+INSERT INTO ventas_resumen_horario (dia, hora, medio_pago, cantidad, total, unidades)
+SELECT CAST(v.fecha AS DATE), EXTRACT(HOUR FROM v.fecha), v.medio_pago, COUNT(*), SUM(v.total), SUM(v.unidades)
+FROM (SELECT v.fecha, v.medio_pago, v.total,
+             (SELECT COALESCE(SUM(i.cantidad), 0) FROM venta_items i WHERE i.venta_id = v.id) AS unidades
+      FROM ventas v
+      WHERE v.estado = 'COMPLETADA') v
+GROUP BY CAST(v.fecha AS DATE), EXTRACT(HOUR FROM v.fecha), v.medio_pago
+ON CONFLICT DO NOTHING;
+
+INSERT INTO ventas_resumen_producto (dia, producto_id, medio_pago, cantidad, total, unidades)
+SELECT CAST(v.fecha AS DATE), i.producto_id, v.medio_pago, COUNT(DISTINCT v.id), SUM(i.subtotal), SUM(i.cantidad)
+FROM venta_items i
+JOIN ventas v ON v.id = i.venta_id
+WHERE v.estado = 'COMPLETADA' AND i.producto_id IS NOT NULL
+GROUP BY CAST(v.fecha AS DATE), i.producto_id, v.medio_pago
+ON CONFLICT DO NOTHING;
+
+-- Update schema version
+INSERT INTO schema_version (version, description) VALUES (13, 'V13__ventas_resumen.sql')
+ON CONFLICT (version) DO NOTHING;
@@ -0,0 +1,12 @@
+-- V14: Last completed sale per product, maintained by VentaService
+-- Dead-stock reports read this column instead of scanning every sale
+
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS ultima_venta TIMESTAMP;
+
+UPDATE productos p SET ultima_venta = u.fecha FROM (SELECT i.producto_id, MAX(v.fecha) AS fecha FROM venta_items i JOIN ventas v ON v.id = i.venta_id WHERE v.estado = 'COMPLETADA' GROUP BY i.producto_id) u WHERE u.producto_id = p.id;
+
+-- Active products not sold since a date (NULLs first: never sold)
+CREATE INDEX IF NOT EXISTS idx_productos_ultima_venta ON productos(ultima_venta NULLS FIRST) WHERE activo = true;
+
+INSERT INTO schema_version (version, description) VALUES (14, 'V14__productos_ultima_venta.sql')
+ON CONFLICT (version) DO NOTHING;
@@ -0,0 +1,34 @@
+-- V15: audit_log partitioned by month on created_at
+-- Rows land in audit_log_default until AuditLogParticionService creates the
+-- monthly partitions (audit_log_pYYYYMM) and moves them; retention drops whole partitions.
+-- The migration runner splits statements at lines ending in ';', so each DO block
+-- below is written on a single line.
+
+-- Re-runnable: the plain table is moved aside only while audit_log is not partitioned yet
+DO $$ BEGIN IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('audit_log') AND relkind = 'r') THEN ALTER TABLE audit_log RENAME TO audit_log_legacy; ALTER TABLE audit_log_legacy RENAME CONSTRAINT audit_log_pkey TO audit_log_legacy_pkey; DROP INDEX IF EXISTS idx_audit_entity; DROP INDEX IF EXISTS idx_audit_usuario; DROP INDEX IF EXISTS idx_audit_created; DROP INDEX IF EXISTS idx_audit_entity_type; END IF; END $$;
+
+CREATE TABLE IF NOT EXISTS audit_log (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    entity_type VARCHAR(50) NOT NULL,
+    entity_id UUID NOT NULL,
+    action VARCHAR(20) NOT NULL,
+    usuario_id UUID NOT NULL,
+    usuario_email VARCHAR(200),
+    changes JSONB,
+    ip_address VARCHAR(45),
+    user_agent VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS audit_log_default PARTITION OF audit_log DEFAULT;
+
+-- Partitioned indexes: created on every partition, created_at last so ranges stay index scans
+CREATE INDEX IF NOT EXISTS idx_audit_entity ON audit_log(entity_type, entity_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_audit_usuario ON audit_log(usuario_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_audit_created ON audit_log(created_at);
+
+DO $$ BEGIN IF to_regclass('audit_log_legacy') IS NOT NULL THEN INSERT INTO audit_log (id, entity_type, entity_id, action, usuario_id, usuario_email, changes, ip_address, user_agent, created_at) SELECT id, entity_type, entity_id, action, usuario_id, usuario_email, changes, ip_address, user_agent, COALESCE(created_at, NOW()) FROM audit_log_legacy; DROP TABLE audit_log_legacy; END IF; END $$;
+
+INSERT INTO schema_version (version, description) VALUES (15, 'V15__audit_log_particionado.sql')
+ON CONFLICT (version) DO NOTHING;
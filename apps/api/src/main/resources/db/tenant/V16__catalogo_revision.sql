@@ -0,0 +1,33 @@
+-- V16: Catalog revision for delta sync of offline terminals
+-- catalogo_revision holds one per-tenant counter. Every insert or update of a producto
+-- or categoria bumps it and stamps the row with the new value, holding the counter's
+-- row lock until commit, so revisions commit in order and the committed counter is a
+-- cursor below which nothing can still appear. Unlike a transaction-id horizon, it is
+-- not held back by long transactions elsewhere in the cluster (backups, exports).
+-- Updates that only touch stock_actual/ultima_venta/updated_at keep their revision:
+-- sales never wait on the counter, and terminals get current stock with every row
+-- they receive. The trigger functions must stay on one line (statement splitter).
+
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS revision BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE categorias ADD COLUMN IF NOT EXISTS revision BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS catalogo_revision (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    revision BIGINT NOT NULL
+);
+INSERT INTO catalogo_revision (id, revision) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION catalogo_revision() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN IF TG_OP = 'UPDATE' AND (to_jsonb(NEW) - 'revision' - 'updated_at' - 'ultima_venta' - 'stock_actual') = (to_jsonb(OLD) - 'revision' - 'updated_at' - 'ultima_venta' - 'stock_actual') THEN NEW.revision := OLD.revision; ELSE UPDATE catalogo_revision SET revision = revision + 1 WHERE id = 1 RETURNING revision INTO NEW.revision; END IF; RETURN NEW; END $$;
+
+DROP TRIGGER IF EXISTS trg_productos_revision ON productos;
+CREATE TRIGGER trg_productos_revision BEFORE INSERT OR UPDATE ON productos FOR EACH ROW EXECUTE FUNCTION catalogo_revision();
+
+DROP TRIGGER IF EXISTS trg_categorias_revision ON categorias;
+CREATE TRIGGER trg_categorias_revision BEFORE INSERT OR UPDATE ON categorias FOR EACH ROW EXECUTE FUNCTION catalogo_revision();
+
+-- Changes since a cursor, including deactivated rows (tombstones)
+CREATE INDEX IF NOT EXISTS idx_productos_revision ON productos(revision);
+CREATE INDEX IF NOT EXISTS idx_categorias_revision ON categorias(revision);
+
+INSERT INTO schema_version (version, description) VALUES (16, 'V16__catalogo_revision.sql')
+ON CONFLICT (version) DO NOTHING;
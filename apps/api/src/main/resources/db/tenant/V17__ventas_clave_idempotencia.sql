@@ -0,0 +1,9 @@
+-- V17: Idempotency key of sales sent by offline terminals
+-- A replayed or retried sale with the same key is returned instead of booked twice
+
+ALTER TABLE ventas ADD COLUMN IF NOT EXISTS clave_idempotencia UUID;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_ventas_clave_idempotencia ON ventas(clave_idempotencia) WHERE clave_idempotencia IS NOT NULL;
+
+INSERT INTO schema_version (version, description) VALUES (17, 'V17__ventas_clave_idempotencia.sql')
+ON CONFLICT (version) DO NOTHING;
@@ -0,0 +1,105 @@
+package ar.com.kiosco.isolation;
+
+import ar.com.kiosco.config.SchemaMultiTenantConnectionProvider;
+import ar.com.kiosco.config.TenantConnectionPools;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaMultiTenantConnectionProviderTest {
+
+    private static final String SCHEMA = "kiosco_e0e0e0e0";
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private TenantConnectionPools tenantPools;
+
+    @Mock
+    private Connection compartida;
+
+    @Mock
+    private Connection fijada;
+
+    @Mock
+    private Statement statement;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(dataSource.getConnection()).thenReturn(compartida);
+        lenient().when(compartida.createStatement()).thenReturn(statement);
+    }
+
+    @Test
+    @DisplayName("Sin pools por tenant se fija y se restablece el search_path en cada uso")
+    void withoutTenantPoolsSetsAndResets() throws Exception {
+        var provider = new SchemaMultiTenantConnectionProvider(dataSource);
+
+        Connection connection = provider.getConnection(SCHEMA);
+        provider.releaseConnection(SCHEMA, connection);
+
+        verify(statement).execute("SET search_path TO " + SCHEMA + ", public");
+        verify(statement).execute("SET search_path TO public");
+        assertThat(provider.getEstadisticas()).containsEntry("setsEjecutados", 2L);
+    }
+
+    @Test
+    @DisplayName("Con pools por tenant la conexion ya viene fijada y no se ejecuta SET")
+    void pinnedTenantConnectionSkipsSet() throws Exception {
+        when(tenantPools.getConnection(SCHEMA)).thenReturn(fijada);
+        var provider = new SchemaMultiTenantConnectionProvider(dataSource, tenantPools);
+
+        Connection connection = provider.getConnection(SCHEMA);
+        provider.releaseConnection(SCHEMA, connection);
+
+        assertThat(connection).isSameAs(fijada);
+        verify(fijada, never()).createStatement();
+        verify(fijada).close();
+        assertThat(provider.getEstadisticas())
+                .containsEntry("setsEjecutados", 0L)
+                .containsEntry("setsEvitados", 2L);
+    }
+
+    @Test
+    @DisplayName("Con pools por tenant el esquema public usa el pool compartido sin SET")
+    void publicSchemaSkipsSet() throws Exception {
+        var provider = new SchemaMultiTenantConnectionProvider(dataSource, tenantPools);
+
+        Connection connection = provider.getConnection("public");
+        provider.releaseConnection("public", connection);
+
+        verify(compartida, never()).createStatement();
+        assertThat(provider.getEstadisticas()).containsEntry("setsEvitados", 2L);
+    }
+
+    @Test
+    @DisplayName("Si no hay pool disponible se usa el compartido y se restablece al liberar")
+    void busyTenantPoolsFallBackToSharedPool() throws Exception {
+        when(tenantPools.getConnection(SCHEMA)).thenReturn(null);
+        var provider = new SchemaMultiTenantConnectionProvider(dataSource, tenantPools);
+
+        Connection connection = provider.getConnection(SCHEMA);
+        provider.releaseConnection(SCHEMA, connection);
+
+        assertThat(connection).isSameAs(compartida);
+        verify(statement).execute("SET search_path TO public");
+        assertThat(provider.getEstadisticas())
+                .containsEntry("fallbacks", 1L)
+                .containsEntry("setsEjecutados", 2L);
+    }
+}
@@ -0,0 +1,83 @@
+package ar.com.kiosco.isolation;
+
+import ar.com.kiosco.config.TenantMigrationScripts;
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Signup from a pre-migrated spare schema, against a real PostgreSQL.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class TenantSchemaSpareTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("e0e0e0e0-0000-4000-8000-000000000025");
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TenantSchemaManager tenantSchemaManager;
+
+    @BeforeAll
+    static void setUp() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        tenantSchemaManager = postgres.tenantSchemaManager();
+        ReflectionTestUtils.setField(tenantSchemaManager, "spares", 2);
+
+        tenantSchemaManager.dropTenantSchema(KIOSCO_ID);
+        dropSpares();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (postgres != null) {
+            tenantSchemaManager.dropTenantSchema(KIOSCO_ID);
+            dropSpares();
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Un alta toma un schema de reserva migrado y la reserva se repone")
+    void signupClaimsSpareAndPoolIsRefilled() throws Exception {
+        assertThat(tenantSchemaManager.replenishSpareSchemas()).isEqualTo(2);
+        List<String> before = spares();
+
+        String schema = tenantSchemaManager.createTenantSchema(Kiosco.builder().id(KIOSCO_ID).build());
+
+        assertThat(spares()).hasSize(1).isSubsetOf(before);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT MAX(version) FROM " + schema + ".schema_version", Integer.class))
+                .isEqualTo(TenantMigrationScripts.latestVersion());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + schema + ".schema_version", Integer.class))
+                .isEqualTo(TenantMigrationScripts.all().size());
+
+        assertThat(tenantSchemaManager.replenishSpareSchemas()).isEqualTo(1);
+        assertThat(spares()).hasSize(2);
+    }
+
+    private static List<String> spares() {
+        return jdbcTemplate.queryForList(
+                "SELECT schema_name FROM information_schema.schemata WHERE schema_name LIKE 'tenant\\_spare\\_%'",
+                String.class);
+    }
+
+    private static void dropSpares() {
+        for (String spare : spares()) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + spare + " CASCADE");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.service.AuditLogParticionService;
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Audit search over a partitioned audit_log growing from 1M to 10M rows.
+ *
+ * Rows are one every 6 seconds: the first 1M cover the last ~70 days, the other 9M
+ * the ~21 months before. A 7-day search touches the same partitions either way, so
+ * its latency must not grow with the table. Runs only when KIOSCO_TEST_PG_URL is
+ * set; seeding and partitioning 10M rows takes several minutes.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class AuditLogSearchBenchmarkTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("e0e0e0e0-0000-4000-8000-000000000004");
+    private static final int FILAS_RECIENTES = 1_000_000;
+    private static final int FILAS_HISTORICAS = 9_000_000;
+    private static final int SEGUNDOS_ENTRE_FILAS = 6;
+    private static final int REPETICIONES = 21;
+
+    // What AuditLogRepository.search runs, with the date bounds AuditService always supplies
+    private static final String BUSQUEDA_SQL = """
+            SELECT * FROM audit_log
+            WHERE created_at >= ? AND created_at <= ? AND entity_type = ?
+            ORDER BY created_at DESC LIMIT 50
+            """;
+
+    private static final String SEMBRAR_SQL = """
+            INSERT INTO audit_log (entity_type, entity_id, action, usuario_id, usuario_email, changes, created_at)
+            SELECT (ARRAY['PRODUCTO', 'VENTA', 'CLIENTE'])[i %% 3 + 1], gen_random_uuid(), 'UPDATE',
+                   'e0e0e0e0-0000-4000-8000-0000000000aa', 'cajero@test.com', '{"precioVenta": {"old": 100, "new": 110}}',
+                   NOW() - (i * %d || ' seconds')::interval
+            FROM generate_series(%d, %d) i
+            """;
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static AuditLogParticionService particionService;
+    private static String schema;
+
+    @BeforeAll
+    static void createTenant() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        particionService = new AuditLogParticionService(new AuditLogParticionRepository(jdbcTemplate),
+                null, postgres.tenantSchemaManager(), new DataSourceTransactionManager(postgres.dataSource()));
+
+        schema = postgres.useTenant(KIOSCO_ID);
+    }
+
+    @AfterAll
+    static void dropTenant() {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Buscar una semana cuesta lo mismo con 1M y con 10M filas de auditoria")
+    void searchLatencyFlatFrom1MTo10M() {
+        sembrar(1, FILAS_RECIENTES);
+        long usA1M = medianaBusquedaUs();
+
+        sembrar(FILAS_RECIENTES + 1, FILAS_RECIENTES + FILAS_HISTORICAS);
+        long usA10M = medianaBusquedaUs();
+
+        long filas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log", Long.class);
+        System.out.printf("Busqueda de 7 dias en audit_log: %d filas %d us, %d filas %d us%n",
+                FILAS_RECIENTES, usA1M, filas, usA10M);
+
+        assertThat(filas).isEqualTo(FILAS_RECIENTES + FILAS_HISTORICAS);
+        assertThat(usA10M).isLessThan(usA1M * 2 + 1_000);
+
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + BUSQUEDA_SQL
+                .replaceFirst("\\?", "NOW() - interval '7 days'")
+                .replaceFirst("\\?", "NOW()")
+                .replaceFirst("\\?", "'VENTA'"), String.class));
+        YearMonth viejo = YearMonth.now().minusMonths(6);
+        assertThat(plan).doesNotContain("audit_log_p%d%02d".formatted(viejo.getYear(), viejo.getMonthValue()));
+    }
+
+    @Test
+    @DisplayName("La retencion elimina particiones enteras y mueve lo que quedo en default")
+    void retentionDropsWholePartitions() {
+        YearMonth viejo = YearMonth.now().minusMonths(30);
+        jdbcTemplate.update("""
+                INSERT INTO audit_log (entity_type, entity_id, action, usuario_id, created_at)
+                VALUES ('VENTA', gen_random_uuid(), 'ANULAR', gen_random_uuid(), ?),
+                       ('VENTA', gen_random_uuid(), 'ANULAR', gen_random_uuid(), NOW())
+                """, Timestamp.valueOf(viejo.atDay(10).atStartOfDay()));
+
+        particionService.mantener(schema);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_log_default", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM audit_log WHERE created_at < ?", Long.class,
+                Timestamp.valueOf(viejo.plusMonths(1).atDay(1).atStartOfDay()))).isZero();
+    }
+
+    private static void sembrar(int desde, int hasta) {
+        jdbcTemplate.execute(SEMBRAR_SQL.formatted(SEGUNDOS_ENTRE_FILAS, desde, hasta));
+        particionService.mantener(schema);
+        jdbcTemplate.execute("ANALYZE audit_log");
+    }
+
+    private static long medianaBusquedaUs() {
+        Timestamp hasta = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp desde = Timestamp.valueOf(LocalDateTime.now().minusDays(7));
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            jdbcTemplate.queryForList(BUSQUEDA_SQL, desde, hasta, "VENTA");
+            tiempos[i] = (System.nanoTime() - inicio) / 1_000;
+        }
+        Arrays.sort(tiempos);
+        return tiempos[REPETICIONES / 2];
+    }
+}
@@ -0,0 +1,143 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Pendientes;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Periodo;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.StockProducto;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.TotalesVentas;
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Chain aggregates of 32 kioscos with 90 days of rollups and 500 products each.
+ * Runs only when KIOSCO_TEST_PG_URL is set and points at a database with the
+ * global migrations applied.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class CadenaAgregadosRepositoryTest {
+
+    private static final int KIOSCOS = 32;
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static CadenaAgregadosRepository agregadosRepository;
+    private static final List<UUID> kioscoIds = new ArrayList<>();
+
+    @BeforeAll
+    static void createTenants() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        assumeTrue(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('public.cadena_ventas_diarias') IS NOT NULL", Boolean.class));
+        agregadosRepository = new CadenaAgregadosRepository(jdbcTemplate, 5);
+
+        for (int i = 1; i <= KIOSCOS; i++) {
+            UUID kioscoId = kioscoId(i);
+            kioscoIds.add(kioscoId);
+            jdbcTemplate.update("INSERT INTO kioscos (id, nombre, slug) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                    kioscoId, "Kiosco agregados " + i, "test-agregados-" + i);
+            String schema = postgres.createTenant(kioscoId);
+
+            // Kiosco i sells i * 10 per day in 2 sales, every day of the last 90
+            jdbcTemplate.update("""
+                    INSERT INTO %s.ventas_resumen_diario (dia, medio_pago, cantidad, total, unidades)
+                    SELECT CURRENT_DATE - d, 'EFECTIVO', 2, ?, 2 FROM generate_series(0, 89) d
+                    """.formatted(schema), BigDecimal.valueOf(i * 10L));
+            jdbcTemplate.execute("""
+                    INSERT INTO %s.productos (nombre, codigo, precio_venta, stock_actual)
+                    SELECT 'Producto ' || p, 'P' || p, 100, 3 FROM generate_series(1, 500) p
+                    """.formatted(schema));
+            agregadosRepository.reconstruir(kioscoId, schema);
+        }
+        jdbcTemplate.execute("ANALYZE cadena_ventas_diarias");
+        jdbcTemplate.execute("ANALYZE cadena_stock");
+    }
+
+    @AfterAll
+    static void dropTenants() {
+        if (postgres != null) {
+            for (UUID kioscoId : kioscoIds) {
+                jdbcTemplate.update("DELETE FROM cadena_agregados_pendientes WHERE kiosco_id = ?", kioscoId);
+                jdbcTemplate.update("DELETE FROM kioscos WHERE id = ?", kioscoId);
+            }
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("El mes actual y el anterior de 32 kioscos salen de una sola consulta")
+    void rankingPeriodsInOneQuery() {
+        LocalDate hoy = LocalDate.now();
+
+        long inicio = System.nanoTime();
+        List<Map<UUID, TotalesVentas>> ventas = agregadosRepository.ventas(kioscoIds,
+                new Periodo(hoy.minusDays(29), hoy), new Periodo(hoy.minusDays(59), hoy.minusDays(30)));
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.printf("Ventas de %d kioscos en dos periodos: %d ms%n", KIOSCOS, ms);
+        assertThat(ms).isLessThan(100);
+        assertThat(ventas.get(0)).hasSize(KIOSCOS);
+        assertThat(ventas.get(0).get(kioscoId(3)).total()).isEqualByComparingTo("900");
+        assertThat(ventas.get(1).get(kioscoId(3)).cantidad()).isEqualTo(60);
+    }
+
+    @Test
+    @DisplayName("El stock de todos los kioscos sale de una sola consulta ordenada por codigo")
+    void stockInOneQuery() {
+        long inicio = System.nanoTime();
+        List<StockProducto> stock = agregadosRepository.stock(kioscoIds);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.printf("Stock de %d kioscos: %d filas, %d ms%n", KIOSCOS, stock.size(), ms);
+        assertThat(ms).isLessThan(500);
+        assertThat(stock).hasSize(KIOSCOS * 500);
+        assertThat(stock.get(0).codigo()).isEqualTo("P1");
+    }
+
+    @Test
+    @DisplayName("Un pendiente recalcula el dia y los productos desde el esquema del kiosco")
+    void pendingChangeRecomputesFromSchema() {
+        UUID kioscoId = kioscoId(1);
+        String schema = postgres.tenantSchemaManager().getSchemaName(kioscoId);
+        LocalDate hoy = LocalDate.now();
+        UUID productoId = jdbcTemplate.queryForObject(
+                "SELECT id FROM %s.productos WHERE codigo = 'P7'".formatted(schema), UUID.class);
+        jdbcTemplate.update("UPDATE %s.ventas_resumen_diario SET total = total + 5, cantidad = cantidad + 1 WHERE dia = ?"
+                .formatted(schema), hoy);
+        jdbcTemplate.update("UPDATE %s.productos SET stock_actual = 1 WHERE id = ?".formatted(schema), productoId);
+
+        agregadosRepository.registrarPendiente(kioscoId, Set.of(hoy), Set.of(productoId));
+        assertThat(agregadosRepository.atraso().pendientes()).isPositive();
+        Pendientes pendientes = agregadosRepository.tomarPendientes(kioscoId, 500);
+        agregadosRepository.actualizarVentas(kioscoId, schema, pendientes.dias());
+        agregadosRepository.actualizarStock(kioscoId, schema, pendientes.productoIds());
+
+        assertThat(pendientes.filas()).isEqualTo(1);
+        TotalesVentas ventasHoy = agregadosRepository.ventas(List.of(kioscoId), new Periodo(hoy, hoy)).get(0).get(kioscoId);
+        assertThat(ventasHoy.total()).isEqualByComparingTo("15");
+        assertThat(ventasHoy.cantidad()).isEqualTo(3);
+        assertThat(agregadosRepository.stock(List.of(kioscoId)))
+                .filteredOn(p -> p.productoId().equals(productoId))
+                .singleElement()
+                .satisfies(p -> assertThat(p.stock()).isEqualByComparingTo("1"));
+    }
+
+    private static UUID kioscoId(int i) {
+        return UUID.fromString("e2e2e2%02x-0000-4000-8000-000000000001".formatted(i));
+    }
+}
@@ -0,0 +1,138 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.Producto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs without the test transaction: every cashier commits its own sale,
+ * so the database sees real concurrent updates on the same row.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ProductoStockRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductoStockRepositoryTest {
+
+    private static final int CAJEROS = 8;
+    private static final int VENTAS_POR_CAJERO = 25;
+
+    @Autowired
+    private ProductoStockRepository productoStockRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID productoId;
+
+    @BeforeEach
+    void setUp() {
+        productoId = productoRepository.save(Producto.builder()
+                .nombre("Alfajor")
+                .codigo("ALF")
+                .precioVenta(new BigDecimal("800.00"))
+                .stockActual(new BigDecimal("120"))
+                .build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productoRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Varias cajas vendiendo el mismo producto no pierden descuentos ni sobrevenden")
+    void concurrentSalesKeepStockExact() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService cajas = Executors.newFixedThreadPool(CAJEROS);
+
+        Callable<Integer> cajero = () -> {
+            largada.await();
+            int vendidas = 0;
+            for (int i = 0; i < VENTAS_POR_CAJERO; i++) {
+                Boolean ok = tx.execute(status ->
+                        productoStockRepository.descontar(Map.of(productoId, BigDecimal.ONE)).isEmpty());
+                if (Boolean.TRUE.equals(ok)) {
+                    vendidas++;
+                }
+            }
+            return vendidas;
+        };
+
+        List<Future<Integer>> resultados = new ArrayList<>();
+        for (int i = 0; i < CAJEROS; i++) {
+            resultados.add(cajas.submit(cajero));
+        }
+        largada.countDown();
+
+        int vendidas = 0;
+        for (Future<Integer> resultado : resultados) {
+            vendidas += resultado.get();
+        }
+        cajas.shutdown();
+
+        // 200 attempts against 120 units: exactly 120 sales succeed and stock ends at zero
+        assertThat(vendidas).isEqualTo(120);
+        assertThat(productoRepository.findById(productoId).orElseThrow().getStockActual())
+                .isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("Si un producto del ticket no tiene stock se informa y no se descuenta")
+    void reportsProductsWithoutStock() {
+        UUID otroId = productoRepository.save(Producto.builder()
+                .nombre("Chicle")
+                .codigo("CHI")
+                .precioVenta(new BigDecimal("100.00"))
+                .stockActual(new BigDecimal("1"))
+                .build()).getId();
+
+        List<UUID> sinStock = productoStockRepository.descontar(Map.of(
+                productoId, new BigDecimal("5"),
+                otroId, new BigDecimal("2")));
+
+        assertThat(sinStock).containsExactly(otroId);
+        assertThat(productoRepository.findById(otroId).orElseThrow().getStockActual())
+                .isEqualByComparingTo("1");
+    }
+
+    @Test
+    @DisplayName("La fecha de ultima venta solo avanza")
+    void ultimaVentaOnlyMovesForward() {
+        LocalDateTime manana = LocalDateTime.of(2026, 3, 10, 9, 0);
+        LocalDateTime tarde = manana.withHour(18);
+
+        productoStockRepository.registrarVenta(List.of(productoId), tarde);
+        productoStockRepository.registrarVenta(List.of(productoId), manana);
+
+        assertThat(productoRepository.findById(productoId).orElseThrow().getUltimaVenta()).isEqualTo(tarde);
+    }
+}
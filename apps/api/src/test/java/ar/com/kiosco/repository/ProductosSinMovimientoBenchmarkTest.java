@@ -0,0 +1,144 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dead-stock detection on a 3-year tenant with 1M sales.
+ *
+ * The tenant has 2000 products: 1500 sold every day, 300 not sold in the last 90 days
+ * and 200 never sold. The maintained productos.ultima_venta answers with an index range
+ * scan; the old approach had to aggregate every completed sale. Runs only when
+ * KIOSCO_TEST_PG_URL is set; seeding takes about a minute.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class ProductosSinMovimientoBenchmarkTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("e0e0e0e0-0000-4000-8000-000000000003");
+    private static final int VENTAS = 1_000_000;
+    private static final int DIAS = 90;
+
+    private static final String SIN_MOVIMIENTO_SQL = """
+            SELECT p.id FROM productos p
+            WHERE p.activo = true AND (p.ultima_venta IS NULL OR p.ultima_venta < ?)
+            """;
+
+    private static final String ESCANEO_HISTORICO_SQL = """
+            SELECT p.id FROM productos p
+            LEFT JOIN (SELECT i.producto_id, MAX(v.fecha) AS fecha
+                       FROM venta_items i JOIN ventas v ON v.id = i.venta_id
+                       WHERE v.estado = 'COMPLETADA'
+                       GROUP BY i.producto_id) u ON u.producto_id = p.id
+            WHERE p.activo = true AND (u.fecha IS NULL OR u.fecha < ?)
+            """;
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static ProductoStockRepository productoStockRepository;
+
+    @BeforeAll
+    static void createSeededTenant() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        productoStockRepository = new ProductoStockRepository(jdbcTemplate);
+
+        postgres.useTenant(KIOSCO_ID);
+        jdbcTemplate.execute("""
+                INSERT INTO productos (nombre, codigo, precio_venta)
+                SELECT 'Producto ' || i, 'P' || i, 100 FROM generate_series(1, 2000) i
+                """);
+        // One sale every ~94 seconds over 3 years
+        jdbcTemplate.execute("""
+                INSERT INTO ventas (numero, fecha, subtotal, total, medio_pago)
+                SELECT i, NOW() - (i * 94 || ' seconds')::interval, 100, 100, 'EFECTIVO'
+                FROM generate_series(1, %d) i
+                """.formatted(VENTAS));
+        // P1..P1500 sell throughout; P1501..P1800 only before the last %d days; P1801..P2000 never
+        jdbcTemplate.execute("""
+                INSERT INTO venta_items (venta_id, producto_id, cantidad, precio_unitario, subtotal, producto_nombre)
+                SELECT v.id, p.id, 1, 100, 100, p.nombre
+                FROM ventas v
+                JOIN productos p ON p.codigo = 'P' || (CASE
+                    WHEN v.fecha >= NOW() - interval '%d days' THEN v.numero %% 1500
+                    ELSE v.numero %% 1800 END + 1)
+                """.formatted(DIAS + 1));
+        // Same backfill as V14
+        jdbcTemplate.execute("""
+                UPDATE productos p SET ultima_venta = u.fecha
+                FROM (SELECT i.producto_id, MAX(v.fecha) AS fecha
+                      FROM venta_items i JOIN ventas v ON v.id = i.venta_id
+                      WHERE v.estado = 'COMPLETADA' GROUP BY i.producto_id) u
+                WHERE u.producto_id = p.id
+                """);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void dropTenant() {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Productos sin movimiento salen de idx_productos_ultima_venta sin tocar ventas")
+    void sinMovimientoUsesIndex() {
+        Timestamp limite = Timestamp.valueOf(LocalDateTime.now().minusDays(DIAS));
+
+        long inicio = System.nanoTime();
+        List<UUID> conColumna = jdbcTemplate.queryForList(SIN_MOVIMIENTO_SQL, UUID.class, limite);
+        long msColumna = (System.nanoTime() - inicio) / 1_000_000;
+
+        inicio = System.nanoTime();
+        List<UUID> conEscaneo = jdbcTemplate.queryForList(ESCANEO_HISTORICO_SQL, UUID.class, limite);
+        long msEscaneo = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.printf("Productos sin movimiento en %d ventas: ultima_venta %d ms, escaneo %d ms%n",
+                VENTAS, msColumna, msEscaneo);
+
+        assertThat(conColumna).hasSize(500).containsExactlyInAnyOrderElementsOf(conEscaneo);
+        assertThat(msColumna).isLessThan(msEscaneo);
+
+        jdbcTemplate.execute("SET enable_seqscan = off");
+        try {
+            String plan = String.join("\n", jdbcTemplate.queryForList(
+                    "EXPLAIN " + SIN_MOVIMIENTO_SQL.replace("?", "NOW() - interval '90 days'"), String.class));
+            assertThat(plan).contains("idx_productos_ultima_venta").doesNotContain("ventas");
+        } finally {
+            jdbcTemplate.execute("SET enable_seqscan = on");
+        }
+    }
+
+    @Test
+    @DisplayName("Anular la ultima venta de un producto recalcula su fecha con la venta anterior")
+    void anulacionRecalculaUltimaVenta() {
+        UUID productoId = jdbcTemplate.queryForObject("SELECT id FROM productos WHERE codigo = 'P7'", UUID.class);
+        List<LocalDateTime> fechas = jdbcTemplate.queryForList("""
+                SELECT v.fecha FROM venta_items i JOIN ventas v ON v.id = i.venta_id
+                WHERE i.producto_id = ? AND v.estado = 'COMPLETADA'
+                ORDER BY v.fecha DESC LIMIT 2
+                """, LocalDateTime.class, productoId);
+
+        jdbcTemplate.update("""
+                UPDATE ventas SET estado = 'ANULADA'
+                WHERE fecha = ? AND id IN (SELECT venta_id FROM venta_items WHERE producto_id = ?)
+                """, fechas.get(0), productoId);
+        productoStockRepository.descartarVenta(List.of(productoId), fechas.get(0));
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT ultima_venta FROM productos WHERE id = ?", LocalDateTime.class, productoId))
+                .isEqualTo(fechas.get(1));
+    }
+}
@@ -0,0 +1,116 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.Categoria;
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.domain.VentaItem;
+import ar.com.kiosco.repository.ReporteVentasRepository.VentaResumida;
+import ar.com.kiosco.repository.ReporteVentasRepository.VentasPorProducto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReporteVentasRepositoryTest {
+
+    private static final LocalDate HOY = LocalDate.of(2026, 3, 10);
+
+    @Autowired
+    private ReporteVentasRepository reporteVentasRepository;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    private Producto gaseosa;
+    private Producto chicle;
+
+    @BeforeEach
+    void setUp() {
+        Categoria bebidas = categoriaRepository.save(Categoria.builder().nombre("Bebidas").build());
+        gaseosa = productoRepository.save(Producto.builder()
+                .nombre("Gaseosa")
+                .codigo("GAS")
+                .precioVenta(new BigDecimal("1000.00"))
+                .precioCosto(new BigDecimal("600.00"))
+                .categoria(bebidas)
+                .build());
+        chicle = productoRepository.save(Producto.builder()
+                .nombre("Chicle")
+                .codigo("CHI")
+                .precioVenta(new BigDecimal("200.00"))
+                .build());
+
+        venta(1, HOY.atTime(9, 15), Venta.MedioPago.EFECTIVO, Venta.EstadoVenta.COMPLETADA, gaseosa, "2");
+        venta(2, HOY.atTime(9, 40), Venta.MedioPago.MERCADOPAGO, Venta.EstadoVenta.COMPLETADA, chicle, "3");
+        venta(3, HOY.atTime(18, 5), Venta.MedioPago.EFECTIVO, Venta.EstadoVenta.COMPLETADA, gaseosa, "1");
+        venta(4, HOY.atTime(19, 0), Venta.MedioPago.EFECTIVO, Venta.EstadoVenta.ANULADA, gaseosa, "5");
+        venta(5, HOY.minusDays(1).atTime(12, 0), Venta.MedioPago.EFECTIVO, Venta.EstadoVenta.COMPLETADA, chicle, "1");
+    }
+
+    @Test
+    void shouldSumUnitsAndRevenuePerProduct() {
+        List<VentasPorProducto> filas = reporteVentasRepository.sumarPorProducto(
+                Venta.EstadoVenta.COMPLETADA, HOY.atStartOfDay(), HOY.plusDays(1).atStartOfDay());
+
+        assertThat(filas).hasSize(2);
+        VentasPorProducto fila = filas.stream()
+                .filter(f -> f.getProductoId().equals(gaseosa.getId()))
+                .findFirst().orElseThrow();
+        assertThat(fila.getCategoria()).isEqualTo("Bebidas");
+        assertThat(fila.getPrecioCosto()).isEqualByComparingTo("600.00");
+        assertThat(fila.getCantidad()).isEqualByComparingTo("3");
+        assertThat(fila.getMonto()).isEqualByComparingTo("3000.00");
+    }
+
+    @Test
+    void shouldStreamSalesNewestFirstWithUnits() {
+        List<VentaResumida> filas;
+        try (Stream<VentaResumida> stream = reporteVentasRepository.streamResumidas(
+                Venta.EstadoVenta.COMPLETADA, HOY.atStartOfDay(), HOY.plusDays(1).atStartOfDay())) {
+            filas = stream.toList();
+        }
+
+        assertThat(filas).extracting(VentaResumida::getNumero).containsExactly(3, 2, 1);
+        assertThat(filas.get(1).getUnidades()).isEqualByComparingTo("3");
+        assertThat(filas.get(1).getMedioPago()).isEqualTo(Venta.MedioPago.MERCADOPAGO);
+        assertThat(filas.get(0).getCliente()).isNull();
+    }
+
+    private void venta(int numero, LocalDateTime fecha, Venta.MedioPago medioPago, Venta.EstadoVenta estado,
+                       Producto producto, String cantidad) {
+        BigDecimal subtotal = producto.getPrecioVenta().multiply(new BigDecimal(cantidad));
+        Venta venta = Venta.builder()
+                .numero(numero)
+                .fecha(fecha)
+                .medioPago(medioPago)
+                .estado(estado)
+                .subtotal(subtotal)
+                .total(subtotal)
+                .build();
+        venta.addItem(VentaItem.builder()
+                .producto(producto)
+                .cantidad(new BigDecimal(cantidad))
+                .precioUnitario(producto.getPrecioVenta())
+                .subtotal(subtotal)
+                .productoNombre(producto.getNombre())
+                .build());
+        ventaRepository.save(venta);
+    }
+}
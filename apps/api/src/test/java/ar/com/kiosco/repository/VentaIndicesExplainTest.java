@@ -0,0 +1,131 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hot sale/report queries are served by the tenant indexes.
+ *
+ * Needs a real PostgreSQL (H2 plans say nothing about production), so it only runs
+ * when KIOSCO_TEST_PG_URL is set, e.g. jdbc:postgresql://localhost:5432/kiosco.
+ * The tenant schema is created with the same migrations as production and seeded
+ * with generate_series. Sequential scans are disabled so the assertion is about
+ * whether a usable index exists, not about the planner's cost estimate on test data.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class VentaIndicesExplainTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("e0e0e0e0-0000-4000-8000-000000000001");
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void createSeededTenant() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        postgres.useTenant(KIOSCO_ID);
+
+        jdbcTemplate.execute("""
+                INSERT INTO productos (nombre, codigo, precio_venta)
+                SELECT 'Producto ' || i, 'P' || i, 100 FROM generate_series(1, 500) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO clientes (nombre) SELECT 'Cliente ' || i FROM generate_series(1, 200) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO ventas (numero, fecha, subtotal, total, medio_pago, estado)
+                SELECT i, NOW() - (i || ' minutes')::interval, 100, 100, 'EFECTIVO',
+                       CASE WHEN i % 50 = 0 THEN 'ANULADA' ELSE 'COMPLETADA' END
+                FROM generate_series(1, 50000) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO venta_items (venta_id, producto_id, cantidad, precio_unitario, subtotal, producto_nombre)
+                SELECT v.id, p.id, 1, 100, 100, p.nombre
+                FROM ventas v
+                JOIN productos p ON p.codigo = 'P' || (v.numero % 500 + 1)
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO cuenta_movimientos (cliente_id, tipo, monto, saldo_anterior, saldo_nuevo, created_at)
+                SELECT c.id, 'CARGO', 10, 0, 10, NOW() - (i || ' hours')::interval
+                FROM clientes c CROSS JOIN generate_series(1, 50) i
+                """);
+        jdbcTemplate.execute("ANALYZE");
+        jdbcTemplate.execute("SET enable_seqscan = off");
+    }
+
+    @AfterAll
+    static void dropTenant() {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Ventas completadas de un rango de fechas usan idx_ventas_estado_fecha")
+    void ventasPorEstadoYFecha() {
+        assertThat(plan("""
+                SELECT * FROM ventas
+                WHERE estado = 'COMPLETADA' AND fecha >= NOW() - interval '1 day' AND fecha < NOW()
+                """)).contains("idx_ventas_estado_fecha");
+    }
+
+    @Test
+    @DisplayName("Ventas de un rango de fechas usan idx_ventas_fecha")
+    void ventasPorFecha() {
+        assertThat(plan("""
+                SELECT * FROM ventas WHERE fecha >= NOW() - interval '1 day' AND fecha < NOW() ORDER BY fecha DESC
+                """)).contains("idx_ventas_fecha");
+    }
+
+    @Test
+    @DisplayName("Buscar una venta por numero usa el indice unico")
+    void ventaPorNumero() {
+        assertThat(plan("SELECT * FROM ventas WHERE numero = 4242")).contains("uk_ventas_numero");
+    }
+
+    @Test
+    @DisplayName("Los items de una venta usan idx_venta_items_venta")
+    void itemsDeVenta() {
+        UUID ventaId = jdbcTemplate.queryForObject("SELECT id FROM ventas WHERE numero = 4242", UUID.class);
+        assertThat(plan("SELECT * FROM venta_items WHERE venta_id = '" + ventaId + "'"))
+                .contains("idx_venta_items_venta");
+    }
+
+    @Test
+    @DisplayName("Las ventas de un producto usan idx_venta_items_producto_venta")
+    void itemsDeProducto() {
+        UUID productoId = jdbcTemplate.queryForObject("SELECT id FROM productos WHERE codigo = 'P7'", UUID.class);
+        assertThat(plan("""
+                SELECT v.fecha, vi.cantidad FROM venta_items vi JOIN ventas v ON v.id = vi.venta_id
+                WHERE vi.producto_id = '%s'
+                """.formatted(productoId))).contains("idx_venta_items_producto_venta");
+    }
+
+    @Test
+    @DisplayName("Los movimientos de un cliente por fecha usan idx_cuenta_movimientos_cliente_fecha")
+    void movimientosDeCliente() {
+        UUID clienteId = jdbcTemplate.queryForObject("SELECT id FROM clientes LIMIT 1", UUID.class);
+        assertThat(plan("""
+                SELECT * FROM cuenta_movimientos
+                WHERE cliente_id = '%s' AND created_at >= NOW() - interval '7 days'
+                ORDER BY created_at DESC
+                """.formatted(clienteId))).contains("idx_cuenta_movimientos_cliente_fecha");
+    }
+
+    private String plan(String sql) {
+        List<String> lineas = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        assertThat(lineas).noneMatch(l -> l.contains("Seq Scan"));
+        return String.join("\n", lineas);
+    }
+}
@@ -0,0 +1,144 @@
+package ar.com.kiosco.repository;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.domain.VentaItem;
+import ar.com.kiosco.repository.VentasResumenRepository.ResumenDia;
+import ar.com.kiosco.repository.VentasResumenRepository.ResumenHora;
+import ar.com.kiosco.support.PostgresTenantFixture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Incremental rollup updates must match a rebuild from ventas.
+ * Uses INSERT ... ON CONFLICT, so it needs PostgreSQL: runs only when KIOSCO_TEST_PG_URL is set.
+ */
+@EnabledIfEnvironmentVariable(named = "KIOSCO_TEST_PG_URL", matches = ".+")
+class VentasResumenRepositoryTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("e0e0e0e0-0000-4000-8000-000000000002");
+    private static final LocalDate DIA = LocalDate.of(2026, 3, 10);
+
+    private static PostgresTenantFixture postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static VentasResumenRepository ventasResumenRepository;
+
+    @BeforeAll
+    static void createTenant() {
+        postgres = PostgresTenantFixture.connect();
+        jdbcTemplate = postgres.jdbcTemplate();
+        ventasResumenRepository = new VentasResumenRepository(jdbcTemplate);
+
+        postgres.useTenant(KIOSCO_ID);
+    }
+
+    @AfterAll
+    static void dropTenant() {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Sumar y restar ventas deja los mismos resumenes que reconstruirlos")
+    void incrementalMatchesRebuild() {
+        Producto gaseosa = producto("Gaseosa", "1000.00");
+        Producto chicle = producto("Chicle", "200.00");
+
+        Venta v1 = venta(1, DIA.atTime(9, 15), Venta.MedioPago.EFECTIVO, gaseosa, "2", chicle, "1");
+        Venta v2 = venta(2, DIA.atTime(9, 40), Venta.MedioPago.MERCADOPAGO, chicle, "3", null, null);
+        Venta v3 = venta(3, DIA.atTime(18, 5), Venta.MedioPago.EFECTIVO, gaseosa, "1", null, null);
+        ventasResumenRepository.sumar(v1);
+        ventasResumenRepository.sumar(v2);
+        ventasResumenRepository.sumar(v3);
+
+        // Anular v3
+        jdbcTemplate.update("UPDATE ventas SET estado = 'ANULADA' WHERE id = ?", v3.getId());
+        ventasResumenRepository.restar(v3);
+
+        List<ResumenDia> incremental = ordenados(ventasResumenRepository.findPorDia(DIA, DIA));
+        List<ResumenHora> porHora = ventasResumenRepository.findPorHora(DIA);
+        BigDecimal unidadesGaseosa = ventasResumenRepository.findPorProductoYDia(gaseosa.getId(), DIA, DIA).get(0).unidades();
+
+        assertThat(incremental).hasSize(2);
+        assertThat(incremental.get(0).medioPago()).isEqualTo(Venta.MedioPago.EFECTIVO);
+        assertThat(incremental.get(0).cantidad()).isEqualTo(1);
+        assertThat(incremental.get(0).total()).isEqualByComparingTo("2200.00");
+        assertThat(incremental.get(0).unidades()).isEqualByComparingTo("3");
+        assertThat(porHora).extracting(ResumenHora::hora).containsExactly(9);
+        assertThat(unidadesGaseosa).isEqualByComparingTo("2");
+
+        ventasResumenRepository.reconstruir(DIA, DIA);
+
+        assertThat(ordenados(ventasResumenRepository.findPorDia(DIA, DIA)))
+                .usingElementComparator(Comparator.comparing(ResumenDia::medioPago)
+                        .thenComparingLong(ResumenDia::cantidad)
+                        .thenComparing(ResumenDia::total)
+                        .thenComparing(ResumenDia::unidades))
+                .containsExactlyElementsOf(incremental);
+        assertThat(ventasResumenRepository.findPorProductoYDia(gaseosa.getId(), DIA, DIA).get(0).unidades())
+                .isEqualByComparingTo(unidadesGaseosa);
+    }
+
+    private static List<ResumenDia> ordenados(List<ResumenDia> filas) {
+        return filas.stream().sorted(Comparator.comparing(ResumenDia::medioPago)).toList();
+    }
+
+    private Producto producto(String nombre, String precio) {
+        UUID id = jdbcTemplate.queryForObject(
+                "INSERT INTO productos (nombre, precio_venta) VALUES (?, ?) RETURNING id",
+                UUID.class, nombre, new BigDecimal(precio));
+        return Producto.builder().id(id).nombre(nombre).precioVenta(new BigDecimal(precio)).build();
+    }
+
+    /**
+     * Inserts the sale as VentaService would and returns the same sale as an entity.
+     */
+    private Venta venta(int numero, LocalDateTime fecha, Venta.MedioPago medioPago,
+                        Producto p1, String cantidad1, Producto p2, String cantidad2) {
+        Venta venta = Venta.builder().numero(numero).fecha(fecha).medioPago(medioPago).build();
+        venta.addItem(item(p1, cantidad1));
+        if (p2 != null) {
+            venta.addItem(item(p2, cantidad2));
+        }
+        BigDecimal total = venta.getItems().stream().map(VentaItem::getSubtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        venta.setSubtotal(total);
+        venta.setTotal(total);
+
+        venta.setId(jdbcTemplate.queryForObject("""
+                INSERT INTO ventas (numero, fecha, subtotal, total, medio_pago)
+                VALUES (?, ?, ?, ?, ?) RETURNING id
+                """, UUID.class, numero, fecha, total, total, medioPago.name()));
+        for (VentaItem item : venta.getItems()) {
+            jdbcTemplate.update("""
+                    INSERT INTO venta_items (venta_id, producto_id, cantidad, precio_unitario, subtotal, producto_nombre)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, venta.getId(), item.getProducto().getId(), item.getCantidad(),
+                    item.getPrecioUnitario(), item.getSubtotal(), item.getProductoNombre());
+        }
+        return venta;
+    }
+
+    private VentaItem item(Producto producto, String cantidad) {
+        return VentaItem.builder()
+                .producto(producto)
+                .cantidad(new BigDecimal(cantidad))
+                .precioUnitario(producto.getPrecioVenta())
+                .subtotal(producto.getPrecioVenta().multiply(new BigDecimal(cantidad)))
+                .productoNombre(producto.getNombre())
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package ar.com.kiosco.security;
+
+import ar.com.kiosco.domain.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("a1b2c3d4-0000-4000-8000-000000000003");
+
+    private JwtService jwtService;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = nuevoJwtService(10_000);
+        usuario = Usuario.builder()
+                .id(UUID.randomUUID())
+                .email("cajero@test.com")
+                .nombre("Cajero")
+                .activo(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Un token se verifica una vez y las siguientes lecturas salen de la cache")
+    void verifiesOnceThenServesFromCache() {
+        String token = jwtService.generateToken(usuario, KIOSCO_ID, "owner");
+
+        TokenClaims claims = jwtService.verify(token).orElseThrow();
+        jwtService.verify(token);
+        jwtService.extractKioscoId(token);
+
+        assertThat(claims.email()).isEqualTo("cajero@test.com");
+        assertThat(claims.userId()).isEqualTo(usuario.getId());
+        assertThat(claims.kioscoId()).isEqualTo(KIOSCO_ID);
+        assertThat(claims.kioscoRole()).isEqualTo("owner");
+        assertThat(jwtService.getEstadisticas())
+                .containsEntry("misses", 1L)
+                .containsEntry("hits", 2L);
+    }
+
+    @Test
+    @DisplayName("Un token con la firma alterada no se acepta ni se guarda")
+    void tamperedTokenRejected() {
+        String token = jwtService.generateToken(usuario, KIOSCO_ID, "owner");
+        String alterado = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(jwtService.verify(alterado)).isEmpty();
+        assertThat(jwtService.getEstadisticas()).containsEntry("tokens", 0);
+    }
+
+    @Test
+    @DisplayName("Un token vencido no es valido")
+    void expiredTokenRejected() {
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1000L);
+        String token = jwtService.generateToken(usuario, KIOSCO_ID, "owner");
+
+        assertThat(jwtService.isTokenValid(token)).isFalse();
+        assertThat(jwtService.verify(token)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Con la cache deshabilitada se verifica cada vez")
+    void cacheDisabledVerifiesEveryTime() {
+        JwtService sinCache = nuevoJwtService(0);
+        String token = sinCache.generateToken(usuario, KIOSCO_ID, "owner");
+
+        assertThat(sinCache.isTokenValid(token)).isTrue();
+        assertThat(sinCache.isTokenValid(token)).isTrue();
+        assertThat(sinCache.getEstadisticas())
+                .containsEntry("misses", 2L)
+                .containsEntry("tokens", 0);
+    }
+
+    @Test
+    @DisplayName("Con la cache llena de tokens vigentes el token nuevo reemplaza a otro")
+    void fullCacheMakesRoomForNewToken() {
+        JwtService chica = nuevoJwtService(2);
+        String primero = chica.generateToken(usuario, KIOSCO_ID, "owner");
+        String segundo = chica.generateToken(usuario, KIOSCO_ID, "admin");
+        String tercero = chica.generateToken(usuario, KIOSCO_ID, "cajero");
+
+        chica.verify(primero);
+        chica.verify(segundo);
+        chica.verify(tercero);
+        chica.verify(tercero);
+
+        assertThat(chica.getEstadisticas())
+                .containsEntry("tokens", 2)
+                .containsEntry("misses", 3L)
+                .containsEntry("hits", 1L);
+    }
+
+    /**
+     * Filter cost per request: the old filter verified the token five times
+     * (isTokenValid plus four extract calls); the filter now verifies once and
+     * repeat tokens come from the cache.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "KIOSCO_BENCHMARK", matches = ".+")
+    void filterCostBeforeAndAfter() throws Exception {
+        int requests = 20_000;
+        JwtService sinCache = nuevoJwtService(0);
+        String token = jwtService.generateToken(usuario, KIOSCO_ID, "owner");
+
+        for (int i = 0; i < 2_000; i++) {
+            filtroAnterior(sinCache, token);
+            filtrar(new KioscoContextFilter(jwtService), token);
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            filtroAnterior(sinCache, token);
+        }
+        long nsAntes = (System.nanoTime() - inicio) / requests;
+
+        KioscoContextFilter filtro = new KioscoContextFilter(jwtService);
+        inicio = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            filtrar(filtro, token);
+        }
+        long nsDespues = (System.nanoTime() - inicio) / requests;
+
+        System.out.printf("KioscoContextFilter por request: antes %d ns (5 verificaciones), despues %d ns (cache)%n",
+                nsAntes, nsDespues);
+        assertThat(nsDespues).isLessThan(nsAntes);
+    }
+
+    private void filtroAnterior(JwtService service, String token) {
+        if (service.isTokenValid(token)) {
+            service.extractKioscoId(token);
+            service.extractKioscoRole(token);
+            service.extractUserId(token);
+            service.extractEmail(token);
+        }
+    }
+
+    private void filtrar(KioscoContextFilter filtro, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        SecurityContextHolder.clearContext();
+    }
+
+    private static JwtService nuevoJwtService(int cacheMaxSize) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", "test-secret-key-for-testing-purposes-only");
+        ReflectionTestUtils.setField(service, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", cacheMaxSize);
+        return service;
+    }
+}
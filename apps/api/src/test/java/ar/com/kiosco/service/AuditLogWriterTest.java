@@ -0,0 +1,107 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.AuditLog;
+import ar.com.kiosco.repository.AuditLogBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    private static final String SCHEMA_A = "kiosco_a1b2c3d4";
+    private static final String SCHEMA_B = "kiosco_b1b2c3d4";
+
+    @Mock
+    private AuditLogBatchRepository auditLogBatchRepository;
+
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new AuditLogWriter(auditLogBatchRepository, 3, 2, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Agrupa los eventos por esquema y los escribe en lotes de batch-size filas")
+    @SuppressWarnings("unchecked")
+    void groupsBySchemaAndBatches() {
+        when(auditLogBatchRepository.insertar(anyString(), anyList()))
+                .thenAnswer(i -> ((List<AuditLog>) i.getArgument(1)).size());
+
+        writer.encolar(evento(SCHEMA_A, Map.of("nombre", "A1"), false));
+        writer.encolar(evento(SCHEMA_B, Map.of("nombre", "B1"), false));
+        writer.encolar(evento(SCHEMA_A, Map.of("nombre", "A2"), false));
+        writer.flush();
+
+        ArgumentCaptor<List<AuditLog>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(auditLogBatchRepository).insertar(eq(SCHEMA_A), lotes.capture());
+        verify(auditLogBatchRepository).insertar(eq(SCHEMA_B), anyList());
+        assertThat(lotes.getValue()).extracting(r -> r.getChanges().get("nombre")).containsExactly("A1", "A2");
+        assertThat(writer.getEstadisticas()).containsEntry("escritos", 3L).containsEntry("pendientes", 0);
+    }
+
+    @Test
+    @DisplayName("Con la cola llena el evento se descarta y se cuenta")
+    void dropsWhenQueueFull() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(writer.encolar(evento(SCHEMA_A, Map.of(), false))).isTrue();
+        }
+
+        assertThat(writer.encolar(evento(SCHEMA_A, Map.of(), false))).isFalse();
+        assertThat(writer.getEstadisticas())
+                .containsEntry("encolados", 3L)
+                .containsEntry("descartados", 1L);
+    }
+
+    @Test
+    @DisplayName("Un UPDATE sin cambios no se escribe")
+    void skipsUpdateWithoutChanges() {
+        writer.encolar(evento(SCHEMA_A, Map.of(), true));
+        writer.flush();
+
+        verify(auditLogBatchRepository, never()).insertar(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Un lote que falla se cuenta y no frena los demas esquemas")
+    void failedBatchDoesNotStopOthers() {
+        when(auditLogBatchRepository.insertar(eq(SCHEMA_A), anyList())).thenThrow(new RuntimeException("boom"));
+        when(auditLogBatchRepository.insertar(eq(SCHEMA_B), anyList())).thenReturn(1);
+
+        writer.encolar(evento(SCHEMA_A, Map.of("nombre", "A1"), false));
+        writer.encolar(evento(SCHEMA_B, Map.of("nombre", "B1"), false));
+        writer.flush();
+
+        verify(auditLogBatchRepository, times(1)).insertar(eq(SCHEMA_B), anyList());
+        assertThat(writer.getEstadisticas())
+                .containsEntry("fallidos", 1L)
+                .containsEntry("escritos", 1L);
+    }
+
+    private static AuditLogWriter.Evento evento(String schema, Map<String, Object> changes, boolean omitirSinCambios) {
+        return new AuditLogWriter.Evento(schema, AuditLog.EntityType.PRODUCTO.name(), UUID.randomUUID(),
+                omitirSinCambios ? AuditLog.Action.UPDATE.name() : AuditLog.Action.CREATE.name(),
+                UUID.randomUUID(), "test@example.com", null, null, LocalDateTime.now(),
+                () -> changes, omitirSinCambios);
+    }
+}
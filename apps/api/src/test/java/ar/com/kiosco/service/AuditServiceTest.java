@@ -1,5 +1,6 @@
 package ar.com.kiosco.service;
 
+import ar.com.kiosco.config.TenantSchemaManager;
 import ar.com.kiosco.domain.AuditLog;
 import ar.com.kiosco.dto.ProductoDTO;
 import ar.com.kiosco.repository.AuditLogRepository;
@@ -33,9 +34,17 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class AuditServiceTest {
 
+    private static final String SCHEMA = "kiosco_a1b2c3d4";
+
     @Mock
     private AuditLogRepository auditLogRepository;
 
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private TenantSchemaManager tenantSchemaManager;
+
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
@@ -54,6 +63,7 @@ class AuditServiceTest {
 
         // Set up KioscoContext for tests
         KioscoContext.setContext(kioscoId, "owner", usuarioId, usuarioEmail);
+        lenient().when(tenantSchemaManager.getSchemaName(kioscoId)).thenReturn(SCHEMA);
     }
 
     @AfterEach
@@ -61,12 +71,18 @@ class AuditServiceTest {
         KioscoContext.clear();
     }
 
+    private AuditLogWriter.Evento capturarEvento() {
+        ArgumentCaptor<AuditLogWriter.Evento> captor = ArgumentCaptor.forClass(AuditLogWriter.Evento.class);
+        verify(auditLogWriter).encolar(captor.capture());
+        return captor.getValue();
+    }
+
     @Nested
     @DisplayName("logCreate")
     class LogCreate {
 
         @Test
-        @DisplayName("Debe crear un log de auditoria para CREATE")
+        @DisplayName("Debe encolar un evento CREATE con tenant y usuario tomados del contexto")
         void shouldCreateAuditLog() {
             UUID entityId = UUID.randomUUID();
             ProductoDTO producto = ProductoDTO.builder()
@@ -75,21 +91,40 @@ class AuditServiceTest {
                     .precioVenta(BigDecimal.valueOf(100))
                     .build();
 
-            when(auditLogRepository.save(any(AuditLog.class))).thenAnswer(i -> i.getArgument(0));
-
             auditService.logCreate(AuditLog.EntityType.PRODUCTO.name(), entityId, producto);
 
-            ArgumentCaptor<AuditLog> captor = ArgumentCaptor.forClass(AuditLog.class);
-            verify(auditLogRepository, timeout(1000)).save(captor.capture());
-
-            AuditLog saved = captor.getValue();
-            assertEquals(AuditLog.EntityType.PRODUCTO.name(), saved.getEntityType());
-            assertEquals(entityId, saved.getEntityId());
-            assertEquals(AuditLog.Action.CREATE.name(), saved.getAction());
-            assertEquals(usuarioId, saved.getUsuarioId());
-            assertEquals(usuarioEmail, saved.getUsuarioEmail());
-            assertNotNull(saved.getChanges());
-            assertNotNull(saved.getCreatedAt());
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertEquals(SCHEMA, evento.schema());
+            assertEquals(AuditLog.EntityType.PRODUCTO.name(), evento.entityType());
+            assertEquals(entityId, evento.entityId());
+            assertEquals(AuditLog.Action.CREATE.name(), evento.action());
+            assertEquals(usuarioId, evento.usuarioId());
+            assertEquals(usuarioEmail, evento.usuarioEmail());
+            assertEquals("Test Product", evento.changes().get().get("nombre"));
+            assertNotNull(evento.createdAt());
+        }
+
+        @Test
+        @DisplayName("Los datos de contexto se capturan al encolar, no al escribir")
+        void capturesContextAtEnqueueTime() {
+            UUID entityId = UUID.randomUUID();
+
+            auditService.logCreate(AuditLog.EntityType.PRODUCTO.name(), entityId, ProductoDTO.builder().build());
+            KioscoContext.clear();
+
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertEquals(SCHEMA, evento.schema());
+            assertEquals(usuarioId, evento.usuarioId());
+        }
+
+        @Test
+        @DisplayName("Sin kiosco en contexto no se encola nada")
+        void skipsWithoutTenant() {
+            KioscoContext.clear();
+
+            auditService.logCreate(AuditLog.EntityType.PRODUCTO.name(), UUID.randomUUID(), ProductoDTO.builder().build());
+
+            verifyNoInteractions(auditLogWriter);
         }
     }
 
@@ -98,7 +133,7 @@ class AuditServiceTest {
     class LogUpdate {
 
         @Test
-        @DisplayName("Debe crear un log de auditoria para UPDATE con cambios detectados")
+        @DisplayName("Debe encolar un evento UPDATE con cambios detectados")
         void shouldCreateAuditLogWithChanges() {
             UUID entityId = UUID.randomUUID();
 
@@ -114,23 +149,18 @@ class AuditServiceTest {
                     .precioVenta(BigDecimal.valueOf(150))
                     .build();
 
-            when(auditLogRepository.save(any(AuditLog.class))).thenAnswer(i -> i.getArgument(0));
-
             auditService.logUpdate(AuditLog.EntityType.PRODUCTO.name(), entityId, before, after);
 
-            ArgumentCaptor<AuditLog> captor = ArgumentCaptor.forClass(AuditLog.class);
-            verify(auditLogRepository, timeout(1000)).save(captor.capture());
-
-            AuditLog saved = captor.getValue();
-            assertEquals(AuditLog.Action.UPDATE.name(), saved.getAction());
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertEquals(AuditLog.Action.UPDATE.name(), evento.action());
+            assertTrue(evento.omitirSinCambios());
 
-            Map<String, Object> changes = saved.getChanges();
-            assertNotNull(changes);
+            Map<String, Object> changes = evento.changes().get();
             assertTrue(changes.containsKey("nombre") || changes.containsKey("precioVenta"));
         }
 
         @Test
-        @DisplayName("No debe crear log si no hay cambios")
+        @DisplayName("Sin cambios el evento no tiene diferencias y el writer lo omite")
         void shouldNotCreateLogWhenNoChanges() {
             UUID entityId = UUID.randomUUID();
 
@@ -148,10 +178,9 @@ class AuditServiceTest {
 
             auditService.logUpdate(AuditLog.EntityType.PRODUCTO.name(), entityId, before, after);
 
-            // Give async time to complete (or not)
-            try { Thread.sleep(200); } catch (InterruptedException ignored) {}
-
-            verify(auditLogRepository, never()).save(any());
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertTrue(evento.omitirSinCambios());
+            assertTrue(evento.changes().get().isEmpty());
         }
     }
 
@@ -160,7 +189,7 @@ class AuditServiceTest {
     class LogDelete {
 
         @Test
-        @DisplayName("Debe crear un log de auditoria para DELETE")
+        @DisplayName("Debe encolar un evento DELETE")
         void shouldCreateAuditLog() {
             UUID entityId = UUID.randomUUID();
             ProductoDTO producto = ProductoDTO.builder()
@@ -168,16 +197,11 @@ class AuditServiceTest {
                     .nombre("Deleted Product")
                     .build();
 
-            when(auditLogRepository.save(any(AuditLog.class))).thenAnswer(i -> i.getArgument(0));
-
             auditService.logDelete(AuditLog.EntityType.PRODUCTO.name(), entityId, producto);
 
-            ArgumentCaptor<AuditLog> captor = ArgumentCaptor.forClass(AuditLog.class);
-            verify(auditLogRepository, timeout(1000)).save(captor.capture());
-
-            AuditLog saved = captor.getValue();
-            assertEquals(AuditLog.Action.DELETE.name(), saved.getAction());
-            assertEquals(entityId, saved.getEntityId());
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertEquals(AuditLog.Action.DELETE.name(), evento.action());
+            assertEquals(entityId, evento.entityId());
         }
     }
 
@@ -186,7 +210,7 @@ class AuditServiceTest {
     class LogAction {
 
         @Test
-        @DisplayName("Debe crear un log de auditoria para accion custom")
+        @DisplayName("Debe encolar un evento para accion custom")
         void shouldCreateAuditLogForCustomAction() {
             UUID entityId = UUID.randomUUID();
             Map<String, Object> data = Map.of(
@@ -195,8 +219,6 @@ class AuditServiceTest {
                     "motivo", "Anulacion de venta"
             );
 
-            when(auditLogRepository.save(any(AuditLog.class))).thenAnswer(i -> i.getArgument(0));
-
             auditService.logAction(
                     AuditLog.EntityType.VENTA.name(),
                     entityId,
@@ -204,12 +226,9 @@ class AuditServiceTest {
                     data
             );
 
-            ArgumentCaptor<AuditLog> captor = ArgumentCaptor.forClass(AuditLog.class);
-            verify(auditLogRepository, timeout(1000)).save(captor.capture());
-
-            AuditLog saved = captor.getValue();
-            assertEquals(AuditLog.Action.ANULAR.name(), saved.getAction());
-            assertEquals(data, saved.getChanges());
+            AuditLogWriter.Evento evento = capturarEvento();
+            assertEquals(AuditLog.Action.ANULAR.name(), evento.action());
+            assertEquals(data, evento.changes().get());
         }
     }
 
@@ -297,5 +316,20 @@ class AuditServiceTest {
 
             assertEquals(1, result.getContent().size());
         }
+
+        @Test
+        @DisplayName("Sin fechas busca los ultimos 30 dias para acotar las particiones")
+        void shouldDefaultToBoundedRange() {
+            when(auditLogRepository.search(isNull(), isNull(), isNull(), any(LocalDateTime.class),
+                    any(LocalDateTime.class), any(PageRequest.class))).thenReturn(Page.empty());
+
+            auditService.search(null, null, null, null, null, 0, 50);
+
+            ArgumentCaptor<LocalDateTime> desde = ArgumentCaptor.forClass(LocalDateTime.class);
+            ArgumentCaptor<LocalDateTime> hasta = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(auditLogRepository).search(isNull(), isNull(), isNull(), desde.capture(), hasta.capture(),
+                    any(PageRequest.class));
+            assertEquals(hasta.getValue().minusDays(30), desde.getValue());
+        }
     }
 }
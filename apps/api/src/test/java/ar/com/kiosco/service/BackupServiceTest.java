@@ -5,20 +5,27 @@ import ar.com.kiosco.dto.BackupReportDTO;
 import ar.com.kiosco.dto.BackupResultDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,6 +37,12 @@ class BackupServiceTest {
     @Mock
     private TenantMigrationService tenantMigrationService;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    // Write counters returned for each schema, instead of pg_stat_user_tables
+    private final Map<String, String> firmas = new HashMap<>();
+
     private BackupService backupService;
 
     @TempDir
@@ -37,7 +50,7 @@ class BackupServiceTest {
 
     @BeforeEach
     void setUp() {
-        backupService = new BackupService(tenantMigrationService);
+        backupService = new BackupService(tenantMigrationService, jdbcTemplate);
         ReflectionTestUtils.setField(backupService, "backupPath", tempDir.toString());
         ReflectionTestUtils.setField(backupService, "retentionDays", 30);
         ReflectionTestUtils.setField(backupService, "dbUrl", "jdbc:postgresql://localhost:5432/kiosco");
@@ -176,4 +189,133 @@ class BackupServiceTest {
         assertThat(result.getError()).isEqualTo("Connection failed");
         assertThat(result.getFilename()).isNull();
     }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupTenant_largeStderr_doesNotDeadlock() throws IOException {
+        // 1 MB on stderr before any stdout: fills the pipe unless stderr is drained concurrently
+        useDumpCommand("head -c 1048576 /dev/zero | tr '\\0' e >&2; head -c 2097152 /dev/zero");
+
+        BackupResultDTO result = backupService.backupTenant("kiosco_abc12345");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getRawBytes()).isEqualTo(2097152);
+        assertThat(result.getDurationMs()).isGreaterThanOrEqualTo(0);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(tempDir.resolve(result.getFilename())))) {
+            assertThat(in.readAllBytes()).hasSize(2097152);
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupTenant_failedDump_reportsStderrAndRemovesFile() throws IOException {
+        useDumpCommand("echo partial; echo 'connection refused' >&2; exit 1");
+
+        BackupResultDTO result = backupService.backupTenant("kiosco_abc12345");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getError()).contains("exit code 1").contains("connection refused");
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupAllTenants_runsInParallelAndKeepsSchemaOrder() {
+        List<String> schemas = List.of("kiosco_00000001", "kiosco_00000002", "kiosco_00000003", "kiosco_00000004");
+        when(tenantMigrationService.listTenantSchemas()).thenReturn(schemas);
+        useDumpCommand("sleep 1; head -c 1024 /dev/zero");
+
+        long start = System.nanoTime();
+        BackupReportDTO report = backupService.backupAllTenants();
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(report.getSuccessful()).isEqualTo(4);
+        assertThat(report.getParallelism()).isEqualTo(2);
+        assertThat(report.getRawBytes()).isEqualTo(4096);
+        assertThat(report.getResults()).extracting(BackupResultDTO::getSchema).containsExactlyElementsOf(schemas);
+        // 4 dumps of 1s, 2 at a time
+        assertThat(ms).isLessThan(3500);
+    }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupAllTenants_unchangedSchema_isLinkedInsteadOfDumped() throws Exception {
+        when(tenantMigrationService.listTenantSchemas()).thenReturn(List.of("kiosco_abc12345"));
+        firmas.put("kiosco_abc12345", "12:500:40:3");
+        useDumpCommand("head -c 4096 /dev/zero");
+        BackupReportDTO primero = backupService.backupAllTenants();
+        assertThat(primero.getSkipped()).isZero();
+
+        // New file name needs a new second; a dump now would fail
+        Thread.sleep(1100);
+        useDumpCommand("exit 1");
+        BackupReportDTO segundo = backupService.backupAllTenants();
+
+        assertThat(segundo.getSuccessful()).isEqualTo(1);
+        assertThat(segundo.getSkipped()).isEqualTo(1);
+        assertThat(segundo.getResults().get(0).isUnchanged()).isTrue();
+        assertThat(Files.isSameFile(
+                tempDir.resolve(primero.getResults().get(0).getFilename()),
+                tempDir.resolve(segundo.getResults().get(0).getFilename()))).isTrue();
+        assertThat(backupService.listBackups()).hasSize(2);
+    }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupAllTenants_changedSchema_isDumpedAgain() {
+        when(tenantMigrationService.listTenantSchemas()).thenReturn(List.of("kiosco_abc12345"));
+        firmas.put("kiosco_abc12345", "12:500:40:3");
+        useDumpCommand("head -c 4096 /dev/zero");
+        backupService.backupAllTenants();
+
+        firmas.put("kiosco_abc12345", "12:501:40:3");
+        BackupReportDTO report = backupService.backupAllTenants();
+
+        assertThat(report.getSkipped()).isZero();
+        assertThat(report.getResults().get(0).getRawBytes()).isEqualTo(4096);
+    }
+
+    @Test
+    @Timeout(30)
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void backupTenant_alwaysDumpsEvenIfUnchanged() {
+        when(tenantMigrationService.listTenantSchemas()).thenReturn(List.of("kiosco_abc12345"));
+        firmas.put("kiosco_abc12345", "12:500:40:3");
+        useDumpCommand("head -c 4096 /dev/zero");
+        backupService.backupAllTenants();
+
+        BackupResultDTO result = backupService.backupTenant("kiosco_abc12345");
+
+        assertThat(result.isUnchanged()).isFalse();
+        assertThat(result.getRawBytes()).isEqualTo(4096);
+    }
+
+    @Test
+    void backupResultDTO_throughput_isMegabytesPerSecond() {
+        assertThat(BackupResultDTO.throughput(10L * 1024 * 1024, 2000)).isEqualTo(5.0);
+        assertThat(BackupResultDTO.throughput(1024, 0)).isZero();
+    }
+
+    private void useDumpCommand(String script) {
+        backupService = new BackupService(tenantMigrationService, jdbcTemplate) {
+            @Override
+            ProcessBuilder pgDump(String schemaName) {
+                return new ProcessBuilder("sh", "-c", script);
+            }
+
+            @Override
+            Map<String, String> firmasActuales() {
+                return firmas;
+            }
+        };
+        ReflectionTestUtils.setField(backupService, "backupPath", tempDir.toString());
+        ReflectionTestUtils.setField(backupService, "parallelism", 2);
+    }
 }
@@ -0,0 +1,143 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
+import ar.com.kiosco.repository.CadenaAgregadosRepository;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Atraso;
+import ar.com.kiosco.repository.CadenaAgregadosRepository.Pendientes;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.security.KioscoContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CadenaAgregadosServiceTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("a1b2c3d4-0000-4000-8000-000000000003");
+    private static final UUID OTRO_KIOSCO_ID = UUID.fromString("a1b2c3d5-0000-4000-8000-000000000003");
+
+    @Mock
+    private CadenaAgregadosRepository agregadosRepository;
+
+    @Mock
+    private KioscoRepository kioscoRepository;
+
+    @Mock
+    private TenantSchemaManager tenantSchemaManager;
+
+    @Mock
+    private MetadatosKioscoService metadatosKioscoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private CadenaAgregadosService cadenaAgregadosService;
+
+    @BeforeEach
+    void setUp() {
+        KioscoContext.setContext(KIOSCO_ID, "owner", UUID.randomUUID(), "test@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        KioscoContext.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(cadenaAgregadosService);
+    }
+
+    @Test
+    @DisplayName("Los cambios de una transaccion se escriben como un solo pendiente antes del commit")
+    void oneOutboxRowPerTransaction() {
+        enCadena(true);
+        UUID producto1 = UUID.randomUUID();
+        UUID producto2 = UUID.randomUUID();
+        LocalDate hoy = LocalDate.now();
+        TransactionSynchronizationManager.initSynchronization();
+
+        cadenaAgregadosService.registrarStock(producto1);
+        cadenaAgregadosService.registrarStock(producto2);
+        cadenaAgregadosService.registrarVenta(hoy);
+        verify(agregadosRepository, never()).registrarPendiente(any(), any(), any());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.beforeCommit(false));
+
+        verify(agregadosRepository).registrarPendiente(KIOSCO_ID, Set.of(hoy), Set.of(producto1, producto2));
+    }
+
+    @Test
+    @DisplayName("Una transaccion que no confirma no deja pendientes")
+    void rollbackWritesNothing() {
+        enCadena(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cadenaAgregadosService.registrarVenta(LocalDate.now());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(agregadosRepository, never()).registrarPendiente(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Un kiosco fuera de una cadena no alimenta los agregados")
+    void kioscoWithoutCadenaIsIgnored() {
+        enCadena(false);
+
+        cadenaAgregadosService.registrarVenta(LocalDate.now());
+        cadenaAgregadosService.registrarStock(UUID.randomUUID());
+
+        verify(agregadosRepository, never()).registrarPendiente(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Un kiosco que falla no frena la aplicacion de los demas")
+    void failingKioscoDoesNotBlockOthers() {
+        LocalDate hoy = LocalDate.now();
+        when(agregadosRepository.kioscosConPendientes(anyInt())).thenReturn(List.of(KIOSCO_ID, OTRO_KIOSCO_ID));
+        when(tenantSchemaManager.getSchemaName(KIOSCO_ID)).thenReturn("kiosco_a1b2c3d4");
+        when(tenantSchemaManager.getSchemaName(OTRO_KIOSCO_ID)).thenReturn("kiosco_a1b2c3d5");
+        when(agregadosRepository.tomarPendientes(KIOSCO_ID, 500)).thenThrow(new IllegalStateException("timeout"));
+        when(agregadosRepository.tomarPendientes(OTRO_KIOSCO_ID, 500))
+                .thenReturn(new Pendientes(3, Set.of(hoy), Set.of()));
+        when(agregadosRepository.atraso()).thenReturn(new Atraso(0, 0));
+
+        int aplicados = cadenaAgregadosService.aplicarPendientes();
+
+        assertEquals(3, aplicados);
+        verify(agregadosRepository).actualizarVentas(OTRO_KIOSCO_ID, "kiosco_a1b2c3d5", Set.of(hoy));
+        verify(agregadosRepository, never()).actualizarStock(any(), any(), any());
+        assertEquals(1L, cadenaAgregadosService.getEstadisticas().get("fallidos"));
+    }
+
+    private void enCadena(boolean enCadena) {
+        when(metadatosKioscoService.obtener(KIOSCO_ID)).thenReturn(Optional.of(MetadatosKioscoDTO.builder()
+                .kioscoId(KIOSCO_ID)
+                .cadenaId(enCadena ? UUID.randomUUID() : null)
+                .build()));
+    }
+}
@@ -0,0 +1,147 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Categoria;
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.CatalogoCambiosDTO;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.CategoriaRepository;
+import ar.com.kiosco.repository.ProductoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogoCambiosServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private CategoriaRepository categoriaRepository;
+
+    @Mock
+    private StockProductosService stockProductosService;
+
+    @InjectMocks
+    private CatalogoCambiosService catalogoCambiosService;
+
+    @Test
+    @DisplayName("Sin revision se envia el catalogo activo completo")
+    void withoutRevisionSendsFullCatalog() {
+        revision(900);
+        Producto producto = producto(true);
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of(producto));
+        when(categoriaRepository.findByActivoTrueOrderByOrdenAsc()).thenReturn(List.of(categoria(true)));
+        conStockSinCambios();
+
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(null);
+
+        assertTrue(cambios.isCompleto());
+        assertEquals(900, cambios.getRevision());
+        assertEquals(producto.getId(), cambios.getProductos().get(0).getId());
+        assertEquals(1, cambios.getCategorias().size());
+        verify(productoRepository, never()).findCambiados(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Los cambios desde la revision separan activos de eliminados")
+    void deltaSplitsTombstones() {
+        revision(900);
+        Producto modificado = producto(true);
+        Producto eliminado = producto(false);
+        Categoria categoriaEliminada = categoria(false);
+        when(productoRepository.findCambiados(800, 900)).thenReturn(List.of(modificado, eliminado));
+        when(categoriaRepository.findCambiadas(800, 900)).thenReturn(List.of(categoriaEliminada));
+        conStockSinCambios();
+
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(800L);
+
+        assertFalse(cambios.isCompleto());
+        assertEquals(900, cambios.getRevision());
+        assertEquals(List.of(modificado.getId()), cambios.getProductos().stream().map(ProductoDTO::getId).toList());
+        assertEquals(List.of(eliminado.getId()), cambios.getProductosEliminados());
+        assertTrue(cambios.getCategorias().isEmpty());
+        assertEquals(List.of(categoriaEliminada.getId()), cambios.getCategoriasEliminadas());
+    }
+
+    @Test
+    @DisplayName("Sin cambios la revision del cliente no avanza")
+    void noChangesKeepsRevision() {
+        revision(900);
+        when(productoRepository.findCambiados(800, 900)).thenReturn(List.of());
+        when(categoriaRepository.findCambiadas(800, 900)).thenReturn(List.of());
+
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(800L);
+
+        assertFalse(cambios.isCompleto());
+        assertEquals(800, cambios.getRevision());
+        assertTrue(cambios.getProductos().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Una revision por delante del servidor obliga a recargar el catalogo")
+    void revisionAheadOfServerForcesFullCatalog() {
+        revision(900);
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of());
+        when(categoriaRepository.findByActivoTrueOrderByOrdenAsc()).thenReturn(List.of());
+        conStockSinCambios();
+
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(5000L);
+
+        assertTrue(cambios.isCompleto());
+        assertEquals(900, cambios.getRevision());
+    }
+
+    @Test
+    @DisplayName("Un cliente al dia no consulta filas")
+    void upToDateClientReadsNoRows() {
+        revision(900);
+
+        CatalogoCambiosDTO cambios = catalogoCambiosService.cambiosDesde(900L);
+
+        assertFalse(cambios.isCompleto());
+        assertEquals(900, cambios.getRevision());
+        verify(productoRepository, never()).findCambiados(anyLong(), anyLong());
+    }
+
+    private void revision(long revision) {
+        when(productoRepository.findRevisionCatalogo()).thenReturn(revision);
+    }
+
+    private void conStockSinCambios() {
+        when(stockProductosService.conStock(anyList())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private static Producto producto(boolean activo) {
+        return Producto.builder()
+                .id(UUID.randomUUID())
+                .nombre("Alfajor")
+                .precioVenta(new BigDecimal("500"))
+                .activo(activo)
+                .build();
+    }
+
+    private static Categoria categoria(boolean activo) {
+        return Categoria.builder()
+                .id(UUID.randomUUID())
+                .nombre("Golosinas")
+                .activo(activo)
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.security.KioscoContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogoProductosServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ProductoCacheService productoCacheService;
+
+    @Mock
+    private StockProductosService stockProductosService;
+
+    @InjectMocks
+    private CatalogoProductosService catalogoProductosService;
+
+    private Producto coca;
+
+    @BeforeEach
+    void setUp() {
+        KioscoContext.setContext(UUID.randomUUID(), "owner", UUID.randomUUID(), "test@example.com");
+
+        coca = Producto.builder()
+                .id(UUID.randomUUID())
+                .codigo("CC500")
+                .codigoBarras("7790895000041")
+                .nombre("Coca Cola 500ml")
+                .precioVenta(new BigDecimal("1500.00"))
+                .stockActual(new BigDecimal("10"))
+                .activo(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        KioscoContext.clear();
+    }
+
+    @Test
+    @DisplayName("Debe construir el snapshot una sola vez por kiosco")
+    void shouldBuildSnapshotOnce() {
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of(coca));
+
+        assertTrue(catalogoProductosService.buscarPorCodigoBarras("7790895000041").isPresent());
+        assertTrue(catalogoProductosService.buscarPorCodigo("CC500").isPresent());
+        assertTrue(catalogoProductosService.buscarPorId(coca.getId()).isPresent());
+
+        verify(productoRepository, times(1)).findActivosConCategoria();
+    }
+
+    @Test
+    @DisplayName("Debe reflejar cambios de producto sin volver a la base")
+    void shouldApplyChangesCopyOnWrite() {
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of(coca));
+        catalogoProductosService.buscarPorCodigoBarras("7790895000041");
+
+        coca.setCodigoBarras("7790895000058");
+        coca.setPrecioVenta(new BigDecimal("1600.00"));
+        catalogoProductosService.registrarCambio(coca);
+
+        assertTrue(catalogoProductosService.buscarPorCodigoBarras("7790895000041").isEmpty());
+        Optional<ProductoDTO> actualizado = catalogoProductosService.buscarPorCodigoBarras("7790895000058");
+        assertTrue(actualizado.isPresent());
+        assertEquals(new BigDecimal("1600.00"), actualizado.get().getPrecioVenta());
+        verify(productoRepository, times(1)).findActivosConCategoria();
+    }
+
+    @Test
+    @DisplayName("Debe quitar productos desactivados del catalogo")
+    void shouldRemoveInactiveProducts() {
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of(coca));
+        catalogoProductosService.buscarPorId(coca.getId());
+
+        coca.setActivo(false);
+        catalogoProductosService.registrarCambio(coca);
+
+        assertTrue(catalogoProductosService.buscarPorId(coca.getId()).isEmpty());
+        assertTrue(catalogoProductosService.buscarPorCodigoBarras("7790895000041").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe invalidar solo las entradas de Redis del producto modificado")
+    void shouldEvictOnlyAffectedRedisEntries() {
+        UUID categoriaAnterior = UUID.randomUUID();
+
+        catalogoProductosService.registrarCambio(coca, categoriaAnterior);
+
+        verify(productoCacheService).evictProducto(eq(ProductoCacheService.tenantKey()),
+                argThat(dto -> dto.getId().equals(coca.getId())), eq(categoriaAnterior));
+        verify(productoCacheService, never()).evictTenant(any());
+    }
+
+    @Test
+    @DisplayName("Debe mantener snapshots separados por kiosco")
+    void shouldIsolateTenants() {
+        when(productoRepository.findActivosConCategoria())
+                .thenReturn(List.of(coca))
+                .thenReturn(List.of());
+
+        assertTrue(catalogoProductosService.buscarPorCodigoBarras("7790895000041").isPresent());
+
+        KioscoContext.setContext(UUID.randomUUID(), "owner", UUID.randomUUID(), "otro@example.com");
+        assertTrue(catalogoProductosService.buscarPorCodigoBarras("7790895000041").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe reconstruir el snapshot despues de invalidar")
+    void shouldRebuildAfterInvalidate() {
+        when(productoRepository.findActivosConCategoria()).thenReturn(List.of(coca));
+        catalogoProductosService.buscarPorId(coca.getId());
+
+        catalogoProductosService.invalidar();
+        catalogoProductosService.buscarPorId(coca.getId());
+
+        verify(productoRepository, times(2)).findActivosConCategoria();
+    }
+}
@@ -0,0 +1,155 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.FeatureFlag;
+import ar.com.kiosco.domain.Kiosco;
+import ar.com.kiosco.domain.Plan;
+import ar.com.kiosco.domain.Suscripcion;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
+import ar.com.kiosco.repository.FeatureFlagKioscoRepository;
+import ar.com.kiosco.repository.FeatureFlagRepository;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.repository.PlanRepository;
+import ar.com.kiosco.repository.SuscripcionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetadatosKioscoServiceTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("a1b2c3d4-0000-4000-8000-000000000002");
+
+    @Mock
+    private KioscoRepository kioscoRepository;
+
+    @Mock
+    private PlanRepository planRepository;
+
+    @Mock
+    private SuscripcionRepository suscripcionRepository;
+
+    @Mock
+    private FeatureFlagRepository featureFlagRepository;
+
+    @Mock
+    private FeatureFlagKioscoRepository featureFlagKioscoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<CacheManager> cacheManager;
+
+    @Mock
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    private MetadatosKioscoService metadatosKioscoService;
+
+    @BeforeEach
+    void setUp() {
+        // No Redis: cacheManager and redisTemplate providers return null
+        metadatosKioscoService = new MetadatosKioscoService(kioscoRepository, planRepository,
+                suscripcionRepository, featureFlagRepository, featureFlagKioscoRepository,
+                transactionManager, cacheManager, redisTemplate);
+
+        when(kioscoRepository.findById(KIOSCO_ID)).thenReturn(Optional.of(
+                Kiosco.builder().id(KIOSCO_ID).plan("basic").activo(true).build()));
+        when(planRepository.findByNombre("basic")).thenReturn(Optional.of(
+                Plan.builder().nombre("basic").maxProductos(500).maxVentasMes(2000).build()));
+        when(suscripcionRepository.findActivaByKioscoId(KIOSCO_ID)).thenReturn(Optional.of(
+                Suscripcion.builder().estado(Suscripcion.Estado.ACTIVA).build()));
+        when(featureFlagRepository.findAll()).thenReturn(List.of(
+                FeatureFlag.builder().key("facturacion_afip").habilitadoGlobal(true).build()));
+        when(featureFlagKioscoRepository.findByKioscoId(KIOSCO_ID)).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("Carga kiosco, plan, suscripcion y flags una sola vez y sirve lo demas de memoria")
+    void loadsOnceThenServesFromMemory() {
+        MetadatosKioscoDTO primero = metadatosKioscoService.obtener(KIOSCO_ID).orElseThrow();
+        metadatosKioscoService.obtener(KIOSCO_ID);
+        Suscripcion.Estado estado = metadatosKioscoService.getEstadoSuscripcion(KIOSCO_ID);
+
+        assertEquals("basic", primero.getPlan());
+        assertEquals(500, primero.getMaxProductos());
+        assertTrue(primero.isFeatureEnabled("facturacion_afip"));
+        assertEquals(Suscripcion.Estado.ACTIVA, estado);
+        verify(kioscoRepository, times(1)).findById(KIOSCO_ID);
+        verify(planRepository, times(1)).findByNombre("basic");
+    }
+
+    @Test
+    @DisplayName("Invalidar el kiosco fuerza una nueva lectura")
+    void invalidarReloads() {
+        metadatosKioscoService.obtener(KIOSCO_ID);
+
+        metadatosKioscoService.invalidar(KIOSCO_ID);
+        metadatosKioscoService.obtener(KIOSCO_ID);
+
+        verify(kioscoRepository, times(2)).findById(KIOSCO_ID);
+    }
+
+    @Test
+    @DisplayName("Un mensaje de invalidacion global descarta todas las copias locales")
+    void invalidarTodosMessageClearsLocalCopies() {
+        metadatosKioscoService.obtener(KIOSCO_ID);
+
+        metadatosKioscoService.descartarLocal(MetadatosKioscoService.TODOS);
+        metadatosKioscoService.obtener(KIOSCO_ID);
+
+        verify(kioscoRepository, times(2)).findById(KIOSCO_ID);
+    }
+
+    @Test
+    @DisplayName("Una carga que se cruza con una invalidacion no se guarda en Redis")
+    void loadRacingInvalidationIsNotWrittenToRedis() {
+        CacheManager redis = conRedis();
+        when(kioscoRepository.findById(KIOSCO_ID)).thenAnswer(inv -> {
+            // The write commits and its message arrives while this load runs
+            metadatosKioscoService.descartarLocal(KIOSCO_ID.toString());
+            return Optional.of(Kiosco.builder().id(KIOSCO_ID).plan("basic").activo(true).build());
+        });
+
+        metadatosKioscoService.obtener(KIOSCO_ID);
+
+        assertNull(redis.getCache(MetadatosKioscoService.CACHE).get(KIOSCO_ID.toString()));
+    }
+
+    @Test
+    @DisplayName("Una invalidacion recibida despues de escribir en Redis descarta esa copia")
+    void invalidationMessageEvictsValueThisNodeWrote() {
+        CacheManager redis = conRedis();
+        metadatosKioscoService.obtener(KIOSCO_ID);
+        assertNotNull(redis.getCache(MetadatosKioscoService.CACHE).get(KIOSCO_ID.toString()));
+
+        metadatosKioscoService.descartarLocal(KIOSCO_ID.toString());
+
+        assertNull(redis.getCache(MetadatosKioscoService.CACHE).get(KIOSCO_ID.toString()));
+    }
+
+    private CacheManager conRedis() {
+        CacheManager redis = new ConcurrentMapCacheManager(MetadatosKioscoService.CACHE);
+        when(cacheManager.getIfAvailable()).thenReturn(redis);
+        return redis;
+    }
+}
@@ -1,17 +1,11 @@
 package ar.com.kiosco.service;
 
-import ar.com.kiosco.domain.Kiosco;
 import ar.com.kiosco.domain.KioscoMember;
-import ar.com.kiosco.domain.Plan;
-import ar.com.kiosco.domain.Producto;
-import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.dto.MetadatosKioscoDTO;
 import ar.com.kiosco.dto.PlanUsageDTO;
 import ar.com.kiosco.exception.PlanLimitExceededException;
 import ar.com.kiosco.repository.KioscoMemberRepository;
-import ar.com.kiosco.repository.KioscoRepository;
-import ar.com.kiosco.repository.PlanRepository;
-import ar.com.kiosco.repository.ProductoRepository;
-import ar.com.kiosco.repository.VentaRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository.Contadores;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -21,60 +15,42 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class PlanLimitServiceTest {
 
     @Mock
-    private KioscoRepository kioscoRepository;
+    private MetadatosKioscoService metadatosKioscoService;
 
     @Mock
-    private PlanRepository planRepository;
-
-    @Mock
-    private ProductoRepository productoRepository;
-
-    @Mock
-    private VentaRepository ventaRepository;
+    private KioscoMemberRepository kioscoMemberRepository;
 
     @Mock
-    private KioscoMemberRepository kioscoMemberRepository;
+    private UsoMensualService usoMensualService;
 
     @InjectMocks
     private PlanLimitService planLimitService;
 
     private UUID kioscoId;
-    private Kiosco kiosco;
-    private Plan freePlan;
+    private MetadatosKioscoDTO freePlan;
 
     @BeforeEach
     void setUp() {
         kioscoId = UUID.randomUUID();
 
-        kiosco = Kiosco.builder()
-                .id(kioscoId)
-                .nombre("Test Kiosco")
-                .slug("test-kiosco")
-                .plan("free")
+        freePlan = MetadatosKioscoDTO.builder()
+                .kioscoId(kioscoId)
                 .activo(true)
-                .build();
-
-        freePlan = Plan.builder()
-                .id(UUID.randomUUID())
-                .nombre("free")
+                .plan("free")
                 .maxProductos(100)
                 .maxUsuarios(1)
                 .maxVentasMes(500)
-                .activo(true)
                 .build();
     }
 
@@ -85,9 +61,8 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe pasar si hay espacio para mas productos")
         void shouldPassWhenUnderLimit() {
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(productoRepository.findByActivoTrue()).thenReturn(createProductList(50));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(0, 50));
 
             assertDoesNotThrow(() -> planLimitService.validateCanCreateProducto(kioscoId));
         }
@@ -95,9 +70,8 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe lanzar excepcion si se alcanzo el limite de productos")
         void shouldThrowWhenLimitReached() {
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(productoRepository.findByActivoTrue()).thenReturn(createProductList(100));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(0, 100));
 
             PlanLimitExceededException ex = assertThrows(
                     PlanLimitExceededException.class,
@@ -113,14 +87,13 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe pasar si plan tiene limite null (ilimitado)")
         void shouldPassWhenLimitIsNull() {
-            Plan proPlan = Plan.builder()
-                    .nombre("pro")
+            MetadatosKioscoDTO proPlan = MetadatosKioscoDTO.builder()
+                    .kioscoId(kioscoId)
+                    .plan("pro")
                     .maxProductos(null) // Ilimitado
                     .build();
 
-            kiosco.setPlan("pro");
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("pro")).thenReturn(Optional.of(proPlan));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(proPlan));
 
             assertDoesNotThrow(() -> planLimitService.validateCanCreateProducto(kioscoId));
         }
@@ -135,8 +108,7 @@ class PlanLimitServiceTest {
         void shouldPassWhenUnderLimit() {
             // Free plan allows 1 user, but we have 0
             freePlan.setMaxUsuarios(2);
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
             when(kioscoMemberRepository.findByKioscoId(kioscoId)).thenReturn(List.of());
 
             assertDoesNotThrow(() -> planLimitService.validateCanCreateUsuario(kioscoId));
@@ -146,8 +118,7 @@ class PlanLimitServiceTest {
         @DisplayName("Debe lanzar excepcion si se alcanzo el limite de usuarios")
         void shouldThrowWhenLimitReached() {
             freePlan.setMaxUsuarios(1);
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
             when(kioscoMemberRepository.findByKioscoId(kioscoId)).thenReturn(List.of(new KioscoMember()));
 
             PlanLimitExceededException ex = assertThrows(
@@ -168,9 +139,8 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe pasar si hay espacio para mas ventas este mes")
         void shouldPassWhenUnderLimit() {
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(ventaRepository.findByFechaBetween(any(), any())).thenReturn(createVentaList(100));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(100, 0));
 
             assertDoesNotThrow(() -> planLimitService.validateCanCreateVenta(kioscoId));
         }
@@ -178,9 +148,8 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe lanzar excepcion si se alcanzo el limite de ventas mensuales")
         void shouldThrowWhenLimitReached() {
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(ventaRepository.findByFechaBetween(any(), any())).thenReturn(createVentaList(500));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(500, 0));
 
             PlanLimitExceededException ex = assertThrows(
                     PlanLimitExceededException.class,
@@ -193,27 +162,28 @@ class PlanLimitServiceTest {
         }
 
         @Test
-        @DisplayName("Debe excluir ventas anuladas del conteo")
-        void shouldExcludeCancelledSales() {
-            List<Venta> ventas = new ArrayList<>();
-            // 400 completed + 200 cancelled = 600 total, but only 400 count
-            for (int i = 0; i < 400; i++) {
-                Venta v = new Venta();
-                v.setEstado(Venta.EstadoVenta.COMPLETADA);
-                ventas.add(v);
-            }
-            for (int i = 0; i < 200; i++) {
-                Venta v = new Venta();
-                v.setEstado(Venta.EstadoVenta.ANULADA);
-                ventas.add(v);
-            }
-
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(ventaRepository.findByFechaBetween(any(), any())).thenReturn(ventas);
-
-            // Should not throw because only 400 completed sales
-            assertDoesNotThrow(() -> planLimitService.validateCanCreateVenta(kioscoId));
+        @DisplayName("Debe pasar si un lote completa justo el limite mensual")
+        void shouldPassWhenBatchFillsLimit() {
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(400, 0));
+
+            assertDoesNotThrow(() -> planLimitService.validateCanCreateVentas(kioscoId, 100));
+        }
+
+        @Test
+        @DisplayName("Debe lanzar excepcion si un lote supera el limite mensual")
+        void shouldThrowWhenBatchExceedsLimit() {
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(450, 0));
+
+            PlanLimitExceededException ex = assertThrows(
+                    PlanLimitExceededException.class,
+                    () -> planLimitService.validateCanCreateVentas(kioscoId, 100)
+            );
+
+            assertEquals(PlanLimitExceededException.LimitType.VENTAS, ex.getLimitType());
+            assertEquals(450, ex.getCurrent());
+            assertEquals(500, ex.getLimit());
         }
     }
 
@@ -224,11 +194,9 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe retornar uso correcto para el kiosco")
         void shouldReturnCorrectUsage() {
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("free")).thenReturn(Optional.of(freePlan));
-            when(productoRepository.findByActivoTrue()).thenReturn(createProductList(45));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(freePlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(320, 45));
             when(kioscoMemberRepository.findByKioscoId(kioscoId)).thenReturn(List.of(new KioscoMember()));
-            when(ventaRepository.findByFechaBetween(any(), any())).thenReturn(createVentaList(320));
 
             PlanUsageDTO usage = planLimitService.getUsage(kioscoId);
 
@@ -251,19 +219,17 @@ class PlanLimitServiceTest {
         @Test
         @DisplayName("Debe retornar null para limites ilimitados")
         void shouldReturnNullForUnlimitedLimits() {
-            Plan proPlan = Plan.builder()
-                    .nombre("pro")
+            MetadatosKioscoDTO proPlan = MetadatosKioscoDTO.builder()
+                    .kioscoId(kioscoId)
+                    .plan("pro")
                     .maxProductos(null)
                     .maxUsuarios(null)
                     .maxVentasMes(null)
                     .build();
 
-            kiosco.setPlan("pro");
-            when(kioscoRepository.findById(kioscoId)).thenReturn(Optional.of(kiosco));
-            when(planRepository.findByNombre("pro")).thenReturn(Optional.of(proPlan));
-            when(productoRepository.findByActivoTrue()).thenReturn(createProductList(1000));
+            when(metadatosKioscoService.obtener(kioscoId)).thenReturn(Optional.of(proPlan));
+            when(usoMensualService.getContadores(kioscoId)).thenReturn(new Contadores(10000, 1000));
             when(kioscoMemberRepository.findByKioscoId(kioscoId)).thenReturn(List.of());
-            when(ventaRepository.findByFechaBetween(any(), any())).thenReturn(createVentaList(10000));
 
             PlanUsageDTO usage = planLimitService.getUsage(kioscoId);
 
@@ -274,26 +240,4 @@ class PlanLimitServiceTest {
             assertNull(usage.getProximoLimite());
         }
     }
-
-    // Helper methods
-
-    private List<Producto> createProductList(int count) {
-        List<Producto> productos = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            productos.add(Producto.builder().id(UUID.randomUUID()).activo(true).build());
-        }
-        return productos;
-    }
-
-    private List<Venta> createVentaList(int count) {
-        List<Venta> ventas = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            Venta venta = new Venta();
-            venta.setId(UUID.randomUUID());
-            venta.setFecha(LocalDateTime.now());
-            venta.setEstado(Venta.EstadoVenta.COMPLETADA);
-            ventas.add(venta);
-        }
-        return ventas;
-    }
 }
@@ -0,0 +1,115 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.ProductoDTO;
+import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.security.KioscoContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockProductosServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private CadenaAgregadosService cadenaAgregadosService;
+
+    @InjectMocks
+    private StockProductosService stockProductosService;
+
+    private UUID productoId;
+
+    @BeforeEach
+    void setUp() {
+        KioscoContext.setContext(UUID.randomUUID(), "owner", UUID.randomUUID(), "test@example.com");
+        productoId = UUID.randomUUID();
+        when(productoRepository.findNivelesStock()).thenReturn(List.of(nivel(productoId, "10", "5")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        KioscoContext.clear();
+    }
+
+    @Test
+    @DisplayName("Debe combinar el stock actual con el DTO cacheado sin modificarlo")
+    void shouldMergeStockIntoCopy() {
+        ProductoDTO cacheado = ProductoDTO.builder()
+                .id(productoId)
+                .nombre("Coca Cola 500ml")
+                .precioVenta(new BigDecimal("1500.00"))
+                .stockActual(new BigDecimal("99"))
+                .build();
+
+        ProductoDTO resultado = stockProductosService.conStock(cacheado);
+
+        assertEquals(new BigDecimal("10"), resultado.getStockActual());
+        assertFalse(resultado.getStockBajo());
+        assertEquals(new BigDecimal("99"), cacheado.getStockActual());
+        assertEquals("Coca Cola 500ml", resultado.getNombre());
+    }
+
+    @Test
+    @DisplayName("Debe aplicar ajustes de venta sin recargar desde la base")
+    void shouldApplyDeltas() {
+        stockProductosService.obtener(productoId);
+
+        stockProductosService.registrarAjuste(productoId, new BigDecimal("-6"));
+
+        assertEquals(new BigDecimal("4"), stockProductosService.obtener(productoId).orElseThrow().actual());
+        assertEquals(List.of(productoId), stockProductosService.idsStockBajo());
+        verify(productoRepository, times(1)).findNivelesStock();
+        verify(cadenaAgregadosService).registrarStock(productoId);
+    }
+
+    @Test
+    @DisplayName("Debe quitar productos inactivos de los contadores")
+    void shouldDropInactiveProducts() {
+        stockProductosService.obtener(productoId);
+
+        Producto producto = Producto.builder()
+                .id(productoId)
+                .stockActual(BigDecimal.ONE)
+                .stockMinimo(new BigDecimal("5"))
+                .activo(false)
+                .build();
+        stockProductosService.registrarNivel(producto);
+
+        assertTrue(stockProductosService.obtener(productoId).isEmpty());
+        assertTrue(stockProductosService.idsStockBajo().isEmpty());
+    }
+
+    private ProductoRepository.NivelStock nivel(UUID id, String actual, String minimo) {
+        return new ProductoRepository.NivelStock() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getStockActual() {
+                return new BigDecimal(actual);
+            }
+
+            @Override
+            public BigDecimal getStockMinimo() {
+                return new BigDecimal(minimo);
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.dto.MigrationReportDTO;
+import ar.com.kiosco.dto.MigrationReportDTO.TenantMigrationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TenantMigrationServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private TenantMigrationService tenantMigrationService;
+
+    @Test
+    @DisplayName("Las versiones de todos los tenants se leen en una sola consulta")
+    void readsAllVersionsInOneQuery() {
+        versiones(Map.of("kiosco_aaaa1111", 3, "kiosco_bbbb2222", 0));
+
+        Map<String, Integer> versions = tenantMigrationService.getCurrentVersions();
+
+        assertEquals(3, versions.get("kiosco_aaaa1111"));
+        assertEquals(0, versions.get("kiosco_bbbb2222"));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Integer.class));
+    }
+
+    @Test
+    @DisplayName("Los tenants al dia se informan salteados sin tomar conexion")
+    void upToDateTenantsAreSkippedWithoutConnection() {
+        int latest = tenantMigrationService.getLatestAvailableVersion();
+        versiones(Map.of("kiosco_aaaa1111", latest, "kiosco_bbbb2222", latest));
+
+        MigrationReportDTO report = tenantMigrationService.migrateAllTenants();
+
+        assertEquals(2, report.totalTenants());
+        assertEquals(2, report.skipped());
+        assertEquals(0, report.failed());
+        verify(jdbcTemplate, never()).getDataSource();
+    }
+
+    @Test
+    @DisplayName("Un schema bloqueado por otro nodo no se migra")
+    void schemaLockedByAnotherNodeIsNotMigrated() throws Exception {
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(contains("pg_try_advisory_lock"))).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(false);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(5);
+
+        TenantMigrationResult result = tenantMigrationService.migrateTenant("kiosco_aaaa1111");
+
+        assertTrue(result.success());
+        assertEquals(0, result.migrationsApplied());
+        assertEquals(5, result.newVersion());
+        assertNotNull(result.error());
+        verify(statement, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("Un nombre de schema invalido se rechaza")
+    void invalidSchemaNameIsRejected() {
+        TenantMigrationResult result = tenantMigrationService.migrateTenant("public; DROP SCHEMA x");
+
+        assertFalse(result.success());
+        verify(jdbcTemplate, never()).getDataSource();
+    }
+
+    private void versiones(Map<String, Integer> versiones) {
+        List<Map<String, Object>> filas = versiones.entrySet().stream()
+                .map(e -> Map.<String, Object>of("schema_name", e.getKey(), "version", e.getValue()))
+                .toList();
+        when(jdbcTemplate.queryForList(anyString(), eq("kiosco_%"))).thenReturn(filas);
+    }
+}
@@ -0,0 +1,120 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.repository.KioscoRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository;
+import ar.com.kiosco.repository.UsoMensualContadorRepository.Contadores;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsoMensualServiceTest {
+
+    private static final UUID KIOSCO_ID = UUID.fromString("a1b2c3d4-0000-4000-8000-000000000001");
+    private static final String SCHEMA = "kiosco_a1b2c3d4";
+
+    @Mock
+    private UsoMensualContadorRepository contadorRepository;
+
+    @Mock
+    private KioscoRepository kioscoRepository;
+
+    @Mock
+    private TenantSchemaManager tenantSchemaManager;
+
+    @InjectMocks
+    private UsoMensualService usoMensualService;
+
+    private Venta venta;
+
+    @BeforeEach
+    void setUp() {
+        venta = Venta.builder()
+                .fecha(LocalDateTime.of(2026, 2, 27, 10, 0))
+                .total(new BigDecimal("1500.00"))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Una venta incrementa el contador del mes sin recontar")
+    void ventaIncrementsExistingRow() {
+        YearMonth febrero = YearMonth.of(2026, 2);
+        when(contadorRepository.sumar(KIOSCO_ID, febrero, 1, new BigDecimal("1500.00"), 0)).thenReturn(true);
+
+        usoMensualService.registrarVenta(KIOSCO_ID, venta);
+
+        verify(contadorRepository, never()).sembrar(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("El primer movimiento del mes siembra la fila y despues aplica el incremento")
+    void firstChangeOfMonthSeedsThenApplies() {
+        YearMonth febrero = YearMonth.of(2026, 2);
+        when(tenantSchemaManager.getSchemaName(KIOSCO_ID)).thenReturn(SCHEMA);
+        when(contadorRepository.sumar(KIOSCO_ID, febrero, 1, new BigDecimal("1500.00"), 0))
+                .thenReturn(false, true);
+
+        usoMensualService.registrarVenta(KIOSCO_ID, venta);
+
+        InOrder orden = inOrder(contadorRepository);
+        orden.verify(contadorRepository).sumar(KIOSCO_ID, febrero, 1, new BigDecimal("1500.00"), 0);
+        orden.verify(contadorRepository).sembrar(KIOSCO_ID, febrero, SCHEMA);
+        orden.verify(contadorRepository).sumar(KIOSCO_ID, febrero, 1, new BigDecimal("1500.00"), 0);
+    }
+
+    @Test
+    @DisplayName("La anulacion descuenta del mes en que se hizo la venta")
+    void anulacionDecrementsMonthOfSale() {
+        when(contadorRepository.sumar(KIOSCO_ID, YearMonth.of(2026, 2), -1, new BigDecimal("-1500.00"), 0))
+                .thenReturn(true);
+
+        usoMensualService.registrarAnulacion(KIOSCO_ID, venta);
+
+        verify(contadorRepository).sumar(KIOSCO_ID, YearMonth.of(2026, 2), -1, new BigDecimal("-1500.00"), 0);
+    }
+
+    @Test
+    @DisplayName("Los contadores se siembran la primera vez que se leen en el mes")
+    void getContadoresSeedsMissingRow() {
+        when(tenantSchemaManager.getSchemaName(KIOSCO_ID)).thenReturn(SCHEMA);
+        when(contadorRepository.find(KIOSCO_ID, YearMonth.now()))
+                .thenReturn(Optional.empty(), Optional.of(new Contadores(12, 40)));
+
+        Contadores contadores = usoMensualService.getContadores(KIOSCO_ID);
+
+        verify(contadorRepository).sembrar(KIOSCO_ID, YearMonth.now(), SCHEMA);
+        assertEquals(12, contadores.ventas());
+        assertEquals(40, contadores.productos());
+    }
+
+    @Test
+    @DisplayName("Sin kiosco en contexto no se actualiza ningun contador")
+    void noKioscoIsNoop() {
+        usoMensualService.registrarAltaProducto(null);
+
+        verify(contadorRepository, never()).sumar(any(), any(), anyInt(), any(), anyInt());
+        verifyNoInteractions(tenantSchemaManager);
+    }
+}
@@ -0,0 +1,269 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Producto;
+import ar.com.kiosco.dto.VentaCreateDTO;
+import ar.com.kiosco.dto.VentaItemCreateDTO;
+import ar.com.kiosco.dto.VentaDTO;
+import ar.com.kiosco.dto.VentaOfflineResultadoDTO;
+import ar.com.kiosco.repository.NumeradorRepository;
+import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.repository.ProductoStockRepository;
+import ar.com.kiosco.repository.VentasResumenRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the number of JDBC statements issued by VentaService.crear and crearLote.
+ * A sale must cost the same number of statements regardless of how many lines it has,
+ * and an offline batch must not cost a round of statements per sale.
+ * Statements are counted at the DataSource, so both Hibernate and JdbcTemplate are seen.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@ActiveProfiles("test")
+@Import({VentaService.class, ProductoStockRepository.class, NumeradorRepository.class})
+class VentaServiceStatementCountTest {
+
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    private static final int MAX_STATEMENTS_PER_SALE = 6;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CuentaCorrienteService cuentaCorrienteService;
+
+    @MockBean
+    private LoteService loteService;
+
+    @MockBean
+    private PlanLimitService planLimitService;
+
+    @MockBean
+    private AuditService auditService;
+
+    @MockBean
+    private StockProductosService stockProductosService;
+
+    @MockBean
+    private VentasResumenRepository ventasResumenRepository;
+
+    @MockBean
+    private UsoMensualService usoMensualService;
+
+    @MockBean
+    private CadenaAgregadosService cadenaAgregadosService;
+
+    private List<Producto> productos;
+
+    @BeforeEach
+    void setUp() {
+        // Created by the tenant migrations in production; Hibernate's DDL does not know about it
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS ventas_numero_seq");
+
+        productos = IntStream.range(0, 15)
+                .mapToObj(i -> productoRepository.save(Producto.builder()
+                        .nombre("Producto " + i)
+                        .codigo("P" + i)
+                        .precioVenta(new BigDecimal("100.00"))
+                        .stockActual(new BigDecimal("50"))
+                        .build()))
+                .toList();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Una venta de 15 items usa la misma cantidad de sentencias que una de 1 item")
+    void statementCountDoesNotGrowWithItems() {
+        long unItem = statementsFor(venta(productos.subList(0, 1)));
+        long quinceItems = statementsFor(venta(productos));
+
+        assertThat(unItem).isLessThanOrEqualTo(MAX_STATEMENTS_PER_SALE);
+        assertThat(quinceItems).isEqualTo(unItem);
+    }
+
+    @Test
+    @DisplayName("El stock se descuenta en todos los productos de la venta")
+    void stockIsDeducted() {
+        ventaService.crear(venta(productos));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(productoRepository.findAllById(productos.stream().map(Producto::getId).toList()))
+                .allSatisfy(p -> assertThat(p.getStockActual()).isEqualByComparingTo("49"));
+    }
+
+    @Test
+    @DisplayName("Cada venta toma un numero distinto de la secuencia")
+    void salesGetDistinctNumbers() {
+        VentaDTO primera = ventaService.crear(venta(productos.subList(0, 1)));
+        VentaDTO segunda = ventaService.crear(venta(productos.subList(0, 1)));
+
+        assertThat(segunda.getNumero()).isGreaterThan(primera.getNumero());
+    }
+
+    @Test
+    @DisplayName("Un lote de 50 ventas offline usa las sentencias de unas pocas ventas sueltas")
+    void offlineBatchSharesStatements() {
+        List<VentaCreateDTO> ventas = IntStream.range(0, 50)
+                .mapToObj(i -> conClave(venta(productos.subList(i % 15, i % 15 + 1))))
+                .toList();
+
+        STATEMENTS.set(0);
+        List<VentaOfflineResultadoDTO> resultados = ventaService.crearLote(ventas);
+        entityManager.flush();
+        long count = STATEMENTS.get();
+        entityManager.clear();
+
+        assertThat(resultados).extracting(VentaOfflineResultadoDTO::getEstado)
+                .containsOnly(VentaOfflineResultadoDTO.Estado.CREADA);
+        assertThat(resultados).extracting(VentaOfflineResultadoDTO::getNumero).doesNotHaveDuplicates();
+        assertThat(count).isLessThanOrEqualTo(2 * MAX_STATEMENTS_PER_SALE);
+    }
+
+    @Test
+    @DisplayName("Reenviar una venta con la misma clave no la registra dos veces")
+    void replayedKeyIsNotBookedTwice() {
+        VentaCreateDTO venta = conClave(venta(productos.subList(0, 1)));
+
+        VentaOfflineResultadoDTO primera = ventaService.crearLote(List.of(venta)).get(0);
+        entityManager.flush();
+        entityManager.clear();
+        VentaOfflineResultadoDTO reenvio = ventaService.crearLote(List.of(venta)).get(0);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(primera.getEstado()).isEqualTo(VentaOfflineResultadoDTO.Estado.CREADA);
+        assertThat(reenvio.getEstado()).isEqualTo(VentaOfflineResultadoDTO.Estado.DUPLICADA);
+        assertThat(reenvio.getVentaId()).isEqualTo(primera.getVentaId());
+        assertThat(ventaService.crear(venta).getId()).isEqualTo(primera.getVentaId());
+        assertThat(productoRepository.findById(productos.get(0).getId()).orElseThrow().getStockActual())
+                .isEqualByComparingTo("49");
+    }
+
+    @Test
+    @DisplayName("Una venta sin stock se rechaza sin frenar el resto del lote")
+    void saleWithoutStockIsRejectedAlone() {
+        VentaCreateDTO sinStock = conClave(venta(productos.subList(1, 2)));
+        sinStock.getItems().get(0).setCantidad(new BigDecimal("51"));
+
+        List<VentaOfflineResultadoDTO> resultados = ventaService.crearLote(List.of(
+                conClave(venta(productos.subList(0, 1))), sinStock, conClave(venta(productos.subList(2, 3)))));
+
+        assertThat(resultados).extracting(VentaOfflineResultadoDTO::getEstado).containsExactly(
+                VentaOfflineResultadoDTO.Estado.CREADA,
+                VentaOfflineResultadoDTO.Estado.RECHAZADA,
+                VentaOfflineResultadoDTO.Estado.CREADA);
+        assertThat(resultados.get(1).getError()).contains("Stock insuficiente");
+    }
+
+    private long statementsFor(VentaCreateDTO dto) {
+        STATEMENTS.set(0);
+        ventaService.crear(dto);
+        entityManager.flush();
+        long count = STATEMENTS.get();
+        entityManager.clear();
+        return count;
+    }
+
+    private static VentaCreateDTO conClave(VentaCreateDTO dto) {
+        dto.setClaveIdempotencia(UUID.randomUUID());
+        return dto;
+    }
+
+    private VentaCreateDTO venta(List<Producto> lineas) {
+        return VentaCreateDTO.builder()
+                .medioPago("EFECTIVO")
+                .items(lineas.stream()
+                        .map(p -> VentaItemCreateDTO.builder()
+                                .productoId(p.getId())
+                                .cantidad(BigDecimal.ONE)
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection target) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("prepareCall")
+                                || name.equals("createStatement")) {
+                            STATEMENTS.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ar.com.kiosco.service;
+
+import ar.com.kiosco.domain.Venta;
+import ar.com.kiosco.dto.VentaCreateDTO;
+import ar.com.kiosco.dto.VentaDTO;
+import ar.com.kiosco.repository.ClienteRepository;
+import ar.com.kiosco.repository.NumeradorRepository;
+import ar.com.kiosco.repository.ProductoRepository;
+import ar.com.kiosco.repository.ProductoStockRepository;
+import ar.com.kiosco.repository.VentaRepository;
+import ar.com.kiosco.repository.VentasResumenRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VentaServiceTest {
+
+    @Mock
+    private VentaRepository ventaRepository;
+
+    @Mock
+    private VentasResumenRepository ventasResumenRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ProductoStockRepository productoStockRepository;
+
+    @Mock
+    private ClienteRepository clienteRepository;
+
+    @Mock
+    private NumeradorRepository numeradorRepository;
+
+    @Mock
+    private CuentaCorrienteService cuentaCorrienteService;
+
+    @Mock
+    private LoteService loteService;
+
+    @Mock
+    private PlanLimitService planLimitService;
+
+    @Mock
+    private UsoMensualService usoMensualService;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private StockProductosService stockProductosService;
+
+    @Mock
+    private CadenaAgregadosService cadenaAgregadosService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private VentaService ventaService;
+
+    @Test
+    @DisplayName("Un reintento que pierde la carrera por la clave devuelve la venta ya registrada")
+    void concurrentRetryReturnsTheWinningSale() {
+        UUID clave = UUID.randomUUID();
+        Venta ganadora = Venta.builder()
+                .id(UUID.randomUUID())
+                .numero(42)
+                .fecha(LocalDateTime.now())
+                .medioPago(Venta.MedioPago.EFECTIVO)
+                .estado(Venta.EstadoVenta.COMPLETADA)
+                .esFiado(false)
+                .claveIdempotencia(clave)
+                .build();
+        // Both retries miss the lookup; the other one commits first
+        when(ventaRepository.findByClaveIdempotencia(clave))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(ganadora));
+        when(ventaRepository.save(any(Venta.class)))
+                .thenThrow(new DataIntegrityViolationException("idx_ventas_clave_idempotencia"));
+
+        VentaDTO resultado = ventaService.crear(venta(clave));
+
+        assertThat(resultado.getId()).isEqualTo(ganadora.getId());
+        assertThat(resultado.getNumero()).isEqualTo(42);
+        verify(auditService, never()).logCreate(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Una violacion de integridad sin clave de idempotencia no se oculta")
+    void violationWithoutKeyIsRethrown() {
+        when(ventaRepository.save(any(Venta.class)))
+                .thenThrow(new DataIntegrityViolationException("ventas_numero_key"));
+
+        assertThatThrownBy(() -> ventaService.crear(venta(null)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private static VentaCreateDTO venta(UUID clave) {
+        return VentaCreateDTO.builder()
+                .medioPago("EFECTIVO")
+                .descuento(BigDecimal.ZERO)
+                .claveIdempotencia(clave)
+                .items(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package ar.com.kiosco.support;
+
+import ar.com.kiosco.config.TenantSchemaManager;
+import ar.com.kiosco.domain.Kiosco;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tenant schemas on the real PostgreSQL of the KIOSCO_TEST_PG_* variables, built with
+ * the production migrations. Tests using it are gated on KIOSCO_TEST_PG_URL.
+ * Everything runs on one connection, so a search_path set by the test sticks.
+ */
+public final class PostgresTenantFixture implements AutoCloseable {
+
+    private final SingleConnectionDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TenantSchemaManager tenantSchemaManager;
+    private final List<UUID> tenants = new ArrayList<>();
+
+    private PostgresTenantFixture() {
+        dataSource = new SingleConnectionDataSource(
+                System.getenv("KIOSCO_TEST_PG_URL"),
+                System.getenv().getOrDefault("KIOSCO_TEST_PG_USER", "kiosco"),
+                System.getenv().getOrDefault("KIOSCO_TEST_PG_PASSWORD", "kiosco"),
+                true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        tenantSchemaManager = new TenantSchemaManager(jdbcTemplate);
+    }
+
+    public static PostgresTenantFixture connect() {
+        return new PostgresTenantFixture();
+    }
+
+    public SingleConnectionDataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public TenantSchemaManager tenantSchemaManager() {
+        return tenantSchemaManager;
+    }
+
+    /**
+     * Drops what a previous run left behind and builds a fresh schema for the kiosco.
+     * It is dropped again on {@link #close()}.
+     * @return the schema name
+     */
+    public String createTenant(UUID kioscoId) {
+        tenantSchemaManager.dropTenantSchema(kioscoId);
+        tenants.add(kioscoId);
+        return tenantSchemaManager.createTenantSchema(Kiosco.builder().id(kioscoId).build());
+    }
+
+    /**
+     * Like {@link #createTenant(UUID)}, and points the connection's search_path at the schema.
+     */
+    public String useTenant(UUID kioscoId) {
+        String schema = createTenant(kioscoId);
+        jdbcTemplate.execute("SET search_path TO " + schema);
+        return schema;
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SET search_path TO public");
+        for (UUID kioscoId : tenants) {
+            tenantSchemaManager.dropTenantSchema(kioscoId);
+        }
+        dataSource.destroy();
+    }
+}
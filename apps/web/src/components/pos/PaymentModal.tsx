@@ -171,6 +171,9 @@ export function PaymentModal({ open, onClose, onSuccess }: PaymentModalProps) {
 
       const backendMedioPago = mapToBackendMedioPago(medioPago);
 
+      // Same key for the immediate request and any later replay, so the sale is booked once
+      const claveIdempotencia = crypto.randomUUID();
+
       // Prepare venta data for API
       const ventaCreate: VentaCreate = {
         items: items.map((item) => ({
@@ -181,6 +184,7 @@ export function PaymentModal({ open, onClose, onSuccess }: PaymentModalProps) {
         descuento: 0,
         montoRecibido: medioPago === 'EFECTIVO' ? parseFloat(montoRecibido) : undefined,
         clienteId: selectedClienteId,
+        claveIdempotencia,
       };
 
       // Prepare local venta data
@@ -203,6 +207,7 @@ export function PaymentModal({ open, onClose, onSuccess }: PaymentModalProps) {
         vuelto: medioPago === 'EFECTIVO' ? vuelto : undefined,
         clienteId: selectedClienteId,
         fecha: Date.now(),
+        claveIdempotencia,
       };
 
       // Hybrid mode: try immediate sync if online
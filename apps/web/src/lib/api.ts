@@ -1,4 +1,4 @@
-import type { AgregarKioscoACadena, Cadena, CadenaCreate, CadenaMember, CadenaMemberCreate, Categoria, CategoriaCreate, Cliente, ClienteCreate, Comparativo, Comprobante, ConfigFiscal, ConfigFiscalCreate, ConfigImpresora, ConfigImpresoraCreate, ConfigPagos, ConfigPagosCreate, CuentaCorriente, EmitirFactura, GenerarOrdenDesdeSugerencias, HistorialPrecio, Insight, KioscoResumen, Lote, LoteCreate, MetodosPagoHabilitados, Movimiento, OrdenCompra, OrdenCompraCreate, Pago, PaymentStatus, PreferenciaResponse, Producto, ProductoAbc, ProductoCreate, ProductoMasVendido, ProductoProveedor, ProductoProveedorCreate, ProductoSinMovimiento, Proveedor, ProveedorCreate, ProyeccionVentas, QrInteroperableResponse, QrResponse, RankingKiosco, RecepcionOrden, RentabilidadCategoria, RentabilidadProducto, ReporteConsolidado, ResumenCaja, ResumenDashboard, StockConsolidado, SugerenciaCompra, Tendencia, TendenciaProducto, TicketPruebaResponse, TicketVentaResponse, ValidacionCuit, VencimientoResumen, Venta, VentaCreate, VentaDiaria, VentaPorHora, VentaRango, VerificacionAfip, VerificacionCertificado, VerificacionMp } from '@/types';
+import type { AgregarKioscoACadena, Cadena, CadenaCreate, CadenaMember, CadenaMemberCreate, CatalogoCambios, Categoria, CategoriaCreate, Cliente, ClienteCreate, Comparativo, Comprobante, ConfigFiscal, ConfigFiscalCreate, ConfigImpresora, ConfigImpresoraCreate, ConfigPagos, ConfigPagosCreate, CuentaCorriente, EmitirFactura, GenerarOrdenDesdeSugerencias, HistorialPrecio, Insight, KioscoResumen, Lote, LoteCreate, MetodosPagoHabilitados, Movimiento, OrdenCompra, OrdenCompraCreate, Pago, PaymentStatus, PreferenciaResponse, Producto, ProductoAbc, ProductoCreate, ProductoMasVendido, ProductoProveedor, ProductoProveedorCreate, ProductoSinMovimiento, Proveedor, ProveedorCreate, ProyeccionVentas, QrInteroperableResponse, QrResponse, RankingKiosco, RecepcionOrden, RentabilidadCategoria, RentabilidadProducto, ReporteConsolidado, ResumenCaja, ResumenDashboard, StockConsolidado, SugerenciaCompra, Tendencia, TendenciaProducto, TicketPruebaResponse, TicketVentaResponse, ValidacionCuit, VencimientoResumen, Venta, VentaCreate, VentaDiaria, VentaOfflineResultado, VentaPorHora, VentaRango, VerificacionAfip, VerificacionCertificado, VerificacionMp } from '@/types';
 
 const API_BASE = process.env.NEXT_PUBLIC_API_URL || 'http://localhost:8080/api';
 
@@ -138,6 +138,15 @@ export const productosApi = {
     return handleResponse<Producto[]>(response);
   },
 
+  // The browser revalidates with If-None-Match; an unchanged catalog comes back as 304
+  cambios: async (desde?: number | null): Promise<CatalogoCambios> => {
+    const url = desde
+      ? `${API_BASE}/productos/cambios?desde=${desde}`
+      : `${API_BASE}/productos/cambios`;
+    const response = await authFetch(url, { headers: getAuthHeaders(), cache: 'no-cache' });
+    return handleResponse<CatalogoCambios>(response);
+  },
+
   crear: async (data: ProductoCreate): Promise<Producto> => {
     const response = await authFetch(`${API_BASE}/productos`, {
       method: 'POST',
@@ -184,6 +193,16 @@ export const ventasApi = {
     return handleResponse<Venta>(response);
   },
 
+  // Offline sales, oldest first (max 500); one result per sale in the same order
+  crearLote: async (ventas: VentaCreate[]): Promise<VentaOfflineResultado[]> => {
+    const response = await authFetch(`${API_BASE}/ventas/lote`, {
+      method: 'POST',
+      headers: getHeaders(),
+      body: JSON.stringify({ ventas }),
+    });
+    return handleResponse<VentaOfflineResultado[]>(response);
+  },
+
   obtener: async (id: string): Promise<Venta> => {
     const response = await authFetch(`${API_BASE}/ventas/${id}`);
     return handleResponse<Venta>(response);
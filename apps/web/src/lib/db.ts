@@ -49,6 +49,7 @@ export interface OfflineVenta {
   vuelto?: number;
   clienteId?: string;
   fecha: number;
+  claveIdempotencia?: string;
   synced: boolean;
   syncError?: string;
 }
@@ -96,6 +97,16 @@ export async function setLastSyncTime(timestamp: number): Promise<void> {
   await setConfig('lastSyncAt', timestamp);
 }
 
+// Catalog revision of the last delta sync, per kiosco (a cursor from another kiosco is useless)
+export async function getCatalogoRevision(kioscoId: string): Promise<number | null> {
+  const value = await getConfig(`catalogoRevision:${kioscoId}`);
+  return typeof value === 'number' ? value : null;
+}
+
+export async function setCatalogoRevision(kioscoId: string, revision: number): Promise<void> {
+  await setConfig(`catalogoRevision:${kioscoId}`, revision);
+}
+
 export async function getNextVentaNumero(): Promise<number> {
   const value = await getConfig('nextVentaNumero');
   return typeof value === 'number' ? value : 1;
@@ -1,10 +1,23 @@
-import { db, setLastSyncTime, setNextVentaNumero, type OfflineProducto, type OfflineCategoria, type OfflineVenta } from './db';
-import { productosApi, categoriasApi, ventasApi } from './api';
+import { db, getCatalogoRevision, setCatalogoRevision, setLastSyncTime, setNextVentaNumero, type OfflineProducto, type OfflineCategoria, type OfflineVenta } from './db';
+import { productosApi, ventasApi } from './api';
 import type { Producto, Categoria, VentaCreate, MedioPago } from '@/types';
 
 type SyncStatus = 'idle' | 'syncing' | 'error';
 type SyncCallback = (status: SyncStatus, pendingCount: number) => void;
 
+function currentKioscoId(): string | null {
+  if (typeof window === 'undefined') return null;
+  try {
+    const kiosco = JSON.parse(localStorage.getItem('kiosco_kiosco') || 'null');
+    return kiosco?.id ?? null;
+  } catch {
+    return null;
+  }
+}
+
+// Sales per POST /ventas/lote request (server maximum: 500)
+const VENTAS_POR_LOTE = 200;
+
 class SyncService {
   private listeners: Set<SyncCallback> = new Set();
   private status: SyncStatus = 'idle';
@@ -39,14 +52,17 @@ class SyncService {
     this.notifyListeners();
   }
 
-  async syncProductos(): Promise<void> {
+  // Applies the catalog changes since the last sync; the first sync (or a new kiosco) replaces everything
+  async syncCatalogo(): Promise<void> {
     if (!this.isOnline()) return;
 
     try {
-      const productos = await productosApi.listar();
+      const kioscoId = currentKioscoId();
+      const desde = kioscoId ? await getCatalogoRevision(kioscoId) : null;
+      const cambios = await productosApi.cambios(desde);
       const now = Date.now();
 
-      const offlineProductos: OfflineProducto[] = productos.map((p: Producto) => ({
+      const offlineProductos: OfflineProducto[] = cambios.productos.map((p: Producto) => ({
         id: p.id,
         codigo: p.codigo,
         codigoBarras: p.codigoBarras,
@@ -64,24 +80,7 @@ class SyncService {
         syncedAt: now,
       }));
 
-      await db.transaction('rw', db.productos, async () => {
-        await db.productos.clear();
-        await db.productos.bulkPut(offlineProductos);
-      });
-    } catch (error) {
-      console.error('Error syncing productos:', error);
-      throw error;
-    }
-  }
-
-  async syncCategorias(): Promise<void> {
-    if (!this.isOnline()) return;
-
-    try {
-      const categorias = await categoriasApi.listar();
-      const now = Date.now();
-
-      const offlineCategorias: OfflineCategoria[] = categorias.map((c: Categoria) => ({
+      const offlineCategorias: OfflineCategoria[] = cambios.categorias.map((c: Categoria) => ({
         id: c.id,
         nombre: c.nombre,
         descripcion: c.descripcion,
@@ -91,12 +90,30 @@ class SyncService {
         syncedAt: now,
       }));
 
-      await db.transaction('rw', db.categorias, async () => {
-        await db.categorias.clear();
+      await db.transaction('rw', db.productos, db.categorias, async () => {
+        if (cambios.completo) {
+          await db.productos.clear();
+          await db.categorias.clear();
+        }
+        await db.productos.bulkPut(offlineProductos);
+        await db.productos.bulkDelete(cambios.productosEliminados);
         await db.categorias.bulkPut(offlineCategorias);
+        await db.categorias.bulkDelete(cambios.categoriasEliminadas);
+
+        // Products keep a copy of their category's name and color
+        if (!cambios.completo) {
+          for (const c of offlineCategorias) {
+            await db.productos.where('categoriaId').equals(c.id)
+              .modify({ categoriaNombre: c.nombre, categoriaColor: c.color });
+          }
+        }
       });
+
+      if (kioscoId) {
+        await setCatalogoRevision(kioscoId, cambios.revision);
+      }
     } catch (error) {
-      console.error('Error syncing categorias:', error);
+      console.error('Error syncing catalogo:', error);
       throw error;
     }
   }
@@ -105,36 +122,55 @@ class SyncService {
     if (!this.isOnline()) return;
 
     const pendingVentas = await db.ventas.filter(v => v.synced === false).toArray();
+    pendingVentas.sort((a, b) => a.fecha - b.fecha);
 
-    for (const venta of pendingVentas) {
+    for (let i = 0; i < pendingVentas.length; i += VENTAS_POR_LOTE) {
+      const lote = pendingVentas.slice(i, i + VENTAS_POR_LOTE);
       try {
-        const ventaCreate: VentaCreate = {
-          items: venta.items.map((item) => ({
-            productoId: item.productoId,
-            cantidad: item.cantidad,
-          })),
-          medioPago: venta.medioPago as MedioPago,
-          descuento: venta.descuento,
-          montoRecibido: venta.montoRecibido,
-          clienteId: venta.clienteId,
-        };
-
-        await ventasApi.crear(ventaCreate);
-
-        // Mark as synced
-        await db.ventas.update(venta.id, { synced: true, syncError: undefined });
-      } catch (error) {
-        console.error('Error syncing venta:', venta.id, error);
-        // Mark sync error but don't stop - try other ventas
-        await db.ventas.update(venta.id, {
-          syncError: error instanceof Error ? error.message : 'Error de sincronizacion',
+        const ventas = await Promise.all(lote.map((venta) => this.toVentaCreate(venta)));
+        const resultados = await ventasApi.crearLote(ventas);
+
+        await db.transaction('rw', db.ventas, async () => {
+          for (let j = 0; j < lote.length; j++) {
+            const resultado = resultados[j];
+            if (resultado?.estado === 'RECHAZADA') {
+              await db.ventas.update(lote[j].id, { syncError: resultado.error || 'Venta rechazada' });
+            } else if (resultado) {
+              await db.ventas.update(lote[j].id, { synced: true, syncError: undefined });
+            }
+          }
         });
+      } catch (error) {
+        // Network or server error: the whole batch stays pending and is replayed with the same keys
+        console.error('Error syncing ventas:', error);
+        break;
       }
     }
 
     await this.updatePendingCount();
   }
 
+  // Sales saved before idempotency keys existed get one now, stored before the first send
+  private async toVentaCreate(venta: OfflineVenta): Promise<VentaCreate> {
+    let claveIdempotencia = venta.claveIdempotencia;
+    if (!claveIdempotencia) {
+      claveIdempotencia = crypto.randomUUID();
+      await db.ventas.update(venta.id, { claveIdempotencia });
+    }
+    return {
+      items: venta.items.map((item) => ({
+        productoId: item.productoId,
+        cantidad: item.cantidad,
+      })),
+      medioPago: venta.medioPago as MedioPago,
+      descuento: venta.descuento,
+      montoRecibido: venta.montoRecibido,
+      clienteId: venta.clienteId,
+      claveIdempotencia,
+      fecha: new Date(venta.fecha).toISOString(),
+    };
+  }
+
   async syncNextVentaNumero(): Promise<void> {
     if (!this.isOnline()) return;
 
@@ -159,8 +195,7 @@ class SyncService {
 
       // Then sync data from server to local
       await Promise.all([
-        this.syncProductos(),
-        this.syncCategorias(),
+        this.syncCatalogo(),
         this.syncNextVentaNumero(),
       ]);
 
@@ -215,18 +250,13 @@ class SyncService {
     if (!venta || venta.synced) return false;
 
     try {
-      const ventaCreate: VentaCreate = {
-        items: venta.items.map((item) => ({
-          productoId: item.productoId,
-          cantidad: item.cantidad,
-        })),
-        medioPago: venta.medioPago as MedioPago,
-        descuento: venta.descuento,
-        montoRecibido: venta.montoRecibido,
-        clienteId: venta.clienteId,
-      };
-
-      await ventasApi.crear(ventaCreate);
+      const ventaCreate = await this.toVentaCreate(venta);
+
+      // Through the batch endpoint so the sale keeps its original date
+      const [resultado] = await ventasApi.crearLote([ventaCreate]);
+      if (resultado?.estado === 'RECHAZADA') {
+        throw new Error(resultado.error || 'Venta rechazada');
+      }
       await db.ventas.update(ventaId, { synced: true, syncError: undefined });
       await this.updatePendingCount();
       return true;
@@ -33,6 +33,16 @@ export interface Producto {
   diasAlertaVencimiento?: number;
 }
 
+// Catalog changes since a revision (completo: full catalog, replace local copy)
+export interface CatalogoCambios {
+  revision: number;
+  completo: boolean;
+  productos: Producto[];
+  categorias: Categoria[];
+  productosEliminados: string[];
+  categoriasEliminadas: string[];
+}
+
 export interface ProductoCreate {
   codigo?: string;
   codigoBarras?: string;
@@ -98,6 +108,17 @@ export interface VentaCreate {
   descuento?: number;
   montoRecibido?: number;
   clienteId?: string;
+  claveIdempotencia?: string; // a retry with the same key is not booked twice
+  fecha?: string;             // ISO instant of an offline sale (batch only)
+}
+
+export interface VentaOfflineResultado {
+  claveIdempotencia?: string;
+  estado: 'CREADA' | 'DUPLICADA' | 'RECHAZADA';
+  ventaId?: string;
+  numero?: number;
+  total?: number;
+  error?: string;
 }
 
 // Cart types (frontend only)